@@ -0,0 +1,304 @@
+/*
+ * ============================================================
+ * ClassTrack – Student Attendance Management System
+ * File: BenchDataset.java
+ * Purpose: Creates the schema in an empty benchmark database and
+ *          seeds a deterministic synthetic dataset for DaoBenchmark:
+ *          fixture classes of exactly 30, 70 and 200 students plus
+ *          background classes with a history of attendance.
+ *
+ * All benchmark students have roll numbers starting with "BN"; the
+ * rows a run marks are dated from 2098 onwards and removed by
+ * cleanUp().
+ * ============================================================
+ */
+
+package classtrack;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class BenchDataset {
+
+    // Fixture classes used by the batch-marking benchmarks
+    public static final String[] FIXTURE_CLASSES = { "BENCH-30", "BENCH-70", "BENCH-200" };
+    public static final int[] FIXTURE_SIZES = { 30, 70, 200 };
+
+    // Background classes hold the history read by the reports
+    public static final int BACKGROUND_CLASS_SIZE = 60;
+    public static final String DEPARTMENT = "Benchmark Engineering";
+
+    // Seeded history starts here; rows marked by benchmark runs are
+    // dated on or after RUN_DATES_FROM
+    public static final LocalDate HISTORY_FROM = LocalDate.of(2025, 7, 1);
+    public static final LocalDate RUN_DATES_FROM = LocalDate.of(2098, 1, 1);
+
+    private static final int PERIODS_PER_DAY = 6;
+    private static final int INSERT_CHUNK = 2000;
+
+    // Syllables for searchable, repeatable names
+    private static final String[] FIRST = { "Aarav", "Diya", "Ishaan", "Kavya", "Rohan", "Meera", "Arjun",
+            "Sneha", "Vikram", "Ananya", "Karthik", "Pooja", "Rahul", "Nisha", "Sanjay", "Lakshmi" };
+    private static final String[] LAST = { "Sharma", "Reddy", "Iyer", "Patel", "Nair", "Gupta", "Rao",
+            "Menon", "Das", "Kumar", "Singh", "Joshi" };
+
+    private final int backgroundStudents;
+    private final int historyDays;
+    private final long seed;
+
+    public BenchDataset(int backgroundStudents, int historyDays, long seed) {
+        this.backgroundStudents = Math.max(0, backgroundStudents);
+        this.historyDays = Math.max(0, historyDays);
+        this.seed = seed;
+    }
+
+    public static String rollNo(int n) {
+        return String.format("BN%06d", n);
+    }
+
+    public static String nameFor(Random rnd) {
+        return FIRST[rnd.nextInt(FIRST.length)] + " " + LAST[rnd.nextInt(LAST.length)];
+    }
+
+    public static String[] searchTerms() {
+        return new String[] { "Kavya", "Reddy", "BN0001", "Arjun Nair", "Menon", "zzz-no-match" };
+    }
+
+    // =====================================================
+    // SCHEMA
+    // =====================================================
+
+    /**
+     * Refuses to write benchmark or generated data into what looks like
+     * the real database: its name must contain "bench" or "test".
+     *
+     * @param force skip the check
+     */
+    public static void checkDatabase(boolean force) throws SQLException {
+        Connection conn = DBConnection.getConnection();
+        if (conn == null)
+            throw new SQLException("No database connection");
+        try {
+            String catalog = conn.getCatalog();
+            String name = catalog == null ? "" : catalog.toLowerCase();
+            if (!force && !name.contains("bench") && !name.contains("test"))
+                throw new SQLException("Database '" + catalog + "' does not look like a benchmark database; "
+                        + "point -Dclasstrack.db.url at one (e.g. classtrack_bench) or pass --force");
+            UIHelper.printInfo("Using database '" + catalog + "'.");
+        } finally {
+            conn.close();
+        }
+    }
+
+    /**
+     * Creates the base tables from setup.sql when the database is empty
+     * (skipping its DROP/CREATE DATABASE and USE lines), then runs the
+     * normal migrations.
+     */
+    public static void ensureSchema(Path setupSql) throws SQLException, IOException {
+        Connection conn = DBConnection.getConnection();
+        if (conn == null)
+            throw new SQLException("No database connection");
+        try {
+            boolean hasStudents;
+            try (ResultSet rs = conn.getMetaData().getTables(conn.getCatalog(), null, "students", null)) {
+                hasStudents = rs.next();
+            }
+            if (!hasStudents) {
+                UIHelper.printInfo("Creating base tables from " + setupSql + "...");
+                String script = new String(Files.readAllBytes(setupSql), StandardCharsets.UTF_8);
+                try (Statement stmt = conn.createStatement()) {
+                    for (String sql : script.replaceAll("(?m)^\\s*--.*$", "").split(";")) {
+                        String s = sql.trim();
+                        String upper = s.toUpperCase();
+                        if (s.isEmpty() || upper.startsWith("DROP DATABASE") || upper.startsWith("CREATE DATABASE")
+                                || upper.startsWith("USE "))
+                            continue;
+                        stmt.execute(s);
+                    }
+                }
+            }
+        } finally {
+            conn.close();
+        }
+        DatabaseMigration.migrate();
+    }
+
+    // =====================================================
+    // SEED
+    // =====================================================
+
+    private int expectedStudents() {
+        int n = backgroundStudents;
+        for (int size : FIXTURE_SIZES)
+            n += size;
+        return n;
+    }
+
+    /**
+     * Seeds the dataset unless an identical one is already present.
+     *
+     * @param reseed drop existing benchmark students first
+     */
+    public void seed(boolean reseed) throws SQLException {
+        int existing = countBenchStudents();
+        if (existing == expectedStudents() && !reseed) {
+            UIHelper.printInfo("Reusing existing dataset (" + existing + " benchmark students).");
+            return;
+        }
+        if (existing > 0) {
+            if (!reseed)
+                throw new SQLException("Found " + existing + " benchmark students but expected "
+                        + expectedStudents() + "; run with --reseed");
+            dropBenchStudents();
+        }
+
+        Random rnd = new Random(seed);
+        List<Student> students = new ArrayList<>();
+        List<Double> rates = new ArrayList<>();
+        int n = 0;
+        for (int c = 0; c < FIXTURE_CLASSES.length; c++) {
+            for (int i = 0; i < FIXTURE_SIZES[c]; i++) {
+                students.add(new Student(rollNo(n++), nameFor(rnd), FIXTURE_CLASSES[c], DEPARTMENT));
+                rates.add(attendanceRate(rnd));
+            }
+        }
+        for (int i = 0; i < backgroundStudents; i++) {
+            String cls = String.format("BENCH-C%03d", i / BACKGROUND_CLASS_SIZE + 1);
+            students.add(new Student(rollNo(n++), nameFor(rnd), cls, DEPARTMENT));
+            rates.add(attendanceRate(rnd));
+        }
+
+        UIHelper.printInfo("Enrolling " + students.size() + " benchmark students...");
+        new StudentDAO().enrollStudents(students);
+
+        if (historyDays > 0) {
+            long rows = insertHistory(students, rates, rnd);
+            UIHelper.printInfo("Inserted " + rows + " attendance_log rows; rebuilding summaries...");
+            new SummaryReconciler().reconcile(SummaryReconciler.SCOPE_DEPARTMENT, DEPARTMENT, false, true);
+            new DailyRollupBuilder().rebuild(null, null);
+        }
+    }
+
+    // Most students attend 80-95%; about one in six falls below 75%
+    private static double attendanceRate(Random rnd) {
+        return rnd.nextInt(6) == 0 ? 0.45 + rnd.nextDouble() * 0.30 : 0.80 + rnd.nextDouble() * 0.15;
+    }
+
+    private long insertHistory(List<Student> students, List<Double> rates, Random rnd) throws SQLException {
+        String[] subjects = { "Maths", "Physics", "Chemistry", "English", "Programming", "Electronics" };
+        Connection conn = DBConnection.getConnection();
+        if (conn == null)
+            throw new SQLException("No database connection");
+
+        long rows = 0;
+        String sql = "INSERT INTO attendance_log (roll_no, date, period, status, subject, class_name, department) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            int pending = 0;
+            LocalDate day = HISTORY_FROM;
+            for (int d = 0; d < historyDays; day = day.plusDays(1)) {
+                if (day.getDayOfWeek() == DayOfWeek.SUNDAY)
+                    continue;
+                Date date = Date.valueOf(day);
+                for (int period = 1; period <= PERIODS_PER_DAY; period++) {
+                    for (int i = 0; i < students.size(); i++) {
+                        Student st = students.get(i);
+                        pstmt.setString(1, st.getRollNo());
+                        pstmt.setDate(2, date);
+                        pstmt.setInt(3, period);
+                        pstmt.setString(4, rnd.nextDouble() < rates.get(i) ? "P" : "A");
+                        pstmt.setString(5, subjects[(period - 1 + d) % subjects.length]);
+                        pstmt.setString(6, st.getClassName());
+                        pstmt.setString(7, st.getDepartment());
+                        pstmt.addBatch();
+                        if (++pending == INSERT_CHUNK) {
+                            pstmt.executeBatch();
+                            conn.commit();
+                            rows += pending;
+                            pending = 0;
+                        }
+                    }
+                }
+                d++;
+            }
+            if (pending > 0) {
+                pstmt.executeBatch();
+                conn.commit();
+                rows += pending;
+            }
+        } finally {
+            conn.setAutoCommit(true);
+            conn.close();
+        }
+        return rows;
+    }
+
+    private int countBenchStudents() throws SQLException {
+        Connection conn = DBConnection.getConnection();
+        if (conn == null)
+            throw new SQLException("No database connection");
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM students WHERE roll_no LIKE 'BN%'")) {
+            rs.next();
+            return rs.getInt(1);
+        } finally {
+            conn.close();
+        }
+    }
+
+    private void dropBenchStudents() throws SQLException {
+        UIHelper.printInfo("Removing the previous benchmark dataset...");
+        Connection conn = DBConnection.getConnection();
+        if (conn == null)
+            throw new SQLException("No database connection");
+        try (Statement stmt = conn.createStatement()) {
+            // attendance_log loses its foreign key once partitioned
+            stmt.executeUpdate("DELETE FROM attendance_log WHERE roll_no LIKE 'BN%'");
+            stmt.executeUpdate("DELETE FROM attendance_log_archive WHERE roll_no LIKE 'BN%'");
+            stmt.executeUpdate("DELETE FROM users WHERE roll_no LIKE 'BN%'");
+            stmt.executeUpdate("DELETE FROM students WHERE roll_no LIKE 'BN%'");
+        } finally {
+            conn.close();
+        }
+        StudentDAO.invalidateRosterCache();
+    }
+
+    // =====================================================
+    // CLEAN UP
+    // =====================================================
+
+    /**
+     * Removes the rows marked during a run and rebuilds the summaries of
+     * the fixture classes and the rollup for those dates.
+     */
+    public static void cleanUp() throws SQLException {
+        Connection conn = DBConnection.getConnection();
+        if (conn == null)
+            throw new SQLException("No database connection");
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "DELETE FROM attendance_log WHERE roll_no LIKE 'BN%' AND date >= ?")) {
+            pstmt.setDate(1, Date.valueOf(RUN_DATES_FROM));
+            UIHelper.printInfo("Removed " + pstmt.executeUpdate() + " row(s) marked by the run.");
+        } finally {
+            conn.close();
+        }
+        for (String cls : FIXTURE_CLASSES)
+            new SummaryReconciler().reconcile(SummaryReconciler.SCOPE_CLASS, cls, false, true);
+        new DailyRollupBuilder().rebuild(Date.valueOf(RUN_DATES_FROM), Date.valueOf(RUN_DATES_FROM.plusYears(2)));
+    }
+}
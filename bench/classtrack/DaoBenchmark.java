@@ -0,0 +1,387 @@
+/*
+ * ============================================================
+ * ClassTrack – Student Attendance Management System
+ * File: DaoBenchmark.java
+ * Purpose: Benchmarks of the DAO hot paths against a real MySQL
+ *          database seeded by BenchDataset. Each benchmark runs
+ *          warmup iterations, then timed measurement iterations,
+ *          and reports average time per operation with a 99.9%
+ *          confidence interval, p50/p99 and throughput.
+ *
+ * Usage (from the project root, after compiling src/ into bin/):
+ *   javac -d bin-bench -cp "bin;lib/mysql-connector-j-8.3.0.jar" bench/classtrack/*.java
+ *   java -Dclasstrack.db.url="jdbc:mysql://localhost:3306/classtrack_bench?..." \
+ *        -cp "bin;bin-bench;lib/mysql-connector-j-8.3.0.jar" classtrack.DaoBenchmark [options]
+ *
+ * Options:
+ *   --students N     background students (default 3000)
+ *   --days N         days of seeded history (default 20)
+ *   --warmup N       warmup iterations (default 3)
+ *   --iterations N   measurement iterations (default 5)
+ *   --time-ms N      length of one iteration (default 2000)
+ *   --only a,b       run only benchmarks whose name contains one of these
+ *   --csv FILE       also write the results as CSV
+ *   --reseed         rebuild the dataset even if one is present
+ *   --keep           keep the rows marked during the run
+ *   --force          allow a database whose name lacks "bench"
+ * ============================================================
+ */
+
+package classtrack;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+
+public class DaoBenchmark {
+
+    /**
+     * One benchmarked operation. op() is called repeatedly with an
+     * increasing invocation number, which marking benchmarks use to pick
+     * a fresh (student, date, period) slot each time.
+     */
+    private abstract static class Bench {
+        final String name;
+
+        Bench(String name) {
+            this.name = name;
+        }
+
+        void setup() {
+        }
+
+        abstract void op(long n) throws Exception;
+    }
+
+    /**
+     * Measured result of one benchmark.
+     */
+    private static class Result {
+        final String name;
+        final double meanMs;
+        final double errorMs;
+        final double p50Ms;
+        final double p99Ms;
+        final double opsPerSec;
+        final long ops;
+
+        Result(String name, double meanMs, double errorMs, double p50Ms, double p99Ms, double opsPerSec, long ops) {
+            this.name = name;
+            this.meanMs = meanMs;
+            this.errorMs = errorMs;
+            this.p50Ms = p50Ms;
+            this.p99Ms = p99Ms;
+            this.opsPerSec = opsPerSec;
+            this.ops = ops;
+        }
+    }
+
+    private static final int MAX_SAMPLES = 1_000_000;
+
+    private int warmupIterations = 3;
+    private int measureIterations = 5;
+    private long iterationMillis = 2000;
+
+    public static void main(String[] args) {
+        new DaoBenchmark().run(args);
+    }
+
+    private void run(String[] args) {
+        int students = 3000;
+        int days = 20;
+        String[] only = null;
+        String csv = null;
+        List<String> flags = Arrays.asList(args);
+
+        for (int i = 0; i < args.length - 1; i++) {
+            switch (args[i]) {
+                case "--students": students = Integer.parseInt(args[i + 1]); break;
+                case "--days": days = Integer.parseInt(args[i + 1]); break;
+                case "--warmup": warmupIterations = Integer.parseInt(args[i + 1]); break;
+                case "--iterations": measureIterations = Math.max(1, Integer.parseInt(args[i + 1])); break;
+                case "--time-ms": iterationMillis = Long.parseLong(args[i + 1]); break;
+                case "--only": only = args[i + 1].split(","); break;
+                case "--csv": csv = args[i + 1]; break;
+                default:
+            }
+        }
+
+        try {
+            BenchDataset.checkDatabase(flags.contains("--force"));
+            BenchDataset.ensureSchema(Paths.get("setup.sql"));
+            new BenchDataset(students, days, 42L).seed(flags.contains("--reseed"));
+        } catch (SQLException | IOException e) {
+            UIHelper.printError("Benchmark setup failed: " + e.getMessage());
+            DBConnection.shutdown();
+            return;
+        }
+
+        List<Result> results = new ArrayList<>();
+        for (Bench bench : benchmarks()) {
+            if (only != null && !matches(bench.name, only))
+                continue;
+            results.add(measure(bench));
+        }
+
+        printResults(results);
+        if (csv != null)
+            writeCsv(csv, results);
+
+        if (!flags.contains("--keep")) {
+            try {
+                BenchDataset.cleanUp();
+            } catch (SQLException e) {
+                UIHelper.printError("Clean-up failed: " + e.getMessage());
+            }
+        }
+        DBConnection.shutdown();
+    }
+
+    private static boolean matches(String name, String[] only) {
+        for (String o : only) {
+            if (name.toLowerCase().contains(o.trim().toLowerCase()))
+                return true;
+        }
+        return false;
+    }
+
+    // =====================================================
+    // BENCHMARKS
+    // =====================================================
+    private List<Bench> benchmarks() {
+        AttendanceDAO attendanceDAO = new AttendanceDAO();
+        StudentDAO studentDAO = new StudentDAO();
+        List<Bench> list = new ArrayList<>();
+
+        // Single marks walk a 200-student roster, then periods, then days
+        list.add(new Bench("markAttendance") {
+            List<String> roster;
+
+            @Override
+            void setup() {
+                roster = studentDAO.getStudentsByClass("BENCH-200");
+            }
+
+            @Override
+            void op(long n) {
+                String rollNo = roster.get((int) (n % roster.size()));
+                long slot = n / roster.size();
+                attendanceDAO.markAttendance(rollNo, runDate(0, slot / 8), (int) (slot % 8) + 1, "Bench", "P");
+            }
+        });
+
+        for (int c = 0; c < BenchDataset.FIXTURE_CLASSES.length; c++) {
+            final String cls = BenchDataset.FIXTURE_CLASSES[c];
+            final int offset = c + 1;
+            list.add(new Bench("markBatchAttendance[" + BenchDataset.FIXTURE_SIZES[c] + "]") {
+                List<String> roster;
+                List<String> absentees;
+
+                @Override
+                void setup() {
+                    roster = studentDAO.getStudentsByClass(cls);
+                    absentees = new ArrayList<>();
+                    for (int i = 0; i < roster.size(); i += 7)
+                        absentees.add(roster.get(i));
+                }
+
+                @Override
+                void op(long n) {
+                    attendanceDAO.markBatchAttendance(cls, runDate(offset, n / 8), (int) (n % 8) + 1, "Bench",
+                            roster, absentees);
+                }
+            });
+        }
+
+        list.add(new Bench("searchStudent") {
+            final String[] terms = BenchDataset.searchTerms();
+
+            @Override
+            void op(long n) {
+                studentDAO.searchStudent(terms[(int) (n % terms.length)]);
+            }
+        });
+
+        list.add(new Bench("getStudentsByClass (uncached)") {
+            @Override
+            void op(long n) {
+                StudentDAO.invalidateRosterCache();
+                studentDAO.getStudentsByClass(backgroundClass(n));
+            }
+        });
+
+        list.add(new Bench("getStudentsByClass (cached)") {
+            @Override
+            void op(long n) {
+                studentDAO.getStudentsByClass(backgroundClass(n % 4));
+            }
+        });
+
+        list.add(new Bench("showDefaulters (first page)") {
+            @Override
+            void op(long n) {
+                attendanceDAO.showDefaulters(AttendanceDAO.DEFAULTER_THRESHOLD, new Scanner("q\n"));
+            }
+        });
+
+        list.add(new Bench("viewOverallAttendance[60]") {
+            @Override
+            void op(long n) {
+                attendanceDAO.viewOverallAttendance(backgroundClass(n));
+            }
+        });
+
+        list.add(new Bench("viewOverallAttendance[200]") {
+            @Override
+            void op(long n) {
+                attendanceDAO.viewOverallAttendance("BENCH-200");
+            }
+        });
+
+        return list;
+    }
+
+    // Each marking benchmark gets its own year, so their slots never clash
+    private static Date runDate(int benchmark, long day) {
+        return Date.valueOf(BenchDataset.RUN_DATES_FROM.plusYears(benchmark * 2L).plusDays(day));
+    }
+
+    private static String backgroundClass(long n) {
+        return String.format("BENCH-C%03d", n % 10 + 1);
+    }
+
+    // =====================================================
+    // MEASUREMENT
+    // =====================================================
+    private Result measure(Bench bench) {
+        System.out.println("# Benchmark: " + bench.name);
+        bench.setup();
+
+        // DAO console output is dropped while timing
+        PrintStream console = System.out;
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        long n = 0;
+        long[] samples = new long[1024];
+        int sampleCount = 0;
+        double[] iterationMeans = new double[measureIterations];
+        long measuredOps = 0;
+        long measuredNanos = 0;
+
+        try {
+            for (int it = 0; it < warmupIterations + measureIterations; it++) {
+                boolean warmup = it < warmupIterations;
+                long ops = 0;
+                long nanos = 0;
+                long end = System.nanoTime() + iterationMillis * 1_000_000L;
+
+                System.setOut(discard);
+                while (System.nanoTime() < end) {
+                    long start = System.nanoTime();
+                    bench.op(n++);
+                    long took = System.nanoTime() - start;
+                    ops++;
+                    nanos += took;
+                    if (!warmup && sampleCount < MAX_SAMPLES) {
+                        if (sampleCount == samples.length)
+                            samples = Arrays.copyOf(samples, Math.min(samples.length * 2, MAX_SAMPLES));
+                        samples[sampleCount++] = took;
+                    }
+                }
+                System.setOut(console);
+
+                double meanMs = ops == 0 ? 0 : nanos / 1e6 / ops;
+                System.out.printf("%s %d: %.3f ms/op (%d ops)%n", warmup ? "# Warmup Iteration  " : "Iteration",
+                        warmup ? it + 1 : it - warmupIterations + 1, meanMs, ops);
+                if (!warmup) {
+                    iterationMeans[it - warmupIterations] = meanMs;
+                    measuredOps += ops;
+                    measuredNanos += nanos;
+                }
+            }
+        } catch (Exception e) {
+            System.setOut(console);
+            UIHelper.printError(bench.name + " failed: " + e);
+            return new Result(bench.name, Double.NaN, Double.NaN, Double.NaN, Double.NaN, 0, measuredOps);
+        } finally {
+            System.setOut(console);
+        }
+
+        long[] sorted = Arrays.copyOf(samples, sampleCount);
+        Arrays.sort(sorted);
+        double mean = measuredOps == 0 ? 0 : measuredNanos / 1e6 / measuredOps;
+        return new Result(bench.name, mean, confidence999(iterationMeans), percentile(sorted, 0.50),
+                percentile(sorted, 0.99), measuredNanos == 0 ? 0 : measuredOps * 1e9 / measuredNanos, measuredOps);
+    }
+
+    /**
+     * Half-width of the 99.9% confidence interval of the iteration means
+     * (Student's t), as JMH reports it.
+     */
+    private static double confidence999(double[] means) {
+        int k = means.length;
+        if (k < 2)
+            return Double.NaN;
+        double avg = 0;
+        for (double m : means)
+            avg += m;
+        avg /= k;
+        double var = 0;
+        for (double m : means)
+            var += (m - avg) * (m - avg);
+        double stdev = Math.sqrt(var / (k - 1));
+        return tValue999(k - 1) * stdev / Math.sqrt(k);
+    }
+
+    // Two-sided 99.9% critical values of Student's t
+    private static double tValue999(int df) {
+        double[] table = { 636.62, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587,
+                4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850 };
+        return df <= table.length ? table[df - 1] : 3.291;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0)
+            return Double.NaN;
+        int idx = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, idx)] / 1e6;
+    }
+
+    // =====================================================
+    // REPORT
+    // =====================================================
+    private void printResults(List<Result> results) {
+        System.out.println();
+        System.out.printf("%-34s %8s %12s %10s %10s %10s %10s%n",
+                "Benchmark", "Cnt", "Score", "Error", "p50", "p99", "ops/s");
+        for (Result r : results) {
+            System.out.printf("%-34s %8d %9.3f ms %7s ms %7.3f ms %7.3f ms %10.1f%n",
+                    r.name, r.ops, r.meanMs, Double.isNaN(r.errorMs) ? "-" : String.format("±%.3f", r.errorMs),
+                    r.p50Ms, r.p99Ms, r.opsPerSec);
+        }
+        System.out.println("(Score = mean time per operation; Error = 99.9% confidence interval over "
+                + measureIterations + " iterations of " + iterationMillis + " ms)");
+    }
+
+    private static void writeCsv(String file, List<Result> results) {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8))) {
+            out.println("benchmark,ops,mean_ms,error_ms,p50_ms,p99_ms,ops_per_sec");
+            for (Result r : results) {
+                out.printf(java.util.Locale.ROOT, "\"%s\",%d,%.4f,%.4f,%.4f,%.4f,%.2f%n",
+                        r.name, r.ops, r.meanMs, r.errorMs, r.p50Ms, r.p99Ms, r.opsPerSec);
+            }
+            UIHelper.printSuccess("Results written to " + file);
+        } catch (IOException e) {
+            UIHelper.printError("Could not write " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,416 @@
+/*
+ * ============================================================
+ * ClassTrack – Student Attendance Management System
+ * File: DataGenerator.java
+ * Purpose: Fills a test database with a production-sized college:
+ *          departments, year-wise sections, students and a full
+ *          semester of period-wise attendance, so reports and the
+ *          load driver run against realistic volumes.
+ *
+ * Usage (from the project root, after compiling bench/ as in README):
+ *   java -Dclasstrack.db.url="jdbc:mysql://localhost:3306/classtrack_bench?..." \
+ *        -cp "bin;bin-bench;lib/mysql-connector-j-8.3.0.jar" classtrack.DataGenerator [options]
+ *
+ * Options:
+ *   --departments N    departments (default 4)
+ *   --years N          years of study per department (default 4)
+ *   --sections N       sections per year (default 3)
+ *   --section-size N   average students per section (default 60)
+ *   --from YYYY-MM-DD  first day of the semester (default 2025-07-01)
+ *   --weeks N          semester length in weeks (default 18)
+ *   --periods N        periods per day (default 6)
+ *   --absence MODEL    uniform | normal | bimodal (default bimodal)
+ *   --absence-mean F   average share of periods missed (default 0.15)
+ *   --chronic F        share of chronic absentees for bimodal (default 0.12)
+ *   --threads N        departments inserted in parallel (default 4)
+ *   --seed N           random seed (default 7)
+ *   --replace          remove a previously generated dataset first
+ *   --drop             only remove the generated dataset
+ *   --force            allow a database whose name lacks "bench"/"test"
+ *
+ * Generated roll numbers start with "GN"; they never clash with the
+ * BN students of BenchDataset or with real ones.
+ * ============================================================
+ */
+
+package classtrack;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class DataGenerator {
+
+    public static final String ROLL_PREFIX = "GN";
+
+    public static final String MODEL_UNIFORM = "uniform";
+    public static final String MODEL_NORMAL = "normal";
+    public static final String MODEL_BIMODAL = "bimodal";
+
+    private static final String[][] DEPARTMENTS = {
+            { "CS", "Computer Science" }, { "EC", "Electronics" }, { "ME", "Mechanical" },
+            { "CE", "Civil" }, { "EE", "Electrical" }, { "IT", "Information Technology" },
+            { "CH", "Chemical" }, { "BT", "Biotechnology" } };
+
+    private static final String[] SUBJECTS = { "Mathematics", "Physics", "Chemistry", "English",
+            "Programming", "Data Structures", "Digital Logic", "Mechanics", "Thermodynamics",
+            "Signals", "Networks", "Databases", "Environmental Studies", "Economics", "Lab" };
+
+    private static final int SUBJECTS_PER_SECTION = 6;
+    private static final int INSERT_CHUNK = 5000;
+
+    // ----- Settings -----
+    private int departments = 4;
+    private int years = 4;
+    private int sections = 3;
+    private int sectionSize = 60;
+    private LocalDate from = LocalDate.of(2025, 7, 1);
+    private int weeks = 18;
+    private int periods = 6;
+    private String model = MODEL_BIMODAL;
+    private double absenceMean = 0.15;
+    private double chronicShare = 0.12;
+    private int threads = 4;
+    private long seed = 7;
+
+    private final AtomicLong rowsInserted = new AtomicLong();
+
+    public static void main(String[] args) {
+        DataGenerator gen = new DataGenerator();
+        List<String> flags = Arrays.asList(args);
+        try {
+            gen.parse(args);
+        } catch (IllegalArgumentException e) {
+            UIHelper.printError("Invalid option: " + e.getMessage());
+            return;
+        }
+
+        try {
+            BenchDataset.checkDatabase(flags.contains("--force"));
+            BenchDataset.ensureSchema(Paths.get("setup.sql"));
+            if (flags.contains("--drop"))
+                drop();
+            else
+                gen.generate(flags.contains("--replace"));
+        } catch (SQLException | IOException e) {
+            UIHelper.printError("Data generation failed: " + e.getMessage());
+        } finally {
+            DBConnection.shutdown();
+        }
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length - 1; i++) {
+            String v = args[i + 1];
+            switch (args[i]) {
+                case "--departments": departments = Math.min(DEPARTMENTS.length, Math.max(1, Integer.parseInt(v))); break;
+                case "--years": years = Math.max(1, Integer.parseInt(v)); break;
+                case "--sections": sections = Math.min(26, Math.max(1, Integer.parseInt(v))); break;
+                case "--section-size": sectionSize = Math.max(1, Integer.parseInt(v)); break;
+                case "--from": from = LocalDate.parse(v); break;
+                case "--weeks": weeks = Math.max(1, Integer.parseInt(v)); break;
+                case "--periods": periods = Math.max(1, Integer.parseInt(v)); break;
+                case "--absence-mean": absenceMean = Double.parseDouble(v); break;
+                case "--chronic": chronicShare = Double.parseDouble(v); break;
+                case "--threads": threads = Math.max(1, Integer.parseInt(v)); break;
+                case "--seed": seed = Long.parseLong(v); break;
+                case "--absence":
+                    if (!v.equals(MODEL_UNIFORM) && !v.equals(MODEL_NORMAL) && !v.equals(MODEL_BIMODAL))
+                        throw new IllegalArgumentException("--absence must be uniform, normal or bimodal");
+                    model = v;
+                    break;
+                default:
+            }
+        }
+        if (absenceMean < 0 || absenceMean > 0.9 || chronicShare < 0 || chronicShare > 1)
+            throw new IllegalArgumentException("--absence-mean must be 0-0.9 and --chronic 0-1");
+    }
+
+    // =====================================================
+    // GENERATE
+    // =====================================================
+
+    /**
+     * One generated section with its students and their personal
+     * absence rates.
+     */
+    private static class Section {
+        final String className;
+        final String department;
+        final String[] subjects;
+        final List<Student> students = new ArrayList<>();
+        final List<Double> rates = new ArrayList<>();
+
+        Section(String className, String department, String[] subjects) {
+            this.className = className;
+            this.department = department;
+            this.subjects = subjects;
+        }
+    }
+
+    public void generate(boolean replace) throws SQLException {
+        int existing = countGenerated();
+        if (existing > 0) {
+            if (!replace)
+                throw new SQLException("Found " + existing + " generated students; run with --replace or --drop");
+            drop();
+        }
+
+        Random rnd = new Random(seed);
+        List<List<Section>> byDepartment = new ArrayList<>();
+        List<Student> all = new ArrayList<>();
+        for (int d = 0; d < departments; d++) {
+            List<Section> deptSections = new ArrayList<>();
+            int serial = 0;
+            for (int y = 1; y <= years; y++) {
+                for (int s = 0; s < sections; s++) {
+                    Section sec = new Section(DEPARTMENTS[d][0] + "-" + y + (char) ('A' + s), DEPARTMENTS[d][1],
+                            timetable(rnd));
+                    // Sections vary by about +/-10% around the average size
+                    int size = Math.max(1, sectionSize + (int) Math.round(sectionSize * 0.1 * (rnd.nextDouble() * 2 - 1)));
+                    for (int i = 0; i < size; i++) {
+                        String rollNo = String.format("%s%02d%s%04d", ROLL_PREFIX,
+                                (from.getYear() - y + 1) % 100, DEPARTMENTS[d][0], ++serial);
+                        Student st = new Student(rollNo, BenchDataset.nameFor(rnd), sec.className, sec.department);
+                        sec.students.add(st);
+                        sec.rates.add(absenceRate(rnd));
+                        all.add(st);
+                    }
+                    deptSections.add(sec);
+                }
+            }
+            byDepartment.add(deptSections);
+        }
+
+        List<LocalDate> days = teachingDays();
+        long expectedRows = (long) all.size() * days.size() * periods;
+        UIHelper.printInfo(String.format("Generating %d department(s), %d section(s), %d students, %d teaching days "
+                + "(%,d attendance rows, %s absence model, mean %.0f%%)...", departments,
+                departments * years * sections, all.size(), days.size(), expectedRows, model, absenceMean * 100));
+
+        long started = System.currentTimeMillis();
+        new StudentDAO().enrollStudents(all);
+        insertAttendance(byDepartment, days, rnd.nextLong());
+        long insertedAt = System.currentTimeMillis();
+        UIHelper.printSuccess(String.format("Inserted %,d attendance rows in %.1f s.", rowsInserted.get(),
+                (insertedAt - started) / 1000.0));
+
+        UIHelper.printInfo("Rebuilding attendance summaries and daily rollup...");
+        for (int d = 0; d < departments; d++)
+            new SummaryReconciler().reconcile(SummaryReconciler.SCOPE_DEPARTMENT, DEPARTMENTS[d][1], false, true);
+        new DailyRollupBuilder().rebuild(Date.valueOf(days.get(0)), Date.valueOf(days.get(days.size() - 1)));
+        UIHelper.printSuccess(String.format("Dataset ready in %.1f s.", (System.currentTimeMillis() - started) / 1000.0));
+    }
+
+    // Each section takes six subjects, assigned to periods by the day
+    private static String[] timetable(Random rnd) {
+        List<String> pool = new ArrayList<>(Arrays.asList(SUBJECTS));
+        java.util.Collections.shuffle(pool, rnd);
+        return pool.subList(0, SUBJECTS_PER_SECTION).toArray(new String[0]);
+    }
+
+    // Monday to Saturday, except the second Saturday of each month
+    private List<LocalDate> teachingDays() {
+        List<LocalDate> days = new ArrayList<>();
+        LocalDate end = from.plusWeeks(weeks);
+        for (LocalDate day = from; day.isBefore(end); day = day.plusDays(1)) {
+            if (day.getDayOfWeek() == DayOfWeek.SUNDAY)
+                continue;
+            if (day.getDayOfWeek() == DayOfWeek.SATURDAY && (day.getDayOfMonth() - 1) / 7 == 1)
+                continue;
+            days.add(day);
+        }
+        return days;
+    }
+
+    /**
+     * A student's personal share of missed periods under the chosen
+     * model. All three average out to about absenceMean.
+     */
+    private double absenceRate(Random rnd) {
+        switch (model) {
+            case MODEL_UNIFORM:
+                return absenceMean;
+            case MODEL_NORMAL:
+                return clamp(absenceMean + rnd.nextGaussian() * absenceMean / 2);
+            default:
+                // Most students miss little; chronic absentees miss 35-60%
+                double chronicRate = 0.35 + rnd.nextDouble() * 0.25;
+                if (rnd.nextDouble() < chronicShare)
+                    return chronicRate;
+                double regular = (absenceMean - chronicShare * 0.475) / Math.max(0.01, 1 - chronicShare);
+                return clamp(Math.max(0.01, regular) * (0.5 + rnd.nextDouble()));
+        }
+    }
+
+    private static double clamp(double rate) {
+        return Math.max(0, Math.min(0.95, rate));
+    }
+
+    // =====================================================
+    // INSERT
+    // =====================================================
+
+    // Departments are inserted in parallel, each on its own connection
+    private void insertAttendance(List<List<Section>> byDepartment, List<LocalDate> days, long daySeed)
+            throws SQLException {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, byDepartment.size()));
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int d = 0; d < byDepartment.size(); d++) {
+                final List<Section> deptSections = byDepartment.get(d);
+                final long deptSeed = daySeed + d;
+                futures.add(pool.submit(() -> {
+                    insertDepartment(deptSections, days, new Random(deptSeed));
+                    return null;
+                }));
+            }
+            for (Future<Void> f : futures) {
+                try {
+                    f.get();
+                } catch (java.util.concurrent.ExecutionException e) {
+                    if (e.getCause() instanceof SQLException)
+                        throw (SQLException) e.getCause();
+                    throw new SQLException("Insert failed: " + e.getCause(), e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted");
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void insertDepartment(List<Section> deptSections, List<LocalDate> days, Random rnd) throws SQLException {
+        Connection conn = DBConnection.getConnection();
+        if (conn == null)
+            throw new SQLException("No database connection");
+
+        String sql = "INSERT INTO attendance_log (roll_no, date, period, status, subject, class_name, department) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            int pending = 0;
+            boolean[] absent = new boolean[periods];
+            for (int dayIndex = 0; dayIndex < days.size(); dayIndex++) {
+                LocalDate day = days.get(dayIndex);
+                Date date = Date.valueOf(day);
+                double dayFactor = day.getDayOfWeek() == DayOfWeek.MONDAY
+                        || day.getDayOfWeek() == DayOfWeek.SATURDAY ? 1.2 : 1.0;
+
+                for (Section sec : deptSections) {
+                    for (int i = 0; i < sec.students.size(); i++) {
+                        Student st = sec.students.get(i);
+                        dayPattern(sec.rates.get(i) * dayFactor, rnd, absent);
+                        for (int p = 1; p <= periods; p++) {
+                            pstmt.setString(1, st.getRollNo());
+                            pstmt.setDate(2, date);
+                            pstmt.setInt(3, p);
+                            pstmt.setString(4, absent[p - 1] ? "A" : "P");
+                            pstmt.setString(5, sec.subjects[(p - 1 + dayIndex) % sec.subjects.length]);
+                            pstmt.setString(6, sec.className);
+                            pstmt.setString(7, sec.department);
+                            pstmt.addBatch();
+                            if (++pending == INSERT_CHUNK) {
+                                pstmt.executeBatch();
+                                conn.commit();
+                                rowsInserted.addAndGet(pending);
+                                pending = 0;
+                            }
+                        }
+                    }
+                }
+            }
+            if (pending > 0) {
+                pstmt.executeBatch();
+                conn.commit();
+                rowsInserted.addAndGet(pending);
+            }
+        } catch (SQLException e) {
+            try {
+                conn.rollback();
+            } catch (SQLException ex) {
+            }
+            throw e;
+        } finally {
+            try {
+                conn.setAutoCommit(true);
+            } catch (SQLException ex) {
+            }
+            conn.close();
+        }
+    }
+
+    /**
+     * Fills in one student-day. Absence mostly comes as whole days
+     * (sixty percent of the missed periods); the rest are single periods,
+     * more often the last two of the day.
+     */
+    private static void dayPattern(double rate, Random rnd, boolean[] absent) {
+        rate = clamp(rate);
+        boolean wholeDay = rnd.nextDouble() < rate * 0.6;
+        double periodRate = rate * 0.4 / Math.max(0.05, 1 - rate * 0.6);
+        for (int p = 0; p < absent.length; p++) {
+            double late = p >= absent.length - 2 ? 1.3 : 0.9;
+            absent[p] = wholeDay || rnd.nextDouble() < periodRate * late;
+        }
+    }
+
+    // =====================================================
+    // DROP
+    // =====================================================
+
+    private static int countGenerated() throws SQLException {
+        Connection conn = DBConnection.getConnection();
+        if (conn == null)
+            throw new SQLException("No database connection");
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery(
+                        "SELECT COUNT(*) FROM students WHERE roll_no LIKE '" + ROLL_PREFIX + "%'")) {
+            rs.next();
+            return rs.getInt(1);
+        } finally {
+            conn.close();
+        }
+    }
+
+    /**
+     * Removes every generated student with their logins and attendance,
+     * then rebuilds the daily rollup.
+     */
+    public static void drop() throws SQLException {
+        UIHelper.printInfo("Removing the generated dataset...");
+        Connection conn = DBConnection.getConnection();
+        if (conn == null)
+            throw new SQLException("No database connection");
+        String like = "'" + ROLL_PREFIX + "%'";
+        try (Statement stmt = conn.createStatement()) {
+            // attendance_log loses its foreign key once partitioned
+            long rows = stmt.executeUpdate("DELETE FROM attendance_log WHERE roll_no LIKE " + like);
+            rows += stmt.executeUpdate("DELETE FROM attendance_log_archive WHERE roll_no LIKE " + like);
+            stmt.executeUpdate("DELETE FROM users WHERE roll_no LIKE " + like);
+            int students = stmt.executeUpdate("DELETE FROM students WHERE roll_no LIKE " + like);
+            UIHelper.printSuccess(String.format("Removed %d student(s) and %,d attendance row(s).", students, rows));
+        } finally {
+            conn.close();
+        }
+        StudentDAO.invalidateRosterCache();
+        new DailyRollupBuilder().rebuild(null, null);
+    }
+}
@@ -0,0 +1,564 @@
+/*
+ * ============================================================
+ * ClassTrack – Student Attendance Management System
+ * File: LoadDriver.java
+ * Purpose: Multi-threaded load test. Virtual users replay a weighted
+ *          mix of faculty, student and HOD operations through
+ *          AttendanceDAO and StudentDAO for a fixed time, then the
+ *          driver reports throughput and p50/p95/p99 latency per
+ *          operation.
+ *
+ * Usage (from the project root, against a database filled by
+ * DataGenerator):
+ *   java -Dclasstrack.db.url="jdbc:mysql://localhost:3306/classtrack_bench?..." \
+ *        -cp "bin;bin-bench;lib/mysql-connector-j-8.3.0.jar" classtrack.LoadDriver [options]
+ *
+ * Options:
+ *   --threads N       concurrent virtual users (default 16)
+ *   --duration N      measured seconds (default 60)
+ *   --warmup N        unmeasured seconds first (default 10)
+ *   --think-ms N      average pause between a user's operations (default 0)
+ *   --mix op=w,...    operation weights, e.g. batchMark=50,search=5
+ *   --csv FILE        also write the results as CSV
+ *   --keep            keep the rows marked during the run
+ *   --force           allow a database whose name lacks "bench"/"test"
+ *
+ * Marks are written to dates from RUN_DATES_FROM onwards and removed
+ * afterwards unless --keep is given.
+ * ============================================================
+ */
+
+package classtrack;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LoadDriver {
+
+    // Load-test marks are dated after anything BenchDataset writes
+    public static final LocalDate RUN_DATES_FROM = LocalDate.of(2101, 1, 1);
+
+    private static final int PERIODS = 8;
+
+    // Samples kept per operation and thread; beyond this a uniform
+    // reservoir sample is kept, so percentiles stay unbiased
+    private static final int RESERVOIR = 200_000;
+
+    /**
+     * Default mix: faculty marking and students checking their own
+     * attendance dominate; HOD reports are rare.
+     */
+    private static final String DEFAULT_MIX = "batchMark=30,viewAttendance=20,todayAttendance=15,"
+            + "attendanceByDate=5,search=10,roster=10,getStudent=5,sectionReport=3,defaulters=1,singleMark=1";
+
+    private int threads = 16;
+    private int durationSec = 60;
+    private int warmupSec = 10;
+    private int thinkMs = 0;
+
+    // ----- Dataset loaded before the run -----
+    private final List<String> rollNos = new ArrayList<>();
+    private final List<String> classNames = new ArrayList<>();
+    private final Map<String, List<String>> rosters = new HashMap<>();
+    private final List<String> searchTerms = new ArrayList<>();
+    private final List<String> historyDates = new ArrayList<>();
+
+    // Fresh (class, date, period) slots for batch marks and
+    // (student, date, period) slots for single marks
+    private final AtomicLong batchSlots = new AtomicLong();
+    private final AtomicLong singleSlots = new AtomicLong();
+
+    // ----- Operations -----
+    private final Map<String, Operation> operations = new LinkedHashMap<>();
+    private Operation[] wheel;
+
+    private volatile boolean measuring;
+    private volatile boolean stopping;
+
+    private static final ThreadLocal<Operation> CURRENT = new ThreadLocal<>();
+
+    // =====================================================
+    // OPERATIONS
+    // =====================================================
+
+    @FunctionalInterface
+    private interface Call {
+        void run(ThreadLocalRandom rnd) throws Exception;
+    }
+
+    /**
+     * One kind of call in the mix, with its latency record.
+     */
+    private static class Operation {
+        final String name;
+        final Call call;
+        int weight;
+        final AtomicLong errors = new AtomicLong();
+        final List<Recorder> recorders = new ArrayList<>();
+
+        Operation(String name, Call call) {
+            this.name = name;
+            this.call = call;
+        }
+
+        synchronized Recorder newRecorder() {
+            Recorder r = new Recorder();
+            recorders.add(r);
+            return r;
+        }
+    }
+
+    /**
+     * Latencies of one operation on one thread (no locking needed).
+     */
+    private static class Recorder {
+        long count;
+        long totalNanos;
+        long maxNanos;
+        long[] samples = new long[256];
+        int size;
+
+        void record(long nanos, ThreadLocalRandom rnd) {
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+            if (size < RESERVOIR) {
+                if (size == samples.length)
+                    samples = Arrays.copyOf(samples, Math.min(samples.length * 2, RESERVOIR));
+                samples[size++] = nanos;
+            } else {
+                long slot = rnd.nextLong(count);
+                if (slot < RESERVOIR)
+                    samples[(int) slot] = nanos;
+            }
+        }
+    }
+
+    private void defineOperations() {
+        AttendanceDAO attendanceDAO = new AttendanceDAO();
+        StudentDAO studentDAO = new StudentDAO();
+
+        // Faculty roll call: one period for a whole section, ~10% absent
+        operations.put("batchMark", new Operation("batchMark", rnd -> {
+            long n = batchSlots.getAndIncrement();
+            String cls = classNames.get((int) (n % classNames.size()));
+            long slot = n / classNames.size();
+            List<String> roster = rosters.get(cls);
+            List<String> absentees = new ArrayList<>();
+            for (String rollNo : roster) {
+                if (rnd.nextInt(10) == 0)
+                    absentees.add(rollNo);
+            }
+            attendanceDAO.markBatchAttendance(cls, runDate(0, slot / PERIODS), (int) (slot % PERIODS) + 1,
+                    "LoadTest", roster, absentees);
+        }));
+
+        // HOD marking a single student
+        operations.put("singleMark", new Operation("singleMark", rnd -> {
+            long n = singleSlots.getAndIncrement();
+            String rollNo = rollNos.get((int) (n % rollNos.size()));
+            long slot = n / rollNos.size();
+            attendanceDAO.markAttendance(rollNo, runDate(1, slot / PERIODS), (int) (slot % PERIODS) + 1,
+                    "LoadTest", rnd.nextInt(10) == 0 ? "A" : "P");
+        }));
+
+        operations.put("viewAttendance", new Operation("viewAttendance",
+                rnd -> attendanceDAO.viewAttendance(pick(rollNos, rnd))));
+        operations.put("todayAttendance", new Operation("todayAttendance",
+                rnd -> attendanceDAO.viewStudentTodayAttendance(pick(rollNos, rnd))));
+        operations.put("attendanceByDate", new Operation("attendanceByDate",
+                rnd -> attendanceDAO.viewStudentAttendanceByDate(pick(rollNos, rnd), pick(historyDates, rnd))));
+        operations.put("search", new Operation("search",
+                rnd -> studentDAO.searchStudent(pick(searchTerms, rnd))));
+        operations.put("roster", new Operation("roster",
+                rnd -> studentDAO.getStudentsByClass(pick(classNames, rnd))));
+        operations.put("getStudent", new Operation("getStudent",
+                rnd -> studentDAO.getStudent(pick(rollNos, rnd))));
+        operations.put("sectionReport", new Operation("sectionReport",
+                rnd -> attendanceDAO.viewOverallAttendance(pick(classNames, rnd))));
+        operations.put("defaulters", new Operation("defaulters",
+                rnd -> attendanceDAO.showDefaulters(AttendanceDAO.DEFAULTER_THRESHOLD, new Scanner("q\n"))));
+    }
+
+    private static <T> T pick(List<T> list, ThreadLocalRandom rnd) {
+        return list.get(rnd.nextInt(list.size()));
+    }
+
+    // Batch and single marks use separate years, so they never clash
+    private static Date runDate(int kind, long day) {
+        return Date.valueOf(RUN_DATES_FROM.plusYears(kind * 5L).plusDays(day));
+    }
+
+    // =====================================================
+    // MAIN
+    // =====================================================
+    public static void main(String[] args) {
+        new LoadDriver().run(args);
+    }
+
+    private void run(String[] args) {
+        String mix = DEFAULT_MIX;
+        String csv = null;
+        List<String> flags = Arrays.asList(args);
+        for (int i = 0; i < args.length - 1; i++) {
+            switch (args[i]) {
+                case "--threads": threads = Math.max(1, Integer.parseInt(args[i + 1])); break;
+                case "--duration": durationSec = Math.max(1, Integer.parseInt(args[i + 1])); break;
+                case "--warmup": warmupSec = Math.max(0, Integer.parseInt(args[i + 1])); break;
+                case "--think-ms": thinkMs = Math.max(0, Integer.parseInt(args[i + 1])); break;
+                case "--mix": mix = args[i + 1]; break;
+                case "--csv": csv = args[i + 1]; break;
+                default:
+            }
+        }
+
+        defineOperations();
+        try {
+            applyMix(mix);
+        } catch (IllegalArgumentException e) {
+            UIHelper.printError(e.getMessage());
+            return;
+        }
+
+        try {
+            BenchDataset.checkDatabase(flags.contains("--force"));
+            DatabaseMigration.migrate();
+            loadDataset();
+        } catch (SQLException e) {
+            UIHelper.printError("Load test setup failed: " + e.getMessage());
+            DBConnection.shutdown();
+            return;
+        }
+        MarkQueue.start();
+
+        UIHelper.printInfo(String.format("%d user(s), %d s warmup + %d s measured, %d students in %d sections.",
+                threads, warmupSec, durationSec, rollNos.size(), classNames.size()));
+        long measuredNanos = drive();
+
+        try {
+            if (MarkQueue.getPending() > 0 && !MarkQueue.awaitDrained(60000))
+                UIHelper.printWarning(MarkQueue.getPending() + " queued mark(s) still not applied.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        printResults(measuredNanos);
+        if (csv != null)
+            writeCsv(csv, measuredNanos);
+
+        if (!flags.contains("--keep"))
+            cleanUp();
+        MarkQueue.shutdown();
+        DBConnection.shutdown();
+    }
+
+    private void applyMix(String mix) {
+        if (!mix.equals(DEFAULT_MIX)) {
+            for (Operation op : operations.values())
+                op.weight = 0;
+        }
+        for (String part : mix.split(",")) {
+            String[] kv = part.trim().split("=");
+            Operation op = operations.get(kv[0].trim());
+            if (kv.length != 2 || op == null)
+                throw new IllegalArgumentException("Unknown mix entry '" + part + "'; operations are "
+                        + String.join(", ", operations.keySet()));
+            op.weight = Math.max(0, Integer.parseInt(kv[1].trim()));
+        }
+
+        List<Operation> spun = new ArrayList<>();
+        for (Operation op : operations.values()) {
+            for (int i = 0; i < op.weight; i++)
+                spun.add(op);
+        }
+        if (spun.isEmpty())
+            throw new IllegalArgumentException("The mix has no operation with a positive weight");
+        wheel = spun.toArray(new Operation[0]);
+    }
+
+    /**
+     * Reads the students, sections and some dates with history, which
+     * the operations pick from at random.
+     */
+    private void loadDataset() throws SQLException {
+        Connection conn = DBConnection.getConnection();
+        if (conn == null)
+            throw new SQLException("No database connection");
+        try (Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT roll_no, name, class_name FROM students ORDER BY roll_no")) {
+                while (rs.next()) {
+                    String rollNo = rs.getString(1);
+                    rollNos.add(rollNo);
+                    rosters.computeIfAbsent(rs.getString(3), k -> new ArrayList<>()).add(rollNo);
+                    if (rollNos.size() % 97 == 1) {
+                        String[] words = rs.getString(2).split(" ");
+                        searchTerms.add(words[words.length - 1]);
+                        searchTerms.add(rollNo.substring(0, Math.min(6, rollNo.length())));
+                    }
+                }
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT DISTINCT date FROM daily_attendance WHERE date < ? ORDER BY date DESC LIMIT 60")) {
+                pstmt.setDate(1, Date.valueOf(BenchDataset.RUN_DATES_FROM));
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next())
+                        historyDates.add(rs.getDate(1).toString());
+                }
+            }
+        } finally {
+            conn.close();
+        }
+
+        if (rollNos.isEmpty())
+            throw new SQLException("No students found; run classtrack.DataGenerator first");
+        classNames.addAll(rosters.keySet());
+        classNames.sort(null);
+        searchTerms.add("zzz-no-match");
+        if (historyDates.isEmpty())
+            historyDates.add(LocalDate.now().toString());
+    }
+
+    // =====================================================
+    // RUN
+    // =====================================================
+
+    /**
+     * Runs the virtual users through warmup and the measured window.
+     *
+     * @return length of the measured window in nanoseconds
+     */
+    private long drive() {
+        PrintStream console = System.out;
+        System.setOut(new ErrorCountingStream());
+
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    userLoop();
+                } finally {
+                    done.countDown();
+                }
+            }, "load-user-" + t);
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        long measuredNanos = 0;
+        try {
+            Thread.sleep(warmupSec * 1000L);
+            long start = System.nanoTime();
+            measuring = true;
+            Thread.sleep(durationSec * 1000L);
+            measuring = false;
+            measuredNanos = System.nanoTime() - start;
+            stopping = true;
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopping = true;
+        } finally {
+            System.setOut(console);
+        }
+        return measuredNanos;
+    }
+
+    private void userLoop() {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        Map<Operation, Recorder> mine = new HashMap<>();
+        while (!stopping) {
+            Operation op = wheel[rnd.nextInt(wheel.length)];
+            CURRENT.set(op);
+            long start = System.nanoTime();
+            boolean failed = false;
+            try {
+                op.call.run(rnd);
+            } catch (Exception e) {
+                failed = true;
+            }
+            long took = System.nanoTime() - start;
+            CURRENT.remove();
+
+            if (measuring) {
+                mine.computeIfAbsent(op, Operation::newRecorder).record(took, rnd);
+                if (failed)
+                    op.errors.incrementAndGet();
+            }
+            if (thinkMs > 0) {
+                try {
+                    // Exponential pauses, as between independent users
+                    Thread.sleep((long) (-Math.log(1 - rnd.nextDouble()) * thinkMs));
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Discards DAO output while the test runs, but counts the [ERROR]
+     * lines against the operation that printed them: the DAOs report
+     * SQL failures on the console instead of throwing.
+     */
+    private class ErrorCountingStream extends PrintStream {
+        ErrorCountingStream() {
+            super(OutputStream.nullOutputStream());
+        }
+
+        @Override
+        public void print(String s) {
+            Operation op = CURRENT.get();
+            if (op != null && measuring && s != null && s.contains("[ERROR]"))
+                op.errors.incrementAndGet();
+        }
+
+        @Override
+        public void println(String s) {
+            print(s);
+        }
+    }
+
+    // =====================================================
+    // REPORT
+    // =====================================================
+
+    /**
+     * Measured figures of one operation, merged across threads.
+     */
+    private static class Summary {
+        long count;
+        long totalNanos;
+        long maxNanos;
+        long[] sorted;
+    }
+
+    private static Summary summarize(Operation op) {
+        Summary s = new Summary();
+        int samples = 0;
+        synchronized (op) {
+            for (Recorder r : op.recorders) {
+                s.count += r.count;
+                s.totalNanos += r.totalNanos;
+                s.maxNanos = Math.max(s.maxNanos, r.maxNanos);
+                samples += r.size;
+            }
+            s.sorted = new long[samples];
+            int at = 0;
+            for (Recorder r : op.recorders) {
+                System.arraycopy(r.samples, 0, s.sorted, at, r.size);
+                at += r.size;
+            }
+        }
+        Arrays.sort(s.sorted);
+        return s;
+    }
+
+    private static double percentileMs(long[] sorted, double p) {
+        if (sorted.length == 0)
+            return 0;
+        int idx = (int) Math.min(sorted.length - 1, Math.max(0, Math.ceil(p * sorted.length) - 1));
+        return sorted[idx] / 1e6;
+    }
+
+    private void printResults(long measuredNanos) {
+        double seconds = Math.max(1e-9, measuredNanos / 1e9);
+        long totalOps = 0;
+        long totalErrors = 0;
+
+        System.out.println();
+        System.out.printf("%-18s %9s %9s %9s %9s %9s %9s %9s %7s%n",
+                "Operation", "Count", "ops/s", "mean ms", "p50 ms", "p95 ms", "p99 ms", "max ms", "Errors");
+        for (Operation op : operations.values()) {
+            if (op.weight == 0)
+                continue;
+            Summary s = summarize(op);
+            totalOps += s.count;
+            totalErrors += op.errors.get();
+            System.out.printf("%-18s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %7d%n", op.name, s.count,
+                    s.count / seconds, s.count == 0 ? 0 : s.totalNanos / 1e6 / s.count,
+                    percentileMs(s.sorted, 0.50), percentileMs(s.sorted, 0.95), percentileMs(s.sorted, 0.99),
+                    s.maxNanos / 1e6, op.errors.get());
+        }
+        System.out.printf("%-18s %9d %9.1f %62d%n", "TOTAL", totalOps, totalOps / seconds, totalErrors);
+        System.out.println(TransactionRetry.summary());
+        System.out.println("Pool: " + DBConnection.getPoolStats());
+    }
+
+    private void writeCsv(String file, long measuredNanos) {
+        double seconds = Math.max(1e-9, measuredNanos / 1e9);
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8))) {
+            out.println("operation,count,ops_per_sec,mean_ms,p50_ms,p95_ms,p99_ms,max_ms,errors");
+            for (Operation op : operations.values()) {
+                if (op.weight == 0)
+                    continue;
+                Summary s = summarize(op);
+                out.printf(java.util.Locale.ROOT, "%s,%d,%.2f,%.3f,%.3f,%.3f,%.3f,%.3f,%d%n", op.name, s.count,
+                        s.count / seconds, s.count == 0 ? 0 : s.totalNanos / 1e6 / s.count,
+                        percentileMs(s.sorted, 0.50), percentileMs(s.sorted, 0.95), percentileMs(s.sorted, 0.99),
+                        s.maxNanos / 1e6, op.errors.get());
+            }
+            UIHelper.printSuccess("Results written to " + file);
+        } catch (IOException e) {
+            UIHelper.printError("Could not write " + file + ": " + e.getMessage());
+        }
+    }
+
+    // =====================================================
+    // CLEAN UP
+    // =====================================================
+
+    /**
+     * Deletes the marks written by the run and rebuilds the summaries of
+     * the sections it touched.
+     */
+    private void cleanUp() {
+        Connection conn = DBConnection.getConnection();
+        if (conn == null)
+            return;
+        try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM attendance_log WHERE date >= ?")) {
+            pstmt.setDate(1, Date.valueOf(RUN_DATES_FROM));
+            UIHelper.printInfo("Removed " + pstmt.executeUpdate() + " row(s) marked by the load test.");
+        } catch (SQLException e) {
+            UIHelper.printError("Clean-up failed: " + e.getMessage());
+            return;
+        } finally {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+            }
+        }
+
+        UIHelper.printInfo("Rebuilding summaries of the sections marked...");
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (String cls : classNames)
+                new SummaryReconciler().reconcile(SummaryReconciler.SCOPE_CLASS, cls, false, true);
+            new DailyRollupBuilder().rebuild(Date.valueOf(RUN_DATES_FROM), Date.valueOf(RUN_DATES_FROM.plusYears(10)));
+        } finally {
+            System.setOut(console);
+        }
+    }
+}
@@ -14,265 +14,872 @@ import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 public class AttendanceDAO {
 
     // Table display width (characters between left and right borders)
     private static final int TABLE_WIDTH = 84;
 
+    // Attendance below this percentage marks a student as a defaulter
+    public static final double DEFAULTER_THRESHOLD = Double.parseDouble(
+            System.getProperty("classtrack.defaulter.threshold", "75"));
+
+    // Rows per page in paginated reports
+    private static final int REPORT_PAGE_SIZE = Integer.getInteger("classtrack.report.pageSize", 50);
+
+    // ----- Metrics (HOD → Maintenance & Tools → Performance Metrics) -----
+    private static final Metrics.Timer MARK_ATTENDANCE = Metrics.daoTimer("attendance", "markAttendance");
+    private static final Metrics.Timer MARK_BATCH = Metrics.daoTimer("attendance", "markBatchAttendance");
+    private static final Metrics.Timer APPLY_QUEUED = Metrics.daoTimer("attendance", "applyQueuedMarks");
+    private static final Metrics.Timer SAVE_OFFLINE = Metrics.daoTimer("attendance", "saveOffline");
+    private static final Metrics.Timer VIEW_ATTENDANCE = Metrics.daoTimer("attendance", "viewAttendance");
+    private static final Metrics.Timer SECTION_TODAY = Metrics.daoTimer("attendance", "viewTodayAttendance");
+    private static final Metrics.Timer SECTION_OVERALL = Metrics.daoTimer("attendance", "viewOverallAttendance");
+    private static final Metrics.Timer SECTION_BY_DATE = Metrics.daoTimer("attendance", "viewAttendanceByDate");
+    private static final Metrics.Timer SECTION_SUBJECT = Metrics.daoTimer("attendance", "viewSubjectAttendance");
+    private static final Metrics.Timer STUDENT_TODAY = Metrics.daoTimer("attendance", "viewStudentTodayAttendance");
+    private static final Metrics.Timer STUDENT_BY_DATE = Metrics.daoTimer("attendance", "viewStudentAttendanceByDate");
+    private static final Metrics.Timer DEFAULTERS = Metrics.daoTimer("attendance", "showDefaulters");
+
+    // ----- Report queries (also EXPLAINed by QueryPlanCheck after migrations) -----
+
+    // Present/absent counts per student of a section on one day, read from
+    // the daily_attendance rollup (a primary-key range on class_name, date)
+    // with names looked up by primary key.
+    static final String SECTION_DAY_SQL = "SELECT d.roll_no, s.name, d.class_name, d.present, d.absent "
+            + "FROM daily_attendance d "
+            + "JOIN students s ON s.roll_no = d.roll_no "
+            + "WHERE d.class_name = ? AND d.date = ? "
+            + "ORDER BY d.roll_no ASC";
+
+    // Semester totals for every student of a section
+    static final String SECTION_OVERALL_SQL = "SELECT s.roll_no, s.name, s.class_name, s.department, "
+            + "a.total_periods, a.present_periods, "
+            + "(a.present_periods * 100.0 / a.total_periods) AS percentage "
+            + "FROM students s "
+            + "LEFT JOIN attendance a ON s.roll_no = a.roll_no "
+            + "WHERE s.class_name = ? "
+            + "ORDER BY s.roll_no ASC";
+
+    // One student's periods on one day, live or archived. Parameters:
+    // roll_no, date, roll_no, date. The date predicate prunes
+    // attendance_log to one partition when it is partitioned.
+    static final String STUDENT_DAY_SQL = "SELECT period, subject, status FROM attendance_log "
+            + "WHERE roll_no = ? AND date = ? "
+            + "UNION ALL SELECT period, subject, status FROM attendance_log_archive "
+            + "WHERE roll_no = ? AND date = ? ORDER BY period ASC";
+
+    private static final String DEFAULTERS_SELECT = "SELECT s.roll_no, s.name, s.class_name, s.department, "
+            + "a.total_periods, a.present_periods, a.percentage_bp, "
+            + "(a.present_periods * 100.0 / a.total_periods) AS percentage "
+            + "FROM attendance a "
+            + "JOIN students s ON s.roll_no = a.roll_no "
+            + "WHERE a.percentage_bp < ? ";
+    private static final String DEFAULTERS_ORDER = "ORDER BY a.percentage_bp ASC, a.roll_no ASC LIMIT ?";
+
+    // Defaulters, walked in keyset pages of (percentage_bp, roll_no)
+    static final String DEFAULTERS_FIRST_PAGE_SQL = DEFAULTERS_SELECT + DEFAULTERS_ORDER;
+    static final String DEFAULTERS_NEXT_PAGE_SQL = DEFAULTERS_SELECT
+            + "AND (a.percentage_bp > ? OR (a.percentage_bp = ? AND a.roll_no > ?)) " + DEFAULTERS_ORDER;
+
+    // Daily rollup (daily_attendance): append "(class, date, roll_no, present, absent)" groups
+    static final String DAILY_UPSERT_SQL = "INSERT INTO daily_attendance "
+            + "(class_name, date, roll_no, present, absent) VALUES ";
+    static final String DAILY_UPSERT_UPDATE = " AS new ON DUPLICATE KEY UPDATE "
+            + "present = present + new.present, absent = absent + new.absent";
+
+    // ----- Per-subject summary (subject_attendance) -----
+
+    // Multi-row upsert: append one or more "(roll_no, subject, total, present)" groups
+    static final String SUBJECT_UPSERT_SQL = "INSERT INTO subject_attendance "
+            + "(roll_no, subject, total_periods, present_periods) VALUES ";
+    static final String SUBJECT_UPSERT_UPDATE = " AS new ON DUPLICATE KEY UPDATE "
+            + "total_periods = total_periods + new.total_periods, "
+            + "present_periods = present_periods + new.present_periods";
+    static final String STUDENT_SUBJECTS_SQL = "SELECT subject, total_periods, present_periods "
+            + "FROM subject_attendance WHERE roll_no = ? ORDER BY subject";
+    static final String SECTION_SUBJECT_SQL = "SELECT s.roll_no, s.name, sa.total_periods, sa.present_periods "
+            + "FROM students s JOIN subject_attendance sa ON sa.roll_no = s.roll_no AND sa.subject = ? "
+            + "WHERE s.class_name = ? ORDER BY s.roll_no";
+
+    // Date-wise breakdown of one student, keyset-paged on (date, period),
+    // over the live log and the archive. Each branch is its own index range
+    // and LIMIT; date-range filters prune attendance_log partitions.
+    private static final String BREAKDOWN_AFTER = "AND (date > ? OR (date = ? AND period > ?)) ";
+    private static final String BREAKDOWN_ORDER = "ORDER BY date ASC, period ASC LIMIT ?";
+    static final String BREAKDOWN_NEXT_PAGE_SQL = breakdownSql("", true);
+
     // =====================================================
     // 1. MARK ATTENDANCE (Single Student – logs + summary)
     // =====================================================
-    public void markAttendance(String rollNo, Date date, int period, String subject, String status) {
-        Connection conn = null;
-        PreparedStatement logStmt = null;
-        PreparedStatement summaryStmt = null;
 
-        try {
-            conn = DBConnection.getConnection();
-            if (conn == null)
-                return;
+    // Outcomes of one single-student mark
+    private static final int MARKED = 1;
+    private static final int NO_STUDENT = 0;
+    private static final int ALREADY_MARKED = -1;
 
-            conn.setAutoCommit(false);
+    public void markAttendance(String rollNo, Date date, int period, String subject, String status) {
+        long started = MARK_ATTENDANCE.start();
+        try {
+            Connection conn = null;
+
+            // Write-behind mode: journal it and return; the writer applies it
+            if (MarkQueue.isActive()) {
+                if (MarkQueue.submit(List.of(new QueuedMark(0, rollNo, date, period, subject, status)))) {
+                    UIHelper.printSuccess("Attendance queued for " + rollNo + " | " + subject + " | Period " + period
+                            + " (" + MarkQueue.getPending() + " pending)");
+                    return;
+                }
+                UIHelper.printWarning("Could not queue the mark - saving it directly.");
+            }
 
-            // 1. Insert into attendance_log
-            String logSQL = "INSERT INTO attendance_log (roll_no, date, period, status, subject) VALUES (?, ?, ?, ?, ?)";
-            logStmt = conn.prepareStatement(logSQL);
-            logStmt.setString(1, rollNo);
-            logStmt.setDate(2, date);
-            logStmt.setInt(3, period);
-            logStmt.setString(4, status);
-            logStmt.setString(5, subject);
             try {
-                logStmt.executeUpdate();
+                conn = DBConnection.getConnection();
+                if (conn == null) {
+                    // Offline only when MySQL is down; other failures were reported above
+                    if (DBConnection.isUnreachable())
+                        saveOffline(List.of(new QueuedMark(0, rollNo, date, period, subject, status)));
+                    else
+                        UIHelper.printError("Attendance NOT saved.");
+                    return;
+                }
+                if (ColdArchive.isFrozen(conn, date)) {
+                    UIHelper.printError("Attendance on " + date + " is archived and can't be marked.");
+                    return;
+                }
+
+                // Re-run as a whole if another terminal's transaction deadlocks
+                // with this one or holds the summary rows too long
+                int outcome = TransactionRetry.run(conn, c -> markOne(c, rollNo, date, period, subject, status));
+
+                if (outcome == NO_STUDENT) {
+                    UIHelper.printError("No student found with Roll No: " + rollNo);
+                } else if (outcome == ALREADY_MARKED) {
+                    UIHelper.printError("Attendance already marked for this student/period on this date.");
+                } else {
+                    String statusText = status.equals("P") ? "PRESENT" : "ABSENT";
+                    UIHelper.printSuccess("Attendance marked for " + rollNo + " | " + subject
+                            + " | Period " + period + " | " + statusText);
+                }
+
             } catch (SQLException e) {
-                UIHelper.printError("Attendance already marked for this student/period on this date.");
-                conn.rollback();
-                return;
+                Metrics.recordFailure(e);
+                UIHelper.printError("ERROR while marking attendance: " + e.getMessage());
+            } finally {
+                closeResources(conn, null, null);
             }
+        } finally {
+            MARK_ATTENDANCE.stop(started);
+        }
+    }
+
+    /**
+     * Statements of one single-student mark. Every row touched is keyed by
+     * the student's roll_no, so it locks in the same order as a batch.
+     */
+    private int markOne(Connection conn, String rollNo, Date date, int period, String subject,
+            String status) throws SQLException {
+        // 1. Insert into attendance_log, copying the student's class and
+        // department so section reports don't need to join students
+        String logSQL = "INSERT INTO attendance_log (roll_no, date, period, status, subject, class_name, department) "
+                + "SELECT roll_no, ?, ?, ?, ?, class_name, department FROM students WHERE roll_no = ?";
+        try (PreparedStatement logStmt = conn.prepareStatement(logSQL)) {
+            logStmt.setDate(1, date);
+            logStmt.setInt(2, period);
+            logStmt.setString(3, status);
+            logStmt.setString(4, subject);
+            logStmt.setString(5, rollNo);
+            if (logStmt.executeUpdate() == 0)
+                return NO_STUDENT;
+        } catch (SQLException e) {
+            // Lock errors propagate so the transaction is retried
+            if (TransactionRetry.errorCode(e) == TransactionRetry.ER_DUP_ENTRY)
+                return ALREADY_MARKED;
+            throw e;
+        }
 
-            // 2. Update summary table
-            int presentIncrement = status.equals("P") ? 1 : 0;
-            String summarySQL = "INSERT INTO attendance (roll_no, total_periods, present_periods) VALUES (?, 1, ?) "
-                    + "ON DUPLICATE KEY UPDATE total_periods = total_periods + 1, present_periods = present_periods + ?";
-            summaryStmt = conn.prepareStatement(summarySQL);
+        // 2. Update summary table
+        int presentIncrement = status.equals("P") ? 1 : 0;
+        String summarySQL = "INSERT INTO attendance (roll_no, total_periods, present_periods) VALUES (?, 1, ?) "
+                + "ON DUPLICATE KEY UPDATE total_periods = total_periods + 1, present_periods = present_periods + ?";
+        try (PreparedStatement summaryStmt = conn.prepareStatement(summarySQL)) {
             summaryStmt.setString(1, rollNo);
             summaryStmt.setInt(2, presentIncrement);
             summaryStmt.setInt(3, presentIncrement);
             summaryStmt.executeUpdate();
+        }
 
-            conn.commit();
-
-            String statusText = status.equals("P") ? "PRESENT" : "ABSENT";
-            UIHelper.printSuccess("Attendance marked for " + rollNo + " | " + subject
-                    + " | Period " + period + " | " + statusText);
+        // 3. Update the per-subject summary
+        try (PreparedStatement summaryStmt = conn.prepareStatement(
+                SUBJECT_UPSERT_SQL + "(?, ?, 1, ?)" + SUBJECT_UPSERT_UPDATE)) {
+            summaryStmt.setString(1, rollNo);
+            summaryStmt.setString(2, subjectKey(subject));
+            summaryStmt.setInt(3, presentIncrement);
+            summaryStmt.executeUpdate();
+        }
 
-        } catch (SQLException e) {
-            UIHelper.printError("ERROR while marking attendance: " + e.getMessage());
-            try {
-                if (conn != null)
-                    conn.rollback();
-            } catch (SQLException ex) {
-            }
-        } finally {
-            try {
-                if (conn != null)
-                    conn.setAutoCommit(true);
-            } catch (SQLException ex) {
-            }
-            closeResources(conn, logStmt, null);
-            closeStatement(summaryStmt);
+        // 4. Update the daily section rollup. A row alias only follows VALUES,
+        // so the class lookup is a derived table named like the alias.
+        try (PreparedStatement summaryStmt = conn.prepareStatement("INSERT INTO daily_attendance "
+                + "(class_name, date, roll_no, present, absent) "
+                + "SELECT * FROM (SELECT class_name, ? AS date, roll_no, ? AS present, ? AS absent "
+                + "FROM students WHERE roll_no = ?) AS new "
+                + "ON DUPLICATE KEY UPDATE present = daily_attendance.present + new.present, "
+                + "absent = daily_attendance.absent + new.absent")) {
+            summaryStmt.setDate(1, date);
+            summaryStmt.setInt(2, presentIncrement);
+            summaryStmt.setInt(3, 1 - presentIncrement);
+            summaryStmt.setString(4, rollNo);
+            summaryStmt.executeUpdate();
         }
+
+        return MARKED;
     }
 
     // =====================================================
     // 2. BATCH ATTENDANCE (Class-wise)
     // =====================================================
+
+    /**
+     * Result of one batch-mark transaction.
+     */
+    private static class BatchOutcome {
+        final List<String> marked = new ArrayList<>();
+        final List<String> skipped = new ArrayList<>();
+        final List<String> missing = new ArrayList<>();
+    }
+
     public void markBatchAttendance(String className, Date date, int period, String subject,
             List<String> allStudents, List<String> absentees) {
-        Connection conn = null;
-        PreparedStatement logStmt = null;
-        PreparedStatement summaryStmt = null;
-
+        long started = MARK_BATCH.start();
         try {
-            conn = DBConnection.getConnection();
-            if (conn == null)
+            Connection conn = null;
+
+            // Sorted so every statement below locks rows in roll_no order, the
+            // same order any other terminal marking these students uses; two
+            // overlapping batches then wait on each other instead of deadlocking
+            Set<String> roster = new TreeSet<>(allStudents);
+            Set<String> absentSet = new HashSet<>(absentees);
+            if (roster.isEmpty())
                 return;
 
-            conn.setAutoCommit(false);
+            if (MarkQueue.isActive()) {
+                List<QueuedMark> marks = new ArrayList<>(roster.size());
+                for (String rollNo : roster)
+                    marks.add(new QueuedMark(0, rollNo, date, period, subject, absentSet.contains(rollNo) ? "A" : "P"));
+                if (MarkQueue.submit(marks)) {
+                    UIHelper.printSuccess("Attendance queued for " + marks.size() + " students in " + className
+                            + " | Subject: " + subject + " | Period: " + period
+                            + " (" + MarkQueue.getPending() + " pending)");
+                    return;
+                }
+                UIHelper.printWarning("Could not queue the marks - saving them directly.");
+            }
 
-            String logSQL = "INSERT INTO attendance_log (roll_no, date, period, status, subject) VALUES (?, ?, ?, ?, ?)";
-            logStmt = conn.prepareStatement(logSQL);
+            try {
+                conn = DBConnection.getConnection();
+                if (conn == null) {
+                    // Offline only when MySQL is down; other failures were reported above
+                    if (!DBConnection.isUnreachable()) {
+                        UIHelper.printError("Attendance NOT saved.");
+                        return;
+                    }
+                    List<QueuedMark> marks = new ArrayList<>(roster.size());
+                    for (String rollNo : roster)
+                        marks.add(new QueuedMark(0, rollNo, date, period, subject, absentSet.contains(rollNo) ? "A" : "P"));
+                    saveOffline(marks);
+                    return;
+                }
+                if (ColdArchive.isFrozen(conn, date)) {
+                    UIHelper.printError("Attendance on " + date + " is archived and can't be marked.");
+                    return;
+                }
 
-            String summarySQL = "INSERT INTO attendance (roll_no, total_periods, present_periods) VALUES (?, 1, ?) " +
-                    "ON DUPLICATE KEY UPDATE total_periods = total_periods + 1, present_periods = present_periods + ?";
-            summaryStmt = conn.prepareStatement(summarySQL);
+                // A duplicate key means another terminal marked some of these
+                // students meanwhile: re-run, and the check skips them
+                BatchOutcome outcome = TransactionRetry.runRetryingConflicts(conn,
+                        c -> markBatch(c, date, period, subject, roster, absentSet));
 
-            int successCount = 0;
+                for (String rollNo : outcome.missing)
+                    UIHelper.printWarning("Skipping Roll " + rollNo + ": student not found.");
+                if (!outcome.skipped.isEmpty()) {
+                    UIHelper.printWarning("Skipped " + outcome.skipped.size()
+                            + " student(s) already marked for this period: " + String.join(", ", outcome.skipped));
+                }
+                UIHelper.printSuccess("Attendance marked for " + outcome.marked.size() + " students in " + className
+                        + " | Subject: " + subject + " | Period: " + period);
 
-            for (String rollNo : allStudents) {
-                boolean isAbsent = absentees.contains(rollNo);
-                String status = isAbsent ? "A" : "P";
-                int presentIncrement = isAbsent ? 0 : 1;
+            } catch (SQLException e) {
+                Metrics.recordFailure(e);
+                UIHelper.printError("Transaction failed: " + e.getMessage());
+            } finally {
+                closeResources(conn, null, null);
+            }
+        } finally {
+            MARK_BATCH.stop(started);
+        }
+    }
+
+    private BatchOutcome markBatch(Connection conn, Date date, int period, String subject,
+            Set<String> roster, Set<String> absentSet) throws SQLException {
+        BatchOutcome outcome = new BatchOutcome();
+
+        // 1. One round trip: each student's class/department, and whether
+        // they are already marked for this period
+        String checkSQL = "SELECT s.roll_no, s.class_name, s.department, al.log_id "
+                + "FROM students s "
+                + "LEFT JOIN attendance_log al ON al.roll_no = s.roll_no AND al.date = ? AND al.period = ? "
+                + "WHERE s.roll_no IN (" + placeholders(roster.size(), "?") + ")";
+        Set<String> alreadyMarked = new HashSet<>();
+        Map<String, String[]> placement = new HashMap<>();
+        try (PreparedStatement checkStmt = conn.prepareStatement(checkSQL)) {
+            checkStmt.setDate(1, date);
+            checkStmt.setInt(2, period);
+            int idx = 3;
+            for (String rollNo : roster)
+                checkStmt.setString(idx++, rollNo);
+            try (ResultSet rs = checkStmt.executeQuery()) {
+                while (rs.next()) {
+                    String rollNo = rs.getString("roll_no");
+                    placement.put(rollNo, new String[] { rs.getString("class_name"), rs.getString("department") });
+                    if (rs.getObject("log_id") != null)
+                        alreadyMarked.add(rollNo);
+                }
+            }
+        }
 
+        List<String> toMark = outcome.marked;
+        for (String rollNo : roster) {
+            if (!placement.containsKey(rollNo)) {
+                outcome.missing.add(rollNo);
+            } else if (alreadyMarked.contains(rollNo)) {
+                outcome.skipped.add(rollNo);
+            } else {
+                toMark.add(rollNo);
+            }
+        }
+        if (toMark.isEmpty())
+            return outcome;
+
+        // 2. Log rows as one JDBC batch (sent as multi-row INSERTs by the driver)
+        String logSQL = "INSERT INTO attendance_log (roll_no, date, period, status, subject, class_name, department) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement logStmt = conn.prepareStatement(logSQL)) {
+            for (String rollNo : toMark) {
+                String[] classAndDept = placement.get(rollNo);
                 logStmt.setString(1, rollNo);
                 logStmt.setDate(2, date);
                 logStmt.setInt(3, period);
-                logStmt.setString(4, status);
+                logStmt.setString(4, absentSet.contains(rollNo) ? "A" : "P");
                 logStmt.setString(5, subject);
-                try {
-                    logStmt.executeUpdate();
-                } catch (SQLException e) {
-                    UIHelper.printWarning("Skipping Roll " + rollNo + ": Attendance already marked for this period.");
-                    continue;
-                }
+                logStmt.setString(6, classAndDept[0]);
+                logStmt.setString(7, classAndDept[1]);
+                logStmt.addBatch();
+            }
+            logStmt.executeBatch();
+        }
 
-                summaryStmt.setString(1, rollNo);
-                summaryStmt.setInt(2, presentIncrement);
-                summaryStmt.setInt(3, presentIncrement);
-                summaryStmt.executeUpdate();
+        // 3. Summary for the whole class in a single multi-row upsert
+        String summarySQL = "INSERT INTO attendance (roll_no, total_periods, present_periods) VALUES "
+                + placeholders(toMark.size(), "(?, 1, ?)")
+                + " AS new ON DUPLICATE KEY UPDATE total_periods = total_periods + new.total_periods, "
+                + "present_periods = present_periods + new.present_periods";
+        try (PreparedStatement summaryStmt = conn.prepareStatement(summarySQL)) {
+            int idx = 1;
+            for (String rollNo : toMark) {
+                summaryStmt.setString(idx++, rollNo);
+                summaryStmt.setInt(idx++, absentSet.contains(rollNo) ? 0 : 1);
+            }
+            summaryStmt.executeUpdate();
+        }
 
-                successCount++;
+        // 4. Same for the per-subject summary
+        try (PreparedStatement summaryStmt = conn.prepareStatement(SUBJECT_UPSERT_SQL
+                + placeholders(toMark.size(), "(?, ?, 1, ?)") + SUBJECT_UPSERT_UPDATE)) {
+            int idx = 1;
+            for (String rollNo : toMark) {
+                summaryStmt.setString(idx++, rollNo);
+                summaryStmt.setString(idx++, subjectKey(subject));
+                summaryStmt.setInt(idx++, absentSet.contains(rollNo) ? 0 : 1);
             }
+            summaryStmt.executeUpdate();
+        }
 
-            conn.commit();
-            UIHelper.printSuccess("Attendance marked for " + successCount + " students in " + className
-                    + " | Subject: " + subject + " | Period: " + period);
+        // 5. And the daily section rollup
+        try (PreparedStatement summaryStmt = conn.prepareStatement(DAILY_UPSERT_SQL
+                + placeholders(toMark.size(), "(?, ?, ?, ?, ?)") + DAILY_UPSERT_UPDATE)) {
+            int idx = 1;
+            for (String rollNo : toMark) {
+                int present = absentSet.contains(rollNo) ? 0 : 1;
+                summaryStmt.setString(idx++, placement.get(rollNo)[0]);
+                summaryStmt.setDate(idx++, date);
+                summaryStmt.setString(idx++, rollNo);
+                summaryStmt.setInt(idx++, present);
+                summaryStmt.setInt(idx++, 1 - present);
+            }
+            summaryStmt.executeUpdate();
+        }
 
-        } catch (SQLException e) {
-            UIHelper.printError("Transaction failed: " + e.getMessage());
-            try {
-                if (conn != null)
-                    conn.rollback();
-            } catch (SQLException ex) {
+        return outcome;
+    }
+
+    /**
+     * Offline mode: MySQL is unreachable, so keep the marks in the local
+     * journal; the background writer syncs them when it comes back.
+     */
+    private void saveOffline(List<QueuedMark> marks) {
+        long started = SAVE_OFFLINE.start();
+        try {
+            if (MarkQueue.submitOffline(marks)) {
+                UIHelper.printWarning("Database unreachable - " + marks.size() + " mark(s) saved offline. "
+                        + "They are written to the database when the connection returns.");
+            } else {
+                Metrics.markFailed();
+                UIHelper.printError("Database unreachable and the offline journal is unavailable - "
+                        + "attendance NOT saved.");
             }
         } finally {
-            try {
-                if (conn != null)
-                    conn.setAutoCommit(true);
-            } catch (SQLException ex) {
-            }
-            closeResources(conn, logStmt, null);
-            closeStatement(summaryStmt);
+            SAVE_OFFLINE.stop(started);
         }
     }
 
     // =====================================================
-    // 3. VIEW ATTENDANCE (Overall + Date-wise)
+    // 2b. QUEUED MARKS (write-behind writer)
     // =====================================================
-    public void viewAttendance(String rollNo) {
-        Connection conn = null;
-        PreparedStatement pstmt = null;
-        PreparedStatement logStmt = null;
-        ResultSet rs = null;
-        ResultSet logRs = null;
 
+    /**
+     * Result of applying one batch from the write-behind queue.
+     */
+    static class QueuedMarkResult {
+        final List<QueuedMark> applied = new ArrayList<>();
+        final List<QueuedMark> duplicates = new ArrayList<>();
+        final List<QueuedMark> rejected = new ArrayList<>();
+    }
+
+    /**
+     * Applies marks of any classes, dates and periods in one transaction:
+     * log rows, both summaries and the daily rollup. Marks whose slot is
+     * already in the log are skipped, so replaying a journal that was
+     * partly applied before a crash is harmless.
+     */
+    QueuedMarkResult applyQueuedMarks(Connection conn, List<QueuedMark> marks) throws SQLException {
+        long started = APPLY_QUEUED.start();
         try {
-            conn = DBConnection.getConnection();
-            if (conn == null)
-                return;
+            return TransactionRetry.runRetryingConflicts(conn, c -> applyMarks(c, marks));
+        } catch (SQLException e) {
+            Metrics.recordFailure(e);
+            throw e;
+        } finally {
+            APPLY_QUEUED.stop(started);
+        }
+    }
 
-            // --- PART 1: Overall Semester Summary ---
-            String sql = "SELECT s.roll_no, s.name, s.class_name, s.department, "
-                    + "a.total_periods, a.present_periods "
-                    + "FROM students s "
-                    + "LEFT JOIN attendance a ON s.roll_no = a.roll_no "
-                    + "WHERE s.roll_no = ?";
+    private QueuedMarkResult applyMarks(Connection conn, List<QueuedMark> marks) throws SQLException {
+        QueuedMarkResult result = new QueuedMarkResult();
 
-            pstmt = conn.prepareStatement(sql);
-            pstmt.setString(1, rollNo);
-            rs = pstmt.executeQuery();
+        // First mark of each slot wins; sorted by roll_no so rows lock in
+        // the same order as a batch mark
+        Map<String, QueuedMark> slots = new HashMap<>();
+        for (QueuedMark m : marks) {
+            if (slots.putIfAbsent(m.getSlotKey(), m) != null)
+                result.duplicates.add(m);
+        }
+        List<QueuedMark> candidates = new ArrayList<>(slots.values());
+        candidates.sort(java.util.Comparator.comparing(QueuedMark::getRollNo)
+                .thenComparing(QueuedMark::getDate).thenComparingInt(QueuedMark::getPeriod));
+
+        // 1. Class/department of every student named in the batch
+        Set<String> rolls = new TreeSet<>();
+        for (QueuedMark m : candidates)
+            rolls.add(m.getRollNo());
+        Map<String, String[]> placement = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT roll_no, class_name, department "
+                + "FROM students WHERE roll_no IN (" + placeholders(rolls.size(), "?") + ")")) {
+            int idx = 1;
+            for (String rollNo : rolls)
+                pstmt.setString(idx++, rollNo);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    placement.put(rs.getString("roll_no"),
+                            new String[] { rs.getString("class_name"), rs.getString("department") });
+                }
+            }
+        }
 
-            if (rs.next()) {
-                int totalPeriods = rs.getInt("total_periods");
-                int presentPeriods = rs.getInt("present_periods");
-                double percentage = (totalPeriods > 0) ? ((double) presentPeriods / totalPeriods) * 100 : 0;
+        // 2. Slots already in the log (unique-key lookups)
+        Set<String> marked = new HashSet<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT roll_no, date, period FROM attendance_log "
+                + "WHERE (roll_no, date, period) IN (" + placeholders(candidates.size(), "(?, ?, ?)") + ")")) {
+            int idx = 1;
+            for (QueuedMark m : candidates) {
+                pstmt.setString(idx++, m.getRollNo());
+                pstmt.setDate(idx++, m.getDate());
+                pstmt.setInt(idx++, m.getPeriod());
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next())
+                    marked.add(rs.getString(1) + "|" + rs.getDate(2) + "|" + rs.getInt(3));
+            }
+        }
 
-                int w = 55;
-                String border = "\u2550".repeat(w);
-                System.out.println("\n\u2554" + border + "\u2557");
-                System.out.printf("\u2551%-" + w + "s\u2551%n", "           SEMESTER ATTENDANCE REPORT");
-                System.out.println("\u2560" + border + "\u2563");
-                System.out.printf("\u2551%-" + w + "s\u2551%n", "  Roll No     : " + rs.getString("roll_no"));
-                System.out.printf("\u2551%-" + w + "s\u2551%n", "  Name        : " + rs.getString("name"));
-                System.out.printf("\u2551%-" + w + "s\u2551%n", "  Class       : " + rs.getString("class_name"));
-                System.out.printf("\u2551%-" + w + "s\u2551%n", "  Department  : " + rs.getString("department"));
-                System.out.println("\u2560" + border + "\u2563");
+        java.time.LocalDate frozenUntil = ColdArchive.getFrozenUntil(conn);
+        List<QueuedMark> toApply = result.applied;
+        for (QueuedMark m : candidates) {
+            if (!placement.containsKey(m.getRollNo()))
+                result.rejected.add(m);
+            else if (frozenUntil != null && !m.getDate().toLocalDate().isAfter(frozenUntil))
+                result.rejected.add(m);
+            else if (marked.contains(m.getSlotKey()))
+                result.duplicates.add(m);
+            else
+                toApply.add(m);
+        }
+        if (toApply.isEmpty())
+            return result;
+
+        // 3. Log rows
+        String logSQL = "INSERT INTO attendance_log (roll_no, date, period, status, subject, class_name, department) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement logStmt = conn.prepareStatement(logSQL)) {
+            for (QueuedMark m : toApply) {
+                String[] classAndDept = placement.get(m.getRollNo());
+                logStmt.setString(1, m.getRollNo());
+                logStmt.setDate(2, m.getDate());
+                logStmt.setInt(3, m.getPeriod());
+                logStmt.setString(4, m.getStatus());
+                logStmt.setString(5, m.getSubject());
+                logStmt.setString(6, classAndDept[0]);
+                logStmt.setString(7, classAndDept[1]);
+                logStmt.addBatch();
+            }
+            logStmt.executeBatch();
+        }
 
-                if (totalPeriods == 0) {
-                    System.out.printf("\u2551%-" + w + "s\u2551%n", "  Attendance  : No attendance records found.");
-                } else {
-                    System.out.printf("\u2551%-" + w + "s\u2551%n", "  Total Periods : " + totalPeriods);
-                    System.out.printf("\u2551%-" + w + "s\u2551%n", "  Present       : " + presentPeriods);
-                    System.out.printf("\u2551%-" + w + "s\u2551%n",
-                            "  Absent        : " + (totalPeriods - presentPeriods));
-                    System.out.printf("\u2551%-" + w + "s\u2551%n",
-                            "  Percentage    : " + String.format("%.2f", percentage) + "%");
-
-                    if (percentage < 75.0) {
-                        System.out.printf("\u2551%-" + w + "s\u2551%n", "  Status        : ! DEFAULTER (Below 75%)");
+        // 4. Summary increments, coalesced per student, per subject and per
+        // day (keys sort by roll_no first, keeping the lock order)
+        Map<String, int[]> perStudent = new java.util.TreeMap<>();
+        Map<String, int[]> perSubject = new java.util.TreeMap<>();
+        Map<String, int[]> perDay = new java.util.TreeMap<>();
+        for (QueuedMark m : toApply) {
+            int present = m.getStatus().equals("P") ? 1 : 0;
+            addCounts(perStudent, m.getRollNo(), present);
+            addCounts(perSubject, m.getRollNo() + "\t" + subjectKey(m.getSubject()), present);
+            addCounts(perDay, m.getRollNo() + "\t" + m.getDate(), present);
+        }
+
+        String summarySQL = "INSERT INTO attendance (roll_no, total_periods, present_periods) VALUES "
+                + placeholders(perStudent.size(), "(?, ?, ?)")
+                + " AS new ON DUPLICATE KEY UPDATE total_periods = total_periods + new.total_periods, "
+                + "present_periods = present_periods + new.present_periods";
+        try (PreparedStatement summaryStmt = conn.prepareStatement(summarySQL)) {
+            int idx = 1;
+            for (Map.Entry<String, int[]> e : perStudent.entrySet()) {
+                summaryStmt.setString(idx++, e.getKey());
+                summaryStmt.setInt(idx++, e.getValue()[0]);
+                summaryStmt.setInt(idx++, e.getValue()[1]);
+            }
+            summaryStmt.executeUpdate();
+        }
+
+        try (PreparedStatement summaryStmt = conn.prepareStatement(SUBJECT_UPSERT_SQL
+                + placeholders(perSubject.size(), "(?, ?, ?, ?)") + SUBJECT_UPSERT_UPDATE)) {
+            int idx = 1;
+            for (Map.Entry<String, int[]> e : perSubject.entrySet()) {
+                String[] key = e.getKey().split("\t", 2);
+                summaryStmt.setString(idx++, key[0]);
+                summaryStmt.setString(idx++, key[1]);
+                summaryStmt.setInt(idx++, e.getValue()[0]);
+                summaryStmt.setInt(idx++, e.getValue()[1]);
+            }
+            summaryStmt.executeUpdate();
+        }
+
+        try (PreparedStatement summaryStmt = conn.prepareStatement(DAILY_UPSERT_SQL
+                + placeholders(perDay.size(), "(?, ?, ?, ?, ?)") + DAILY_UPSERT_UPDATE)) {
+            int idx = 1;
+            for (Map.Entry<String, int[]> e : perDay.entrySet()) {
+                String[] key = e.getKey().split("\t", 2);
+                int[] counts = e.getValue();
+                summaryStmt.setString(idx++, placement.get(key[0])[0]);
+                summaryStmt.setDate(idx++, Date.valueOf(key[1]));
+                summaryStmt.setString(idx++, key[0]);
+                summaryStmt.setInt(idx++, counts[1]);
+                summaryStmt.setInt(idx++, counts[0] - counts[1]);
+            }
+            summaryStmt.executeUpdate();
+        }
+
+        return result;
+    }
+
+    // counts[0] = periods, counts[1] = present
+    private static void addCounts(Map<String, int[]> totals, String key, int present) {
+        int[] counts = totals.computeIfAbsent(key, k -> new int[2]);
+        counts[0]++;
+        counts[1] += present;
+    }
+
+    // =====================================================
+    // 3. VIEW ATTENDANCE (Overall + Date-wise)
+    // =====================================================
+    public void viewAttendance(String rollNo) {
+        viewAttendance(rollNo, null);
+    }
+
+    /**
+     * Semester summary followed by the date-wise breakdown, one page
+     * at a time. With a Scanner the user may filter by date range and
+     * subject and is asked before each further page; without one every
+     * page is printed.
+     */
+    public void viewAttendance(String rollNo, java.util.Scanner sc) {
+        long started = VIEW_ATTENDANCE.start();
+        try {
+            Connection conn = null;
+            PreparedStatement pstmt = null;
+            ResultSet rs = null;
+
+            try {
+                conn = DBConnection.getConnection();
+                if (conn == null) {
+                    if (DBConnection.isUnreachable())
+                        viewOfflineAttendance(rollNo);
+                    return;
+                }
+
+                // --- PART 1: Overall Semester Summary ---
+                String sql = "SELECT s.roll_no, s.name, s.class_name, s.department, "
+                        + "a.total_periods, a.present_periods "
+                        + "FROM students s "
+                        + "LEFT JOIN attendance a ON s.roll_no = a.roll_no "
+                        + "WHERE s.roll_no = ?";
+
+                pstmt = conn.prepareStatement(sql);
+                pstmt.setString(1, rollNo);
+                rs = pstmt.executeQuery();
+
+                if (rs.next()) {
+                    int totalPeriods = rs.getInt("total_periods");
+                    int presentPeriods = rs.getInt("present_periods");
+                    double percentage = (totalPeriods > 0) ? ((double) presentPeriods / totalPeriods) * 100 : 0;
+
+                    int w = 55;
+                    String border = "\u2550".repeat(w);
+                    System.out.println("\n\u2554" + border + "\u2557");
+                    System.out.printf("\u2551%-" + w + "s\u2551%n", "           SEMESTER ATTENDANCE REPORT");
+                    System.out.println("\u2560" + border + "\u2563");
+                    System.out.printf("\u2551%-" + w + "s\u2551%n", "  Roll No     : " + rs.getString("roll_no"));
+                    System.out.printf("\u2551%-" + w + "s\u2551%n", "  Name        : " + rs.getString("name"));
+                    System.out.printf("\u2551%-" + w + "s\u2551%n", "  Class       : " + rs.getString("class_name"));
+                    System.out.printf("\u2551%-" + w + "s\u2551%n", "  Department  : " + rs.getString("department"));
+                    System.out.println("\u2560" + border + "\u2563");
+
+                    if (totalPeriods == 0) {
+                        System.out.printf("\u2551%-" + w + "s\u2551%n", "  Attendance  : No attendance records found.");
                     } else {
-                        System.out.printf("\u2551%-" + w + "s\u2551%n", "  Status        : [OK] REGULAR");
+                        System.out.printf("\u2551%-" + w + "s\u2551%n", "  Total Periods : " + totalPeriods);
+                        System.out.printf("\u2551%-" + w + "s\u2551%n", "  Present       : " + presentPeriods);
+                        System.out.printf("\u2551%-" + w + "s\u2551%n",
+                                "  Absent        : " + (totalPeriods - presentPeriods));
+                        System.out.printf("\u2551%-" + w + "s\u2551%n",
+                                "  Percentage    : " + String.format("%.2f", percentage) + "%");
+
+                        if (percentage < DEFAULTER_THRESHOLD) {
+                            System.out.printf("\u2551%-" + w + "s\u2551%n",
+                                    "  Status        : ! DEFAULTER (Below " + formatPercent(DEFAULTER_THRESHOLD) + "%)");
+                        } else {
+                            System.out.printf("\u2551%-" + w + "s\u2551%n", "  Status        : [OK] REGULAR");
+                        }
+                    }
+                    System.out.println(UIHelper.BRIGHT_CYAN + "\u255a" + border + "\u255d" + UIHelper.RESET);
+                    rs.close();
+                    rs = null;
+
+                    // --- PART 2: Subject-wise Summary ---
+                    if (totalPeriods > 0)
+                        printSubjectSummary(conn, rollNo);
+
+                    // --- PART 3: Date-wise Breakdown (paged) ---
+                    java.sql.Date from = null;
+                    java.sql.Date to = null;
+                    String subject = null;
+                    if (sc != null) {
+                        System.out.print("\n  Filter the date-wise breakdown? (y/N): ");
+                        if (readLine(sc).trim().equalsIgnoreCase("y")) {
+                            from = readOptionalDate(sc, "  From date (YYYY-MM-DD, Enter = start of term): ");
+                            to = readOptionalDate(sc, "  To date   (YYYY-MM-DD, Enter = today): ");
+                            System.out.print("  Subject (Enter = all): ");
+                            subject = readLine(sc).trim();
+                            if (subject.isEmpty())
+                                subject = null;
+                        }
                     }
+                    printBreakdown(conn, rollNo, from, to, subject, sc);
+
+                } else {
+                    UIHelper.printError("No student found with Roll No: " + rollNo);
                 }
-                System.out.println(UIHelper.BRIGHT_CYAN + "\u255a" + border + "\u255d" + UIHelper.RESET);
 
-                // --- PART 2: Date-wise Breakdown ---
-                String logSQL = "SELECT date, period, status, subject FROM attendance_log "
-                        + "WHERE roll_no = ? ORDER BY date ASC, period ASC";
-                logStmt = conn.prepareStatement(logSQL);
-                logStmt.setString(1, rollNo);
-                logRs = logStmt.executeQuery();
+            } catch (SQLException e) {
+                Metrics.recordFailure(e);
+                UIHelper.printError("ERROR while viewing attendance: " + e.getMessage());
+
+            } finally {
+                closeResources(conn, pstmt, rs);
+            }
+        } finally {
+            VIEW_ATTENDANCE.stop(started);
+        }
+    }
 
-                // Check if any date-wise records exist
-                boolean hasLogs = false;
-                int dw = 55;
-                String dborder = "\u2550".repeat(dw);
+    /**
+     * Per-subject totals for one student, read from subject_attendance.
+     */
+    private void printSubjectSummary(Connection conn, String rollNo) throws SQLException {
+        PreparedStatement pstmt = conn.prepareStatement(STUDENT_SUBJECTS_SQL);
+        ResultSet rs = null;
+        int w = 55;
+        String border = "\u2550".repeat(w);
+        try {
+            pstmt.setString(1, rollNo);
+            rs = pstmt.executeQuery();
 
-                System.out.println("\n" + UIHelper.YELLOW + "\u2554" + dborder + "\u2557" + UIHelper.RESET);
-                System.out.printf(UIHelper.YELLOW + "\u2551%-" + dw + "s\u2551%n" + UIHelper.RESET,
-                        "           DATE-WISE BREAKDOWN");
-                System.out.println(UIHelper.YELLOW + "\u2560" + dborder + "\u2563" + UIHelper.RESET);
-                System.out.printf(UIHelper.YELLOW + "\u2551" + UIHelper.RESET
-                        + " %-12s %-8s %-14s %-15s"
-                        + UIHelper.YELLOW + "%4s\u2551%n" + UIHelper.RESET,
-                        "Date", "Period", "Subject", "Status", "");
+            System.out.println("\n" + UIHelper.CYAN + "\u2554" + border + "\u2557" + UIHelper.RESET);
+            System.out.printf(UIHelper.CYAN + "\u2551%-" + w + "s\u2551%n" + UIHelper.RESET,
+                    "           SUBJECT-WISE ATTENDANCE");
+            System.out.println(UIHelper.CYAN + "\u2560" + border + "\u2563" + UIHelper.RESET);
+            System.out.printf(UIHelper.CYAN + "\u2551%-" + w + "s\u2551%n" + UIHelper.RESET,
+                    String.format(" %-18s %-8s %-8s %-10s", "Subject", "Total", "Present", "Percent"));
+            System.out.println(UIHelper.CYAN + "\u2560" + border + "\u2563" + UIHelper.RESET);
 
-                System.out.println(UIHelper.YELLOW + "\u2560" + dborder + "\u2563" + UIHelper.RESET);
+            while (rs.next()) {
+                int total = rs.getInt("total_periods");
+                int present = rs.getInt("present_periods");
+                double pct = total > 0 ? present * 100.0 / total : 0.0;
+                String flag = pct < DEFAULTER_THRESHOLD ? " !" : "";
+                System.out.printf(UIHelper.CYAN + "\u2551" + UIHelper.RESET + "%-" + w + "s"
+                        + UIHelper.CYAN + "\u2551%n" + UIHelper.RESET,
+                        String.format(" %-18s %-8d %-8d %.2f%%%s", rs.getString("subject"), total, present, pct, flag));
+            }
+        } finally {
+            System.out.println(UIHelper.CYAN + "\u255a" + border + "\u255d" + UIHelper.RESET);
+            closeResources(null, pstmt, rs);
+        }
+    }
 
-                while (logRs.next()) {
-                    hasLogs = true;
-                    String date = logRs.getString("date");
-                    int period = logRs.getInt("period");
-                    String status = logRs.getString("status");
-                    String subject = logRs.getString("subject");
-                    if (subject == null)
-                        subject = "General";
+    /**
+     * Prints the breakdown with keyset pagination on (date, period), so
+     * each page is an index range read on (roll_no, date, period) no
+     * matter how far back the user has paged.
+     */
+    private void printBreakdown(Connection conn, String rollNo, java.sql.Date from, java.sql.Date to,
+            String subject, java.util.Scanner sc) throws SQLException {
+        String filters = (from != null ? "AND date >= ? " : "")
+                + (to != null ? "AND date <= ? " : "")
+                + (subject != null ? "AND subject = ? " : "");
+        PreparedStatement firstStmt = null;
+        PreparedStatement nextStmt = null;
+        ResultSet logRs = null;
 
-                    String statusText = status.equals("P") ? "Present" : "Absent";
-                    String statusColor = status.equals("P") ? UIHelper.GREEN : UIHelper.RED;
+        int dw = 55;
+        String dborder = "\u2550".repeat(dw);
+        String title = "           DATE-WISE BREAKDOWN";
+        if (from != null || to != null || subject != null) {
+            title = "  DATE-WISE BREAKDOWN (" + (from != null ? from : "start") + " to "
+                    + (to != null ? to : "today") + (subject != null ? ", " + subject : "") + ")";
+        }
 
-                    String row = String.format(" %-12s %-8d %-14s ", date, period, subject);
-                    System.out.printf(UIHelper.YELLOW + "\u2551" + UIHelper.RESET
-                            + "%-35s" + statusColor + "%-15s" + UIHelper.RESET
-                            + UIHelper.YELLOW + "%5s\u2551%n" + UIHelper.RESET,
-                            row, statusText, "");
-                }
+        System.out.println("\n" + UIHelper.YELLOW + "\u2554" + dborder + "\u2557" + UIHelper.RESET);
+        System.out.printf(UIHelper.YELLOW + "\u2551%-" + dw + "s\u2551%n" + UIHelper.RESET, title);
+        System.out.println(UIHelper.YELLOW + "\u2560" + dborder + "\u2563" + UIHelper.RESET);
+        System.out.printf(UIHelper.YELLOW + "\u2551" + UIHelper.RESET
+                + " %-12s %-8s %-14s %-15s"
+                + UIHelper.YELLOW + "%4s\u2551%n" + UIHelper.RESET,
+                "Date", "Period", "Subject", "Status", "");
+        System.out.println(UIHelper.YELLOW + "\u2560" + dborder + "\u2563" + UIHelper.RESET);
 
-                if (!hasLogs) {
-                    System.out.printf(UIHelper.YELLOW + "\u2551%-" + dw + "s\u2551%n" + UIHelper.RESET,
-                            "  No date-wise records found.");
+        try {
+            firstStmt = conn.prepareStatement(breakdownSql(filters, false));
+            nextStmt = conn.prepareStatement(breakdownSql(filters, true));
+            // Stream each page through a server-side cursor (useCursorFetch)
+            firstStmt.setFetchSize(REPORT_PAGE_SIZE);
+            nextStmt.setFetchSize(REPORT_PAGE_SIZE);
+
+            // Cold storage first: everything there predates the database rows.
+            // Rows are decoded and printed one at a time, paging as we go.
+            int[] coldShown = { 0 };
+            boolean[] coldStopped = { false };
+            java.time.LocalDate archivedUntil = ColdArchive.getArchivedUntil();
+            if (archivedUntil != null && (from == null || !from.toLocalDate().isAfter(archivedUntil))) {
+                ColdArchive.read(rollNo, from, to, subject, r -> {
+                    printBreakdownRow(r.date, r.period, r.subject, r.status);
+                    coldShown[0]++;
+                    if (coldShown[0] % REPORT_PAGE_SIZE == 0 && sc != null) {
+                        System.out.printf(UIHelper.YELLOW + "\u2551%-" + dw + "s\u2551%n" + UIHelper.RESET,
+                                "  -- " + coldShown[0] + " shown (archived). Enter = next, q = stop --");
+                        coldStopped[0] = readLine(sc).trim().equalsIgnoreCase("q");
+                    }
+                    return !coldStopped[0];
+                });
+            }
+            int shown = coldShown[0];
+            boolean stopped = coldStopped[0];
+
+            java.sql.Date lastDate = null;
+            int lastPeriod = 0;
+            while (!stopped) {
+                PreparedStatement pstmt = lastDate == null ? firstStmt : nextStmt;
+                int idx = 1;
+                for (int branch = 0; branch < 2; branch++) { // live log, then archive
+                    pstmt.setString(idx++, rollNo);
+                    if (from != null)
+                        pstmt.setDate(idx++, from);
+                    if (to != null)
+                        pstmt.setDate(idx++, to);
+                    if (subject != null)
+                        pstmt.setString(idx++, subject);
+                    if (lastDate != null) {
+                        pstmt.setDate(idx++, lastDate);
+                        pstmt.setDate(idx++, lastDate);
+                        pstmt.setInt(idx++, lastPeriod);
+                    }
+                    pstmt.setInt(idx++, REPORT_PAGE_SIZE);
                 }
+                pstmt.setInt(idx, REPORT_PAGE_SIZE);
+                logRs = pstmt.executeQuery();
 
-                System.out.println(UIHelper.YELLOW + "\u255a" + dborder + "\u255d" + UIHelper.RESET);
+                int rows = 0;
+                while (logRs.next()) {
+                    rows++;
+                    lastDate = logRs.getDate("date");
+                    lastPeriod = logRs.getInt("period");
+                    printBreakdownRow(lastDate, lastPeriod, logRs.getString("subject"), logRs.getString("status"));
+                }
+                logRs.close();
+                logRs = null;
+                shown += rows;
 
-            } else {
-                UIHelper.printError("No student found with Roll No: " + rollNo);
+                if (rows < REPORT_PAGE_SIZE)
+                    break;
+                if (sc != null) {
+                    System.out.printf(UIHelper.YELLOW + "\u2551%-" + dw + "s\u2551%n" + UIHelper.RESET,
+                            "  -- " + shown + " shown. Enter = next, q = stop --");
+                    if (readLine(sc).trim().equalsIgnoreCase("q"))
+                        break;
+                }
             }
 
-        } catch (SQLException e) {
-            UIHelper.printError("ERROR while viewing attendance: " + e.getMessage());
+            if (shown == 0) {
+                System.out.printf(UIHelper.YELLOW + "\u2551%-" + dw + "s\u2551%n" + UIHelper.RESET,
+                        "  No date-wise records found.");
+            }
 
         } finally {
             try {
@@ -280,12 +887,51 @@ public class AttendanceDAO {
                     logRs.close();
             } catch (SQLException e) {
             }
-            try {
-                if (logStmt != null)
-                    logStmt.close();
-            } catch (SQLException e) {
-            }
-            closeResources(conn, pstmt, rs);
+            closeStatement(firstStmt);
+            closeStatement(nextStmt);
+            System.out.println(UIHelper.YELLOW + "\u255a" + dborder + "\u255d" + UIHelper.RESET);
+        }
+    }
+
+    private void printBreakdownRow(java.sql.Date date, int period, String subject, String status) {
+        if (subject == null || subject.isEmpty())
+            subject = "General";
+        String statusText = status.equals("P") ? "Present" : "Absent";
+        String statusColor = status.equals("P") ? UIHelper.GREEN : UIHelper.RED;
+
+        String row = String.format(" %-12s %-8d %-14s ", date, period, subject);
+        System.out.printf(UIHelper.YELLOW + "\u2551" + UIHelper.RESET
+                + "%-35s" + statusColor + "%-15s" + UIHelper.RESET
+                + UIHelper.YELLOW + "%5s\u2551%n" + UIHelper.RESET,
+                row, statusText, "");
+    }
+
+    /**
+     * Reads a line of user input without counting the wait in the
+     * timing of the report being shown.
+     */
+    private static String readLine(java.util.Scanner sc) {
+        Metrics.pause();
+        try {
+            return sc.nextLine();
+        } finally {
+            Metrics.resume();
+        }
+    }
+
+    /**
+     * Reads a YYYY-MM-DD date; blank or invalid input means no bound.
+     */
+    private java.sql.Date readOptionalDate(java.util.Scanner sc, String prompt) {
+        System.out.print(prompt);
+        String input = readLine(sc).trim();
+        if (input.isEmpty())
+            return null;
+        try {
+            return java.sql.Date.valueOf(input);
+        } catch (IllegalArgumentException e) {
+            UIHelper.printWarning("Invalid date '" + input + "' - ignoring this bound.");
+            return null;
         }
     }
 
@@ -317,6 +963,9 @@ public class AttendanceDAO {
         System.out.printf(UIHelper.BRIGHT_CYAN + "\u2551" + UIHelper.YELLOW
                 + "  %-" + (w - 2) + "s" + UIHelper.BRIGHT_CYAN + "\u2551%n",
                 "3. Check Attendance by Date");
+        System.out.printf(UIHelper.BRIGHT_CYAN + "\u2551" + UIHelper.MAGENTA
+                + "  %-" + (w - 2) + "s" + UIHelper.BRIGHT_CYAN + "\u2551%n",
+                "4. Subject-wise Attendance");
         System.out.println(UIHelper.BRIGHT_CYAN + "\u255a" + border + "\u255d" + UIHelper.RESET);
 
         System.out.print("  Enter your choice: ");
@@ -334,6 +983,15 @@ public class AttendanceDAO {
                 String dateStr = sc.nextLine().trim();
                 viewAttendanceByDate(section, dateStr);
                 break;
+            case "4":
+                System.out.print("  Enter Subject (e.g., Maths): ");
+                String subject = sc.nextLine().trim();
+                if (subject.isEmpty()) {
+                    UIHelper.printError("Subject cannot be empty!");
+                    break;
+                }
+                viewSubjectAttendance(section, subject);
+                break;
             default:
                 UIHelper.printError("Invalid choice.");
         }
@@ -343,210 +1001,360 @@ public class AttendanceDAO {
     // 4a. TODAY'S ATTENDANCE (filtered by section)
     // =====================================================
     private void viewTodayAttendance(String section) {
-        Connection conn = null;
-        PreparedStatement pstmt = null;
-        ResultSet rs = null;
-
+        long started = SECTION_TODAY.start();
         try {
-            conn = DBConnection.getConnection();
-            if (conn == null)
-                return;
+            Connection conn = null;
+            PreparedStatement pstmt = null;
+            ResultSet rs = null;
 
-            String today = new java.text.SimpleDateFormat("yyyy-MM-dd").format(new java.util.Date());
+            try {
+                conn = DBConnection.getConnection();
+                if (conn == null)
+                    return;
 
-            String sql = "SELECT s.roll_no, s.name, s.class_name, "
-                    + "SUM(CASE WHEN al.status = 'P' THEN 1 ELSE 0 END) AS present, "
-                    + "SUM(CASE WHEN al.status = 'A' THEN 1 ELSE 0 END) AS absent "
-                    + "FROM attendance_log al "
-                    + "JOIN students s ON al.roll_no = s.roll_no "
-                    + "WHERE al.date = ? AND s.class_name = ? "
-                    + "GROUP BY s.roll_no, s.name, s.class_name "
-                    + "ORDER BY s.roll_no ASC";
+                String today = new java.text.SimpleDateFormat("yyyy-MM-dd").format(new java.util.Date());
 
-            pstmt = conn.prepareStatement(sql);
-            pstmt.setString(1, today);
-            pstmt.setString(2, section);
-            rs = pstmt.executeQuery();
+                pstmt = conn.prepareStatement(SECTION_DAY_SQL);
+                pstmt.setString(1, section);
+                pstmt.setString(2, today);
+                rs = pstmt.executeQuery();
 
-            String border = "\u2550".repeat(TABLE_WIDTH);
-            System.out.println("\n\u2554" + border + "\u2557");
-            String title = "TODAY'S ATTENDANCE - " + section + " (" + today + ")";
-            int leftPad = Math.max(0, (TABLE_WIDTH - title.length()) / 2);
-            System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n",
-                    " ".repeat(leftPad) + title);
-            System.out.println("\u2560" + border + "\u2563");
+                String border = "\u2550".repeat(TABLE_WIDTH);
+                System.out.println("\n\u2554" + border + "\u2557");
+                String title = "TODAY'S ATTENDANCE - " + section + " (" + today + ")";
+                int leftPad = Math.max(0, (TABLE_WIDTH - title.length()) / 2);
+                System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n",
+                        " ".repeat(leftPad) + title);
+                System.out.println("\u2560" + border + "\u2563");
 
-            String header = String.format("  %-14s %-20s %-12s %-12s %-12s",
-                    "Roll No", "Name", "Class", "Present", "Absent");
-            System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n", header);
-            System.out.println("\u2560" + border + "\u2563");
+                String header = String.format("  %-14s %-20s %-12s %-12s %-12s",
+                        "Roll No", "Name", "Class", "Present", "Absent");
+                System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n", header);
+                System.out.println("\u2560" + border + "\u2563");
 
-            boolean found = false;
-            while (rs.next()) {
-                found = true;
-                int present = rs.getInt("present");
-                int absent = rs.getInt("absent");
+                boolean found = false;
+                while (rs.next()) {
+                    found = true;
+                    int present = rs.getInt("present");
+                    int absent = rs.getInt("absent");
+
+                    String row = String.format("  %-14s %-20s %-12s ",
+                            rs.getString("roll_no"),
+                            rs.getString("name"),
+                            rs.getString("class_name"));
+                    System.out.printf("\u2551%-" + (TABLE_WIDTH - 24) + "s"
+                            + UIHelper.GREEN + "%-12d" + UIHelper.RESET
+                            + UIHelper.RED + "%-12d" + UIHelper.RESET + "\u2551%n",
+                            row, present, absent);
+                }
 
-                String row = String.format("  %-14s %-20s %-12s ",
-                        rs.getString("roll_no"),
-                        rs.getString("name"),
-                        rs.getString("class_name"));
-                System.out.printf("\u2551%-" + (TABLE_WIDTH - 24) + "s"
-                        + UIHelper.GREEN + "%-12d" + UIHelper.RESET
-                        + UIHelper.RED + "%-12d" + UIHelper.RESET + "\u2551%n",
-                        row, present, absent);
-            }
+                if (!found) {
+                    System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n",
+                            "  No attendance recorded for " + section + " today.");
+                }
+                System.out.println("\u255a" + border + "\u255d");
 
-            if (!found) {
-                System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n",
-                        "  No attendance recorded for " + section + " today.");
+            } catch (SQLException e) {
+                Metrics.recordFailure(e);
+                UIHelper.printError("ERROR: " + e.getMessage());
+            } finally {
+                closeResources(conn, pstmt, rs);
             }
-            System.out.println("\u255a" + border + "\u255d");
-
-        } catch (SQLException e) {
-            UIHelper.printError("ERROR: " + e.getMessage());
         } finally {
-            closeResources(conn, pstmt, rs);
+            SECTION_TODAY.stop(started);
         }
     }
 
     // =====================================================
     // 4b. OVERALL SEMESTER ATTENDANCE (filtered by section)
     // =====================================================
-    private void viewOverallAttendance(String section) {
-        Connection conn = null;
-        PreparedStatement pstmt = null;
-        ResultSet rs = null;
-
+    void viewOverallAttendance(String section) {
+        long started = SECTION_OVERALL.start();
         try {
-            conn = DBConnection.getConnection();
-            if (conn == null)
-                return;
+            Connection conn = null;
+            PreparedStatement pstmt = null;
+            ResultSet rs = null;
 
-            String sql = "SELECT s.roll_no, s.name, s.class_name, s.department, "
-                    + "a.total_periods, a.present_periods, "
-                    + "(a.present_periods * 100.0 / a.total_periods) AS percentage "
-                    + "FROM students s "
-                    + "LEFT JOIN attendance a ON s.roll_no = a.roll_no "
-                    + "WHERE s.class_name = ? "
-                    + "ORDER BY s.roll_no ASC";
+            try {
+                conn = DBConnection.getConnection();
+                if (conn == null) {
+                    if (DBConnection.isUnreachable())
+                        viewOfflineSection(section);
+                    return;
+                }
 
-            pstmt = conn.prepareStatement(sql);
-            pstmt.setString(1, section);
-            rs = pstmt.executeQuery();
+                pstmt = conn.prepareStatement(SECTION_OVERALL_SQL);
+                pstmt.setString(1, section);
+                rs = pstmt.executeQuery();
 
-            String border = "\u2550".repeat(TABLE_WIDTH);
-            System.out.println("\n\u2554" + border + "\u2557");
-            String title = "OVERALL ATTENDANCE - " + section;
-            int leftPad = Math.max(0, (TABLE_WIDTH - title.length()) / 2);
-            System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n",
-                    " ".repeat(leftPad) + title);
-            System.out.println("\u2560" + border + "\u2563");
+                String border = "\u2550".repeat(TABLE_WIDTH);
+                System.out.println("\n\u2554" + border + "\u2557");
+                String title = "OVERALL ATTENDANCE - " + section;
+                int leftPad = Math.max(0, (TABLE_WIDTH - title.length()) / 2);
+                System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n",
+                        " ".repeat(leftPad) + title);
+                System.out.println("\u2560" + border + "\u2563");
 
-            String header = String.format("  %-14s %-18s %-10s %-10s %-7s %-7s %-8s",
-                    "Roll No", "Name", "Class", "Department", "Total", "Pres.", "Percent");
-            System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n", header);
-            System.out.println("\u2560" + border + "\u2563");
+                String header = String.format("  %-14s %-18s %-10s %-10s %-7s %-7s %-8s",
+                        "Roll No", "Name", "Class", "Department", "Total", "Pres.", "Percent");
+                System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n", header);
+                System.out.println("\u2560" + border + "\u2563");
 
-            boolean found = false;
-            while (rs.next()) {
-                found = true;
-                int total = rs.getInt("total_periods");
-                int present = rs.getInt("present_periods");
-                double pct = (total > 0) ? rs.getDouble("percentage") : 0.0;
+                boolean found = false;
+                while (rs.next()) {
+                    found = true;
+                    int total = rs.getInt("total_periods");
+                    int present = rs.getInt("present_periods");
+                    double pct = (total > 0) ? rs.getDouble("percentage") : 0.0;
+
+                    String row = String.format("  %-14s %-18s %-10s %-10s %-7d %-7d %-7.2f%%",
+                            rs.getString("roll_no"),
+                            rs.getString("name"),
+                            rs.getString("class_name"),
+                            rs.getString("department"),
+                            total, present, pct);
+                    System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n", row);
+                }
 
-                String row = String.format("  %-14s %-18s %-10s %-10s %-7d %-7d %-7.2f%%",
-                        rs.getString("roll_no"),
-                        rs.getString("name"),
-                        rs.getString("class_name"),
-                        rs.getString("department"),
-                        total, present, pct);
-                System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n", row);
+                if (!found) {
+                    System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n",
+                            "  No students found in section: " + section);
+                }
+                System.out.println("\u255a" + border + "\u255d");
+
+            } catch (SQLException e) {
+                Metrics.recordFailure(e);
+                UIHelper.printError("ERROR: " + e.getMessage());
+            } finally {
+                closeResources(conn, pstmt, rs);
             }
+        } finally {
+            SECTION_OVERALL.stop(started);
+        }
+    }
 
-            if (!found) {
-                System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n",
-                        "  No students found in section: " + section);
+    // =====================================================
+    // 4b (offline). REPORTS FROM THE LOCAL SNAPSHOT
+    // =====================================================
+
+    /**
+     * Semester and subject totals of one student from the offline
+     * snapshot, plus marks still waiting in the local journal.
+     */
+    private void viewOfflineAttendance(String rollNo) {
+        OfflineSnapshot.Entry entry = OfflineSnapshot.getStudent(rollNo);
+        if (entry == null) {
+            UIHelper.printError("Database unreachable and no offline copy of Roll No: " + rollNo);
+            return;
+        }
+        printSnapshotNotice();
+
+        int[] pending = MarkQueue.getPendingFor(rollNo);
+        int total = entry.total + pending[0];
+        int present = entry.present + pending[1];
+        double percentage = total > 0 ? present * 100.0 / total : 0;
+
+        int w = 55;
+        String border = "\u2550".repeat(w);
+        System.out.println("\n\u2554" + border + "\u2557");
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "      SEMESTER ATTENDANCE REPORT (OFFLINE COPY)");
+        System.out.println("\u2560" + border + "\u2563");
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "  Roll No     : " + entry.student.getRollNo());
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "  Name        : " + entry.student.getName());
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "  Class       : " + entry.student.getClassName());
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "  Department  : " + entry.student.getDepartment());
+        System.out.println("\u2560" + border + "\u2563");
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "  Total Periods : " + total);
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "  Present       : " + present);
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "  Percentage    : " + String.format("%.2f", percentage) + "%");
+        if (pending[0] > 0) {
+            System.out.printf("\u2551%-" + w + "s\u2551%n",
+                    "  (includes " + pending[0] + " mark(s) waiting to sync)");
+        }
+        System.out.println("\u255a" + border + "\u255d");
+
+        if (!entry.subjects.isEmpty()) {
+            System.out.println("\n  Subject-wise (as of snapshot):");
+            for (Map.Entry<String, int[]> e : entry.subjects.entrySet()) {
+                int t = e.getValue()[0];
+                int p = e.getValue()[1];
+                System.out.printf("   %-18s %-8d %-8d %.2f%%%n", e.getKey(), t, p, t > 0 ? p * 100.0 / t : 0.0);
             }
-            System.out.println("\u255a" + border + "\u255d");
+        }
+        UIHelper.printInfo("The date-wise breakdown needs the database connection.");
+    }
 
-        } catch (SQLException e) {
-            UIHelper.printError("ERROR: " + e.getMessage());
-        } finally {
-            closeResources(conn, pstmt, rs);
+    private void viewOfflineSection(String section) {
+        List<OfflineSnapshot.Entry> entries = OfflineSnapshot.getSection(section);
+        if (entries.isEmpty()) {
+            UIHelper.printError("Database unreachable and no offline copy of section: " + section);
+            return;
         }
+        printSnapshotNotice();
+
+        String border = "\u2550".repeat(TABLE_WIDTH);
+        System.out.println("\n\u2554" + border + "\u2557");
+        String title = "OVERALL ATTENDANCE - " + section + " (OFFLINE COPY)";
+        int leftPad = Math.max(0, (TABLE_WIDTH - title.length()) / 2);
+        System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n", " ".repeat(leftPad) + title);
+        System.out.println("\u2560" + border + "\u2563");
+        String header = String.format("  %-14s %-18s %-10s %-10s %-7s %-7s %-8s",
+                "Roll No", "Name", "Class", "Department", "Total", "Pres.", "Percent");
+        System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n", header);
+        System.out.println("\u2560" + border + "\u2563");
+
+        for (OfflineSnapshot.Entry entry : entries) {
+            Student st = entry.student;
+            int[] pending = MarkQueue.getPendingFor(st.getRollNo());
+            int total = entry.total + pending[0];
+            int present = entry.present + pending[1];
+            double pct = total > 0 ? present * 100.0 / total : 0.0;
+            String row = String.format("  %-14s %-18s %-10s %-10s %-7d %-7d %-7.2f%%",
+                    st.getRollNo(), st.getName(), st.getClassName(), st.getDepartment(), total, present, pct);
+            System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n", row);
+        }
+        System.out.println("\u255a" + border + "\u255d");
+    }
+
+    private void printSnapshotNotice() {
+        long takenAt = OfflineSnapshot.getTakenAt();
+        UIHelper.printWarning("Database unreachable - showing the offline copy from "
+                + new java.sql.Timestamp(takenAt).toString().substring(0, 16) + ".");
     }
 
     // =====================================================
     // 4c. ATTENDANCE BY SPECIFIC DATE (filtered by section)
     // =====================================================
     private void viewAttendanceByDate(String section, String dateStr) {
-        Connection conn = null;
-        PreparedStatement pstmt = null;
-        ResultSet rs = null;
-
+        long started = SECTION_BY_DATE.start();
         try {
-            java.sql.Date.valueOf(dateStr);
+            Connection conn = null;
+            PreparedStatement pstmt = null;
+            ResultSet rs = null;
 
-            conn = DBConnection.getConnection();
-            if (conn == null)
-                return;
+            try {
+                java.sql.Date.valueOf(dateStr);
 
-            String sql = "SELECT s.roll_no, s.name, s.class_name, "
-                    + "SUM(CASE WHEN al.status = 'P' THEN 1 ELSE 0 END) AS present, "
-                    + "SUM(CASE WHEN al.status = 'A' THEN 1 ELSE 0 END) AS absent "
-                    + "FROM attendance_log al "
-                    + "JOIN students s ON al.roll_no = s.roll_no "
-                    + "WHERE al.date = ? AND s.class_name = ? "
-                    + "GROUP BY s.roll_no, s.name, s.class_name "
-                    + "ORDER BY s.roll_no ASC";
-
-            pstmt = conn.prepareStatement(sql);
-            pstmt.setString(1, dateStr);
-            pstmt.setString(2, section);
-            rs = pstmt.executeQuery();
+                conn = DBConnection.getConnection();
+                if (conn == null)
+                    return;
 
-            String border = "\u2550".repeat(TABLE_WIDTH);
-            System.out.println("\n\u2554" + border + "\u2557");
-            String title = "ATTENDANCE - " + section + " (" + dateStr + ")";
-            int leftPad = Math.max(0, (TABLE_WIDTH - title.length()) / 2);
-            System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n",
-                    " ".repeat(leftPad) + title);
-            System.out.println("\u2560" + border + "\u2563");
+                pstmt = conn.prepareStatement(SECTION_DAY_SQL);
+                pstmt.setString(1, section);
+                pstmt.setString(2, dateStr);
+                rs = pstmt.executeQuery();
 
-            String header = String.format("  %-14s %-20s %-12s %-12s %-12s",
-                    "Roll No", "Name", "Class", "Present", "Absent");
-            System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n", header);
-            System.out.println("\u2560" + border + "\u2563");
+                String border = "\u2550".repeat(TABLE_WIDTH);
+                System.out.println("\n\u2554" + border + "\u2557");
+                String title = "ATTENDANCE - " + section + " (" + dateStr + ")";
+                int leftPad = Math.max(0, (TABLE_WIDTH - title.length()) / 2);
+                System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n",
+                        " ".repeat(leftPad) + title);
+                System.out.println("\u2560" + border + "\u2563");
 
-            boolean found = false;
-            while (rs.next()) {
-                found = true;
-                int present = rs.getInt("present");
-                int absent = rs.getInt("absent");
+                String header = String.format("  %-14s %-20s %-12s %-12s %-12s",
+                        "Roll No", "Name", "Class", "Present", "Absent");
+                System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n", header);
+                System.out.println("\u2560" + border + "\u2563");
+
+                boolean found = false;
+                while (rs.next()) {
+                    found = true;
+                    int present = rs.getInt("present");
+                    int absent = rs.getInt("absent");
+
+                    String row = String.format("  %-14s %-20s %-12s ",
+                            rs.getString("roll_no"),
+                            rs.getString("name"),
+                            rs.getString("class_name"));
+                    System.out.printf("\u2551%-" + (TABLE_WIDTH - 24) + "s"
+                            + UIHelper.GREEN + "%-12d" + UIHelper.RESET
+                            + UIHelper.RED + "%-12d" + UIHelper.RESET + "\u2551%n",
+                            row, present, absent);
+                }
 
-                String row = String.format("  %-14s %-20s %-12s ",
-                        rs.getString("roll_no"),
-                        rs.getString("name"),
-                        rs.getString("class_name"));
-                System.out.printf("\u2551%-" + (TABLE_WIDTH - 24) + "s"
-                        + UIHelper.GREEN + "%-12d" + UIHelper.RESET
-                        + UIHelper.RED + "%-12d" + UIHelper.RESET + "\u2551%n",
-                        row, present, absent);
+                if (!found) {
+                    System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n",
+                            "  No attendance for " + section + " on " + dateStr);
+                }
+                System.out.println("\u255a" + border + "\u255d");
+
+            } catch (IllegalArgumentException e) {
+                UIHelper.printError("Invalid date format! Use YYYY-MM-DD.");
+            } catch (SQLException e) {
+                Metrics.recordFailure(e);
+                UIHelper.printError("ERROR: " + e.getMessage());
+            } finally {
+                closeResources(conn, pstmt, rs);
             }
+        } finally {
+            SECTION_BY_DATE.stop(started);
+        }
+    }
 
-            if (!found) {
+    // =====================================================
+    // 4e. SUBJECT-WISE ATTENDANCE (filtered by section)
+    // =====================================================
+    private void viewSubjectAttendance(String section, String subject) {
+        long started = SECTION_SUBJECT.start();
+        try {
+            Connection conn = null;
+            PreparedStatement pstmt = null;
+            ResultSet rs = null;
+
+            try {
+                conn = DBConnection.getConnection();
+                if (conn == null)
+                    return;
+
+                // Reads only the per-subject summary, never attendance_log
+                pstmt = conn.prepareStatement(SECTION_SUBJECT_SQL);
+                pstmt.setString(1, subject);
+                pstmt.setString(2, section);
+                rs = pstmt.executeQuery();
+
+                String border = "\u2550".repeat(TABLE_WIDTH);
+                System.out.println("\n\u2554" + border + "\u2557");
+                String title = subject.toUpperCase() + " ATTENDANCE - " + section;
+                int leftPad = Math.max(0, (TABLE_WIDTH - title.length()) / 2);
                 System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n",
-                        "  No attendance for " + section + " on " + dateStr);
-            }
-            System.out.println("\u255a" + border + "\u255d");
+                        " ".repeat(leftPad) + title);
+                System.out.println("\u2560" + border + "\u2563");
 
-        } catch (IllegalArgumentException e) {
-            UIHelper.printError("Invalid date format! Use YYYY-MM-DD.");
-        } catch (SQLException e) {
-            UIHelper.printError("ERROR: " + e.getMessage());
+                String header = String.format("  %-14s %-24s %-8s %-8s %-10s %-8s",
+                        "Roll No", "Name", "Total", "Pres.", "Percent", "Status");
+                System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n", header);
+                System.out.println("\u2560" + border + "\u2563");
+
+                boolean found = false;
+                while (rs.next()) {
+                    found = true;
+                    int total = rs.getInt("total_periods");
+                    int present = rs.getInt("present_periods");
+                    double pct = total > 0 ? present * 100.0 / total : 0.0;
+
+                    String row = String.format("  %-14s %-24s %-8d %-8d %-9.2f%% %-8s",
+                            rs.getString("roll_no"),
+                            rs.getString("name"),
+                            total, present, pct,
+                            pct < DEFAULTER_THRESHOLD ? "LOW" : "OK");
+                    System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n", row);
+                }
+
+                if (!found) {
+                    System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n",
+                            "  No " + subject + " attendance recorded for section: " + section);
+                }
+                System.out.println("\u255a" + border + "\u255d");
+
+            } catch (SQLException e) {
+                Metrics.recordFailure(e);
+                UIHelper.printError("ERROR: " + e.getMessage());
+            } finally {
+                closeResources(conn, pstmt, rs);
+            }
         } finally {
-            closeResources(conn, pstmt, rs);
+            SECTION_SUBJECT.stop(started);
         }
     }
 
@@ -554,67 +1362,73 @@ public class AttendanceDAO {
     // 4d. STUDENT: TODAY'S ATTENDANCE (single student)
     // =====================================================
     public void viewStudentTodayAttendance(String rollNo) {
-        Connection conn = null;
-        PreparedStatement pstmt = null;
-        ResultSet rs = null;
-
+        long started = STUDENT_TODAY.start();
         try {
-            conn = DBConnection.getConnection();
-            if (conn == null)
-                return;
+            Connection conn = null;
+            PreparedStatement pstmt = null;
+            ResultSet rs = null;
 
-            String today = new java.text.SimpleDateFormat("yyyy-MM-dd").format(new java.util.Date());
+            try {
+                conn = DBConnection.getConnection();
+                if (conn == null)
+                    return;
 
-            String sql = "SELECT period, subject, status FROM attendance_log "
-                    + "WHERE roll_no = ? AND date = ? ORDER BY period ASC";
-            pstmt = conn.prepareStatement(sql);
-            pstmt.setString(1, rollNo);
-            pstmt.setString(2, today);
-            rs = pstmt.executeQuery();
+                String today = new java.text.SimpleDateFormat("yyyy-MM-dd").format(new java.util.Date());
 
-            int w = 60;
-            String border = "\u2550".repeat(w);
-            System.out.println("\n" + UIHelper.YELLOW + "\u2554" + border + "\u2557" + UIHelper.RESET);
-            String title = "MY ATTENDANCE - TODAY (" + today + ")";
-            int leftPad = Math.max(0, (w - title.length()) / 2);
-            System.out.printf(UIHelper.YELLOW + "\u2551%-" + w + "s\u2551%n" + UIHelper.RESET,
-                    " ".repeat(leftPad) + title);
-            System.out.println(UIHelper.YELLOW + "\u2560" + border + "\u2563" + UIHelper.RESET);
-            System.out.printf(UIHelper.YELLOW + "\u2551" + UIHelper.RESET
-                    + "  %-10s %-20s %-20s"
-                    + UIHelper.YELLOW + "%8s\u2551%n" + UIHelper.RESET,
-                    "Period", "Subject", "Status", "");
-            System.out.println(UIHelper.YELLOW + "\u2560" + border + "\u2563" + UIHelper.RESET);
-
-            boolean found = false;
-            while (rs.next()) {
-                found = true;
-                int period = rs.getInt("period");
-                String subject = rs.getString("subject");
-                if (subject == null)
-                    subject = "General";
-                String status = rs.getString("status");
-                String statusText = status.equals("P") ? "Present" : "Absent";
-                String statusColor = status.equals("P") ? UIHelper.GREEN : UIHelper.RED;
-
-                String row = String.format("  %-10d %-20s ", period, subject);
-                int remaining = w - row.length();
-                String statusPadded = String.format("%-" + remaining + "s", statusText);
-                System.out.println(UIHelper.YELLOW + "\u2551" + UIHelper.RESET
-                        + row + statusColor + statusPadded + UIHelper.RESET
-                        + UIHelper.YELLOW + "\u2551" + UIHelper.RESET);
-            }
-
-            if (!found) {
+                pstmt = conn.prepareStatement(STUDENT_DAY_SQL);
+                pstmt.setString(1, rollNo);
+                pstmt.setString(2, today);
+                pstmt.setString(3, rollNo);
+                pstmt.setString(4, today);
+                rs = pstmt.executeQuery();
+
+                int w = 60;
+                String border = "\u2550".repeat(w);
+                System.out.println("\n" + UIHelper.YELLOW + "\u2554" + border + "\u2557" + UIHelper.RESET);
+                String title = "MY ATTENDANCE - TODAY (" + today + ")";
+                int leftPad = Math.max(0, (w - title.length()) / 2);
                 System.out.printf(UIHelper.YELLOW + "\u2551%-" + w + "s\u2551%n" + UIHelper.RESET,
-                        "  No attendance recorded for today.");
-            }
-            System.out.println(UIHelper.YELLOW + "\u255a" + border + "\u255d" + UIHelper.RESET);
+                        " ".repeat(leftPad) + title);
+                System.out.println(UIHelper.YELLOW + "\u2560" + border + "\u2563" + UIHelper.RESET);
+                System.out.printf(UIHelper.YELLOW + "\u2551" + UIHelper.RESET
+                        + "  %-10s %-20s %-20s"
+                        + UIHelper.YELLOW + "%8s\u2551%n" + UIHelper.RESET,
+                        "Period", "Subject", "Status", "");
+                System.out.println(UIHelper.YELLOW + "\u2560" + border + "\u2563" + UIHelper.RESET);
+
+                boolean found = false;
+                while (rs.next()) {
+                    found = true;
+                    int period = rs.getInt("period");
+                    String subject = rs.getString("subject");
+                    if (subject == null)
+                        subject = "General";
+                    String status = rs.getString("status");
+                    String statusText = status.equals("P") ? "Present" : "Absent";
+                    String statusColor = status.equals("P") ? UIHelper.GREEN : UIHelper.RED;
 
-        } catch (SQLException e) {
-            UIHelper.printError("ERROR: " + e.getMessage());
+                    String row = String.format("  %-10d %-20s ", period, subject);
+                    int remaining = w - row.length();
+                    String statusPadded = String.format("%-" + remaining + "s", statusText);
+                    System.out.println(UIHelper.YELLOW + "\u2551" + UIHelper.RESET
+                            + row + statusColor + statusPadded + UIHelper.RESET
+                            + UIHelper.YELLOW + "\u2551" + UIHelper.RESET);
+                }
+
+                if (!found) {
+                    System.out.printf(UIHelper.YELLOW + "\u2551%-" + w + "s\u2551%n" + UIHelper.RESET,
+                            "  No attendance recorded for today.");
+                }
+                System.out.println(UIHelper.YELLOW + "\u255a" + border + "\u255d" + UIHelper.RESET);
+
+            } catch (SQLException e) {
+                Metrics.recordFailure(e);
+                UIHelper.printError("ERROR: " + e.getMessage());
+            } finally {
+                closeResources(conn, pstmt, rs);
+            }
         } finally {
-            closeResources(conn, pstmt, rs);
+            STUDENT_TODAY.stop(started);
         }
     }
 
@@ -622,140 +1436,224 @@ public class AttendanceDAO {
     // 4e. STUDENT: ATTENDANCE BY DATE (single student)
     // =====================================================
     public void viewStudentAttendanceByDate(String rollNo, String dateStr) {
-        Connection conn = null;
-        PreparedStatement pstmt = null;
-        ResultSet rs = null;
-
+        long started = STUDENT_BY_DATE.start();
         try {
-            java.sql.Date.valueOf(dateStr); // validate
+            Connection conn = null;
+            PreparedStatement pstmt = null;
+            ResultSet rs = null;
 
-            conn = DBConnection.getConnection();
-            if (conn == null)
-                return;
+            try {
+                java.sql.Date.valueOf(dateStr); // validate
 
-            String sql = "SELECT period, subject, status FROM attendance_log "
-                    + "WHERE roll_no = ? AND date = ? ORDER BY period ASC";
-            pstmt = conn.prepareStatement(sql);
-            pstmt.setString(1, rollNo);
-            pstmt.setString(2, dateStr);
-            rs = pstmt.executeQuery();
+                conn = DBConnection.getConnection();
+                if (conn == null)
+                    return;
 
-            int w = 60;
-            String border = "\u2550".repeat(w);
-            System.out.println("\n" + UIHelper.YELLOW + "\u2554" + border + "\u2557" + UIHelper.RESET);
-            String title = "MY ATTENDANCE - " + dateStr;
-            int leftPad = Math.max(0, (w - title.length()) / 2);
-            System.out.printf(UIHelper.YELLOW + "\u2551%-" + w + "s\u2551%n" + UIHelper.RESET,
-                    " ".repeat(leftPad) + title);
-            System.out.println(UIHelper.YELLOW + "\u2560" + border + "\u2563" + UIHelper.RESET);
-            System.out.printf(UIHelper.YELLOW + "\u2551" + UIHelper.RESET
-                    + "  %-10s %-20s %-20s"
-                    + UIHelper.YELLOW + "%8s\u2551%n" + UIHelper.RESET,
-                    "Period", "Subject", "Status", "");
-            System.out.println(UIHelper.YELLOW + "\u2560" + border + "\u2563" + UIHelper.RESET);
-
-            boolean found = false;
-            while (rs.next()) {
-                found = true;
-                int period = rs.getInt("period");
-                String subject = rs.getString("subject");
-                if (subject == null)
-                    subject = "General";
-                String status = rs.getString("status");
-                String statusText = status.equals("P") ? "Present" : "Absent";
-                String statusColor = status.equals("P") ? UIHelper.GREEN : UIHelper.RED;
-
-                String row = String.format("  %-10d %-20s ", period, subject);
-                int remaining = w - row.length();
-                String statusPadded = String.format("%-" + remaining + "s", statusText);
-                System.out.println(UIHelper.YELLOW + "\u2551" + UIHelper.RESET
-                        + row + statusColor + statusPadded + UIHelper.RESET
-                        + UIHelper.YELLOW + "\u2551" + UIHelper.RESET);
-            }
-
-            if (!found) {
+                pstmt = conn.prepareStatement(STUDENT_DAY_SQL);
+                pstmt.setString(1, rollNo);
+                pstmt.setString(2, dateStr);
+                pstmt.setString(3, rollNo);
+                pstmt.setString(4, dateStr);
+                rs = pstmt.executeQuery();
+
+                int w = 60;
+                String border = "\u2550".repeat(w);
+                System.out.println("\n" + UIHelper.YELLOW + "\u2554" + border + "\u2557" + UIHelper.RESET);
+                String title = "MY ATTENDANCE - " + dateStr;
+                int leftPad = Math.max(0, (w - title.length()) / 2);
                 System.out.printf(UIHelper.YELLOW + "\u2551%-" + w + "s\u2551%n" + UIHelper.RESET,
-                        "  No attendance recorded for " + dateStr);
-            }
-            System.out.println(UIHelper.YELLOW + "\u255a" + border + "\u255d" + UIHelper.RESET);
+                        " ".repeat(leftPad) + title);
+                System.out.println(UIHelper.YELLOW + "\u2560" + border + "\u2563" + UIHelper.RESET);
+                System.out.printf(UIHelper.YELLOW + "\u2551" + UIHelper.RESET
+                        + "  %-10s %-20s %-20s"
+                        + UIHelper.YELLOW + "%8s\u2551%n" + UIHelper.RESET,
+                        "Period", "Subject", "Status", "");
+                System.out.println(UIHelper.YELLOW + "\u2560" + border + "\u2563" + UIHelper.RESET);
+
+                boolean found = false;
+                while (rs.next()) {
+                    found = true;
+                    printDayRow(w, rs.getInt("period"), rs.getString("subject"), rs.getString("status"));
+                }
 
-        } catch (IllegalArgumentException e) {
-            UIHelper.printError("Invalid date format! Use YYYY-MM-DD.");
-        } catch (SQLException e) {
-            UIHelper.printError("ERROR: " + e.getMessage());
+                // Days in a cold-storage archive are no longer in the database
+                java.time.LocalDate archivedUntil = ColdArchive.getArchivedUntil();
+                java.sql.Date day = java.sql.Date.valueOf(dateStr);
+                if (!found && archivedUntil != null && !day.toLocalDate().isAfter(archivedUntil)) {
+                    for (ColdArchive.Row r : ColdArchive.read(rollNo, day, day, null)) {
+                        found = true;
+                        printDayRow(w, r.period, r.subject, r.status);
+                    }
+                }
+
+                if (!found) {
+                    System.out.printf(UIHelper.YELLOW + "\u2551%-" + w + "s\u2551%n" + UIHelper.RESET,
+                            "  No attendance recorded for " + dateStr);
+                }
+                System.out.println(UIHelper.YELLOW + "\u255a" + border + "\u255d" + UIHelper.RESET);
+
+            } catch (IllegalArgumentException e) {
+                UIHelper.printError("Invalid date format! Use YYYY-MM-DD.");
+            } catch (SQLException e) {
+                Metrics.recordFailure(e);
+                UIHelper.printError("ERROR: " + e.getMessage());
+            } finally {
+                closeResources(conn, pstmt, rs);
+            }
         } finally {
-            closeResources(conn, pstmt, rs);
+            STUDENT_BY_DATE.stop(started);
         }
     }
 
+    private void printDayRow(int w, int period, String subject, String status) {
+        if (subject == null)
+            subject = "General";
+        String statusText = status.equals("P") ? "Present" : "Absent";
+        String statusColor = status.equals("P") ? UIHelper.GREEN : UIHelper.RED;
+
+        String row = String.format("  %-10d %-20s ", period, subject);
+        int remaining = w - row.length();
+        String statusPadded = String.format("%-" + remaining + "s", statusText);
+        System.out.println(UIHelper.YELLOW + "\u2551" + UIHelper.RESET
+                + row + statusColor + statusPadded + UIHelper.RESET
+                + UIHelper.YELLOW + "\u2551" + UIHelper.RESET);
+    }
+
     // =====================================================
-    // 5. SHOW DEFAULTERS (Below 75%)
+    // 5. SHOW DEFAULTERS (Below threshold, default 75%)
     // =====================================================
     public void showDefaulters() {
-        Connection conn = null;
-        PreparedStatement pstmt = null;
-        ResultSet rs = null;
+        showDefaulters(DEFAULTER_THRESHOLD, null);
+    }
 
-        try {
-            conn = DBConnection.getConnection();
-            if (conn == null)
+    /**
+     * Asks for a threshold, then shows defaulters one page at a time.
+     */
+    public void showDefaulters(java.util.Scanner sc) {
+        System.out.print("\n  Threshold % (Enter for " + formatPercent(DEFAULTER_THRESHOLD) + "): ");
+        String input = sc.nextLine().trim();
+        double threshold = DEFAULTER_THRESHOLD;
+        if (!input.isEmpty()) {
+            try {
+                threshold = Double.parseDouble(input);
+            } catch (NumberFormatException e) {
+                UIHelper.printError("Invalid percentage!");
                 return;
+            }
+            if (threshold <= 0 || threshold > 100) {
+                UIHelper.printError("Threshold must be between 0 and 100.");
+                return;
+            }
+        }
+        showDefaulters(threshold, sc);
+    }
 
-            String sql = "SELECT s.roll_no, s.name, s.class_name, s.department, "
-                    + "a.total_periods, a.present_periods, "
-                    + "(a.present_periods * 100.0 / a.total_periods) AS percentage "
-                    + "FROM students s "
-                    + "INNER JOIN attendance a ON s.roll_no = a.roll_no "
-                    + "WHERE a.total_periods > 0 "
-                    + "AND (a.present_periods * 100.0 / a.total_periods) < 75 "
-                    + "ORDER BY percentage ASC";
-
-            pstmt = conn.prepareStatement(sql);
-            rs = pstmt.executeQuery();
+    /**
+     * Lists students below the threshold, lowest percentage first.
+     * Walks the (percentage_bp, roll_no) index with keyset pagination,
+     * so each page is an index range scan regardless of roster size.
+     *
+     * @param sc if null, all pages are printed without pausing
+     */
+    public void showDefaulters(double threshold, java.util.Scanner sc) {
+        long started = DEFAULTERS.start();
+        try {
+            Connection conn = null;
+            PreparedStatement firstStmt = null;
+            PreparedStatement nextStmt = null;
+            ResultSet rs = null;
 
-            String border = "\u2550".repeat(TABLE_WIDTH);
+            try {
+                conn = DBConnection.getConnection();
+                if (conn == null)
+                    return;
 
-            // Title
-            System.out.println("\n\u2554" + border + "\u2557");
-            String title = "DEFAULTERS LIST (Attendance < 75%)";
-            int leftPad = (TABLE_WIDTH - title.length()) / 2;
-            System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n",
-                    " ".repeat(leftPad) + title);
-            System.out.println("\u2560" + border + "\u2563");
+                firstStmt = conn.prepareStatement(DEFAULTERS_FIRST_PAGE_SQL);
+                nextStmt = conn.prepareStatement(DEFAULTERS_NEXT_PAGE_SQL);
 
-            // Header
-            String header = String.format("  %-14s %-18s %-10s %-10s %-7s %-7s %-8s",
-                    "Roll No", "Name", "Class", "Department", "Total", "Pres.", "Percent");
-            System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n", header);
-            System.out.println("\u2560" + border + "\u2563");
+                int thresholdBp = (int) Math.round(threshold * 100);
+                String border = "\u2550".repeat(TABLE_WIDTH);
 
-            // Data
-            boolean found = false;
-            while (rs.next()) {
-                found = true;
-                String row = String.format("  %-14s %-18s %-10s %-10s %-7d %-7d %-7.2f%%",
-                        rs.getString("roll_no"),
-                        rs.getString("name"),
-                        rs.getString("class_name"),
-                        rs.getString("department"),
-                        rs.getInt("total_periods"),
-                        rs.getInt("present_periods"),
-                        rs.getDouble("percentage"));
-                System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n", row);
-            }
-
-            if (!found) {
+                // Title
+                System.out.println("\n\u2554" + border + "\u2557");
+                String title = "DEFAULTERS LIST (Attendance < " + formatPercent(threshold) + "%)";
+                int leftPad = (TABLE_WIDTH - title.length()) / 2;
                 System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n",
-                        "  No defaulters found! All students are regular.");
-            }
+                        " ".repeat(leftPad) + title);
+                System.out.println("\u2560" + border + "\u2563");
 
-            System.out.println("\u255a" + border + "\u255d");
+                // Header
+                String header = String.format("  %-14s %-18s %-10s %-10s %-7s %-7s %-8s",
+                        "Roll No", "Name", "Class", "Department", "Total", "Pres.", "Percent");
+                System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n", header);
+                System.out.println("\u2560" + border + "\u2563");
 
-        } catch (SQLException e) {
-            UIHelper.printError("ERROR while fetching defaulters: " + e.getMessage());
+                // Data, one page at a time
+                int shown = 0;
+                int lastBp = 0;
+                String lastRoll = null;
+                while (true) {
+                    PreparedStatement pstmt;
+                    if (lastRoll == null) {
+                        pstmt = firstStmt;
+                        pstmt.setInt(1, thresholdBp);
+                        pstmt.setInt(2, REPORT_PAGE_SIZE);
+                    } else {
+                        pstmt = nextStmt;
+                        pstmt.setInt(1, thresholdBp);
+                        pstmt.setInt(2, lastBp);
+                        pstmt.setInt(3, lastBp);
+                        pstmt.setString(4, lastRoll);
+                        pstmt.setInt(5, REPORT_PAGE_SIZE);
+                    }
+                    rs = pstmt.executeQuery();
+
+                    int rows = 0;
+                    while (rs.next()) {
+                        rows++;
+                        lastBp = rs.getInt("percentage_bp");
+                        lastRoll = rs.getString("roll_no");
+                        String row = String.format("  %-14s %-18s %-10s %-10s %-7d %-7d %-7.2f%%",
+                                lastRoll,
+                                rs.getString("name"),
+                                rs.getString("class_name"),
+                                rs.getString("department"),
+                                rs.getInt("total_periods"),
+                                rs.getInt("present_periods"),
+                                rs.getDouble("percentage"));
+                        System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n", row);
+                    }
+                    rs.close();
+                    rs = null;
+                    shown += rows;
+
+                    if (rows < REPORT_PAGE_SIZE)
+                        break;
+                    if (sc != null) {
+                        System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n",
+                                "  -- " + shown + " shown. Enter = next page, q = stop --");
+                        if (readLine(sc).trim().equalsIgnoreCase("q"))
+                            break;
+                    }
+                }
+
+                if (shown == 0) {
+                    System.out.printf("\u2551%-" + TABLE_WIDTH + "s\u2551%n",
+                            "  No defaulters found! All students are regular.");
+                }
+
+                System.out.println("\u255a" + border + "\u255d");
 
+            } catch (SQLException e) {
+                Metrics.recordFailure(e);
+                UIHelper.printError("ERROR while fetching defaulters: " + e.getMessage());
+
+            } finally {
+                closeStatement(nextStmt);
+                closeResources(conn, firstStmt, rs);
+            }
         } finally {
-            closeResources(conn, pstmt, rs);
+            DEFAULTERS.stop(started);
         }
     }
 
@@ -780,6 +1678,43 @@ public class AttendanceDAO {
         }
     }
 
+    /**
+     * Builds the breakdown query; filters are "AND ..." clauses applied
+     * to both the live and the archived branch.
+     */
+    private static String breakdownSql(String filters, boolean afterKey) {
+        String branch = "WHERE roll_no = ? " + filters + (afterKey ? BREAKDOWN_AFTER : "") + BREAKDOWN_ORDER;
+        return "(SELECT date, period, status, subject FROM attendance_log " + branch + ") "
+                + "UNION ALL (SELECT date, period, status, subject FROM attendance_log_archive " + branch + ") "
+                + BREAKDOWN_ORDER;
+    }
+
+    /**
+     * Subject as stored in subject_attendance; matches the log column default.
+     */
+    private static String subjectKey(String subject) {
+        return (subject == null || subject.isEmpty()) ? "General" : subject;
+    }
+
+    /**
+     * Repeats a placeholder group n times, comma separated.
+     * e.g. placeholders(3, "?") gives "?, ?, ?"
+     */
+    private static String placeholders(int n, String group) {
+        StringBuilder sb = new StringBuilder(n * (group.length() + 2));
+        for (int i = 0; i < n; i++) {
+            if (i > 0)
+                sb.append(", ");
+            sb.append(group);
+        }
+        return sb.toString();
+    }
+
+    /** Formats 75.0 as "75" and 72.5 as "72.5". */
+    private static String formatPercent(double pct) {
+        return pct == Math.rint(pct) ? String.valueOf((long) pct) : String.valueOf(pct);
+    }
+
     private void closeStatement(PreparedStatement pstmt) {
         try {
             if (pstmt != null)
@@ -0,0 +1,360 @@
+/*
+ * ============================================================
+ * ClassTrack – Student Attendance Management System
+ * File: AttendanceImporter.java
+ * Purpose: Streaming bulk import of period-wise attendance from
+ *          CSV (e.g. biometric reader exports) into attendance_log
+ *          and the attendance summary, in chunked transactions.
+ *
+ * CSV format (header row optional):
+ *   roll_no,date,period,subject,status
+ *   24B11CS165,2026-07-14,1,Maths,P
+ * ============================================================
+ */
+
+package classtrack;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class AttendanceImporter {
+
+    public static final int DEFAULT_CHUNK_SIZE = Integer.getInteger("classtrack.import.chunkSize", 5000);
+
+    private static final String STAGE_TABLE = "attendance_import_stage";
+
+    private final int chunkSize;
+
+    // Roll numbers already checked against students, kept across chunks
+    private final Set<String> knownRolls = new HashSet<>();
+    private final Set<String> unknownRolls = new HashSet<>();
+
+    public AttendanceImporter(int chunkSize) {
+        this.chunkSize = chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE;
+    }
+
+    /**
+     * One parsed CSV row waiting to be loaded.
+     */
+    private static class Row {
+        final int lineNo;
+        final String[] fields;
+        final String rollNo;
+        final Date date;
+        final int period;
+        final String subject;
+        final String status;
+
+        Row(int lineNo, String[] fields, String rollNo, Date date, int period, String subject, String status) {
+            this.lineNo = lineNo;
+            this.fields = fields;
+            this.rollNo = rollNo;
+            this.date = date;
+            this.period = period;
+            this.subject = subject;
+            this.status = status;
+        }
+    }
+
+    // =====================================================
+    // IMPORT FILE
+    // =====================================================
+
+    /**
+     * Imports the given CSV file. Each chunk is committed on its own,
+     * so a failure part-way keeps the chunks already loaded.
+     *
+     * @return the progress report (also printed to the console)
+     */
+    public ImportReport importFile(String path) {
+        ImportReport report = new ImportReport(path);
+        Connection conn = null;
+
+        try (CsvReader csv = new CsvReader(path)) {
+            conn = DBConnection.getConnection();
+            if (conn == null)
+                return report;
+
+            createStageTable(conn);
+            UIHelper.printInfo("Importing " + path + " in chunks of " + chunkSize + " rows...");
+
+            List<Row> chunk = new ArrayList<>(chunkSize);
+            boolean firstRecord = true;
+            String[] fields;
+            while ((fields = csv.readRecord()) != null) {
+                int lineNo = csv.getLineNumber();
+                if (firstRecord) {
+                    firstRecord = false;
+                    if (fields[0].equalsIgnoreCase("roll_no"))
+                        continue; // header
+                }
+
+                report.rowRead();
+                Row row = parse(lineNo, fields, report);
+                if (row != null)
+                    chunk.add(row);
+
+                if (chunk.size() >= chunkSize) {
+                    loadChunk(conn, chunk, report);
+                    chunk.clear();
+                    report.printProgress();
+                }
+            }
+            if (!chunk.isEmpty())
+                loadChunk(conn, chunk, report);
+
+        } catch (IOException e) {
+            UIHelper.printError("Could not read file: " + e.getMessage());
+        } catch (SQLException e) {
+            UIHelper.printError("Import stopped: " + e.getMessage());
+        } finally {
+            try {
+                if (conn != null) {
+                    dropStageTable(conn);
+                    conn.close();
+                }
+            } catch (SQLException e) {
+            }
+        }
+
+        report.finish("ATTENDANCE IMPORT - " + path);
+        return report;
+    }
+
+    // =====================================================
+    // VALIDATION
+    // =====================================================
+    private Row parse(int lineNo, String[] f, ImportReport report) {
+        if (f.length < 5) {
+            report.reject(lineNo, "expected 5 columns: roll_no,date,period,subject,status", f);
+            return null;
+        }
+
+        String rollNo = f[0];
+        if (rollNo.isEmpty() || rollNo.length() > 20) {
+            report.reject(lineNo, "invalid roll number", f);
+            return null;
+        }
+
+        Date date;
+        try {
+            date = Date.valueOf(f[1]);
+        } catch (IllegalArgumentException e) {
+            report.reject(lineNo, "invalid date (use YYYY-MM-DD)", f);
+            return null;
+        }
+
+        int period;
+        try {
+            period = Integer.parseInt(f[2]);
+        } catch (NumberFormatException e) {
+            report.reject(lineNo, "invalid period", f);
+            return null;
+        }
+        if (period < 1) {
+            report.reject(lineNo, "invalid period", f);
+            return null;
+        }
+
+        String subject = f[3].isEmpty() ? "General" : f[3];
+        if (subject.length() > 50) {
+            report.reject(lineNo, "subject longer than 50 characters", f);
+            return null;
+        }
+
+        String status = f[4].toUpperCase();
+        if (status.equals("PRESENT"))
+            status = "P";
+        else if (status.equals("ABSENT"))
+            status = "A";
+        if (!status.equals("P") && !status.equals("A")) {
+            report.reject(lineNo, "invalid status (use P or A)", f);
+            return null;
+        }
+
+        return new Row(lineNo, f, rollNo, date, period, subject, status);
+    }
+
+    /**
+     * Checks every roll number in the chunk that hasn't been seen before
+     * against the students table with a single IN query.
+     */
+    private void resolveRollNumbers(Connection conn, List<Row> chunk) throws SQLException {
+        Set<String> pending = new HashSet<>();
+        for (Row row : chunk) {
+            if (!knownRolls.contains(row.rollNo) && !unknownRolls.contains(row.rollNo))
+                pending.add(row.rollNo);
+        }
+        if (pending.isEmpty())
+            return;
+
+        StringBuilder sql = new StringBuilder("SELECT roll_no FROM students WHERE roll_no IN (");
+        for (int i = 0; i < pending.size(); i++)
+            sql.append(i == 0 ? "?" : ", ?");
+        sql.append(")");
+
+        Set<String> found = new HashSet<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            int idx = 1;
+            for (String rollNo : pending)
+                pstmt.setString(idx++, rollNo);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next())
+                    found.add(rs.getString("roll_no"));
+            }
+        }
+
+        for (String rollNo : pending) {
+            if (found.contains(rollNo))
+                knownRolls.add(rollNo);
+            else
+                unknownRolls.add(rollNo);
+        }
+    }
+
+    // =====================================================
+    // CHUNK LOAD (one transaction)
+    // =====================================================
+    private void loadChunk(Connection conn, List<Row> chunk, ImportReport report) throws SQLException {
+        resolveRollNumbers(conn, chunk);
+        java.time.LocalDate frozenUntil = ColdArchive.getFrozenUntil(conn);
+
+        // Reject unknown students, archived dates and duplicates inside the file
+        Map<String, Row> accepted = new HashMap<>();
+        for (Row row : chunk) {
+            if (unknownRolls.contains(row.rollNo)) {
+                report.reject(row.lineNo, "unknown roll number", row.fields);
+                continue;
+            }
+            if (frozenUntil != null && !row.date.toLocalDate().isAfter(frozenUntil)) {
+                report.reject(row.lineNo, "date is archived", row.fields);
+                continue;
+            }
+            String key = row.rollNo + "|" + row.date + "|" + row.period;
+            if (accepted.containsKey(key)) {
+                report.reject(row.lineNo, "duplicate of line " + accepted.get(key).lineNo, row.fields);
+                continue;
+            }
+            accepted.put(key, row);
+        }
+        if (accepted.isEmpty()) {
+            report.chunkCommitted(0);
+            return;
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            conn.setAutoCommit(false);
+            stmt.executeUpdate("DELETE FROM " + STAGE_TABLE);
+
+            // 1. Stage the chunk with a batched insert
+            try (PreparedStatement stage = conn.prepareStatement("INSERT INTO " + STAGE_TABLE
+                    + " (line_no, roll_no, date, period, status, subject) VALUES (?, ?, ?, ?, ?, ?)")) {
+                for (Row row : accepted.values()) {
+                    stage.setInt(1, row.lineNo);
+                    stage.setString(2, row.rollNo);
+                    stage.setDate(3, row.date);
+                    stage.setInt(4, row.period);
+                    stage.setString(5, row.status);
+                    stage.setString(6, row.subject);
+                    stage.addBatch();
+                }
+                stage.executeBatch();
+            }
+
+            // 2. Reject rows already present in attendance_log
+            Map<Integer, Row> byLine = new HashMap<>();
+            for (Row row : accepted.values())
+                byLine.put(row.lineNo, row);
+            try (ResultSet rs = stmt.executeQuery("SELECT st.line_no FROM " + STAGE_TABLE + " st "
+                    + "JOIN attendance_log al ON al.roll_no = st.roll_no AND al.date = st.date "
+                    + "AND al.period = st.period")) {
+                while (rs.next()) {
+                    Row row = byLine.get(rs.getInt(1));
+                    report.reject(row.lineNo, "attendance already marked for this period", row.fields);
+                }
+            }
+            stmt.executeUpdate("DELETE st FROM " + STAGE_TABLE + " st "
+                    + "JOIN attendance_log al ON al.roll_no = st.roll_no AND al.date = st.date "
+                    + "AND al.period = st.period");
+
+            // 3. Set-based load of the log, both summaries and the daily rollup
+            int loaded = stmt.executeUpdate(
+                    "INSERT INTO attendance_log (roll_no, date, period, status, subject, class_name, department) "
+                            + "SELECT st.roll_no, st.date, st.period, st.status, st.subject, s.class_name, s.department "
+                            + "FROM " + STAGE_TABLE + " st JOIN students s ON s.roll_no = st.roll_no");
+            stmt.executeUpdate(
+                    "INSERT INTO attendance (roll_no, total_periods, present_periods) "
+                            + "SELECT * FROM (SELECT roll_no, COUNT(*) AS total_periods, "
+                            + "SUM(status = 'P') AS present_periods FROM " + STAGE_TABLE
+                            + " GROUP BY roll_no) AS new "
+                            + "ON DUPLICATE KEY UPDATE total_periods = attendance.total_periods + new.total_periods, "
+                            + "present_periods = attendance.present_periods + new.present_periods");
+            stmt.executeUpdate(
+                    "INSERT INTO subject_attendance (roll_no, subject, total_periods, present_periods) "
+                            + "SELECT * FROM (SELECT roll_no, subject, COUNT(*) AS total_periods, "
+                            + "SUM(status = 'P') AS present_periods FROM " + STAGE_TABLE
+                            + " GROUP BY roll_no, subject) AS new "
+                            + "ON DUPLICATE KEY UPDATE "
+                            + "total_periods = subject_attendance.total_periods + new.total_periods, "
+                            + "present_periods = subject_attendance.present_periods + new.present_periods");
+            stmt.executeUpdate(
+                    "INSERT INTO daily_attendance (class_name, date, roll_no, present, absent) "
+                            + "SELECT * FROM (SELECT s.class_name, st.date, st.roll_no, "
+                            + "SUM(st.status = 'P') AS present, SUM(st.status = 'A') AS absent "
+                            + "FROM " + STAGE_TABLE + " st JOIN students s ON s.roll_no = st.roll_no "
+                            + "GROUP BY s.class_name, st.date, st.roll_no) AS new "
+                            + "ON DUPLICATE KEY UPDATE present = daily_attendance.present + new.present, "
+                            + "absent = daily_attendance.absent + new.absent");
+
+            conn.commit();
+            report.chunkCommitted(loaded);
+
+        } catch (SQLException e) {
+            try {
+                conn.rollback();
+            } catch (SQLException ex) {
+            }
+            throw e;
+        } finally {
+            try {
+                conn.setAutoCommit(true);
+            } catch (SQLException ex) {
+            }
+        }
+    }
+
+    // =====================================================
+    // STAGING TABLE (per-connection temporary table)
+    // =====================================================
+    private void createStageTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DROP TEMPORARY TABLE IF EXISTS " + STAGE_TABLE);
+            stmt.executeUpdate("CREATE TEMPORARY TABLE " + STAGE_TABLE + " ("
+                    + "  line_no INT NOT NULL,"
+                    + "  roll_no VARCHAR(20) NOT NULL,"
+                    + "  date DATE NOT NULL,"
+                    + "  period INT NOT NULL,"
+                    + "  status ENUM('P','A') NOT NULL,"
+                    + "  subject VARCHAR(50) NOT NULL,"
+                    + "  PRIMARY KEY (roll_no, date, period)"
+                    + ")");
+        }
+    }
+
+    private void dropStageTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DROP TEMPORARY TABLE IF EXISTS " + STAGE_TABLE);
+        }
+    }
+}
@@ -0,0 +1,1005 @@
+/*
+ * ============================================================
+ * ClassTrack – Student Attendance Management System
+ * File: ColdArchive.java
+ * Purpose: Cold storage for closed semesters. Exports attendance
+ *          rows to compact, column-oriented, compressed files,
+ *          removes them from the database and reads them back
+ *          for one student when older history is requested.
+ *
+ * File layout (*.cta, all integers big-endian):
+ *   int     magic "CTA1", short version
+ *   int     row count, int first day, int last day (epoch days)
+ *   UTF     lowest roll_no, UTF highest roll_no
+ *   block   dictionaries: subject, class, department
+ *   int     students; per student: UTF roll_no, int group,
+ *           int first row in the group, int rows
+ *   int     groups; per group: int rows, int bytes
+ *   groups  per group 6 column blocks
+ *           (date deltas, period, status, subject, class, department)
+ * Every block is int length, long CRC32, GZIP bytes.
+ * roll_no values are stored upper-cased (see rollKey).
+ * Rows are sorted by (roll_no, date, period) and cut into row groups
+ * of about GROUP_ROWS at student boundaries; date deltas restart at
+ * each student. A lookup finds the student's group in the index,
+ * skips the groups before it unread and decodes only that group.
+ * catalog.csv lists each file's date and roll_no range so reads
+ * open only the files that can contain the student.
+ *
+ * Before exporting, the range is frozen (archive_freeze): marks dated
+ * on or before the frozen day are refused. Only rows that are in the
+ * verified file are deleted, matched by key, so a run that stops
+ * part-way can be resumed by exporting the same range again.
+ * ============================================================
+ */
+
+package classtrack;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class ColdArchive {
+
+    public static final String ARCHIVE_DIR = System.getProperty("classtrack.archive.dir", "archive");
+
+    private static final int MAGIC = 0x43544131; // "CTA1"
+    private static final short VERSION = 2;
+    private static final String CATALOG = "catalog.csv";
+
+    // Columns in file order
+    private static final int COL_DATE = 0;
+    private static final int COL_PERIOD = 1;
+    private static final int COL_STATUS = 2;
+    private static final int COL_SUBJECT = 3;
+    private static final int COL_CLASS = 4;
+    private static final int COL_DEPARTMENT = 5;
+    private static final int COLUMNS = 6;
+
+    // Rows per row group (whole students); a lookup decodes one group
+    private static final int GROUP_ROWS = 4096;
+
+    // Archived rows removed from the database per transaction
+    private static final int DELETE_CHUNK = 500;
+
+    // MySQL ER_NO_SUCH_TABLE (archive_freeze not migrated yet)
+    private static final int ER_NO_SUCH_TABLE = 1146;
+
+    /**
+     * One archived period of one student.
+     */
+    public static class Row {
+        public final Date date;
+        public final int period;
+        public final String status;
+        public final String subject;
+
+        Row(Date date, int period, String status, String subject) {
+            this.date = date;
+            this.period = period;
+            this.status = status;
+            this.subject = subject;
+        }
+    }
+
+    /**
+     * One catalog.csv line: a file and the ranges it covers.
+     */
+    private static class CatalogEntry {
+        final String file;
+        final LocalDate firstDay;
+        final LocalDate lastDay;
+        final String minRoll;
+        final String maxRoll;
+
+        CatalogEntry(String file, LocalDate firstDay, LocalDate lastDay, String minRoll, String maxRoll) {
+            this.file = file;
+            this.firstDay = firstDay;
+            this.lastDay = lastDay;
+            this.minRoll = minRoll;
+            this.maxRoll = maxRoll;
+        }
+    }
+
+    // =====================================================
+    // 1. EXPORT (database -> file, then delete from database)
+    // =====================================================
+
+    /**
+     * Exports every row dated in [from, to] from attendance_log and
+     * attendance_log_archive to one archive file, then deletes them
+     * from the database one month per transaction. Their per-subject
+     * totals are kept in attendance_cold_totals so summary rebuilds
+     * still count them.
+     *
+     * @return rows exported, or -1 on error
+     */
+    public long export(Date from, Date to) {
+        if (!to.toLocalDate().isBefore(LocalDate.now())) {
+            UIHelper.printError("Only closed periods can be archived - the end date must be before today.");
+            return -1;
+        }
+        Path dir = Paths.get(ARCHIVE_DIR);
+        String fileName = "attendance_" + from + "_" + to + ".cta";
+        Path target = dir.resolve(fileName);
+
+        // Same range again after a failed delete: finish removing its rows
+        boolean resume = Files.exists(target) && isCataloged(fileName);
+        LocalDate archivedUntil = getArchivedUntil();
+        if (!resume && archivedUntil != null && !from.toLocalDate().isAfter(archivedUntil)) {
+            UIHelper.printError("History up to " + archivedUntil + " is already archived - start after it.");
+            return -1;
+        }
+        if (!resume && Files.exists(target)) {
+            UIHelper.printError("Archive file already exists: " + target);
+            return -1;
+        }
+
+        Connection conn = null;
+        try {
+            conn = DBConnection.getConnection();
+            if (conn == null)
+                return -1;
+
+            long rows;
+            if (resume) {
+                UIHelper.printInfo("Resuming: removing rows already archived in " + target + "...");
+                rows = verify(target);
+                if (rows < 0)
+                    throw new IOException("verification failed for " + target);
+            } else {
+                Files.createDirectories(dir);
+                LocalDate previousFreeze = getFrozenUntil(conn);
+                // 1. Freeze the range so no new marks land in it mid-export
+                freezeThrough(conn, to.toLocalDate());
+                try {
+                    rows = writeVerifiedFile(conn, from, to, dir, fileName);
+                } catch (IOException | SQLException e) {
+                    setFrozenUntil(conn, previousFreeze);
+                    throw e;
+                }
+                if (rows == 0) {
+                    setFrozenUntil(conn, previousFreeze);
+                    UIHelper.printInfo("No attendance between " + from + " and " + to + ".");
+                    return 0;
+                }
+            }
+
+            // 3. Remove exactly the archived rows from the hot tables
+            long[] result = deleteExported(conn, target);
+            long left = countLive(conn, from, to);
+
+            UIHelper.printSuccess(String.format("Archived %,d row(s) to %s (%,d KB). Removed %,d from the database.",
+                    rows, target, Files.size(target) / 1024, result[0]));
+            if (left > 0)
+                UIHelper.printWarning(String.format("%,d row(s) in the range changed or arrived after the export "
+                        + "started and were kept in the database.", left));
+            return rows;
+
+        } catch (IOException e) {
+            UIHelper.printError("ERROR writing archive: " + e.getMessage());
+            return -1;
+        } catch (SQLException e) {
+            UIHelper.printError("ERROR while archiving: " + e.getMessage());
+            if (Files.exists(target))
+                UIHelper.printInfo("Export the same range again to finish removing its rows.");
+            return -1;
+        } finally {
+            try {
+                if (conn != null)
+                    conn.close();
+            } catch (SQLException e) {
+            }
+        }
+    }
+
+    /**
+     * Writes the range to a temp file, reads it back, then renames it
+     * into place and catalogs it.
+     *
+     * @return rows in the file (0 = nothing to archive, no file written)
+     */
+    private long writeVerifiedFile(Connection conn, Date from, Date to, Path dir, String fileName)
+            throws SQLException, IOException {
+        Path temp = dir.resolve(fileName + ".tmp");
+        FileStats stats = writeFile(conn, from, to, temp);
+        if (stats.rows == 0) {
+            Files.deleteIfExists(temp);
+            return 0;
+        }
+
+        // 2. Read it back before anything is deleted
+        if (verify(temp) != stats.rows)
+            throw new IOException("verification failed for " + temp);
+        Files.move(temp, dir.resolve(fileName), StandardCopyOption.ATOMIC_MOVE);
+        // The catalog records the requested range: every date in it now
+        // lives only in this file, even days that had no rows
+        appendCatalog(new CatalogEntry(fileName, from.toLocalDate(), to.toLocalDate(),
+                stats.minRoll, stats.maxRoll));
+        return stats.rows;
+    }
+
+    private static class FileStats {
+        int rows;
+        LocalDate firstDay;
+        LocalDate lastDay;
+        String minRoll;
+        String maxRoll;
+    }
+
+    /**
+     * Column buffers of the row group being written. They hold
+     * compressed bytes only, so memory stays small.
+     */
+    private static class GroupWriter {
+        final ByteArrayOutputStream[] raw = new ByteArrayOutputStream[COLUMNS];
+        final DataOutputStream[] cols = new DataOutputStream[COLUMNS];
+        int rows;
+
+        GroupWriter() throws IOException {
+            for (int c = 0; c < COLUMNS; c++) {
+                raw[c] = new ByteArrayOutputStream();
+                cols[c] = new DataOutputStream(new GZIPOutputStream(raw[c], 8 * 1024));
+            }
+        }
+
+        // Closes the group and returns its six column blocks
+        byte[] finish() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            for (int c = 0; c < COLUMNS; c++) {
+                cols[c].close();
+                writeColumn(out, raw[c].toByteArray());
+            }
+            out.flush();
+            return bytes.toByteArray();
+        }
+    }
+
+    private FileStats writeFile(Connection conn, Date from, Date to, Path temp) throws SQLException, IOException {
+        FileStats stats = new FileStats();
+
+        Map<String, Integer> subjects = new LinkedHashMap<>();
+        Map<String, Integer> classes = new LinkedHashMap<>();
+        Map<String, Integer> departments = new LinkedHashMap<>();
+        // roll_no -> { group, first row in group, rows }
+        Map<String, int[]> rollIndex = new LinkedHashMap<>();
+        List<byte[]> groups = new ArrayList<>();
+        List<Integer> groupRows = new ArrayList<>();
+        GroupWriter group = new GroupWriter();
+
+        PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT roll_no, date, period, status, subject, class_name, department FROM attendance_log "
+                        + "WHERE date BETWEEN ? AND ? "
+                        + "UNION ALL SELECT roll_no, date, period, status, subject, class_name, department "
+                        + "FROM attendance_log_archive WHERE date BETWEEN ? AND ? "
+                        + "ORDER BY roll_no, date, period");
+        try {
+            pstmt.setFetchSize(1000);
+            pstmt.setDate(1, from);
+            pstmt.setDate(2, to);
+            pstmt.setDate(3, from);
+            pstmt.setDate(4, to);
+            ResultSet rs = pstmt.executeQuery();
+
+            int[] slice = null;
+            String currentRoll = null;
+            int previousDay = 0;
+            while (rs.next()) {
+                String rollNo = rollKey(rs.getString("roll_no"));
+                LocalDate day = rs.getDate("date").toLocalDate();
+                int epochDay = (int) day.toEpochDay();
+
+                if (!rollNo.equals(currentRoll)) {
+                    // Groups end at student boundaries
+                    if (group.rows >= GROUP_ROWS) {
+                        groupRows.add(group.rows);
+                        groups.add(group.finish());
+                        group = new GroupWriter();
+                    }
+                    if (rollIndex.containsKey(rollNo))
+                        throw new IOException("rows of " + rollNo + " are not contiguous");
+                    slice = new int[] { groups.size(), group.rows, 0 };
+                    rollIndex.put(rollNo, slice);
+                    currentRoll = rollNo;
+                    previousDay = 0;
+                }
+                slice[2]++;
+
+                DataOutputStream[] cols = group.cols;
+                writeVarInt(cols[COL_DATE], zigZag(epochDay - previousDay));
+                previousDay = epochDay;
+                writeVarInt(cols[COL_PERIOD], rs.getInt("period"));
+                cols[COL_STATUS].writeByte("P".equals(rs.getString("status")) ? 1 : 0);
+                writeVarInt(cols[COL_SUBJECT], dictionaryId(subjects, rs.getString("subject")));
+                writeVarInt(cols[COL_CLASS], dictionaryId(classes, rs.getString("class_name")));
+                writeVarInt(cols[COL_DEPARTMENT], dictionaryId(departments, rs.getString("department")));
+                group.rows++;
+
+                if (stats.rows == 0 || day.isBefore(stats.firstDay))
+                    stats.firstDay = day;
+                if (stats.rows == 0 || day.isAfter(stats.lastDay))
+                    stats.lastDay = day;
+                // Not the SQL order: the collation sorts differently from String
+                if (stats.minRoll == null || rollNo.compareTo(stats.minRoll) < 0)
+                    stats.minRoll = rollNo;
+                if (stats.maxRoll == null || rollNo.compareTo(stats.maxRoll) > 0)
+                    stats.maxRoll = rollNo;
+                stats.rows++;
+            }
+            rs.close();
+        } finally {
+            pstmt.close();
+        }
+        byte[] last = group.finish();
+        if (group.rows > 0) {
+            groupRows.add(group.rows);
+            groups.add(last);
+        }
+        if (stats.rows == 0)
+            return stats;
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(stats.rows);
+            out.writeInt((int) stats.firstDay.toEpochDay());
+            out.writeInt((int) stats.lastDay.toEpochDay());
+            out.writeUTF(stats.minRoll);
+            out.writeUTF(stats.maxRoll);
+            writeColumn(out, dictionaries(subjects, classes, departments));
+
+            out.writeInt(rollIndex.size());
+            for (Map.Entry<String, int[]> e : rollIndex.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeInt(e.getValue()[0]);
+                out.writeInt(e.getValue()[1]);
+                out.writeInt(e.getValue()[2]);
+            }
+            out.writeInt(groups.size());
+            for (int g = 0; g < groups.size(); g++) {
+                out.writeInt(groupRows.get(g));
+                out.writeInt(groups.get(g).length);
+            }
+            for (byte[] bytes : groups)
+                out.write(bytes);
+        }
+        return stats;
+    }
+
+    /**
+     * Deletes the rows held in an archive file from the log and its
+     * archive table, DELETE_CHUNK per transaction, moving their totals
+     * to attendance_cold_totals. A row is deleted only if it still has
+     * the archived status and subject, so nothing missing from the file
+     * is lost, and rows already gone are skipped (safe to re-run).
+     *
+     * @return { rows deleted, rows kept because they changed }
+     */
+    private long[] deleteExported(Connection conn, Path file) throws SQLException, IOException {
+        long[] result = new long[2];
+        List<String> rolls = new ArrayList<>(DELETE_CHUNK);
+        List<Row> chunk = new ArrayList<>(DELETE_CHUNK);
+        forEachRow(file, (rollNo, row) -> {
+            rolls.add(rollNo);
+            chunk.add(row);
+            if (chunk.size() == DELETE_CHUNK) {
+                deleteChunk(conn, rolls, chunk, result);
+                rolls.clear();
+                chunk.clear();
+            }
+        });
+        if (!chunk.isEmpty())
+            deleteChunk(conn, rolls, chunk, result);
+        return result;
+    }
+
+    private void deleteChunk(Connection conn, List<String> rolls, List<Row> chunk, long[] result)
+            throws SQLException {
+        Map<String, Row> archived = new HashMap<>();
+        for (int i = 0; i < chunk.size(); i++)
+            archived.put(rolls.get(i) + "|" + chunk.get(i).date + "|" + chunk.get(i).period, chunk.get(i));
+        // (roll_no, subject) -> { total, present }
+        Map<String, int[]> totals = new LinkedHashMap<>();
+
+        try {
+            conn.setAutoCommit(false);
+            for (String table : new String[] { "attendance_log", "attendance_log_archive" }) {
+                List<String> keys = new ArrayList<>();
+                try (PreparedStatement pstmt = conn.prepareStatement("SELECT roll_no, date, period, status, subject "
+                        + "FROM " + table + " WHERE (roll_no, date, period) IN ("
+                        + placeholders(chunk.size()) + ") FOR UPDATE")) {
+                    bindKeys(pstmt, rolls, chunk);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            String rollNo = rs.getString("roll_no");
+                            String key = rollKey(rollNo) + "|" + rs.getDate("date") + "|" + rs.getInt("period");
+                            Row row = archived.get(key);
+                            String subject = rs.getString("subject") == null ? "" : rs.getString("subject");
+                            if (row == null || !row.status.equals(rs.getString("status"))
+                                    || !row.subject.equals(subject)) {
+                                result[1]++;
+                                continue;
+                            }
+                            keys.add(key);
+                            int[] t = totals.computeIfAbsent(rollNo + "|"
+                                    + (subject.isEmpty() ? "General" : subject), k -> new int[2]);
+                            t[0]++;
+                            if (row.status.equals("P"))
+                                t[1]++;
+                        }
+                    }
+                }
+                if (keys.isEmpty())
+                    continue;
+
+                List<String> keyRolls = new ArrayList<>();
+                List<Row> keyRows = new ArrayList<>();
+                for (String key : keys) {
+                    keyRolls.add(key.substring(0, key.indexOf('|')));
+                    keyRows.add(archived.get(key));
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM " + table
+                        + " WHERE (roll_no, date, period) IN (" + placeholders(keys.size()) + ")")) {
+                    bindKeys(pstmt, keyRolls, keyRows);
+                    result[0] += pstmt.executeUpdate();
+                }
+            }
+
+            // Students deleted since (archive table only) have no totals row
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO attendance_cold_totals (roll_no, subject, total_periods, present_periods) "
+                            + "SELECT roll_no, ?, ?, ? FROM students WHERE roll_no = ? "
+                            + "ON DUPLICATE KEY UPDATE total_periods = total_periods + ?, "
+                            + "present_periods = present_periods + ?")) {
+                for (Map.Entry<String, int[]> e : totals.entrySet()) {
+                    int bar = e.getKey().indexOf('|');
+                    pstmt.setString(1, e.getKey().substring(bar + 1));
+                    pstmt.setInt(2, e.getValue()[0]);
+                    pstmt.setInt(3, e.getValue()[1]);
+                    pstmt.setString(4, e.getKey().substring(0, bar));
+                    pstmt.setInt(5, e.getValue()[0]);
+                    pstmt.setInt(6, e.getValue()[1]);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            conn.commit();
+
+        } catch (SQLException e) {
+            try {
+                conn.rollback();
+            } catch (SQLException ex) {
+            }
+            throw e;
+        } finally {
+            try {
+                conn.setAutoCommit(true);
+            } catch (SQLException ex) {
+            }
+        }
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++)
+            sb.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+        return sb.toString();
+    }
+
+    private static void bindKeys(PreparedStatement pstmt, List<String> rolls, List<Row> rows) throws SQLException {
+        int idx = 1;
+        for (int i = 0; i < rows.size(); i++) {
+            pstmt.setString(idx++, rolls.get(i));
+            pstmt.setDate(idx++, rows.get(i).date);
+            pstmt.setInt(idx++, rows.get(i).period);
+        }
+    }
+
+    /**
+     * Rows still in the database for the range after the delete.
+     */
+    private long countLive(Connection conn, Date from, Date to) throws SQLException {
+        long live = 0;
+        for (String table : new String[] { "attendance_log", "attendance_log_archive" }) {
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT COUNT(*) FROM " + table + " WHERE date BETWEEN ? AND ?")) {
+                pstmt.setDate(1, from);
+                pstmt.setDate(2, to);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                    live += rs.getLong(1);
+                }
+            }
+        }
+        return live;
+    }
+
+    // =====================================================
+    // FREEZE (no new marks in archived ranges)
+    // =====================================================
+
+    /**
+     * Last day that can no longer be marked because it is (being)
+     * archived, or null.
+     */
+    public static LocalDate getFrozenUntil(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT frozen_until FROM archive_freeze WHERE id = 1");
+                ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getDate(1).toLocalDate() : null;
+        } catch (SQLException e) {
+            if (e.getErrorCode() == ER_NO_SUCH_TABLE)
+                return null;
+            throw e;
+        }
+    }
+
+    /**
+     * True if marks dated on this day must be refused.
+     */
+    public static boolean isFrozen(Connection conn, Date day) throws SQLException {
+        LocalDate until = getFrozenUntil(conn);
+        return until != null && !day.toLocalDate().isAfter(until);
+    }
+
+    /**
+     * Refuses marks dated on or before the given day from now on. Only
+     * ever moves the freeze forward; also used by LogPartitionManager
+     * for months moved into attendance_log_archive.
+     */
+    public static void freezeThrough(Connection conn, LocalDate day) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO archive_freeze (id, frozen_until) "
+                + "VALUES (1, ?) AS new ON DUPLICATE KEY UPDATE "
+                + "frozen_until = GREATEST(frozen_until, new.frozen_until)")) {
+            pstmt.setDate(1, Date.valueOf(day));
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static void setFrozenUntil(Connection conn, LocalDate until) throws SQLException {
+        if (until == null) {
+            try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM archive_freeze WHERE id = 1")) {
+                pstmt.executeUpdate();
+            }
+            return;
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO archive_freeze (id, frozen_until) "
+                + "VALUES (1, ?) ON DUPLICATE KEY UPDATE frozen_until = ?")) {
+            pstmt.setDate(1, Date.valueOf(until));
+            pstmt.setDate(2, Date.valueOf(until));
+            pstmt.executeUpdate();
+        }
+    }
+
+    // =====================================================
+    // 2. READ (one student, optional date range / subject)
+    // =====================================================
+
+    /**
+     * Archived periods of one student, oldest first. Only files whose
+     * date and roll_no ranges overlap the request are opened, and in
+     * each only the row group holding the student is decompressed.
+     *
+     * @param from    first date or null
+     * @param to      last date or null
+     * @param subject subject filter or null
+     */
+    public static List<Row> read(String rollNo, Date from, Date to, String subject) {
+        List<Row> rows = new ArrayList<>();
+        read(rollNo, from, to, subject, rows::add);
+        return rows;
+    }
+
+    /**
+     * Receives one student's archived rows as they are decoded.
+     */
+    @FunctionalInterface
+    public interface RowHandler {
+        /**
+         * @return false to stop reading
+         */
+        boolean accept(Row row);
+    }
+
+    /**
+     * Streaming form of {@link #read(String, Date, Date, String)}: rows
+     * are handed over one at a time, oldest first, without collecting
+     * them, so a multi-year history is paged in constant memory.
+     */
+    public static void read(String rollNo, Date from, Date to, String subject, RowHandler handler) {
+        String key = rollKey(rollNo);
+        LocalDate fromDay = from != null ? from.toLocalDate() : null;
+        LocalDate toDay = to != null ? to.toLocalDate() : null;
+
+        for (CatalogEntry entry : readCatalog()) {
+            if (fromDay != null && entry.lastDay.isBefore(fromDay))
+                continue;
+            if (toDay != null && entry.firstDay.isAfter(toDay))
+                continue;
+            if (key.compareTo(entry.minRoll) < 0 || key.compareTo(entry.maxRoll) > 0)
+                continue;
+
+            try {
+                if (!readSlice(Paths.get(ARCHIVE_DIR, entry.file), key, fromDay, toDay, subject, handler))
+                    return;
+            } catch (IOException e) {
+                UIHelper.printWarning("Could not read archive " + entry.file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Last day covered by any archive file, or null when nothing has
+     * been archived. Dates up to here live only in cold storage.
+     */
+    public static LocalDate getArchivedUntil() {
+        LocalDate until = null;
+        for (CatalogEntry entry : readCatalog()) {
+            if (until == null || entry.lastDay.isAfter(until))
+                until = entry.lastDay;
+        }
+        return until;
+    }
+
+    // rollNo is a rollKey; returns false once the handler asks to stop
+    private static boolean readSlice(Path file, String rollNo, LocalDate fromDay, LocalDate toDay, String subject,
+            RowHandler handler) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            FileIndex index = readIndex(in);
+            int student = index.find(rollNo);
+            if (student < 0)
+                return true; // student not in this file: no group is decompressed
+
+            // Skip the groups before the student's without reading them
+            int group = index.group[student];
+            long offset = 0;
+            for (int g = 0; g < group; g++)
+                offset += index.groupBytes[g];
+            in.skipNBytes(offset);
+
+            DataInputStream dates = column(in);
+            DataInputStream periods = column(in);
+            DataInputStream statuses = column(in);
+            DataInputStream subjects = column(in);
+
+            // Earlier students of the same group
+            for (int row = 0; row < index.first[student]; row++) {
+                readVarInt(dates);
+                readVarInt(periods);
+                statuses.readUnsignedByte();
+                readVarInt(subjects);
+            }
+
+            int epochDay = 0;
+            for (int row = 0; row < index.count[student]; row++) {
+                epochDay += unZigZag(readVarInt(dates));
+                int period = readVarInt(periods);
+                int status = statuses.readUnsignedByte();
+                String rowSubject = index.subjects[readVarInt(subjects)];
+
+                LocalDate day = LocalDate.ofEpochDay(epochDay);
+                if (fromDay != null && day.isBefore(fromDay))
+                    continue;
+                if (toDay != null && day.isAfter(toDay))
+                    break; // the slice is in date order
+                if (subject != null && !subject.equalsIgnoreCase(rowSubject))
+                    continue;
+                if (!handler.accept(new Row(Date.valueOf(day), period, status == 1 ? "P" : "A", rowSubject)))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Receives archived rows in file order.
+     */
+    @FunctionalInterface
+    private interface RowVisitor {
+        void visit(String rollNo, Row row) throws SQLException;
+    }
+
+    /**
+     * Decodes a whole file, one row at a time.
+     */
+    private static void forEachRow(Path file, RowVisitor visitor) throws IOException, SQLException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            FileIndex index = readIndex(in);
+            DataInputStream[] cols = new DataInputStream[COLUMNS];
+            int loaded = -1;
+
+            // Students are stored in index order, group after group
+            for (int i = 0; i < index.rolls.length; i++) {
+                while (loaded < index.group[i]) {
+                    for (int c = 0; c < COLUMNS; c++)
+                        cols[c] = column(in);
+                    loaded++;
+                }
+                int epochDay = 0;
+                for (int r = 0; r < index.count[i]; r++) {
+                    epochDay += unZigZag(readVarInt(cols[COL_DATE]));
+                    int period = readVarInt(cols[COL_PERIOD]);
+                    int status = cols[COL_STATUS].readUnsignedByte();
+                    String subject = index.subjects[readVarInt(cols[COL_SUBJECT])];
+                    readVarInt(cols[COL_CLASS]);
+                    readVarInt(cols[COL_DEPARTMENT]);
+                    visitor.visit(index.rolls[i], new Row(Date.valueOf(LocalDate.ofEpochDay(epochDay)), period,
+                            status == 1 ? "P" : "A", subject));
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes every column of a freshly written file and checks the CRCs.
+     *
+     * @return the number of rows it holds, or -1 if the index disagrees
+     */
+    private static int verify(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            FileIndex index = readIndex(in);
+            int[] indexed = new int[index.groupRows.length];
+            for (int i = 0; i < index.rolls.length; i++) {
+                if (index.group[i] < 0 || index.group[i] >= indexed.length
+                        || index.first[i] != indexed[index.group[i]])
+                    return -1;
+                indexed[index.group[i]] += index.count[i];
+            }
+
+            int total = 0;
+            String[][] dictionaries = { index.subjects, index.classes, index.departments };
+            for (int g = 0; g < index.groupRows.length; g++) {
+                if (indexed[g] != index.groupRows[g])
+                    return -1;
+                DataInputStream[] cols = new DataInputStream[COLUMNS];
+                for (int c = 0; c < COLUMNS; c++)
+                    cols[c] = column(in);
+                for (int row = 0; row < index.groupRows[g]; row++) {
+                    readVarInt(cols[COL_DATE]);
+                    readVarInt(cols[COL_PERIOD]);
+                    cols[COL_STATUS].readUnsignedByte();
+                    for (int c = COL_SUBJECT; c <= COL_DEPARTMENT; c++) {
+                        if (readVarInt(cols[c]) >= dictionaries[c - COL_SUBJECT].length)
+                            return -1;
+                    }
+                }
+                total += index.groupRows[g];
+            }
+            return total == index.rows ? total : -1;
+        }
+    }
+
+    /**
+     * Header, dictionaries, student index and group table of a file;
+     * the stream is left at the first row group.
+     */
+    private static class FileIndex {
+        int rows;
+        String[] subjects;
+        String[] classes;
+        String[] departments;
+        String[] rolls;
+        int[] group;
+        int[] first;
+        int[] count;
+        int[] groupRows;
+        int[] groupBytes;
+
+        int find(String rollNo) {
+            for (int i = 0; i < rolls.length; i++) {
+                if (rolls[i].equals(rollNo))
+                    return i;
+            }
+            return -1;
+        }
+    }
+
+    private static FileIndex readIndex(DataInputStream in) throws IOException {
+        FileIndex index = new FileIndex();
+        index.rows = readHeader(in);
+        DataInputStream dictionaries = column(in);
+        index.subjects = readDictionary(dictionaries);
+        index.classes = readDictionary(dictionaries);
+        index.departments = readDictionary(dictionaries);
+
+        int students = in.readInt();
+        index.rolls = new String[students];
+        index.group = new int[students];
+        index.first = new int[students];
+        index.count = new int[students];
+        for (int i = 0; i < students; i++) {
+            index.rolls[i] = in.readUTF();
+            index.group[i] = in.readInt();
+            index.first[i] = in.readInt();
+            index.count[i] = in.readInt();
+        }
+        int groups = in.readInt();
+        index.groupRows = new int[groups];
+        index.groupBytes = new int[groups];
+        for (int g = 0; g < groups; g++) {
+            index.groupRows[g] = in.readInt();
+            index.groupBytes[g] = in.readInt();
+        }
+        return index;
+    }
+
+    private static int readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC)
+            throw new IOException("not a ClassTrack archive file");
+        short version = in.readShort();
+        if (version != VERSION)
+            throw new IOException("unsupported archive version " + version);
+        int rows = in.readInt();
+        in.readInt(); // first day
+        in.readInt(); // last day
+        in.readUTF(); // lowest roll_no
+        in.readUTF(); // highest roll_no
+        return rows;
+    }
+
+    // =====================================================
+    // CATALOG (catalog.csv: file,first_day,last_day,min_roll,max_roll)
+    // =====================================================
+    private static List<CatalogEntry> readCatalog() {
+        List<CatalogEntry> entries = new ArrayList<>();
+        Path catalog = Paths.get(ARCHIVE_DIR, CATALOG);
+        if (!Files.exists(catalog))
+            return entries;
+
+        try (CsvReader csv = new CsvReader(catalog.toString())) {
+            String[] f;
+            while ((f = csv.readRecord()) != null) {
+                if (f.length < 5 || f[0].equals("file"))
+                    continue;
+                entries.add(new CatalogEntry(f[0], LocalDate.parse(f[1]), LocalDate.parse(f[2]), f[3], f[4]));
+            }
+        } catch (IOException | RuntimeException e) {
+            UIHelper.printWarning("Could not read archive catalog: " + e.getMessage());
+        }
+        return entries;
+    }
+
+    private static boolean isCataloged(String fileName) {
+        for (CatalogEntry entry : readCatalog()) {
+            if (entry.file.equals(fileName))
+                return true;
+        }
+        return false;
+    }
+
+    private static void appendCatalog(CatalogEntry entry) throws IOException {
+        Path catalog = Paths.get(ARCHIVE_DIR, CATALOG);
+        boolean isNew = !Files.exists(catalog);
+        try (BufferedWriter w = Files.newBufferedWriter(catalog, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (isNew) {
+                w.write("file,first_day,last_day,min_roll,max_roll");
+                w.newLine();
+            }
+            w.write(entry.file + "," + entry.firstDay + "," + entry.lastDay + ","
+                    + quote(entry.minRoll) + "," + quote(entry.maxRoll));
+            w.newLine();
+        }
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    // =====================================================
+    // ENCODING HELPERS
+    // =====================================================
+    private static void writeColumn(DataOutputStream out, byte[] gzipped) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(gzipped);
+        out.writeInt(gzipped.length);
+        out.writeLong(crc.getValue());
+        out.write(gzipped);
+    }
+
+    private static DataInputStream column(DataInputStream in) throws IOException {
+        byte[] gzipped = new byte[in.readInt()];
+        long expected = in.readLong();
+        in.readFully(gzipped);
+        CRC32 crc = new CRC32();
+        crc.update(gzipped);
+        if (crc.getValue() != expected)
+            throw new IOException("column checksum mismatch");
+        return new DataInputStream(new BufferedInputStream(new GZIPInputStream(new ByteArrayInputStream(gzipped))));
+    }
+
+    /**
+     * The three dictionaries of a file as one GZIP block.
+     */
+    @SafeVarargs
+    private static byte[] dictionaries(Map<String, Integer>... dictionaries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            for (Map<String, Integer> dictionary : dictionaries) {
+                writeVarInt(out, dictionary.size());
+                for (String value : dictionary.keySet())
+                    out.writeUTF(value);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String[] readDictionary(DataInputStream in) throws IOException {
+        String[] values = new String[readVarInt(in)];
+        for (int i = 0; i < values.length; i++)
+            values[i] = in.readUTF();
+        return values;
+    }
+
+    private static int dictionaryId(Map<String, Integer> dictionary, String value) {
+        String key = value == null ? "" : value;
+        Integer id = dictionary.get(key);
+        if (id == null) {
+            id = dictionary.size();
+            dictionary.put(key, id);
+        }
+        return id;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("malformed varint");
+    }
+
+    /**
+     * Roll numbers as stored in files and the catalog. MySQL compares
+     * them case-insensitively (the live path finds 'cs101' as 'CS101'),
+     * so files key them upper-cased and lookups do the same.
+     */
+    static String rollKey(String rollNo) {
+        return rollNo.trim().toUpperCase(java.util.Locale.ROOT);
+    }
+
+    private static int zigZag(int n) {
+        return (n << 1) ^ (n >> 31);
+    }
+
+    private static int unZigZag(int n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+}
@@ -0,0 +1,697 @@
+/*
+ * ============================================================
+ * ClassTrack – Student Attendance Management System
+ * File: ConnectionPool.java
+ * Purpose: Small bounded JDBC connection pool used by DBConnection.
+ *          Keeps physical MySQL connections open between DAO calls
+ *          so each call skips the TCP + authentication handshake,
+ *          and keeps each connection's prepared statements open so
+ *          repeated SQL is parsed by the server only once.
+ * ============================================================
+ */
+
+package classtrack;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class ConnectionPool {
+
+    /**
+     * Opens a new physical connection. DBConnection supplies one that
+     * calls DriverManager with the configured URL and credentials.
+     */
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    // Connections used within this window are handed out without a ping
+    private static final long VALIDATION_BYPASS_MS = 500;
+
+    private final ConnectionFactory factory;
+    private final int maxSize;
+    private final int minIdle;
+    private final long connectionTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long maxLifetimeMs;
+    private final int validationTimeoutSec;
+    private final int statementCacheSize;
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition available = lock.newCondition();
+    private final ArrayDeque<PooledEntry> idle = new ArrayDeque<>();
+    private final ScheduledExecutorService housekeeper;
+
+    // ----- State guarded by lock -----
+    private int total; // physical connections open or being opened
+    private int active; // connections currently lent out
+    private int waiters; // threads blocked in getConnection()
+    private boolean shutdown;
+
+    // ----- Statistics guarded by lock -----
+    private long borrowCount;
+    private long timeoutCount;
+    private long createdCount;
+    private long closedCount;
+    private long totalBorrowNanos;
+    private long maxBorrowNanos;
+
+    // ----- Statement cache statistics (updated by borrowers, no lock) -----
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private final LongAdder statementEvictions = new LongAdder();
+    private final LongAdder statementsCached = new LongAdder();
+
+    public ConnectionPool(ConnectionFactory factory, int maxSize, int minIdle, long connectionTimeoutMs,
+            long idleTimeoutMs, long maxLifetimeMs, int validationTimeoutSec, int statementCacheSize) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("Pool size must be at least 1.");
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.minIdle = Math.max(0, Math.min(minIdle, maxSize));
+        this.connectionTimeoutMs = connectionTimeoutMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.maxLifetimeMs = maxLifetimeMs;
+        this.validationTimeoutSec = validationTimeoutSec;
+        this.statementCacheSize = Math.max(0, statementCacheSize);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "classtrack-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMs, 30000));
+        housekeeper.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // =====================================================
+    // BORROW
+    // =====================================================
+
+    /**
+     * Hands out a pooled connection. Closing the returned connection
+     * gives it back to the pool instead of closing the socket.
+     *
+     * @throws SQLTimeoutException if no connection frees up within the
+     *                             configured wait timeout
+     */
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(connectionTimeoutMs);
+
+        while (true) {
+            PooledEntry entry = null;
+            boolean mustCreate = false;
+
+            lock.lock();
+            try {
+                while (true) {
+                    if (shutdown)
+                        throw new SQLException("Connection pool has been shut down.");
+                    entry = idle.pollLast();
+                    if (entry != null)
+                        break;
+                    if (total < maxSize) {
+                        total++;
+                        mustCreate = true;
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeoutCount++;
+                        throw new SQLTimeoutException("Timed out after " + connectionTimeoutMs
+                                + " ms waiting for a database connection (all " + maxSize + " in use).");
+                    }
+                    waiters++;
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection.", e);
+                    } finally {
+                        waiters--;
+                    }
+                }
+                active++;
+            } finally {
+                lock.unlock();
+            }
+
+            if (mustCreate) {
+                try {
+                    entry = new PooledEntry(factory.create());
+                } catch (SQLException | RuntimeException e) {
+                    discardSlot();
+                    throw e;
+                }
+                lock.lock();
+                try {
+                    createdCount++;
+                } finally {
+                    lock.unlock();
+                }
+            } else if (isExpired(entry, System.currentTimeMillis()) || !isUsable(entry)) {
+                closePhysical(entry);
+                discardSlot();
+                continue;
+            }
+
+            recordBorrow(System.nanoTime() - start);
+            return entry.lend();
+        }
+    }
+
+    /**
+     * Validation-on-borrow. Connections that were returned moments ago
+     * are trusted; older ones get a driver-level ping.
+     */
+    private boolean isUsable(PooledEntry entry) {
+        if (System.currentTimeMillis() - entry.lastReturned < VALIDATION_BYPASS_MS)
+            return true;
+        try {
+            return entry.physical.isValid(validationTimeoutSec);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean isExpired(PooledEntry entry, long now) {
+        return maxLifetimeMs > 0 && now - entry.createdAt >= maxLifetimeMs;
+    }
+
+    private void recordBorrow(long nanos) {
+        lock.lock();
+        try {
+            borrowCount++;
+            totalBorrowNanos += nanos;
+            if (nanos > maxBorrowNanos)
+                maxBorrowNanos = nanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Gives back the slot of a connection that was reserved but will not be lent. */
+    private void discardSlot() {
+        lock.lock();
+        try {
+            total--;
+            active--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // =====================================================
+    // RETURN
+    // =====================================================
+    private void release(PooledEntry entry) {
+        boolean discard = entry.broken || isExpired(entry, System.currentTimeMillis());
+
+        if (!discard) {
+            // Never hand an open transaction to the next borrower
+            try {
+                if (!entry.physical.getAutoCommit()) {
+                    entry.physical.rollback();
+                    entry.physical.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                discard = true;
+            }
+        }
+
+        lock.lock();
+        try {
+            active--;
+            if (discard || shutdown) {
+                total--;
+                discard = true;
+            } else {
+                entry.lastReturned = System.currentTimeMillis();
+                idle.addLast(entry);
+            }
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        if (discard)
+            closePhysical(entry);
+    }
+
+    // =====================================================
+    // HOUSEKEEPING
+    // =====================================================
+
+    /**
+     * Closes connections that sat idle longer than the idle timeout
+     * (keeping minIdle warm) and any that outlived the max lifetime.
+     */
+    private void evictIdle() {
+        List<PooledEntry> evicted = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        lock.lock();
+        try {
+            // Oldest-returned connections sit at the head of the deque
+            Iterator<PooledEntry> it = idle.iterator();
+            while (it.hasNext()) {
+                PooledEntry entry = it.next();
+                boolean idleTooLong = idleTimeoutMs > 0 && now - entry.lastReturned >= idleTimeoutMs
+                        && idle.size() > minIdle;
+                if (idleTooLong || isExpired(entry, now)) {
+                    it.remove();
+                    total--;
+                    evicted.add(entry);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (PooledEntry entry : evicted)
+            closePhysical(entry);
+    }
+
+    private void closePhysical(PooledEntry entry) {
+        // Closing the connection frees its server-side statements too
+        statementsCached.add(-entry.statements.size());
+        entry.statements.clear();
+        try {
+            entry.physical.close();
+        } catch (SQLException e) {
+        }
+        lock.lock();
+        try {
+            closedCount++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes all idle connections and refuses new borrows. Connections
+     * still lent out are closed as soon as they are returned.
+     */
+    public void shutdown() {
+        List<PooledEntry> toClose;
+        lock.lock();
+        try {
+            shutdown = true;
+            toClose = new ArrayList<>(idle);
+            total -= idle.size();
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        housekeeper.shutdownNow();
+        for (PooledEntry entry : toClose)
+            closePhysical(entry);
+    }
+
+    // =====================================================
+    // STATISTICS
+    // =====================================================
+    public Stats getStats() {
+        lock.lock();
+        try {
+            return new Stats(maxSize, total, active, idle.size(), waiters, borrowCount, timeoutCount,
+                    createdCount, closedCount, totalBorrowNanos, maxBorrowNanos, statementHits.sum(),
+                    statementMisses.sum(), statementEvictions.sum(), statementsCached.sum());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Point-in-time snapshot of pool usage, for the HOD status screen.
+     */
+    public static class Stats {
+        private final int maxSize;
+        private final int total;
+        private final int active;
+        private final int idle;
+        private final int waiters;
+        private final long borrowCount;
+        private final long timeoutCount;
+        private final long createdCount;
+        private final long closedCount;
+        private final long totalBorrowNanos;
+        private final long maxBorrowNanos;
+        private final long statementHits;
+        private final long statementMisses;
+        private final long statementEvictions;
+        private final long statementsCached;
+
+        Stats(int maxSize, int total, int active, int idle, int waiters, long borrowCount, long timeoutCount,
+                long createdCount, long closedCount, long totalBorrowNanos, long maxBorrowNanos,
+                long statementHits, long statementMisses, long statementEvictions, long statementsCached) {
+            this.maxSize = maxSize;
+            this.total = total;
+            this.active = active;
+            this.idle = idle;
+            this.waiters = waiters;
+            this.borrowCount = borrowCount;
+            this.timeoutCount = timeoutCount;
+            this.createdCount = createdCount;
+            this.closedCount = closedCount;
+            this.totalBorrowNanos = totalBorrowNanos;
+            this.maxBorrowNanos = maxBorrowNanos;
+            this.statementHits = statementHits;
+            this.statementMisses = statementMisses;
+            this.statementEvictions = statementEvictions;
+            this.statementsCached = statementsCached;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public int getActive() {
+            return active;
+        }
+
+        public int getIdle() {
+            return idle;
+        }
+
+        public int getWaiters() {
+            return waiters;
+        }
+
+        public long getBorrowCount() {
+            return borrowCount;
+        }
+
+        public long getTimeoutCount() {
+            return timeoutCount;
+        }
+
+        public long getCreatedCount() {
+            return createdCount;
+        }
+
+        public long getClosedCount() {
+            return closedCount;
+        }
+
+        public double getAverageBorrowMillis() {
+            return borrowCount == 0 ? 0.0 : totalBorrowNanos / (double) borrowCount / 1_000_000.0;
+        }
+
+        public double getMaxBorrowMillis() {
+            return maxBorrowNanos / 1_000_000.0;
+        }
+
+        public long getStatementHits() {
+            return statementHits;
+        }
+
+        public long getStatementMisses() {
+            return statementMisses;
+        }
+
+        public long getStatementEvictions() {
+            return statementEvictions;
+        }
+
+        /** Statements currently held open across all connections. */
+        public long getStatementsCached() {
+            return statementsCached;
+        }
+
+        public double getStatementHitRate() {
+            long lookups = statementHits + statementMisses;
+            return lookups == 0 ? 0.0 : statementHits * 100.0 / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return "| Active: " + active + " | Idle: " + idle + " | Waiters: " + waiters
+                    + " | Open: " + total + "/" + maxSize
+                    + " | Borrows: " + borrowCount
+                    + " | Avg Wait: " + String.format("%.3f", getAverageBorrowMillis()) + " ms"
+                    + " | Stmt Cache: " + String.format("%.1f", getStatementHitRate()) + "% hit |";
+        }
+    }
+
+    // =====================================================
+    // POOLED CONNECTION WRAPPER
+    // =====================================================
+
+    /**
+     * One physical connection plus its bookkeeping.
+     */
+    private class PooledEntry {
+        final Connection physical;
+        final long createdAt = System.currentTimeMillis();
+        volatile long lastReturned = createdAt;
+        volatile boolean broken;
+
+        // Idle prepared statements by SQL text, least recently used first.
+        // Only the thread that borrowed this entry touches it.
+        final Map<String, PreparedStatement> statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= statementCacheSize)
+                    return false;
+                statementEvictions.increment();
+                statementsCached.decrement();
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+
+        PooledEntry(Connection physical) {
+            this.physical = physical;
+        }
+
+        /** Runs a JDBC call, flagging the entry if the connection itself failed. */
+        Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                // SQLSTATE class 08 = connection exception; don't reuse this socket
+                if (cause instanceof SQLException) {
+                    String state = ((SQLException) cause).getSQLState();
+                    if (state != null && state.startsWith("08"))
+                        broken = true;
+                }
+                throw cause;
+            }
+        }
+
+        /** Returns a fresh logical handle whose close() returns this entry. */
+        Connection lend() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, new LogicalConnection(this));
+        }
+    }
+
+    /**
+     * The handle DAOs see. Delegates everything to the physical connection
+     * except close(), which returns it to the pool exactly once.
+     */
+    private class LogicalConnection implements InvocationHandler {
+        private final PooledEntry entry;
+        private boolean closed;
+
+        LogicalConnection(PooledEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || entry.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + entry.physical + "]";
+                default:
+                    break;
+            }
+            if (closed)
+                throw new SQLException("Connection has already been returned to the pool.");
+
+            // Plain prepareStatement(sql) is cached; variants with generated
+            // keys or cursor options are rare and go straight to the driver.
+            if (name.equals("prepareStatement") && args.length == 1 && statementCacheSize > 0)
+                return prepareCached(proxy, method, (String) args[0]);
+            return entry.invoke(entry.physical, method, args);
+        }
+
+        boolean isClosed() {
+            return closed;
+        }
+
+        private PreparedStatement prepareCached(Object proxy, Method prepare, String sql) throws Throwable {
+            PreparedStatement stmt = entry.statements.remove(sql);
+            if (stmt != null) {
+                statementsCached.decrement();
+                if (stmt.isClosed())
+                    stmt = null;
+            }
+            if (stmt != null) {
+                statementHits.increment();
+            } else {
+                statementMisses.increment();
+                stmt = (PreparedStatement) entry.invoke(entry.physical, prepare, new Object[] { sql });
+            }
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class }, new CachedStatement((Connection) proxy, this, entry, sql, stmt));
+        }
+    }
+
+    // Statement settings put back to their defaults when a statement is
+    // returned to the cache; any other setting keeps it out of the cache.
+    private static final List<String> RESETTABLE = List.of("setFetchSize", "setMaxRows", "setLargeMaxRows",
+            "setQueryTimeout");
+
+    /**
+     * The statement handle DAOs see. close() clears parameters and open
+     * results and returns the statement to its connection's cache
+     * instead of closing it on the server.
+     */
+    private class CachedStatement implements InvocationHandler {
+        private final Connection connection;
+        private final LogicalConnection owner;
+        private final PooledEntry entry;
+        private final String sql;
+        private final PreparedStatement target;
+        private final List<ResultSet> results = new ArrayList<>(2);
+        private boolean reset; // a resettable setting was changed
+        private boolean dirty; // a setting that cannot be reset was changed
+        private boolean batched;
+        private boolean closed;
+
+        CachedStatement(Connection connection, LogicalConnection owner, PooledEntry entry, String sql,
+                PreparedStatement target) {
+            this.connection = connection;
+            this.owner = owner;
+            this.entry = entry;
+            this.sql = sql;
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        giveBack();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "getConnection":
+                    return connection;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + sql + "]";
+                default:
+                    break;
+            }
+            if (closed)
+                throw new SQLException("Statement has already been closed.");
+
+            if (method.getDeclaringClass() == Statement.class && name.startsWith("set")) {
+                if (RESETTABLE.contains(name))
+                    reset = true;
+                else
+                    dirty = true;
+            } else if (name.equals("closeOnCompletion")) {
+                dirty = true;
+            } else if (name.equals("addBatch")) {
+                batched = true;
+            }
+
+            Object result = entry.invoke(target, method, args);
+            if (result instanceof ResultSet)
+                results.add((ResultSet) result);
+            return result;
+        }
+
+        /**
+         * Puts the statement back in the cache, or closes it if it can't
+         * be reused (connection already returned or broken, odd settings).
+         */
+        private void giveBack() {
+            boolean keep = !dirty && !owner.isClosed() && !entry.broken;
+            try {
+                for (ResultSet rs : results)
+                    rs.close();
+                if (keep) {
+                    target.clearParameters();
+                    if (batched)
+                        target.clearBatch();
+                    if (reset) {
+                        target.setFetchSize(0);
+                        target.setLargeMaxRows(0);
+                        target.setQueryTimeout(0);
+                    }
+                }
+            } catch (SQLException e) {
+                keep = false;
+            }
+            if (!keep) {
+                closeQuietly(target);
+                return;
+            }
+            PreparedStatement previous = entry.statements.put(sql, target);
+            if (previous != null)
+                closeQuietly(previous); // same SQL was open twice; keep one
+            else
+                statementsCached.increment();
+        }
+    }
+
+    private static void closeQuietly(Statement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * ============================================================
+ * ClassTrack – Student Attendance Management System
+ * File: CsvReader.java
+ * Purpose: Minimal streaming CSV reader used by the bulk importers.
+ *          Reads one record at a time so large files are never
+ *          loaded into memory.
+ * ============================================================
+ */
+
+package classtrack;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CsvReader implements Closeable {
+
+    private final BufferedReader reader;
+    private int lineNumber;
+
+    public CsvReader(String path) throws IOException {
+        this.reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the next non-blank record. Fields are trimmed; double-quoted
+     * fields may contain commas and "" for a literal quote.
+     *
+     * @return the fields, or null at end of file
+     */
+    public String[] readRecord() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null)
+                return null;
+            lineNumber++;
+        } while (line.trim().isEmpty());
+
+        // Strip a UTF-8 byte order mark left by spreadsheet exports
+        if (lineNumber == 1 && line.charAt(0) == '\uFEFF')
+            line = line.substring(1);
+
+        return split(line);
+    }
+
+    /**
+     * Line number of the record last returned by readRecord().
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    private static String[] split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields.toArray(new String[0]);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -3,6 +3,7 @@
  * ClassTrack - Student Attendance Management System
  * File: DBConnection.java
  * Purpose: Handles MySQL database connectivity using JDBC.
+ *          Connections are handed out from a ConnectionPool.
  * ============================================================
  *
  * ===================== SETUP INSTRUCTIONS =====================
@@ -37,18 +38,66 @@ package classtrack;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
 
 public class DBConnection {
 
     // ----- Database Configuration -----
     // Change these values if your MySQL setup is different.
-    private static final String URL = "jdbc:mysql://localhost:3306/classtrack_db?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC";
-    private static final String USERNAME = "root"; // Your MySQL username
-    private static final String PASSWORD = "12345"; // Your MySQL password (empty by default for XAMPP/WAMP)
+    // -Dclasstrack.db.url / .user / .password override them (e.g. to point
+    // the benchmarks at a separate database).
+    private static final String URL = System.getProperty("classtrack.db.url",
+            "jdbc:mysql://localhost:3306/classtrack_db?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC"
+                    + "&rewriteBatchedStatements=true&useCursorFetch=true&useServerPrepStmts=true&connectTimeout=5000");
+    private static final String USERNAME = System.getProperty("classtrack.db.user", "root"); // Your MySQL username
+    private static final String PASSWORD = System.getProperty("classtrack.db.password", "12345"); // Your MySQL password (empty by default for XAMPP/WAMP)
+
+    // ----- Connection Pool Configuration -----
+    // Override with -D flags, e.g. java -Dclasstrack.pool.maxSize=20 ...
+    private static final int POOL_MAX_SIZE = Integer.getInteger("classtrack.pool.maxSize", 10);
+    private static final int POOL_MIN_IDLE = Integer.getInteger("classtrack.pool.minIdle", 2);
+    private static final long POOL_WAIT_TIMEOUT_MS = Long.getLong("classtrack.pool.waitTimeoutMs", 5000L);
+    private static final long POOL_IDLE_TIMEOUT_MS = Long.getLong("classtrack.pool.idleTimeoutMs", 600000L);
+    private static final long POOL_MAX_LIFETIME_MS = Long.getLong("classtrack.pool.maxLifetimeMs", 1800000L);
+    private static final int POOL_VALIDATION_TIMEOUT_SEC = Integer.getInteger("classtrack.pool.validationTimeoutSec", 2);
+    // Prepared statements kept open per connection (0 = close them every time)
+    private static final int POOL_STATEMENT_CACHE_SIZE = Integer.getInteger("classtrack.pool.statementCacheSize", 64);
+
+    private static ConnectionPool pool;
+
+    // Why this thread's last getConnection() returned null (see isUnreachable)
+    private static final ThreadLocal<SQLException> lastFailure = new ThreadLocal<>();
+
+    // ----- Metrics -----
+    private static final Metrics.Timer BORROW = Metrics.timer("classtrack_db_borrow_duration_seconds",
+            "Time to get a connection from the pool");
+
+    static {
+        Metrics.gauge("classtrack_pool_connections", "Open pooled connections in use",
+                () -> pool == null ? 0 : pool.getStats().getActive(), "state", "active");
+        Metrics.gauge("classtrack_pool_connections", "Open pooled connections in use",
+                () -> pool == null ? 0 : pool.getStats().getIdle(), "state", "idle");
+        Metrics.gauge("classtrack_pool_waiters", "Callers waiting for a free connection",
+                () -> pool == null ? 0 : pool.getStats().getWaiters());
+        Metrics.gauge("classtrack_pool_max_connections", "Configured pool size", () -> POOL_MAX_SIZE);
+        Metrics.counter("classtrack_pool_timeouts_total", "Borrows that gave up waiting for a connection",
+                () -> pool == null ? 0 : pool.getStats().getTimeoutCount());
+        Metrics.counter("classtrack_pool_statement_cache_total", "Prepared statement cache lookups",
+                () -> pool == null ? 0 : pool.getStats().getStatementHits(), "result", "hit");
+        Metrics.counter("classtrack_pool_statement_cache_total", "Prepared statement cache lookups",
+                () -> pool == null ? 0 : pool.getStats().getStatementMisses(), "result", "miss");
+        Metrics.counter("classtrack_pool_statement_cache_evictions_total",
+                "Cached prepared statements closed to make room",
+                () -> pool == null ? 0 : pool.getStats().getStatementEvictions());
+        Metrics.gauge("classtrack_pool_statements_cached", "Idle prepared statements held open",
+                () -> pool == null ? 0 : pool.getStats().getStatementsCached());
+    }
 
     /**
      * Returns a Connection object to the classtrack_db database.
      * Call this method whenever you need to interact with the database.
+     * The connection comes from a shared pool; closing it returns it
+     * to the pool so the next call skips the login handshake.
      *
      * Usage example:
      * Connection conn = DBConnection.getConnection();
@@ -57,27 +106,37 @@ public class DBConnection {
      */
     public static Connection getConnection() {
         Connection connection = null;
+        long started = BORROW.start();
+        lastFailure.remove();
 
         try {
-            // Step 1: Load the MySQL JDBC Driver
-            Class.forName("com.mysql.cj.jdbc.Driver");
-
-            // Step 2: Establish the connection
-            connection = DriverManager.getConnection(URL, USERNAME, PASSWORD);
+            connection = getPool().getConnection();
 
-        } catch (ClassNotFoundException e) {
+        } catch (SQLTimeoutException e) {
+            lastFailure.set(e);
+            Metrics.recordFailure(e);
             System.out.println("==========================================================");
-            System.out.println("ERROR: MySQL JDBC Driver not found!");
+            System.out.println("ERROR: All database connections are busy!");
             System.out.println("----------------------------------------------------------");
-            System.out.println("Please make sure you have added the MySQL Connector/J JAR");
-            System.out.println("file to your project classpath.");
-            System.out.println("Download from: https://dev.mysql.com/downloads/connector/j/");
+            System.out.println("Details: " + e.getMessage());
+            System.out.println("Increase -Dclasstrack.pool.maxSize if this keeps happening.");
             System.out.println("==========================================================");
 
         } catch (SQLException e) {
+            lastFailure.set(e);
+            Metrics.recordFailure(e);
             String errorMsg = e.getMessage().toLowerCase();
 
-            if (errorMsg.contains("access denied")) {
+            if (e.getCause() instanceof ClassNotFoundException) {
+                System.out.println("==========================================================");
+                System.out.println("ERROR: MySQL JDBC Driver not found!");
+                System.out.println("----------------------------------------------------------");
+                System.out.println("Please make sure you have added the MySQL Connector/J JAR");
+                System.out.println("file to your project classpath.");
+                System.out.println("Download from: https://dev.mysql.com/downloads/connector/j/");
+                System.out.println("==========================================================");
+
+            } else if (errorMsg.contains("access denied")) {
                 System.out.println("==========================================================");
                 System.out.println("ERROR: Access Denied!");
                 System.out.println("----------------------------------------------------------");
@@ -102,8 +161,79 @@ public class DBConnection {
                 System.out.println("Make sure MySQL server is running on localhost:3306");
                 System.out.println("==========================================================");
             }
+
+        } finally {
+            BORROW.stop(started);
         }
 
         return connection;
     }
+
+    /**
+     * True if the last getConnection() on this thread returned null
+     * because MySQL could not be reached (SQLSTATE class 08), as opposed
+     * to a busy pool, bad credentials or a missing database. Only then
+     * is it worth saving work offline.
+     */
+    public static boolean isUnreachable() {
+        SQLException e = lastFailure.get();
+        String state = e == null ? null : e.getSQLState();
+        return state != null && state.startsWith("08");
+    }
+
+    /**
+     * Like getConnection(), but returns null without printing anything
+     * when the database cannot be reached. Used by background work that
+     * retries on its own, such as syncing offline marks.
+     */
+    public static Connection getConnectionQuietly() {
+        long started = BORROW.start();
+        try {
+            return getPool().getConnection();
+        } catch (SQLException e) {
+            Metrics.recordFailure(e);
+            return null;
+        } finally {
+            BORROW.stop(started);
+        }
+    }
+
+    /**
+     * Returns current pool usage (active, idle, waiters, borrow latency).
+     */
+    public static ConnectionPool.Stats getPoolStats() {
+        return getPool().getStats();
+    }
+
+    /**
+     * Closes all pooled connections. Called when the application exits.
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    private static synchronized ConnectionPool getPool() {
+        if (pool == null) {
+            pool = new ConnectionPool(DBConnection::openPhysicalConnection, POOL_MAX_SIZE, POOL_MIN_IDLE,
+                    POOL_WAIT_TIMEOUT_MS, POOL_IDLE_TIMEOUT_MS, POOL_MAX_LIFETIME_MS, POOL_VALIDATION_TIMEOUT_SEC,
+                    POOL_STATEMENT_CACHE_SIZE);
+        }
+        return pool;
+    }
+
+    /**
+     * Opens a brand-new physical connection for the pool.
+     */
+    private static Connection openPhysicalConnection() throws SQLException {
+        try {
+            // Load the MySQL JDBC Driver
+            Class.forName("com.mysql.cj.jdbc.Driver");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("MySQL JDBC Driver not found", e);
+        }
+        return StatementProfiler.wrap(DriverManager.getConnection(URL, USERNAME, PASSWORD));
+    }
 }
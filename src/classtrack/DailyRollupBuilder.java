@@ -0,0 +1,163 @@
+/*
+ * ============================================================
+ * ClassTrack – Student Attendance Management System
+ * File: DailyRollupBuilder.java
+ * Purpose: Backfills / rebuilds the 'daily_attendance' rollup
+ *          (present/absent per class, date and student) from
+ *          attendance_log and its archive, one date window per
+ *          transaction.
+ * ============================================================
+ */
+
+package classtrack;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+public class DailyRollupBuilder {
+
+    // Days of history rebuilt per transaction
+    private static final int WINDOW_DAYS = 31;
+
+    /**
+     * Recomputes the rollup for every date in [from, to]. Existing
+     * rollup rows in the range are replaced, so it is safe to re-run
+     * after fixing log rows by hand.
+     *
+     * @param from first date, or null for the earliest logged date
+     * @param to   last date, or null for the latest logged date
+     * @return number of rollup rows written, or -1 on error
+     */
+    public long rebuild(Date from, Date to) {
+        Connection conn = null;
+        long written = 0;
+
+        try {
+            conn = DBConnection.getConnection();
+            if (conn == null)
+                return -1;
+
+            if (from == null || to == null) {
+                Date[] range = loggedRange(conn);
+                if (range == null) {
+                    UIHelper.printInfo("attendance_log is empty - nothing to roll up.");
+                    return 0;
+                }
+                if (from == null)
+                    from = range[0];
+                if (to == null)
+                    to = range[1];
+            }
+
+            // Days exported to cold storage are gone from the database; their
+            // rollup rows are kept as they are
+            LocalDate archivedUntil = ColdArchive.getArchivedUntil();
+            if (archivedUntil != null && !from.toLocalDate().isAfter(archivedUntil)) {
+                from = Date.valueOf(archivedUntil.plusDays(1));
+                UIHelper.printInfo("Keeping rollup for cold-archived days up to " + archivedUntil + ".");
+            }
+
+            LocalDate end = to.toLocalDate();
+            for (LocalDate start = from.toLocalDate(); !start.isAfter(end); start = start.plusDays(WINDOW_DAYS)) {
+                LocalDate windowEnd = start.plusDays(WINDOW_DAYS - 1);
+                if (windowEnd.isAfter(end))
+                    windowEnd = end;
+                written += rebuildWindow(conn, Date.valueOf(start), Date.valueOf(windowEnd));
+            }
+
+            UIHelper.printSuccess("Daily rollup rebuilt for " + from + " to " + to
+                    + " (" + written + " row(s)).");
+            return written;
+
+        } catch (SQLException e) {
+            UIHelper.printError("ERROR while rebuilding daily rollup: " + e.getMessage());
+            return -1;
+        } finally {
+            try {
+                if (conn != null)
+                    conn.close();
+            } catch (SQLException e) {
+            }
+        }
+    }
+
+    private int rebuildWindow(Connection conn, Date from, Date to) throws SQLException {
+        PreparedStatement deleteStmt = null;
+        PreparedStatement insertStmt = null;
+
+        try {
+            conn.setAutoCommit(false);
+
+            deleteStmt = conn.prepareStatement("DELETE FROM daily_attendance WHERE date BETWEEN ? AND ?");
+            deleteStmt.setDate(1, from);
+            deleteStmt.setDate(2, to);
+            deleteStmt.executeUpdate();
+
+            insertStmt = conn.prepareStatement(
+                    "INSERT INTO daily_attendance (class_name, date, roll_no, present, absent) "
+                            + "SELECT class_name, date, roll_no, SUM(status = 'P'), SUM(status = 'A') "
+                            + "FROM (SELECT class_name, date, roll_no, status FROM attendance_log "
+                            + "WHERE date BETWEEN ? AND ? "
+                            + "UNION ALL SELECT class_name, date, roll_no, status FROM attendance_log_archive "
+                            + "WHERE date BETWEEN ? AND ?) al "
+                            + "WHERE class_name IS NOT NULL "
+                            + "GROUP BY class_name, date, roll_no");
+            insertStmt.setDate(1, from);
+            insertStmt.setDate(2, to);
+            insertStmt.setDate(3, from);
+            insertStmt.setDate(4, to);
+            int rows = insertStmt.executeUpdate();
+
+            conn.commit();
+            System.out.printf("  ... %s to %s: %,d row(s)%n", from, to, rows);
+            return rows;
+
+        } catch (SQLException e) {
+            try {
+                conn.rollback();
+            } catch (SQLException ex) {
+            }
+            throw e;
+        } finally {
+            try {
+                conn.setAutoCommit(true);
+            } catch (SQLException ex) {
+            }
+            try {
+                if (deleteStmt != null)
+                    deleteStmt.close();
+            } catch (SQLException e) {
+            }
+            try {
+                if (insertStmt != null)
+                    insertStmt.close();
+            } catch (SQLException e) {
+            }
+        }
+    }
+
+    /**
+     * First and last logged dates across the log and its archive (index
+     * lookups on date), or null if both are empty.
+     */
+    private Date[] loggedRange(Connection conn) throws SQLException {
+        PreparedStatement pstmt = conn.prepareStatement("SELECT MIN(d), MAX(d) FROM ("
+                + "SELECT MIN(date) AS d FROM attendance_log UNION ALL SELECT MAX(date) FROM attendance_log "
+                + "UNION ALL SELECT MIN(date) FROM attendance_log_archive "
+                + "UNION ALL SELECT MAX(date) FROM attendance_log_archive) t");
+        try {
+            ResultSet rs = pstmt.executeQuery();
+            rs.next();
+            Date first = rs.getDate(1);
+            Date last = rs.getDate(2);
+            rs.close();
+            return first == null ? null : new Date[] { first, last };
+        } finally {
+            pstmt.close();
+        }
+    }
+}
@@ -1,45 +1,325 @@
 /*
  * ============================================================
  * ClassTrack – Database Migration
- * Automatically upgrades the database schema on app startup.
- * Adds role column, default accounts, and attendance_log table.
+ * Versioned schema upgrades. Each migration has a number, a name
+ * and a checksum of the SQL it runs; applied ones are recorded in
+ * the schema_version table, so a startup against an up-to-date
+ * database costs one primary-key read.
+ *
+ * Run pending migrations explicitly with:
+ *   java classtrack.MainMenu migrate [--status]
+ * Startup applies them too unless -Dclasstrack.migrate.auto=false.
+ * Never edit a migration that has shipped; add a new version.
  * ============================================================
  */
 
 package classtrack;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
 
 public class DatabaseMigration {
 
+    // Apply pending migrations at startup (false = only report them)
+    private static final boolean AUTO_MIGRATE = !"false".equals(System.getProperty("classtrack.migrate.auto"));
+
+    // Serialises migrations when several ClassTrack instances start at once
+    private static final String LOCK_NAME = "classtrack_schema_migration";
+    private static final int LOCK_TIMEOUT_SEC = 60;
+
+    private static final Metrics.Timer MIGRATE = Metrics.timer("classtrack_migration_duration_seconds",
+            "Time spent checking and applying all migrations at startup");
+
+    /**
+     * One migration step.
+     */
+    @FunctionalInterface
+    private interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
     /**
-     * Runs all migrations. Safe to call every startup —
-     * each migration checks if it's already been applied.
+     * A numbered schema change. The checksum covers the version, name
+     * and every SQL statement the step runs, so editing an applied
+     * migration shows up in 'migrate --status'.
      */
-    public static void migrate() {
+    private static final class Migration {
+        final int version;
+        final String name;
+        final String checksum;
+        final Step step;
+
+        Migration(int version, String name, Step step, String... sql) {
+            this.version = version;
+            this.name = name;
+            this.step = step;
+            CRC32 crc = new CRC32();
+            crc.update((version + "|" + name).getBytes(StandardCharsets.UTF_8));
+            for (String statement : sql)
+                crc.update(("\n" + statement).getBytes(StandardCharsets.UTF_8));
+            this.checksum = String.format("%08x", crc.getValue());
+        }
+    }
+
+    // =====================================================
+    // MIGRATION SQL
+    // =====================================================
+    // Declared here so each Migration can checksum exactly what it runs.
+
+    private static final String ROLE_COLUMN_DDL =
+            "ALTER TABLE users ADD COLUMN role ENUM('HOD','FACULTY','STUDENT') NOT NULL DEFAULT 'HOD'";
+
+    private static final String USER_ROLL_NO_DDL = "ALTER TABLE users ADD COLUMN roll_no VARCHAR(20) NULL";
+
+    private static final String ADMIN_TO_HOD_SQL = "UPDATE users SET role = 'HOD' WHERE username = 'admin'";
+    private static final String FIND_USER_SQL = "SELECT user_id FROM users WHERE username = ?";
+    private static final String INSERT_USER_SQL =
+            "INSERT INTO users (username, password, role, roll_no) VALUES (?, ?, ?, ?)";
+    // username, password, role
+    private static final String[][] DEFAULT_ACCOUNTS = {
+            { "hod", "hod123", "HOD" },
+            { "faculty1", "faculty123", "FACULTY" },
+            { "faculty2", "faculty123", "FACULTY" } };
+
+    private static final String ATTENDANCE_LOG_DDL =
+            "CREATE TABLE IF NOT EXISTS attendance_log (" +
+                    "  log_id INT AUTO_INCREMENT PRIMARY KEY," +
+                    "  roll_no VARCHAR(20) NOT NULL," +
+                    "  date DATE NOT NULL," +
+                    "  period INT NOT NULL," +
+                    "  status ENUM('P','A') NOT NULL," +
+                    "  FOREIGN KEY (roll_no) REFERENCES students(roll_no) ON DELETE CASCADE," +
+                    "  UNIQUE(roll_no, date, period)" +
+                    ")";
+
+    private static final String[] FIX_DUPLICATES_SQL = {
+            // Consolidate into a temp table, then re-insert one row per student
+            "CREATE TEMPORARY TABLE att_temp AS " +
+                    "SELECT roll_no, SUM(total_periods) AS total_periods, SUM(present_periods) AS present_periods " +
+                    "FROM attendance GROUP BY roll_no",
+            "DELETE FROM attendance",
+            "INSERT INTO attendance (roll_no, total_periods, present_periods) " +
+                    "SELECT roll_no, total_periods, present_periods FROM att_temp",
+            "DROP TEMPORARY TABLE att_temp",
+            // So this never happens again
+            "ALTER TABLE attendance ADD UNIQUE INDEX uq_attendance_rollno (roll_no)" };
+
+    private static final String SUBJECT_COLUMN_DDL =
+            "ALTER TABLE attendance_log ADD COLUMN subject VARCHAR(50) DEFAULT 'General'";
+
+    private static final String LOG_UPDATED_AT_DDL = "ALTER TABLE attendance_log "
+            + "ADD COLUMN updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, "
+            + "ADD INDEX idx_log_updated_at (updated_at)";
+
+    private static final String PERCENTAGE_COLUMN_DDL = "ALTER TABLE attendance "
+            + "ADD COLUMN percentage_bp INT GENERATED ALWAYS AS "
+            + "(CASE WHEN total_periods > 0 THEN FLOOR(present_periods * 10000 / total_periods) END) STORED, "
+            + "ADD INDEX idx_attendance_pct (percentage_bp, roll_no)";
+
+    // getStudentsByClass, section reports
+    private static final String IDX_STUDENTS_CLASS_DDL = "ALTER TABLE students ADD INDEX idx_students_class (class_name)";
+    // Department-scoped summary rebuilds
+    private static final String IDX_STUDENTS_DEPARTMENT_DDL =
+            "ALTER TABLE students ADD INDEX idx_students_department (department)";
+    // Covering index for today / by-date section reports
+    private static final String IDX_LOG_DATE_ROLL_STATUS_DDL =
+            "ALTER TABLE attendance_log ADD INDEX idx_log_date_roll_status (date, roll_no, status)";
+    // Student search: name prefix and word matches
+    private static final String IDX_STUDENTS_NAME_DDL = "ALTER TABLE students ADD INDEX idx_students_name (name)";
+    private static final String FT_STUDENTS_NAME_DDL = "ALTER TABLE students ADD FULLTEXT INDEX ft_students_name (name)";
+
+    private static final String LOG_CLASS_COLUMNS_DDL = "ALTER TABLE attendance_log "
+            + "ADD COLUMN class_name VARCHAR(50) NULL, "
+            + "ADD COLUMN department VARCHAR(100) NULL, "
+            + "ADD INDEX idx_log_class_date (class_name, date, roll_no, status)";
+    // Uses idx_log_class_date, so this is a no-op lookup once backfilled
+    private static final String LOG_CLASS_BACKFILL_SQL = "UPDATE attendance_log al "
+            + "JOIN students s ON s.roll_no = al.roll_no "
+            + "SET al.class_name = s.class_name, al.department = s.department "
+            + "WHERE al.class_name IS NULL";
+
+    private static final String WATERMARK_DDL =
+            "CREATE TABLE IF NOT EXISTS maintenance_watermark (" +
+                    "  name VARCHAR(100) PRIMARY KEY," +
+                    "  last_run TIMESTAMP NOT NULL" +
+                    ")";
+
+    private static final String SUBJECT_SUMMARY_DDL =
+            "CREATE TABLE subject_attendance (" +
+                    "  roll_no VARCHAR(20) NOT NULL," +
+                    "  subject VARCHAR(50) NOT NULL," +
+                    "  total_periods INT NOT NULL DEFAULT 0," +
+                    "  present_periods INT NOT NULL DEFAULT 0," +
+                    "  PRIMARY KEY (roll_no, subject)," +
+                    "  FOREIGN KEY (roll_no) REFERENCES students(roll_no) ON DELETE CASCADE" +
+                    ")";
+    private static final String SUBJECT_SUMMARY_BACKFILL_SQL =
+            "INSERT INTO subject_attendance (roll_no, subject, total_periods, present_periods) " +
+                    "SELECT roll_no, COALESCE(subject, 'General'), COUNT(*), SUM(status = 'P') " +
+                    "FROM attendance_log GROUP BY roll_no, COALESCE(subject, 'General')";
+
+    private static final String LOG_ARCHIVE_DDL =
+            "CREATE TABLE attendance_log_archive (" +
+                    "  log_id INT NOT NULL," +
+                    "  roll_no VARCHAR(20) NOT NULL," +
+                    "  date DATE NOT NULL," +
+                    "  period INT NOT NULL," +
+                    "  status ENUM('P','A') NOT NULL," +
+                    "  subject VARCHAR(50) DEFAULT 'General'," +
+                    "  class_name VARCHAR(50) NULL," +
+                    "  department VARCHAR(100) NULL," +
+                    "  PRIMARY KEY (roll_no, date, period)," +
+                    "  INDEX idx_archive_date (date)" +
+                    ")";
+    private static final String COMPRESSED = " ROW_FORMAT=COMPRESSED KEY_BLOCK_SIZE=8";
+
+    private static final String COLD_TOTALS_DDL =
+            "CREATE TABLE IF NOT EXISTS attendance_cold_totals (" +
+                    "  roll_no VARCHAR(20) NOT NULL," +
+                    "  subject VARCHAR(50) NOT NULL," +
+                    "  total_periods INT NOT NULL DEFAULT 0," +
+                    "  present_periods INT NOT NULL DEFAULT 0," +
+                    "  PRIMARY KEY (roll_no, subject)," +
+                    "  FOREIGN KEY (roll_no) REFERENCES students(roll_no) ON DELETE CASCADE" +
+                    ")";
+
+    // The history rollup itself is DailyRollupBuilder's
+    private static final String DAILY_ROLLUP_DDL =
+            "CREATE TABLE daily_attendance (" +
+                    "  class_name VARCHAR(50) NOT NULL," +
+                    "  date DATE NOT NULL," +
+                    "  roll_no VARCHAR(20) NOT NULL," +
+                    "  present INT NOT NULL DEFAULT 0," +
+                    "  absent INT NOT NULL DEFAULT 0," +
+                    "  PRIMARY KEY (class_name, date, roll_no)," +
+                    "  FOREIGN KEY (roll_no) REFERENCES students(roll_no) ON DELETE CASCADE" +
+                    ")";
+
+    private static final String MISSING_STUDENT_LOGINS_SQL = "INSERT INTO users (username, password, role, roll_no) "
+            + "SELECT s.roll_no, 'student123', 'STUDENT', s.roll_no "
+            + "FROM students s "
+            + "WHERE s.roll_no NOT IN (SELECT username FROM users WHERE role = 'STUDENT')";
+
+    private static final String ARCHIVE_FREEZE_DDL =
+            "CREATE TABLE IF NOT EXISTS archive_freeze (" +
+                    "  id TINYINT PRIMARY KEY," +
+                    "  frozen_until DATE NOT NULL" +
+                    ")";
+
+    // In order. Steps still check whether their change is already there,
+    // so databases created before schema_version existed are adopted.
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "addRoleColumn", DatabaseMigration::addRoleColumn, ROLE_COLUMN_DDL),
+            new Migration(2, "addRollNoColumnToUsers", DatabaseMigration::addRollNoColumnToUsers, USER_ROLL_NO_DDL),
+            new Migration(3, "insertDefaultAccounts", DatabaseMigration::insertDefaultAccounts,
+                    concat(new String[] { ADMIN_TO_HOD_SQL, FIND_USER_SQL, INSERT_USER_SQL }, DEFAULT_ACCOUNTS)),
+            new Migration(4, "createAttendanceLogTable", DatabaseMigration::createAttendanceLogTable,
+                    ATTENDANCE_LOG_DDL),
+            new Migration(5, "fixAttendanceDuplicates", DatabaseMigration::fixAttendanceDuplicates,
+                    FIX_DUPLICATES_SQL),
+            new Migration(6, "addSubjectColumn", DatabaseMigration::addSubjectColumn, SUBJECT_COLUMN_DDL),
+            new Migration(7, "addLogUpdatedAtColumn", DatabaseMigration::addLogUpdatedAtColumn, LOG_UPDATED_AT_DDL),
+            new Migration(8, "addPercentageColumn", DatabaseMigration::addPercentageColumn, PERCENTAGE_COLUMN_DDL),
+            new Migration(9, "addReportIndexes", DatabaseMigration::addReportIndexes,
+                    IDX_STUDENTS_CLASS_DDL, IDX_STUDENTS_DEPARTMENT_DDL, IDX_LOG_DATE_ROLL_STATUS_DDL,
+                    IDX_STUDENTS_NAME_DDL, FT_STUDENTS_NAME_DDL),
+            new Migration(10, "addLogClassColumns", DatabaseMigration::addLogClassColumns,
+                    LOG_CLASS_COLUMNS_DDL, LOG_CLASS_BACKFILL_SQL),
+            new Migration(11, "createWatermarkTable", DatabaseMigration::createWatermarkTable, WATERMARK_DDL),
+            new Migration(12, "createSubjectSummaryTable", DatabaseMigration::createSubjectSummaryTable,
+                    SUBJECT_SUMMARY_DDL, SUBJECT_SUMMARY_BACKFILL_SQL),
+            new Migration(13, "createLogArchiveTable", DatabaseMigration::createLogArchiveTable,
+                    LOG_ARCHIVE_DDL + COMPRESSED, LOG_ARCHIVE_DDL),
+            new Migration(14, "createColdTotalsTable", DatabaseMigration::createColdTotalsTable, COLD_TOTALS_DDL),
+            new Migration(15, "createDailyRollupTable", DatabaseMigration::createDailyRollupTable, DAILY_ROLLUP_DDL),
+            new Migration(16, "createMissingStudentLogins", DatabaseMigration::createMissingStudentLogins,
+                    MISSING_STUDENT_LOGINS_SQL),
+            new Migration(17, "createArchiveFreezeTable", DatabaseMigration::createArchiveFreezeTable,
+                    ARCHIVE_FREEZE_DDL));
+
+    private static final int LATEST_VERSION = MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+
+    // Statements followed by one '|'-joined line per data row
+    private static String[] concat(String[] sql, String[][] rows) {
+        String[] all = java.util.Arrays.copyOf(sql, sql.length + rows.length);
+        for (int i = 0; i < rows.length; i++)
+            all[sql.length + i] = String.join("|", rows[i]);
+        return all;
+    }
+
+    /**
+     * Startup check. Reads the schema version once; only when it is
+     * behind are the pending migrations applied (or, with auto-migrate
+     * off, reported). Returns true if any migration was applied.
+     */
+    public static boolean migrate() {
+        boolean migrated = false;
         Connection conn = null;
+        long started = MIGRATE.start();
         try {
             conn = DBConnection.getConnection();
             if (conn == null) {
                 UIHelper.printError("Cannot connect to database for migration.");
-                return;
+                return false;
             }
 
-            addRoleColumn(conn);
-            addRollNoColumnToUsers(conn);
-            insertDefaultAccounts(conn);
-            createAttendanceLogTable(conn);
-            fixAttendanceDuplicates(conn);
-            addSubjectColumn(conn);
-            createMissingStudentLogins(conn);
+            int current = currentVersion(conn);
+            if (current > LATEST_VERSION) {
+                UIHelper.printWarning("Database schema is version " + current + ", newer than this ClassTrack ("
+                        + LATEST_VERSION + "). Please update the application.");
+            } else if (current < LATEST_VERSION && !AUTO_MIGRATE) {
+                UIHelper.printWarning((LATEST_VERSION - current) + " database migration(s) pending. "
+                        + "Run: java classtrack.MainMenu migrate");
+            } else if (current < LATEST_VERSION) {
+                migrated = applyPending(conn) > 0;
+            } else {
+                UIHelper.printSuccess("Database is up to date.");
+            }
+
+        } catch (SQLException e) {
+            Metrics.recordFailure(e);
+            UIHelper.printError("Migration error: " + e.getMessage());
+        } finally {
+            try {
+                if (conn != null)
+                    conn.close();
+            } catch (SQLException e) {
+            }
+            MIGRATE.stop(started);
+        }
+        checkPartitionsInBackground();
+        return migrated;
+    }
 
-            UIHelper.printSuccess("Database is up to date.");
+    /**
+     * The 'migrate' command: applies anything pending (unless statusOnly)
+     * and lists every migration with its state, flagging applied ones
+     * whose checksum no longer matches the code. Checks the report query
+     * plans afterwards when anything was applied.
+     */
+    public static void migrateCommand(boolean statusOnly) {
+        Connection conn = null;
+        try {
+            conn = DBConnection.getConnection();
+            if (conn == null) {
+                UIHelper.printError("Cannot connect to database for migration.");
+                return;
+            }
+            boolean migrated = !statusOnly && applyPending(conn) > 0;
+            printStatus(conn);
+            if (migrated)
+                QueryPlanCheck.run();
 
         } catch (SQLException e) {
+            Metrics.recordFailure(e);
             UIHelper.printError("Migration error: " + e.getMessage());
         } finally {
             try {
@@ -50,6 +330,174 @@ public class DatabaseMigration {
         }
     }
 
+    // =====================================================
+    // VERSION TABLE
+    // =====================================================
+
+    /**
+     * Highest applied version, or 0 if schema_version doesn't exist yet.
+     */
+    private static int currentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            if (e.getErrorCode() == 1146) // ER_NO_SUCH_TABLE
+                return 0;
+            throw e;
+        }
+    }
+
+    private static void createVersionTable(Connection conn) throws SQLException {
+        Statement stmt = conn.createStatement();
+        stmt.executeUpdate(
+                "CREATE TABLE IF NOT EXISTS schema_version (" +
+                        "  version INT PRIMARY KEY," +
+                        "  name VARCHAR(100) NOT NULL," +
+                        "  checksum CHAR(8) NOT NULL," +
+                        "  applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP," +
+                        "  duration_ms INT NOT NULL" +
+                        ")");
+        stmt.close();
+    }
+
+    /**
+     * version -> recorded checksum.
+     */
+    private static Map<Integer, String> appliedVersions(Connection conn) throws SQLException {
+        Map<Integer, String> applied = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_version")) {
+            while (rs.next())
+                applied.put(rs.getInt(1), rs.getString(2));
+        }
+        return applied;
+    }
+
+    /**
+     * Applies every migration not yet recorded, in order, each recorded
+     * as soon as it succeeds so a failure resumes from that step.
+     * Returns how many were applied.
+     */
+    private static int applyPending(Connection conn) throws SQLException {
+        createVersionTable(conn);
+        if (!acquireLock(conn)) {
+            UIHelper.printWarning("Another ClassTrack instance is migrating the database; skipped.");
+            return 0;
+        }
+        try {
+            Map<Integer, String> applied = appliedVersions(conn);
+            int count = 0;
+            for (Migration m : MIGRATIONS) {
+                if (applied.containsKey(m.version))
+                    continue;
+                long start = System.currentTimeMillis();
+                step(conn, m.name, m.step);
+                PreparedStatement pstmt = conn.prepareStatement(
+                        "INSERT INTO schema_version (version, name, checksum, duration_ms) VALUES (?, ?, ?, ?)");
+                pstmt.setInt(1, m.version);
+                pstmt.setString(2, m.name);
+                pstmt.setString(3, m.checksum);
+                pstmt.setLong(4, System.currentTimeMillis() - start);
+                pstmt.executeUpdate();
+                pstmt.close();
+                count++;
+            }
+            if (count > 0)
+                UIHelper.printSuccess("Database migrated to version " + LATEST_VERSION + " (" + count
+                        + " migration(s) applied).");
+            else
+                UIHelper.printSuccess("Database is up to date.");
+            return count;
+        } finally {
+            releaseLock(conn);
+        }
+    }
+
+    private static boolean acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.setInt(2, LOCK_TIMEOUT_SEC);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    private static void releaseLock(Connection conn) {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.executeQuery().close();
+        } catch (SQLException e) {
+            // Released anyway when the session ends
+        }
+    }
+
+    private static void printStatus(Connection conn) throws SQLException {
+        Map<Integer, String> applied = currentVersion(conn) == 0 ? new HashMap<>() : appliedVersions(conn);
+        int changed = 0;
+        UIHelper.printSectionHeader("Schema Migrations", UIHelper.BRIGHT_CYAN);
+        for (Migration m : MIGRATIONS) {
+            String recorded = applied.get(m.version);
+            String state;
+            if (recorded == null) {
+                state = UIHelper.YELLOW + "pending" + UIHelper.RESET;
+            } else if (!recorded.equals(m.checksum)) {
+                state = UIHelper.RED + "CHANGED (" + recorded + ")" + UIHelper.RESET;
+                changed++;
+            } else {
+                state = UIHelper.GREEN + "applied" + UIHelper.RESET;
+            }
+            System.out.printf("  %3d  %-28s %s  %s%n", m.version, m.name, m.checksum, state);
+        }
+        for (int version : applied.keySet()) {
+            if (version > LATEST_VERSION)
+                System.out.printf("  %3d  %-28s %s  %s%n", version, "(unknown to this version)",
+                        applied.get(version), UIHelper.RED + "newer" + UIHelper.RESET);
+        }
+        if (changed > 0)
+            UIHelper.printWarning(changed + " applied migration(s) differ from the code. "
+                    + "Shipped migrations must not be edited; add a new version instead.");
+    }
+
+    // Runs and times one step
+    private static void step(Connection conn, String name, Step step) throws SQLException {
+        Metrics.Timer timer = Metrics.timer("classtrack_migration_step_duration_seconds",
+                "Time spent in each migration step", "step", name);
+        long started = timer.start();
+        try {
+            step.apply(conn);
+        } finally {
+            timer.stop(started);
+        }
+    }
+
+    /**
+     * Adds next months' attendance_log partitions when they run short.
+     * Not a versioned migration since it depends on the date; done off
+     * the startup path because it reads information_schema.
+     */
+    private static void checkPartitionsInBackground() {
+        Thread t = new Thread(() -> {
+            Connection conn = DBConnection.getConnectionQuietly();
+            if (conn == null)
+                return;
+            try {
+                step(conn, "ensureFuturePartitions", LogPartitionManager::ensureFuturePartitions);
+            } catch (SQLException e) {
+                Metrics.recordFailure(e);
+                UIHelper.printWarning("Could not add attendance_log partitions: " + e.getMessage());
+            } finally {
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                }
+            }
+        }, "classtrack-partition-check");
+        t.setDaemon(true);
+        t.start();
+    }
+
     /**
      * Adds 'role' column to users table if it doesn't exist.
      */
@@ -58,7 +506,7 @@ public class DatabaseMigration {
             return;
 
         Statement stmt = conn.createStatement();
-        stmt.executeUpdate("ALTER TABLE users ADD COLUMN role ENUM('HOD','FACULTY','STUDENT') NOT NULL DEFAULT 'HOD'");
+        stmt.executeUpdate(ROLE_COLUMN_DDL);
         stmt.close();
         UIHelper.printInfo("  Added 'role' column to users table.");
     }
@@ -71,7 +519,7 @@ public class DatabaseMigration {
             return;
 
         Statement stmt = conn.createStatement();
-        stmt.executeUpdate("ALTER TABLE users ADD COLUMN roll_no VARCHAR(20) NULL");
+        stmt.executeUpdate(USER_ROLL_NO_DDL);
         stmt.close();
         UIHelper.printInfo("  Added 'roll_no' column to users table.");
     }
@@ -85,28 +533,8 @@ public class DatabaseMigration {
             return;
 
         Statement stmt = conn.createStatement();
-
-        // Step 1: Create a temp table with consolidated data
-        stmt.executeUpdate(
-                "CREATE TEMPORARY TABLE att_temp AS " +
-                        "SELECT roll_no, SUM(total_periods) AS total_periods, SUM(present_periods) AS present_periods "
-                        +
-                        "FROM attendance GROUP BY roll_no");
-
-        // Step 2: Delete all rows from attendance
-        stmt.executeUpdate("DELETE FROM attendance");
-
-        // Step 3: Re-insert consolidated data
-        stmt.executeUpdate(
-                "INSERT INTO attendance (roll_no, total_periods, present_periods) " +
-                        "SELECT roll_no, total_periods, present_periods FROM att_temp");
-
-        // Step 4: Drop temp table
-        stmt.executeUpdate("DROP TEMPORARY TABLE att_temp");
-
-        // Step 5: Add UNIQUE constraint so this never happens again
-        stmt.executeUpdate("ALTER TABLE attendance ADD UNIQUE INDEX uq_attendance_rollno (roll_no)");
-
+        for (String sql : FIX_DUPLICATES_SQL)
+            stmt.executeUpdate(sql);
         stmt.close();
         UIHelper.printInfo("  Fixed duplicate attendance rows and added UNIQUE constraint.");
     }
@@ -134,16 +562,7 @@ public class DatabaseMigration {
      */
     private static void createAttendanceLogTable(Connection conn) throws SQLException {
         Statement stmt = conn.createStatement();
-        stmt.executeUpdate(
-                "CREATE TABLE IF NOT EXISTS attendance_log (" +
-                        "  log_id INT AUTO_INCREMENT PRIMARY KEY," +
-                        "  roll_no VARCHAR(20) NOT NULL," +
-                        "  date DATE NOT NULL," +
-                        "  period INT NOT NULL," +
-                        "  status ENUM('P','A') NOT NULL," +
-                        "  FOREIGN KEY (roll_no) REFERENCES students(roll_no) ON DELETE CASCADE," +
-                        "  UNIQUE(roll_no, date, period)" +
-                        ")");
+        stmt.executeUpdate(ATTENDANCE_LOG_DDL);
         stmt.close();
     }
 
@@ -155,40 +574,201 @@ public class DatabaseMigration {
             return;
 
         Statement stmt = conn.createStatement();
-        stmt.executeUpdate("ALTER TABLE attendance_log ADD COLUMN subject VARCHAR(50) DEFAULT 'General'");
+        stmt.executeUpdate(SUBJECT_COLUMN_DDL);
         stmt.close();
         UIHelper.printInfo("  Added 'subject' column to attendance_log table.");
     }
 
+    /**
+     * Adds 'updated_at' to attendance_log so summary rebuilds can
+     * pick up only the students whose log rows changed.
+     */
+    private static void addLogUpdatedAtColumn(Connection conn) throws SQLException {
+        if (columnExists(conn, "attendance_log", "updated_at"))
+            return;
+
+        Statement stmt = conn.createStatement();
+        stmt.executeUpdate(LOG_UPDATED_AT_DDL);
+        stmt.close();
+        UIHelper.printInfo("  Added 'updated_at' column to attendance_log table.");
+    }
+
+    /**
+     * Adds a stored 'percentage_bp' column (attendance % in basis points,
+     * NULL when no periods yet) with an index, so the defaulter report
+     * can range-scan instead of computing the percentage for every row.
+     */
+    private static void addPercentageColumn(Connection conn) throws SQLException {
+        if (columnExists(conn, "attendance", "percentage_bp"))
+            return;
+
+        Statement stmt = conn.createStatement();
+        stmt.executeUpdate(PERCENTAGE_COLUMN_DDL);
+        stmt.close();
+        UIHelper.printInfo("  Added indexed 'percentage_bp' column to attendance table.");
+    }
+
+    /**
+     * Adds secondary indexes used by the section and date-based reports.
+     */
+    private static void addReportIndexes(Connection conn) throws SQLException {
+        addIndexIfMissing(conn, "students", "idx_students_class", IDX_STUDENTS_CLASS_DDL);
+        addIndexIfMissing(conn, "students", "idx_students_department", IDX_STUDENTS_DEPARTMENT_DDL);
+        addIndexIfMissing(conn, "attendance_log", "idx_log_date_roll_status", IDX_LOG_DATE_ROLL_STATUS_DDL);
+        addIndexIfMissing(conn, "students", "idx_students_name", IDX_STUDENTS_NAME_DDL);
+        addIndexIfMissing(conn, "students", "ft_students_name", FT_STUDENTS_NAME_DDL);
+    }
+
+    /**
+     * Copies each student's class and department onto attendance_log so
+     * section reports can range-scan the log without joining students.
+     * Backfills rows written before the columns existed.
+     */
+    private static void addLogClassColumns(Connection conn) throws SQLException {
+        Statement stmt = conn.createStatement();
+        if (!columnExists(conn, "attendance_log", "class_name")) {
+            stmt.executeUpdate(LOG_CLASS_COLUMNS_DDL);
+            UIHelper.printInfo("  Added 'class_name' and 'department' columns to attendance_log table.");
+        }
+
+        int count = stmt.executeUpdate(LOG_CLASS_BACKFILL_SQL);
+        stmt.close();
+        if (count > 0) {
+            UIHelper.printInfo("  Backfilled class/department on " + count + " attendance_log row(s).");
+        }
+    }
+
+    private static void addIndexIfMissing(Connection conn, String table, String indexName, String ddl)
+            throws SQLException {
+        if (indexNameExists(conn, table, indexName))
+            return;
+
+        Statement stmt = conn.createStatement();
+        stmt.executeUpdate(ddl);
+        stmt.close();
+        UIHelper.printInfo("  Added index " + indexName + " on " + table + ".");
+    }
+
+    /**
+     * Checks if an index with the given name exists on a table.
+     */
+    private static boolean indexNameExists(Connection conn, String table, String indexName) throws SQLException {
+        PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT COUNT(*) FROM information_schema.statistics " +
+                        "WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?");
+        pstmt.setString(1, table);
+        pstmt.setString(2, indexName);
+        ResultSet rs = pstmt.executeQuery();
+        rs.next();
+        boolean exists = rs.getInt(1) > 0;
+        rs.close();
+        pstmt.close();
+        return exists;
+    }
+
+    /**
+     * Creates the table that remembers when each maintenance job last ran.
+     */
+    private static void createWatermarkTable(Connection conn) throws SQLException {
+        Statement stmt = conn.createStatement();
+        stmt.executeUpdate(WATERMARK_DDL);
+        stmt.close();
+    }
+
+    /**
+     * Creates 'subject_attendance', the per-(roll_no, subject) twin of the
+     * attendance summary, and fills it from attendance_log on first run.
+     */
+    private static void createSubjectSummaryTable(Connection conn) throws SQLException {
+        if (tableExists(conn, "subject_attendance"))
+            return;
+
+        Statement stmt = conn.createStatement();
+        stmt.executeUpdate(SUBJECT_SUMMARY_DDL);
+        int count = stmt.executeUpdate(SUBJECT_SUMMARY_BACKFILL_SQL);
+        stmt.close();
+        UIHelper.printInfo("  Created 'subject_attendance' table (" + count + " row(s) from attendance_log).");
+    }
+
+    /**
+     * Creates 'daily_attendance', a per-(class, date, student) rollup of
+     * attendance_log that serves the today / by-date section reports.
+     * Existing history is rolled up once, when the table is created.
+     */
+    private static void createDailyRollupTable(Connection conn) throws SQLException {
+        if (tableExists(conn, "daily_attendance"))
+            return;
+
+        Statement stmt = conn.createStatement();
+        stmt.executeUpdate(DAILY_ROLLUP_DDL);
+        stmt.close();
+        UIHelper.printInfo("  Created 'daily_attendance' table. Rolling up existing history...");
+        new DailyRollupBuilder().rebuild(null, null);
+    }
+
+    /**
+     * Creates 'attendance_log_archive', where closed semesters are moved
+     * by LogPartitionManager. Compressed pages where the server allows it.
+     */
+    private static void createLogArchiveTable(Connection conn) throws SQLException {
+        if (tableExists(conn, "attendance_log_archive"))
+            return;
+
+        Statement stmt = conn.createStatement();
+        try {
+            stmt.executeUpdate(LOG_ARCHIVE_DDL + COMPRESSED);
+            UIHelper.printInfo("  Created compressed 'attendance_log_archive' table.");
+        } catch (SQLException e) {
+            // e.g. innodb_file_per_table disabled
+            stmt.executeUpdate(LOG_ARCHIVE_DDL);
+            UIHelper.printWarning("  Created 'attendance_log_archive' without compression: " + e.getMessage());
+        } finally {
+            stmt.close();
+        }
+    }
+
+    /**
+     * Creates 'attendance_cold_totals': per-subject totals of rows moved
+     * out of the database into ColdArchive files, so summary rebuilds
+     * still count them.
+     */
+    private static void createColdTotalsTable(Connection conn) throws SQLException {
+        Statement stmt = conn.createStatement();
+        stmt.executeUpdate(COLD_TOTALS_DDL);
+        stmt.close();
+    }
+
+    /**
+     * Creates 'archive_freeze', holding the last day ColdArchive has
+     * frozen for export; marks dated on or before it are refused.
+     */
+    private static void createArchiveFreezeTable(Connection conn) throws SQLException {
+        Statement stmt = conn.createStatement();
+        stmt.executeUpdate(ARCHIVE_FREEZE_DDL);
+        stmt.close();
+    }
+
     /**
      * Inserts default HOD and Faculty accounts if they don't exist.
      * Updates existing 'admin' account to HOD role.
      */
     private static void insertDefaultAccounts(Connection conn) throws SQLException {
         // Update any existing 'admin' user to HOD role
-        PreparedStatement updateStmt = conn.prepareStatement(
-                "UPDATE users SET role = 'HOD' WHERE username = 'admin'");
+        PreparedStatement updateStmt = conn.prepareStatement(ADMIN_TO_HOD_SQL);
         updateStmt.executeUpdate();
         updateStmt.close();
 
-        // Insert HOD account if not exists
-        insertUserIfNotExists(conn, "hod", "hod123", "HOD", null);
-
-        // Insert Faculty accounts if not exists
-        insertUserIfNotExists(conn, "faculty1", "faculty123", "FACULTY", null);
-        insertUserIfNotExists(conn, "faculty2", "faculty123", "FACULTY", null);
+        // Insert HOD and Faculty accounts if not exists
+        for (String[] account : DEFAULT_ACCOUNTS)
+            insertUserIfNotExists(conn, account[0], account[1], account[2], null);
     }
 
     /**
      * Creates login accounts for any students that don't have one yet.
      */
     private static void createMissingStudentLogins(Connection conn) throws SQLException {
-        String sql = "INSERT INTO users (username, password, role, roll_no) "
-                + "SELECT s.roll_no, 'student123', 'STUDENT', s.roll_no "
-                + "FROM students s "
-                + "WHERE s.roll_no NOT IN (SELECT username FROM users WHERE role = 'STUDENT')";
         Statement stmt = conn.createStatement();
-        int count = stmt.executeUpdate(sql);
+        int count = stmt.executeUpdate(MISSING_STUDENT_LOGINS_SQL);
         stmt.close();
         if (count > 0) {
             UIHelper.printInfo("  Created " + count + " missing student login account(s).");
@@ -200,7 +780,7 @@ public class DatabaseMigration {
      */
     private static void insertUserIfNotExists(Connection conn, String username, String password, String role,
             String rollNo) throws SQLException {
-        PreparedStatement checkStmt = conn.prepareStatement("SELECT user_id FROM users WHERE username = ?");
+        PreparedStatement checkStmt = conn.prepareStatement(FIND_USER_SQL);
         checkStmt.setString(1, username);
         ResultSet rs = checkStmt.executeQuery();
         boolean exists = rs.next();
@@ -208,8 +788,7 @@ public class DatabaseMigration {
         checkStmt.close();
 
         if (!exists) {
-            PreparedStatement insertStmt = conn.prepareStatement(
-                    "INSERT INTO users (username, password, role, roll_no) VALUES (?, ?, ?, ?)");
+            PreparedStatement insertStmt = conn.prepareStatement(INSERT_USER_SQL);
             insertStmt.setString(1, username);
             insertStmt.setString(2, password);
             insertStmt.setString(3, role);
@@ -220,6 +799,21 @@ public class DatabaseMigration {
         }
     }
 
+    /**
+     * Checks if a table exists in the current database.
+     */
+    private static boolean tableExists(Connection conn, String table) throws SQLException {
+        PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = DATABASE() AND table_name = ?");
+        pstmt.setString(1, table);
+        ResultSet rs = pstmt.executeQuery();
+        rs.next();
+        boolean exists = rs.getInt(1) > 0;
+        rs.close();
+        pstmt.close();
+        return exists;
+    }
+
     /**
      * Checks if a column exists in a table.
      */
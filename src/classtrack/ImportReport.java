@@ -0,0 +1,131 @@
+/*
+ * ============================================================
+ * ClassTrack – Student Attendance Management System
+ * File: ImportReport.java
+ * Purpose: Tracks progress of a bulk CSV import (rows read,
+ *          loaded, rejected, throughput) and writes rejected
+ *          rows to a side file next to the input.
+ * ============================================================
+ */
+
+package classtrack;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ImportReport {
+
+    // Rejects echoed to the console; the rest only go to the rejects file
+    private static final int MAX_SHOWN_REJECTS = 10;
+
+    private final String rejectsPath;
+    private final long startNanos = System.nanoTime();
+    private final List<String> shownRejects = new ArrayList<>();
+    private BufferedWriter rejectsWriter;
+
+    private long rowsRead;
+    private long rowsLoaded;
+    private long rowsRejected;
+    private int chunks;
+
+    public ImportReport(String inputPath) {
+        this.rejectsPath = inputPath + ".rejects.csv";
+    }
+
+    public void rowRead() {
+        rowsRead++;
+    }
+
+    public void chunkCommitted(int loaded) {
+        rowsLoaded += loaded;
+        chunks++;
+    }
+
+    /**
+     * Records a rejected row with its line number and reason.
+     */
+    public void reject(int lineNumber, String reason, String[] fields) {
+        rowsRejected++;
+        if (shownRejects.size() < MAX_SHOWN_REJECTS)
+            shownRejects.add("Line " + lineNumber + ": " + reason);
+
+        try {
+            if (rejectsWriter == null) {
+                rejectsWriter = Files.newBufferedWriter(Paths.get(rejectsPath), StandardCharsets.UTF_8);
+                rejectsWriter.write("line,reason,row");
+                rejectsWriter.newLine();
+            }
+            rejectsWriter.write(lineNumber + "," + quote(reason) + "," + quote(String.join(",", fields)));
+            rejectsWriter.newLine();
+        } catch (IOException e) {
+            // The console summary still reports the count
+        }
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getRowsLoaded() {
+        return rowsLoaded;
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected;
+    }
+
+    public double getElapsedSeconds() {
+        return (System.nanoTime() - startNanos) / 1_000_000_000.0;
+    }
+
+    public double getRowsPerSecond() {
+        double secs = getElapsedSeconds();
+        return secs > 0 ? rowsRead / secs : 0.0;
+    }
+
+    /**
+     * Prints a one-line progress update after each chunk.
+     */
+    public void printProgress() {
+        System.out.printf("  ... %,d rows read | %,d loaded | %,d rejected | %,.0f rows/s%n",
+                rowsRead, rowsLoaded, rowsRejected, getRowsPerSecond());
+    }
+
+    /**
+     * Closes the rejects file and prints the final summary box.
+     */
+    public void finish(String title) {
+        try {
+            if (rejectsWriter != null)
+                rejectsWriter.close();
+        } catch (IOException e) {
+        }
+
+        int w = 55;
+        String border = "═".repeat(w);
+        System.out.println("\n" + UIHelper.BRIGHT_CYAN + "╔" + border + "╗");
+        System.out.printf("║%-" + w + "s║%n", "  " + title);
+        System.out.println("╠" + border + "╣");
+        System.out.printf("║%-" + w + "s║%n", String.format("  Rows Read     : %,d", rowsRead));
+        System.out.printf("║%-" + w + "s║%n", String.format("  Loaded        : %,d", rowsLoaded));
+        System.out.printf("║%-" + w + "s║%n", String.format("  Rejected      : %,d", rowsRejected));
+        System.out.printf("║%-" + w + "s║%n", "  Chunks        : " + chunks);
+        System.out.printf("║%-" + w + "s║%n", String.format("  Elapsed       : %.2f s", getElapsedSeconds()));
+        System.out.printf("║%-" + w + "s║%n", String.format("  Throughput    : %,.0f rows/s", getRowsPerSecond()));
+        System.out.println("╚" + border + "╝" + UIHelper.RESET);
+
+        for (String r : shownRejects)
+            UIHelper.printWarning(r);
+        if (rowsRejected > 0)
+            UIHelper.printInfo("All rejected rows written to: " + rejectsPath);
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
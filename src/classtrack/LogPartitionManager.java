@@ -0,0 +1,471 @@
+/*
+ * ============================================================
+ * ClassTrack – Student Attendance Management System
+ * File: LogPartitionManager.java
+ * Purpose: Monthly range partitioning of attendance_log and
+ *          archiving of closed semesters into the compressed
+ *          attendance_log_archive table.
+ *
+ * Partitions are named pYYYYMM and hold one calendar month;
+ * 'pmax' catches anything beyond the last planned month.
+ * Summary tables (attendance, subject_attendance,
+ * daily_attendance) are never touched by archiving. Detached
+ * partitions pass through attendance_log_exchange, which is only
+ * emptied once its rows are in the archive.
+ * ============================================================
+ */
+
+package classtrack;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LogPartitionManager {
+
+    // Empty monthly partitions kept ready ahead of today
+    private static final int MONTHS_AHEAD = Integer.getInteger("classtrack.log.partitionsAhead", 3);
+
+    private static final String LOG_TABLE = "attendance_log";
+    private static final String ARCHIVE_TABLE = "attendance_log_archive";
+    private static final String EXCHANGE_TABLE = "attendance_log_exchange";
+
+    // Columns copied into the archive (updated_at is not kept)
+    private static final String ARCHIVE_COLUMNS = "log_id, roll_no, date, period, status, subject, class_name, department";
+
+    // Rows of the exchange table whose key is not in the archive yet
+    private static final String NOT_YET_ARCHIVED = " FROM " + EXCHANGE_TABLE + " x WHERE NOT EXISTS (SELECT 1 FROM "
+            + ARCHIVE_TABLE + " a WHERE a.roll_no = x.roll_no AND a.date = x.date AND a.period = x.period)";
+
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    // =====================================================
+    // 1. PARTITION attendance_log (one-off, rebuilds the table)
+    // =====================================================
+
+    /**
+     * Converts attendance_log to monthly RANGE COLUMNS(date) partitions.
+     * MySQL does not allow foreign keys on partitioned tables and needs
+     * the partition column in every unique key, so the roll_no foreign
+     * key is dropped (StudentDAO.deleteStudent removes log rows itself)
+     * and the primary key becomes (log_id, date). The unique
+     * (roll_no, date, period) key already contains date and is kept.
+     *
+     * @return true if the table is partitioned afterwards
+     */
+    public boolean partitionLog() {
+        Connection conn = null;
+        Statement stmt = null;
+
+        try {
+            conn = DBConnection.getConnection();
+            if (conn == null)
+                return false;
+
+            if (isPartitioned(conn)) {
+                UIHelper.printInfo("attendance_log is already partitioned.");
+                ensureFuturePartitions(conn);
+                return true;
+            }
+
+            stmt = conn.createStatement();
+            for (String fk : foreignKeys(conn)) {
+                stmt.executeUpdate("ALTER TABLE " + LOG_TABLE + " DROP FOREIGN KEY " + fk);
+                UIHelper.printInfo("  Dropped foreign key " + fk + " (not supported on partitioned tables).");
+            }
+            if (!primaryKeyHasDate(conn)) {
+                stmt.executeUpdate("ALTER TABLE " + LOG_TABLE
+                        + " DROP PRIMARY KEY, ADD PRIMARY KEY (log_id, date)");
+                UIHelper.printInfo("  Primary key is now (log_id, date).");
+            }
+
+            // One partition per month from the oldest row to MONTHS_AHEAD months out
+            LocalDate first = firstLoggedMonth(conn);
+            LocalDate last = LocalDate.now().withDayOfMonth(1).plusMonths(MONTHS_AHEAD);
+            StringBuilder ddl = new StringBuilder("ALTER TABLE " + LOG_TABLE + " PARTITION BY RANGE COLUMNS(date) (");
+            int count = 0;
+            for (LocalDate month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+                ddl.append(partitionClause(month)).append(", ");
+                count++;
+            }
+            ddl.append("PARTITION pmax VALUES LESS THAN (MAXVALUE))");
+
+            UIHelper.printInfo("  Rebuilding attendance_log into " + count + " monthly partitions...");
+            stmt.executeUpdate(ddl.toString());
+            UIHelper.printSuccess("attendance_log is now partitioned by month.");
+            return true;
+
+        } catch (SQLException e) {
+            UIHelper.printError("ERROR while partitioning attendance_log: " + e.getMessage());
+            return false;
+        } finally {
+            closeQuietly(stmt);
+            closeQuietly(conn);
+        }
+    }
+
+    /**
+     * Splits 'pmax' so that empty partitions exist for the next
+     * MONTHS_AHEAD months. Called at startup; a no-op when nothing is
+     * missing or the table is not partitioned.
+     */
+    public static void ensureFuturePartitions(Connection conn) throws SQLException {
+        if (!isPartitioned(conn))
+            return;
+
+        LocalDate lastBound = lastPartitionBound(conn);
+        LocalDate target = LocalDate.now().withDayOfMonth(1).plusMonths(MONTHS_AHEAD + 1);
+        if (lastBound == null || !lastBound.isBefore(target))
+            return;
+
+        StringBuilder ddl = new StringBuilder("ALTER TABLE " + LOG_TABLE + " REORGANIZE PARTITION pmax INTO (");
+        int added = 0;
+        for (LocalDate month = lastBound; month.isBefore(target); month = month.plusMonths(1)) {
+            ddl.append(partitionClause(month)).append(", ");
+            added++;
+        }
+        ddl.append("PARTITION pmax VALUES LESS THAN (MAXVALUE))");
+
+        Statement stmt = conn.createStatement();
+        try {
+            stmt.executeUpdate(ddl.toString());
+        } finally {
+            stmt.close();
+        }
+        UIHelper.printInfo("  Added " + added + " monthly partition(s) to attendance_log.");
+    }
+
+    // =====================================================
+    // 2. ARCHIVE CLOSED SEMESTERS
+    // =====================================================
+
+    /**
+     * Moves every log row dated before the cutoff into the compressed
+     * archive table. On a partitioned table whole partitions are
+     * detached with EXCHANGE PARTITION (a metadata swap, so the live
+     * table is locked only briefly) and the cutoff must be the first
+     * day of a month. Otherwise rows are moved a month at a time.
+     * Marks dated before the cutoff are refused from then on.
+     *
+     * @return rows archived, or -1 on error
+     */
+    public long archiveBefore(Date cutoff) {
+        Connection conn = null;
+
+        try {
+            conn = DBConnection.getConnection();
+            if (conn == null)
+                return -1;
+
+            long moved = isPartitioned(conn)
+                    ? archivePartitions(conn, cutoff.toLocalDate())
+                    : archiveByMonth(conn, cutoff.toLocalDate());
+            if (moved >= 0)
+                UIHelper.printSuccess("Archived " + moved + " attendance_log row(s) dated before " + cutoff
+                        + ". Summaries are unchanged.");
+            return moved;
+
+        } catch (SQLException e) {
+            UIHelper.printError("ERROR while archiving attendance: " + e.getMessage());
+            return -1;
+        } finally {
+            closeQuietly(conn);
+        }
+    }
+
+    private long archivePartitions(Connection conn, LocalDate cutoff) throws SQLException {
+        if (cutoff.getDayOfMonth() != 1) {
+            UIHelper.printError("attendance_log is partitioned by month - the cutoff must be the 1st of a month.");
+            return -1;
+        }
+        closeBefore(conn, cutoff);
+
+        List<String> closed = new ArrayList<>();
+        PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT partition_name, partition_description FROM information_schema.partitions "
+                        + "WHERE table_schema = DATABASE() AND table_name = ? AND partition_name <> 'pmax' "
+                        + "ORDER BY partition_ordinal_position");
+        try {
+            pstmt.setString(1, LOG_TABLE);
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                LocalDate upper = LocalDate.parse(rs.getString(2).replace("'", ""));
+                if (!upper.isAfter(cutoff))
+                    closed.add(rs.getString(1));
+            }
+            rs.close();
+        } finally {
+            pstmt.close();
+        }
+
+        if (closed.isEmpty()) {
+            UIHelper.printInfo("No partitions end on or before " + cutoff + ".");
+            return 0;
+        }
+
+        Statement stmt = conn.createStatement();
+        long moved = 0;
+        try {
+            // A previous run that stopped mid-partition left its rows here
+            if (tableExists(conn, EXCHANGE_TABLE)) {
+                moved += recoverExchange(stmt);
+                stmt.executeUpdate("DROP TABLE " + EXCHANGE_TABLE);
+            }
+            stmt.executeUpdate("CREATE TABLE " + EXCHANGE_TABLE + " LIKE " + LOG_TABLE);
+            stmt.executeUpdate("ALTER TABLE " + EXCHANGE_TABLE + " REMOVE PARTITIONING");
+
+            for (String partition : closed) {
+                // 1. Swap the partition out: the live table now has it empty
+                stmt.executeUpdate("ALTER TABLE " + LOG_TABLE + " EXCHANGE PARTITION " + partition
+                        + " WITH TABLE " + EXCHANGE_TABLE);
+                try {
+                    // 2. Copy into the compressed archive
+                    int rows = stmt.executeUpdate("INSERT INTO " + ARCHIVE_TABLE + " (" + ARCHIVE_COLUMNS + ") "
+                            + "SELECT " + ARCHIVE_COLUMNS + " FROM " + EXCHANGE_TABLE);
+                    moved += rows;
+                    System.out.printf("  ... %s: %,d row(s) archived%n", partition, rows);
+                } catch (SQLException e) {
+                    // Put the rows back before giving up
+                    stmt.executeUpdate("ALTER TABLE " + LOG_TABLE + " EXCHANGE PARTITION " + partition
+                            + " WITH TABLE " + EXCHANGE_TABLE);
+                    throw e;
+                }
+                // Empty the exchange table only once every row is in the archive
+                emptyExchange(stmt);
+
+                // 3. Drop the now-empty partition
+                stmt.executeUpdate("ALTER TABLE " + LOG_TABLE + " DROP PARTITION " + partition);
+            }
+        } finally {
+            // Never drop detached rows: if putting them back failed they
+            // stay in the exchange table for the next run to recover
+            try {
+                if (countRows(stmt, EXCHANGE_TABLE) == 0)
+                    stmt.executeUpdate("DROP TABLE " + EXCHANGE_TABLE);
+                else
+                    UIHelper.printError("Detached rows were kept in " + EXCHANGE_TABLE
+                            + "; run archive-log again to recover them.");
+            } catch (SQLException e) {
+            }
+            stmt.close();
+        }
+        return moved;
+    }
+
+    /**
+     * Refuses new marks dated before the cutoff (the same freeze the cold
+     * export uses). Mark paths only check attendance_log for duplicates,
+     * so an archived period could otherwise be marked and counted twice.
+     * Stays in force if the run fails; archived months are closed.
+     */
+    private static void closeBefore(Connection conn, LocalDate cutoff) throws SQLException {
+        ColdArchive.freezeThrough(conn, cutoff.minusDays(1));
+    }
+
+    /**
+     * Copies rows left in the exchange table by an interrupted run into
+     * the archive (skipping any already copied), checks that every one
+     * of them is there and empties the table.
+     *
+     * @return rows newly archived
+     */
+    private static long recoverExchange(Statement stmt) throws SQLException {
+        long left = countRows(stmt, EXCHANGE_TABLE);
+        if (left == 0)
+            return 0;
+
+        UIHelper.printWarning(String.format("Recovering %,d row(s) left in %s by an interrupted archive run...",
+                left, EXCHANGE_TABLE));
+        int copied = stmt.executeUpdate("INSERT INTO " + ARCHIVE_TABLE + " (" + ARCHIVE_COLUMNS + ") "
+                + "SELECT " + ARCHIVE_COLUMNS + NOT_YET_ARCHIVED);
+        emptyExchange(stmt);
+        return copied;
+    }
+
+    /**
+     * Truncates the exchange table, but only if every row in it is in
+     * the archive; otherwise fails and leaves it in place.
+     */
+    private static void emptyExchange(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*)" + NOT_YET_ARCHIVED)) {
+            rs.next();
+            if (rs.getLong(1) > 0)
+                throw new SQLException(rs.getLong(1) + " row(s) in " + EXCHANGE_TABLE
+                        + " are not in " + ARCHIVE_TABLE + "; left in place");
+        }
+        stmt.executeUpdate("TRUNCATE TABLE " + EXCHANGE_TABLE);
+    }
+
+    private long archiveByMonth(Connection conn, LocalDate cutoff) throws SQLException {
+        closeBefore(conn, cutoff);
+        LocalDate first = firstLoggedMonth(conn);
+        long moved = 0;
+
+        for (LocalDate start = first; start.isBefore(cutoff); start = start.plusMonths(1)) {
+            LocalDate end = start.plusMonths(1).isAfter(cutoff) ? cutoff : start.plusMonths(1);
+            PreparedStatement copy = null;
+            PreparedStatement delete = null;
+            try {
+                conn.setAutoCommit(false);
+                copy = conn.prepareStatement("INSERT INTO " + ARCHIVE_TABLE + " (" + ARCHIVE_COLUMNS + ") "
+                        + "SELECT " + ARCHIVE_COLUMNS + " FROM " + LOG_TABLE + " WHERE date >= ? AND date < ?");
+                copy.setDate(1, Date.valueOf(start));
+                copy.setDate(2, Date.valueOf(end));
+                int rows = copy.executeUpdate();
+
+                delete = conn.prepareStatement("DELETE FROM " + LOG_TABLE + " WHERE date >= ? AND date < ?");
+                delete.setDate(1, Date.valueOf(start));
+                delete.setDate(2, Date.valueOf(end));
+                delete.executeUpdate();
+
+                conn.commit();
+                moved += rows;
+                if (rows > 0)
+                    System.out.printf("  ... %s to %s: %,d row(s) archived%n", start, end.minusDays(1), rows);
+            } catch (SQLException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                }
+                throw e;
+            } finally {
+                try {
+                    conn.setAutoCommit(true);
+                } catch (SQLException ex) {
+                }
+                closeQuietly(copy);
+                closeQuietly(delete);
+            }
+        }
+        return moved;
+    }
+
+    // =====================================================
+    // HELPERS
+    // =====================================================
+    public static boolean isPartitioned(Connection conn) throws SQLException {
+        PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT COUNT(*) FROM information_schema.partitions "
+                        + "WHERE table_schema = DATABASE() AND table_name = ? AND partition_name IS NOT NULL");
+        try {
+            pstmt.setString(1, LOG_TABLE);
+            ResultSet rs = pstmt.executeQuery();
+            rs.next();
+            boolean partitioned = rs.getInt(1) > 0;
+            rs.close();
+            return partitioned;
+        } finally {
+            pstmt.close();
+        }
+    }
+
+    private static boolean tableExists(Connection conn, String table) throws SQLException {
+        PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = DATABASE() AND table_name = ?");
+        try {
+            pstmt.setString(1, table);
+            ResultSet rs = pstmt.executeQuery();
+            rs.next();
+            boolean exists = rs.getInt(1) > 0;
+            rs.close();
+            return exists;
+        } finally {
+            pstmt.close();
+        }
+    }
+
+    private static long countRows(Statement stmt, String table) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static String partitionClause(LocalDate month) {
+        return "PARTITION " + month.format(PARTITION_NAME)
+                + " VALUES LESS THAN ('" + month.plusMonths(1) + "')";
+    }
+
+    /**
+     * Upper bound of the last dated partition, i.e. the first month
+     * that still falls into 'pmax'.
+     */
+    private static LocalDate lastPartitionBound(Connection conn) throws SQLException {
+        PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT partition_description FROM information_schema.partitions "
+                        + "WHERE table_schema = DATABASE() AND table_name = ? AND partition_name <> 'pmax' "
+                        + "ORDER BY partition_ordinal_position DESC LIMIT 1");
+        try {
+            pstmt.setString(1, LOG_TABLE);
+            ResultSet rs = pstmt.executeQuery();
+            LocalDate bound = rs.next() ? LocalDate.parse(rs.getString(1).replace("'", "")) : null;
+            rs.close();
+            return bound;
+        } finally {
+            pstmt.close();
+        }
+    }
+
+    private static LocalDate firstLoggedMonth(Connection conn) throws SQLException {
+        PreparedStatement pstmt = conn.prepareStatement("SELECT MIN(date) FROM " + LOG_TABLE);
+        try {
+            ResultSet rs = pstmt.executeQuery();
+            rs.next();
+            Date min = rs.getDate(1);
+            rs.close();
+            LocalDate first = min != null ? min.toLocalDate() : LocalDate.now();
+            return first.withDayOfMonth(1);
+        } finally {
+            pstmt.close();
+        }
+    }
+
+    private static List<String> foreignKeys(Connection conn) throws SQLException {
+        List<String> names = new ArrayList<>();
+        PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT constraint_name FROM information_schema.referential_constraints "
+                        + "WHERE constraint_schema = DATABASE() AND table_name = ?");
+        try {
+            pstmt.setString(1, LOG_TABLE);
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next())
+                names.add(rs.getString(1));
+            rs.close();
+        } finally {
+            pstmt.close();
+        }
+        return names;
+    }
+
+    private static boolean primaryKeyHasDate(Connection conn) throws SQLException {
+        PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT COUNT(*) FROM information_schema.statistics "
+                        + "WHERE table_schema = DATABASE() AND table_name = ? "
+                        + "AND index_name = 'PRIMARY' AND column_name = 'date'");
+        try {
+            pstmt.setString(1, LOG_TABLE);
+            ResultSet rs = pstmt.executeQuery();
+            rs.next();
+            boolean hasDate = rs.getInt(1) > 0;
+            rs.close();
+            return hasDate;
+        } finally {
+            pstmt.close();
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable resource) {
+        try {
+            if (resource != null)
+                resource.close();
+        } catch (Exception e) {
+        }
+    }
+}
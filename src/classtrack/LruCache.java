@@ -0,0 +1,138 @@
+/*
+ * ============================================================
+ * ClassTrack – Student Attendance Management System
+ * File: LruCache.java
+ * Purpose: Small thread-safe in-process cache with a size bound,
+ *          least-recently-used eviction, per-entry TTL and
+ *          hit/miss/eviction counters.
+ * ============================================================
+ */
+
+package classtrack;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
+
+public class LruCache<K, V> {
+
+    /**
+     * A cached value and the time it stops being valid.
+     */
+    private static class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final String name;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LinkedHashMap<K, Entry<V>> map;
+
+    // ----- Counters (guarded by this) -----
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public LruCache(String name, int maxEntries, long ttlMillis) {
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        // accessOrder = true: iteration order is least- to most-recently used
+        this.map = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > LruCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value, or null if absent or expired.
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = map.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (System.currentTimeMillis() >= entry.expiresAt) {
+            map.remove(key);
+            evictions++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        if (maxEntries <= 0)
+            return;
+        map.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+    }
+
+    public synchronized void invalidate(K key) {
+        map.remove(key);
+    }
+
+    /**
+     * Removes every entry matching the predicate, e.g. all class
+     * rosters that contain a given roll number.
+     */
+    public synchronized void invalidateIf(BiPredicate<K, V> predicate) {
+        Iterator<Map.Entry<K, Entry<V>>> it = map.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<K, Entry<V>> e = it.next();
+            if (predicate.test(e.getKey(), e.getValue().value))
+                it.remove();
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        map.clear();
+    }
+
+    // ----- Statistics -----
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : hits * 100.0 / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "| " + name + " | Size: " + map.size() + "/" + maxEntries
+                + " | Hits: " + hits + " | Misses: " + misses + " | Evictions: " + evictions + " |";
+    }
+}
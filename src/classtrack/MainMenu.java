@@ -29,8 +29,35 @@ public class MainMenu {
     public static void main(String[] args) {
         UIHelper.printBanner();
 
-        // Auto-migrate database schema (adds role column etc. if missing)
-        DatabaseMigration.migrate();
+        // Latency and error metrics, written to a local file periodically
+        Metrics.startDump();
+
+        // Explicit schema upgrade: java classtrack.MainMenu migrate [--status]
+        if (args.length > 0 && args[0].equals("migrate")) {
+            DatabaseMigration.migrateCommand(java.util.Arrays.asList(args).contains("--status"));
+            Metrics.shutdown();
+            DBConnection.shutdown();
+            return;
+        }
+
+        // Schema version check; applies pending migrations unless disabled
+        boolean migrated = DatabaseMigration.migrate();
+        // EXPLAINs the report queries, only when the schema just changed
+        QueryPlanCheck.runAtStartup(migrated);
+        // Write-behind marking; also replays marks left by the last session
+        MarkQueue.start();
+        // Local copy of rosters and totals for offline mode, kept fresh in the background
+        OfflineSnapshot.start();
+
+        // Headless mode: java classtrack.MainMenu <command> [args...]
+        if (args.length > 0) {
+            runCommand(args);
+            OfflineSnapshot.shutdown();
+            MarkQueue.shutdown();
+            Metrics.shutdown();
+            DBConnection.shutdown();
+            return;
+        }
 
         boolean running = true;
         while (running) {
@@ -102,6 +129,103 @@ public class MainMenu {
         }
 
         scanner.close();
+        OfflineSnapshot.shutdown();
+        MarkQueue.shutdown();
+        Metrics.shutdown();
+        DBConnection.shutdown();
+    }
+
+    // =====================================================
+    // HEADLESS COMMANDS (for scripts / cron jobs)
+    // =====================================================
+    private static void runCommand(String[] args) {
+        switch (args[0]) {
+            case "import-attendance":
+                if (args.length < 2) {
+                    UIHelper.printError("Usage: import-attendance <file.csv> [chunkSize]");
+                    return;
+                }
+                int chunkSize = args.length > 2 ? parseIntArg(args[2]) : AttendanceImporter.DEFAULT_CHUNK_SIZE;
+                new AttendanceImporter(chunkSize).importFile(args[1]);
+                break;
+            case "import-students":
+                if (args.length < 2) {
+                    UIHelper.printError("Usage: import-students <file.csv> [chunkSize]");
+                    return;
+                }
+                int studentChunk = args.length > 2 ? parseIntArg(args[2]) : StudentImporter.DEFAULT_CHUNK_SIZE;
+                new StudentImporter(studentChunk).importFile(args[1]);
+                break;
+            case "rebuild-summary":
+                // rebuild-summary [all | class <name> | department <name>] [--incremental] [--check]
+                String scope = args.length > 1 ? args[1] : SummaryReconciler.SCOPE_ALL;
+                String value = null;
+                if (!scope.equals(SummaryReconciler.SCOPE_ALL)) {
+                    if (args.length < 3 || args[2].startsWith("--")) {
+                        UIHelper.printError("Usage: rebuild-summary [all | class <name> | department <name>]"
+                                + " [--incremental] [--check]");
+                        return;
+                    }
+                    value = args[2];
+                }
+                boolean incremental = java.util.Arrays.asList(args).contains("--incremental");
+                boolean checkOnly = java.util.Arrays.asList(args).contains("--check");
+                new SummaryReconciler().reconcile(scope, value, incremental, !checkOnly);
+                break;
+            case "rebuild-daily":
+                // rebuild-daily [from YYYY-MM-DD] [to YYYY-MM-DD]
+                try {
+                    java.sql.Date from = args.length > 1 ? java.sql.Date.valueOf(args[1]) : null;
+                    java.sql.Date to = args.length > 2 ? java.sql.Date.valueOf(args[2]) : null;
+                    new DailyRollupBuilder().rebuild(from, to);
+                } catch (IllegalArgumentException e) {
+                    UIHelper.printError("Usage: rebuild-daily [fromDate] [toDate] (dates as YYYY-MM-DD)");
+                }
+                break;
+            case "partition-log":
+                new LogPartitionManager().partitionLog();
+                break;
+            case "archive-log":
+                // archive-log <before YYYY-MM-DD>
+                try {
+                    new LogPartitionManager().archiveBefore(java.sql.Date.valueOf(args[1]));
+                } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+                    UIHelper.printError("Usage: archive-log <beforeDate> (YYYY-MM-DD, e.g. 2026-06-01)");
+                }
+                break;
+            case "export-archive":
+                // export-archive <from YYYY-MM-DD> <to YYYY-MM-DD>
+                try {
+                    new ColdArchive().export(java.sql.Date.valueOf(args[1]), java.sql.Date.valueOf(args[2]));
+                } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+                    UIHelper.printError("Usage: export-archive <fromDate> <toDate> (YYYY-MM-DD)");
+                }
+                break;
+            case "stress-mark":
+                // stress-mark <class> <date YYYY-MM-DD> [threads] [periods] [--keep]
+                try {
+                    int threads = args.length > 3 && !args[3].startsWith("--") ? parseIntArg(args[3]) : 8;
+                    int periods = args.length > 4 && !args[4].startsWith("--") ? parseIntArg(args[4]) : 4;
+                    boolean keep = java.util.Arrays.asList(args).contains("--keep");
+                    new StressMark(args[1], java.sql.Date.valueOf(args[2]), threads, periods).run(keep);
+                } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+                    UIHelper.printError("Usage: stress-mark <class> <date> [threads] [periods] [--keep]");
+                }
+                break;
+            default:
+                UIHelper.printError("Unknown command: " + args[0]);
+                UIHelper.printInfo("Available commands: migrate, import-attendance, import-students,"
+                        + " rebuild-summary, rebuild-daily, partition-log, archive-log, export-archive, stress-mark");
+        }
+    }
+
+    private static int parseIntArg(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            UIHelper.printWarning("Ignoring invalid number: " + value);
+            return -1;
+        }
     }
 
     // =====================================================
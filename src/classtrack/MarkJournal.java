@@ -0,0 +1,295 @@
+/*
+ * ============================================================
+ * ClassTrack – Student Attendance Management System
+ * File: MarkJournal.java
+ * Purpose: Durable append-only journal behind the write-behind
+ *          queue and offline mode. Every queued mark is written here
+ *          before the faculty menu returns; the background writer
+ *          appends an acknowledgement once a batch is committed to
+ *          MySQL. The file is memory-mapped and grown in chunks, so
+ *          an append is a memory copy and fsync is a page flush.
+ *
+ * Record format (one line each, UTF-8, fields tab-separated):
+ *   M <seq> <roll_no> <date> <period> <subject> <status> <crc32>
+ *   A <seq> <crc32>          all marks up to <seq> are in MySQL
+ * The CRC covers everything before it, so a line torn by a crash is
+ * detected and dropped on recovery. Unused space after the last
+ * record is zero-filled; recovery stops at the first zero byte.
+ * ============================================================
+ */
+
+package classtrack;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+public class MarkJournal implements Closeable {
+
+    public static final String FILE_NAME = "marks.journal";
+
+    // Fully acknowledged journals larger than this are cleared
+    private static final int COMPACT_BYTES = 1 << 20;
+
+    // The mapping grows in steps of this many bytes
+    private static final int MAP_CHUNK = Integer.getInteger("classtrack.journal.mapBytes", 1 << 20);
+
+    private final Path path;
+    private final FileChannel channel;
+    private final FileLock lock;
+
+    // ----- State (guarded by this) -----
+    private MappedByteBuffer map;
+    private int position;      // end of the last record
+    private int dirtyFrom = -1; // first byte not yet forced to disk
+    private long lastSeq;
+    private long ackedSeq;
+
+    private MarkJournal(Path path, FileChannel channel, FileLock lock) {
+        this.path = path;
+        this.channel = channel;
+        this.lock = lock;
+    }
+
+    /**
+     * Opens (creating if needed) the journal in the given folder and
+     * locks it for this process.
+     *
+     * @return the journal, or null if another ClassTrack session on this
+     *         machine already holds it
+     */
+    public static MarkJournal open(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Path path = dir.resolve(FILE_NAME);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            channel.close();
+            return null;
+        }
+        return new MarkJournal(path, channel, lock);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    // =====================================================
+    // RECOVERY
+    // =====================================================
+
+    /**
+     * Reads the journal and returns the marks not yet acknowledged, in
+     * sequence order. A torn or corrupt tail is cut off so later appends
+     * start on a clean line.
+     */
+    public synchronized List<QueuedMark> recover() throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE)
+            throw new IOException("Mark journal too large: " + size + " bytes");
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, MAP_CHUNK));
+        byte[] bytes = new byte[(int) size];
+        map.get(0, bytes);
+
+        List<QueuedMark> marks = new ArrayList<>();
+        int goodLength = 0;
+        int lineStart = 0;
+        for (int i = 0; i < bytes.length && bytes[lineStart] != 0; i++) {
+            if (bytes[i] != '\n')
+                continue;
+            String line = new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8);
+            if (!parseLine(line, marks))
+                break;
+            lineStart = i + 1;
+            goodLength = lineStart;
+            if (lineStart >= bytes.length)
+                break;
+        }
+        position = goodLength;
+
+        // Zero whatever follows the last good record, so a torn record
+        // is not appended to or mistaken for data later
+        int tail = bytes.length;
+        while (tail > goodLength && bytes[tail - 1] == 0)
+            tail--;
+        if (tail > goodLength) {
+            UIHelper.printWarning("Mark journal: dropped " + (tail - goodLength)
+                    + " byte(s) of incomplete record at the end of " + path);
+            map.put(goodLength, new byte[tail - goodLength]);
+            map.force(goodLength, tail - goodLength);
+        }
+
+        List<QueuedMark> pending = new ArrayList<>();
+        for (QueuedMark m : marks) {
+            if (m.getSeq() > ackedSeq)
+                pending.add(m);
+        }
+        return pending;
+    }
+
+    private boolean parseLine(String line, List<QueuedMark> marks) {
+        int lastTab = line.lastIndexOf('\t');
+        if (lastTab < 0)
+            return false;
+        String body = line.substring(0, lastTab);
+        try {
+            if (Long.parseLong(line.substring(lastTab + 1), 16) != crc(body))
+                return false;
+            String[] f = body.split("\t", -1);
+            long seq = Long.parseLong(f[1]);
+            if (f[0].equals("M") && f.length == 7) {
+                // A null subject is journaled as empty
+                marks.add(new QueuedMark(seq, f[2], Date.valueOf(f[3]), Integer.parseInt(f[4]),
+                        f[5].isEmpty() ? null : f[5], f[6]));
+                lastSeq = Math.max(lastSeq, seq);
+                return true;
+            }
+            if (f[0].equals("A") && f.length == 2) {
+                ackedSeq = Math.max(ackedSeq, seq);
+                return true;
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            // falls through: not a valid record
+        }
+        return false;
+    }
+
+    // =====================================================
+    // APPEND
+    // =====================================================
+
+    /**
+     * Appends the marks and returns them with their sequence numbers.
+     *
+     * @param sync force the write to disk before returning
+     */
+    public synchronized List<QueuedMark> append(List<QueuedMark> marks, boolean sync) throws IOException {
+        List<QueuedMark> numbered = new ArrayList<>(marks.size());
+        StringBuilder sb = new StringBuilder(marks.size() * 64);
+        for (QueuedMark m : marks) {
+            QueuedMark n = m.withSeq(++lastSeq);
+            numbered.add(n);
+            record(sb, "M\t" + n.getSeq() + "\t" + clean(n.getRollNo()) + "\t" + n.getDate() + "\t"
+                    + n.getPeriod() + "\t" + clean(n.getSubject()) + "\t" + n.getStatus());
+        }
+        write(sb, sync);
+        return numbered;
+    }
+
+    /**
+     * Records that every mark up to and including seq is in MySQL.
+     */
+    public synchronized void ack(long seq, boolean sync) throws IOException {
+        if (seq <= ackedSeq)
+            return;
+        ackedSeq = seq;
+        StringBuilder sb = new StringBuilder();
+        record(sb, "A\t" + seq);
+        write(sb, sync);
+        compactIfDone();
+    }
+
+    /**
+     * Forces outstanding writes to disk (for the interval fsync policy).
+     */
+    public synchronized void sync() {
+        if (dirtyFrom >= 0 && position > dirtyFrom)
+            map.force(dirtyFrom, position - dirtyFrom);
+        dirtyFrom = -1;
+    }
+
+    /**
+     * Bytes of records currently in the journal.
+     */
+    public synchronized long size() {
+        return position;
+    }
+
+    private void write(StringBuilder sb, boolean sync) throws IOException {
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        ensureCapacity(bytes.length);
+        map.put(position, bytes);
+        if (dirtyFrom < 0)
+            dirtyFrom = position;
+        position += bytes.length;
+        if (sync)
+            sync();
+    }
+
+    /**
+     * Remaps the file with room for at least the given number of bytes
+     * after the last record (mapping past the end extends the file).
+     */
+    private void ensureCapacity(int needed) throws IOException {
+        if (map == null)
+            throw new IOException("Mark journal not recovered");
+        if ((long) position + needed <= map.capacity())
+            return;
+        long newSize = ((long) position + needed + MAP_CHUNK - 1) / MAP_CHUNK * MAP_CHUNK;
+        if (newSize > Integer.MAX_VALUE)
+            throw new IOException("Mark journal full");
+        sync();
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+    }
+
+    /**
+     * Once everything written has been acknowledged the journal holds
+     * nothing worth replaying, so a large one is cleared. The file is
+     * zero-filled rather than truncated: a mapped file cannot be
+     * truncated on Windows.
+     */
+    private void compactIfDone() {
+        if (ackedSeq != lastSeq || position <= COMPACT_BYTES)
+            return;
+        // Numbering carries on in memory; after a restart an empty
+        // journal starts again from 1, which is safe as nothing is pending
+        byte[] zeros = new byte[Math.min(position, 64 * 1024)];
+        for (int off = 0; off < position; off += zeros.length)
+            map.put(off, zeros, 0, Math.min(zeros.length, position - off));
+        map.force(0, position);
+        position = 0;
+        dirtyFrom = -1;
+    }
+
+    private static void record(StringBuilder sb, String body) {
+        sb.append(body).append('\t').append(Long.toHexString(crc(body))).append('\n');
+    }
+
+    private static long crc(String body) {
+        CRC32 crc = new CRC32();
+        crc.update(body.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    // Tabs and line breaks would split a record
+    private static String clean(String s) {
+        return s == null ? "" : s.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            sync();
+            lock.release();
+        } finally {
+            channel.close();
+        }
+    }
+}
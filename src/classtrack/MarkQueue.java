@@ -0,0 +1,530 @@
+/*
+ * ============================================================
+ * ClassTrack – Student Attendance Management System
+ * File: MarkQueue.java
+ * Purpose: Optional write-behind mode for attendance marking
+ *          (-Dclasstrack.async.marks=true). Marks are appended to
+ *          the local MarkJournal and the menu returns at once; a
+ *          background writer applies them to MySQL in coalesced
+ *          batches. Unapplied marks are replayed on the next start.
+ *          Also carries offline mode: marks taken while MySQL is
+ *          unreachable are journaled and synced once it is back.
+ * ============================================================
+ */
+
+package classtrack;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class MarkQueue {
+
+    // ----- Configuration (system properties) -----
+    public static final boolean ENABLED = Boolean.getBoolean("classtrack.async.marks");
+    public static final String JOURNAL_DIR = System.getProperty("classtrack.journal.dir", "journal");
+
+    // always: fsync before the menu returns | interval: every FSYNC_INTERVAL_MS | never: leave it to the OS
+    public static final String FSYNC_POLICY = System.getProperty("classtrack.journal.fsync", "always");
+    private static final long FSYNC_INTERVAL_MS = Long.getLong("classtrack.journal.fsyncMs", 1000);
+
+    private static final int CAPACITY = Integer.getInteger("classtrack.async.capacity", 10000);
+    private static final int BATCH_SIZE = Integer.getInteger("classtrack.async.batchSize", 500);
+    private static final long LINGER_MS = Long.getLong("classtrack.async.lingerMs", 200);
+    private static final long ENQUEUE_TIMEOUT_MS = Long.getLong("classtrack.async.enqueueTimeoutMs", 5000);
+    private static final long SHUTDOWN_TIMEOUT_MS = Long.getLong("classtrack.async.shutdownTimeoutMs", 15000);
+    private static final long MAX_RETRY_DELAY_MS = 30000;
+    private static final int RECENT_PROBLEMS = 20;
+
+    // ----- State -----
+    private static MarkJournal journal;
+    private static Thread writer;
+    private static volatile boolean running;
+    private static final LinkedBlockingQueue<QueuedMark> queue = new LinkedBlockingQueue<>();
+    // One permit per free queue slot; callers block here when the queue is full
+    private static final Semaphore slots = new Semaphore(CAPACITY);
+
+    // ----- Counters -----
+    private static final AtomicLong submitted = new AtomicLong();
+    private static final AtomicLong replayed = new AtomicLong();
+    private static final AtomicLong applied = new AtomicLong();
+    private static final AtomicLong duplicates = new AtomicLong();
+    private static final AtomicLong rejected = new AtomicLong();
+    private static final AtomicLong flushes = new AtomicLong();
+    private static final AtomicLong flushFailures = new AtomicLong();
+    private static final AtomicLong backpressureWaits = new AtomicLong();
+    private static final AtomicLong offlineMarks = new AtomicLong();
+    private static volatile long lastFlushAt;
+    private static volatile String lastError;
+    private static final Deque<String> recentProblems = new ArrayDeque<>();
+
+    static {
+        Metrics.gauge("classtrack_markqueue_pending", "Marks queued or journalled but not yet in MySQL",
+                MarkQueue::getPending);
+        Metrics.gauge("classtrack_markqueue_journal_bytes", "Size of the mark journal", MarkQueue::getJournalBytes);
+        Metrics.counter("classtrack_markqueue_applied_total", "Queued marks written to MySQL", applied::get);
+        Metrics.counter("classtrack_markqueue_duplicates_total", "Queued marks skipped as already marked",
+                duplicates::get);
+        Metrics.counter("classtrack_markqueue_flush_failures_total", "Background writes that failed and were retried",
+                flushFailures::get);
+        Metrics.counter("classtrack_markqueue_offline_total", "Marks taken while the database was unreachable",
+                offlineMarks::get);
+        Metrics.counter("classtrack_markqueue_backpressure_total", "Times marking waited for a full queue",
+                backpressureWaits::get);
+    }
+
+    private MarkQueue() {
+    }
+
+    // =====================================================
+    // LIFECYCLE
+    // =====================================================
+
+    /**
+     * Opens the journal and starts the writer if async mode is on or
+     * marks were left unapplied by the previous session - even with
+     * async mode now off, so switching it off never loses marks.
+     */
+    public static synchronized void start() {
+        if (writer != null)
+            return;
+        if (!ENABLED && !Paths.get(JOURNAL_DIR, MarkJournal.FILE_NAME).toFile().exists())
+            return;
+        open(ENABLED);
+    }
+
+    private static void open(boolean keepRunning) {
+        Path dir = Paths.get(JOURNAL_DIR);
+        List<QueuedMark> pending;
+        try {
+            journal = MarkJournal.open(dir);
+            if (journal == null) {
+                UIHelper.printWarning("Mark journal in " + dir.toAbsolutePath()
+                        + " is in use by another ClassTrack session; marking synchronously.");
+                return;
+            }
+            pending = journal.recover();
+        } catch (IOException e) {
+            UIHelper.printError("Could not open mark journal: " + e.getMessage() + " - marking synchronously.");
+            closeJournal();
+            return;
+        }
+
+        if (!keepRunning && pending.isEmpty()) {
+            closeJournal();
+            return;
+        }
+
+        if (!pending.isEmpty()) {
+            UIHelper.printInfo("Replaying " + pending.size() + " queued mark(s) from the last session...");
+            // Replay may exceed the live capacity; those permits are simply
+            // owed back as the writer drains them
+            slots.acquireUninterruptibly(Math.min(pending.size(), CAPACITY));
+            queue.addAll(pending);
+            replayed.addAndGet(pending.size());
+        }
+
+        running = true;
+        writer = new Thread(MarkQueue::writerLoop, "classtrack-mark-writer");
+        writer.start();
+    }
+
+    /**
+     * True when marks should go through the queue rather than straight
+     * to MySQL.
+     */
+    public static boolean isActive() {
+        return ENABLED && running;
+    }
+
+    /**
+     * Stops accepting marks and gives the writer a little time to apply
+     * what is queued. Anything left stays in the journal for next time.
+     */
+    public static void shutdown() {
+        Thread w;
+        synchronized (MarkQueue.class) {
+            w = writer;
+            if (w == null)
+                return;
+            running = false;
+        }
+
+        int left = getPending();
+        if (left > 0)
+            UIHelper.printInfo("Writing " + left + " queued mark(s) to the database...");
+        try {
+            w.join(SHUTDOWN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (w.isAlive()) {
+            w.interrupt();
+            try {
+                w.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        left = getPending();
+        if (left > 0)
+            UIHelper.printWarning(left + " mark(s) kept in the journal; they are applied on the next start.");
+
+        synchronized (MarkQueue.class) {
+            closeJournal();
+            writer = null;
+        }
+    }
+
+    private static void closeJournal() {
+        if (journal == null)
+            return;
+        try {
+            journal.close();
+        } catch (IOException e) {
+        }
+        journal = null;
+    }
+
+    // =====================================================
+    // ENQUEUE
+    // =====================================================
+
+    /**
+     * Journals the marks and queues them for the writer. Blocks while
+     * the queue is full, up to classtrack.async.enqueueTimeoutMs.
+     *
+     * @return false if the marks were not queued (queue still full or the
+     *         journal failed); the caller should then write them directly
+     */
+    public static boolean submit(List<QueuedMark> marks) {
+        if (!isActive())
+            return false;
+        return enqueue(marks);
+    }
+
+    /**
+     * Offline mode: journals marks that could not be written because
+     * MySQL is unreachable, starting the writer if needed. The writer
+     * keeps retrying and syncs them when the connection returns.
+     *
+     * @return false if the marks could not be journaled either
+     */
+    public static boolean submitOffline(List<QueuedMark> marks) {
+        synchronized (MarkQueue.class) {
+            if (writer == null)
+                open(true);
+            if (!running)
+                return false;
+        }
+        offlineMarks.addAndGet(marks.size());
+        return enqueue(marks);
+    }
+
+    private static boolean enqueue(List<QueuedMark> marks) {
+        if (marks.isEmpty() || marks.size() > CAPACITY)
+            return false;
+
+        try {
+            if (!slots.tryAcquire(marks.size())) {
+                backpressureWaits.incrementAndGet();
+                UIHelper.printWarning("Write queue is full (" + getPending() + " pending) - waiting for the database...");
+                if (!slots.tryAcquire(marks.size(), ENQUEUE_TIMEOUT_MS, TimeUnit.MILLISECONDS))
+                    return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        try {
+            List<QueuedMark> numbered;
+            // Journal order must match queue order for acknowledgements
+            synchronized (queue) {
+                numbered = journal.append(marks, FSYNC_POLICY.equals("always"));
+                queue.addAll(numbered);
+            }
+            submitted.addAndGet(numbered.size());
+            return true;
+        } catch (IOException e) {
+            slots.release(marks.size());
+            lastError = "journal: " + e.getMessage();
+            UIHelper.printError("Could not write mark journal: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // =====================================================
+    // BACKGROUND WRITER
+    // =====================================================
+    private static void writerLoop() {
+        List<QueuedMark> batch = new ArrayList<>();
+        long retryDelay = 500;
+        long lastSync = System.currentTimeMillis();
+
+        while (true) {
+            try {
+                if (batch.isEmpty()) {
+                    if (!running && queue.isEmpty())
+                        break;
+                    fillBatch(batch);
+                }
+
+                if (FSYNC_POLICY.equals("interval") && System.currentTimeMillis() - lastSync >= FSYNC_INTERVAL_MS) {
+                    journal.sync();
+                    lastSync = System.currentTimeMillis();
+                }
+                if (batch.isEmpty())
+                    continue;
+
+                try {
+                    flush(batch);
+                } catch (SQLException | RuntimeException e) {
+                    if (e instanceof SQLException && isTransient((SQLException) e))
+                        throw e;
+                    // A mark that can never apply must not hold up the rest
+                    flushSingly(batch);
+                }
+                batch.clear();
+                retryDelay = 500;
+
+            } catch (InterruptedException e) {
+                break;
+            } catch (SQLException | IOException | RuntimeException e) {
+                flushFailures.incrementAndGet();
+                lastError = e.getMessage();
+                // While shutting down, leave the rest for the next start
+                if (!running)
+                    break;
+                try {
+                    Thread.sleep(retryDelay);
+                } catch (InterruptedException ie) {
+                    break;
+                }
+                retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY_MS);
+            }
+        }
+
+        if (journal != null)
+            journal.sync();
+    }
+
+    /**
+     * Waits for the first mark, then up to LINGER_MS for more, so marks
+     * from terminals marking at the same time share one transaction.
+     */
+    private static void fillBatch(List<QueuedMark> batch) throws InterruptedException {
+        QueuedMark first = queue.poll(Math.min(LINGER_MS * 5, FSYNC_INTERVAL_MS), TimeUnit.MILLISECONDS);
+        if (first == null)
+            return;
+        batch.add(first);
+
+        long deadline = System.currentTimeMillis() + LINGER_MS;
+        while (batch.size() < BATCH_SIZE) {
+            queue.drainTo(batch, BATCH_SIZE - batch.size());
+            long wait = deadline - System.currentTimeMillis();
+            if (batch.size() >= BATCH_SIZE || wait <= 0 || !running)
+                break;
+            QueuedMark next = queue.poll(wait, TimeUnit.MILLISECONDS);
+            if (next == null)
+                break;
+            batch.add(next);
+        }
+    }
+
+    /**
+     * Only lost connections, deadlocks and lock wait timeouts are worth
+     * retrying; anything else (data too long, constraint violations)
+     * fails the same way every time.
+     */
+    private static boolean isTransient(SQLException e) {
+        String state = e.getSQLState();
+        return (state != null && state.startsWith("08")) || e.getErrorCode() == TransactionRetry.ER_LOCK_DEADLOCK
+                || e.getErrorCode() == TransactionRetry.ER_LOCK_WAIT_TIMEOUT;
+    }
+
+    /**
+     * Applies a failed batch one mark at a time. Marks that fail
+     * permanently are rejected and acknowledged; a transient failure
+     * stops here, leaving the unapplied marks in the batch for a retry.
+     */
+    private static void flushSingly(List<QueuedMark> batch) throws SQLException, IOException {
+        Iterator<QueuedMark> it = batch.iterator();
+        while (it.hasNext()) {
+            QueuedMark m = it.next();
+            try {
+                flush(List.of(m));
+            } catch (SQLException | RuntimeException e) {
+                if (e instanceof SQLException && isTransient((SQLException) e))
+                    throw (SQLException) e;
+                journal.ack(m.getSeq(), !FSYNC_POLICY.equals("never"));
+                rejected.incrementAndGet();
+                noteProblem("rejected: " + m + " - " + e.getMessage());
+                slots.release(Math.min(1, CAPACITY - slots.availablePermits()));
+            }
+            it.remove();
+        }
+    }
+
+    private static void flush(List<QueuedMark> batch) throws SQLException, IOException {
+        // Quietly: retries while offline must not print into the menus
+        Connection conn = DBConnection.getConnectionQuietly();
+        if (conn == null)
+            throw new SQLException("Database unavailable", "08001");
+
+        AttendanceDAO.QueuedMarkResult result;
+        try {
+            result = new AttendanceDAO().applyQueuedMarks(conn, batch);
+        } finally {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+            }
+        }
+
+        long maxSeq = 0;
+        for (QueuedMark m : batch)
+            maxSeq = Math.max(maxSeq, m.getSeq());
+        journal.ack(maxSeq, !FSYNC_POLICY.equals("never"));
+
+        applied.addAndGet(result.applied.size());
+        duplicates.addAndGet(result.duplicates.size());
+        rejected.addAndGet(result.rejected.size());
+        for (QueuedMark m : result.duplicates)
+            noteProblem("already marked: " + m);
+        for (QueuedMark m : result.rejected)
+            noteProblem("unknown student or archived date: " + m);
+
+        if (lastError != null && lastError.startsWith("Database unavailable"))
+            UIHelper.printInfo("Database reachable again - synced " + batch.size() + " offline mark(s).");
+        flushes.incrementAndGet();
+        lastFlushAt = System.currentTimeMillis();
+        lastError = null;
+        slots.release(Math.min(batch.size(), CAPACITY - slots.availablePermits()));
+    }
+
+    private static void noteProblem(String text) {
+        synchronized (recentProblems) {
+            if (recentProblems.size() >= RECENT_PROBLEMS)
+                recentProblems.removeFirst();
+            recentProblems.addLast(text);
+        }
+    }
+
+    // =====================================================
+    // STATUS
+    // =====================================================
+
+    /**
+     * Marks journaled but not yet committed to MySQL.
+     */
+    public static int getPending() {
+        return CAPACITY - slots.availablePermits();
+    }
+
+    /**
+     * Blocks until the queue is empty or the timeout passes.
+     *
+     * @return true if everything queued has been applied
+     */
+    public static boolean awaitDrained(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (getPending() > 0) {
+            if (System.currentTimeMillis() >= deadline)
+                return false;
+            Thread.sleep(50);
+        }
+        return true;
+    }
+
+    /**
+     * Periods and presents queued for one student but not yet in MySQL.
+     */
+    public static int[] getPendingFor(String rollNo) {
+        int[] counts = new int[2];
+        for (QueuedMark m : queue) {
+            if (m.getRollNo().equals(rollNo)) {
+                counts[0]++;
+                if (m.getStatus().equals("P"))
+                    counts[1]++;
+            }
+        }
+        return counts;
+    }
+
+    public static long getJournalBytes() {
+        MarkJournal j = journal;
+        return j == null ? 0 : j.size();
+    }
+
+    public static String getJournalPath() {
+        MarkJournal j = journal;
+        return j == null ? Paths.get(JOURNAL_DIR, MarkJournal.FILE_NAME).toString() : j.getPath().toString();
+    }
+
+    public static int getCapacity() {
+        return CAPACITY;
+    }
+
+    public static long getSubmitted() {
+        return submitted.get();
+    }
+
+    public static long getReplayed() {
+        return replayed.get();
+    }
+
+    public static long getApplied() {
+        return applied.get();
+    }
+
+    public static long getDuplicates() {
+        return duplicates.get();
+    }
+
+    public static long getRejected() {
+        return rejected.get();
+    }
+
+    public static long getFlushes() {
+        return flushes.get();
+    }
+
+    public static long getFlushFailures() {
+        return flushFailures.get();
+    }
+
+    public static long getBackpressureWaits() {
+        return backpressureWaits.get();
+    }
+
+    public static long getOfflineMarks() {
+        return offlineMarks.get();
+    }
+
+    public static long getLastFlushAt() {
+        return lastFlushAt;
+    }
+
+    public static String getLastError() {
+        return lastError;
+    }
+
+    public static List<String> getRecentProblems() {
+        synchronized (recentProblems) {
+            return new ArrayList<>(recentProblems);
+        }
+    }
+}
@@ -0,0 +1,516 @@
+/*
+ * ============================================================
+ * ClassTrack – Student Attendance Management System
+ * File: Metrics.java
+ * Purpose: In-process metrics registry: counters, gauges and
+ *          latency histograms for connection borrows, DAO calls and
+ *          migrations. Shown on the HOD Performance Metrics screen
+ *          and written periodically to a local file in the
+ *          Prometheus text format (usable by node_exporter's
+ *          textfile collector).
+ *
+ * Recording is allocation-free: timers are created once as static
+ * fields, and the per-thread bookkeeping is reused between calls.
+ * ============================================================
+ */
+
+package classtrack;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+public final class Metrics {
+
+    // ----- Configuration (system properties) -----
+    public static final String DUMP_FILE = System.getProperty("classtrack.metrics.file", "metrics/classtrack.prom");
+    public static final int DUMP_INTERVAL_SEC = Integer.getInteger("classtrack.metrics.intervalSec", 30);
+
+    // Prometheus histogram buckets, in seconds
+    private static final double[] EXPORT_BUCKETS = { 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1,
+            0.25, 0.5, 1, 2.5, 5, 10 };
+
+    // ----- Registry: metric name -> family, in registration order -----
+    private static final Map<String, Family> families = new LinkedHashMap<>();
+    private static final Map<Integer, Counter> sqlErrors = new ConcurrentHashMap<>();
+
+    private static ScheduledExecutorService dumper;
+    private static volatile long lastDumpAt;
+
+    private Metrics() {
+    }
+
+    // =====================================================
+    // METRIC TYPES
+    // =====================================================
+
+    /**
+     * Monotonic count.
+     */
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long n) {
+            value.add(n);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    /**
+     * HDR-style latency histogram in microseconds: 32 linear
+     * sub-buckets per power of two, so any recorded value is known to
+     * within about 3%, from 1 us up to 2^32 us (about 71 minutes),
+     * in a fixed 7 KB array. Longer values are counted in the last
+     * bucket; the exact maximum is still kept.
+     */
+    public static final class Histogram {
+        private static final int SUB_BITS = 5;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+        private static final int MAJOR_COUNT = 28;
+        private static final int BUCKETS = MAJOR_COUNT * SUB_COUNT;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sumNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        public void recordNanos(long nanos) {
+            if (nanos < 0)
+                nanos = 0;
+            counts.incrementAndGet(index(nanos / 1000));
+            count.increment();
+            sumNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        static int index(long micros) {
+            if (micros < 2 * SUB_COUNT)
+                return (int) micros;
+            int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BITS;
+            int index = (shift + 1) * SUB_COUNT + (int) (micros >>> shift) - SUB_COUNT;
+            return Math.min(index, BUCKETS - 1);
+        }
+
+        // Largest value (us) that lands in the bucket
+        static long upperBound(int index) {
+            if (index < 2 * SUB_COUNT)
+                return index;
+            int shift = index / SUB_COUNT - 1;
+            long sub = index % SUB_COUNT + SUB_COUNT;
+            return ((sub + 1) << shift) - 1;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public double getMeanMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : sumNanos.sum() / 1e6 / n;
+        }
+
+        public double getMaxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        /**
+         * Value at the given quantile (0-1) in milliseconds, rounded up
+         * to the end of its bucket.
+         */
+        public double getPercentileMillis(double q) {
+            long[] snapshot = snapshot();
+            long total = 0;
+            for (long c : snapshot)
+                total += c;
+            if (total == 0)
+                return 0;
+            long rank = Math.max(1, (long) Math.ceil(q * total));
+            long seen = 0;
+            for (int i = 0; i < snapshot.length; i++) {
+                seen += snapshot[i];
+                if (seen >= rank)
+                    return Math.min(upperBound(i) / 1e3, getMaxMillis());
+            }
+            return getMaxMillis();
+        }
+
+        long[] snapshot() {
+            long[] copy = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++)
+                copy[i] = counts.get(i);
+            return copy;
+        }
+    }
+
+    /**
+     * Times one kind of operation: a latency histogram plus a count of
+     * calls that failed. Use as
+     *
+     *   long started = TIMER.start();
+     *   try { ... } finally { TIMER.stop(started); }
+     *
+     * Calls nest (a DAO call times its connection borrow); a failure
+     * marks every call in progress on the thread as failed.
+     */
+    public static final class Timer {
+        private final String name;
+        private final String labels;
+        private final Histogram histogram = new Histogram();
+        private final Counter errors = new Counter();
+
+        Timer(String name, String labels) {
+            this.name = name;
+            this.labels = labels;
+        }
+
+        public long start() {
+            Frame f = FRAMES.get();
+            if (f.depth < Frame.MAX_DEPTH) {
+                f.excluded[f.depth] = 0;
+                f.failed[f.depth] = false;
+            }
+            f.depth++;
+            return System.nanoTime();
+        }
+
+        public void stop(long started) {
+            long elapsed = System.nanoTime() - started;
+            Frame f = FRAMES.get();
+            if (f.depth == 0)
+                return;
+            f.depth--;
+            boolean failed = false;
+            if (f.depth < Frame.MAX_DEPTH) {
+                elapsed -= f.excluded[f.depth];
+                failed = f.failed[f.depth];
+            }
+            histogram.recordNanos(elapsed);
+            if (failed)
+                errors.increment();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getLabels() {
+            return labels;
+        }
+
+        /**
+         * Short name for screens, e.g. "dao student.getStudent".
+         */
+        public String getDisplayName() {
+            String shortName = name.replaceFirst("^classtrack_", "").replaceFirst("_duration_seconds$", "");
+            if (labels.isEmpty())
+                return shortName;
+            return shortName + " " + labels.replaceAll("\\w+=\"([^\"]*)\"", "$1").replace(',', '.');
+        }
+
+        public Histogram getHistogram() {
+            return histogram;
+        }
+
+        public long getErrors() {
+            return errors.get();
+        }
+    }
+
+    /**
+     * Per-thread stack of the timed calls in progress.
+     */
+    private static final class Frame {
+        static final int MAX_DEPTH = 16;
+        final long[] excluded = new long[MAX_DEPTH];
+        final boolean[] failed = new boolean[MAX_DEPTH];
+        int depth;
+        long pausedAt;
+    }
+
+    private static final ThreadLocal<Frame> FRAMES = ThreadLocal.withInitial(Frame::new);
+
+    /**
+     * All series sharing one metric name, HELP and TYPE line.
+     */
+    private static final class Family {
+        final String name;
+        final String help;
+        final String type;
+        final Map<String, Object> series = new LinkedHashMap<>(); // labels -> metric or supplier
+
+        Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    // =====================================================
+    // REGISTRATION
+    // =====================================================
+
+    /**
+     * Returns the timer with this name and labels, creating it on first
+     * use. Labels are name/value pairs, e.g. "dao", "student", "op", "getStudent".
+     */
+    public static synchronized Timer timer(String name, String help, String... labelPairs) {
+        String labels = labels(labelPairs);
+        Family family = family(name, help, "histogram");
+        return (Timer) family.series.computeIfAbsent(labels, k -> new Timer(name, k));
+    }
+
+    /**
+     * Timer for one DAO operation, e.g. daoTimer("student", "getStudent").
+     */
+    public static Timer daoTimer(String dao, String op) {
+        return timer("classtrack_dao_duration_seconds", "Time spent in DAO calls, excluding waits for user input",
+                "dao", dao, "op", op);
+    }
+
+    public static synchronized Counter counter(String name, String help, String... labelPairs) {
+        Family family = family(name, help, "counter");
+        return (Counter) family.series.computeIfAbsent(labels(labelPairs), k -> new Counter());
+    }
+
+    /**
+     * Exposes a count kept elsewhere (e.g. TransactionRetry) as a counter.
+     */
+    public static synchronized void counter(String name, String help, LongSupplier value, String... labelPairs) {
+        family(name, help, "counter").series.put(labels(labelPairs), value);
+    }
+
+    public static synchronized void gauge(String name, String help, LongSupplier value, String... labelPairs) {
+        family(name, help, "gauge").series.put(labels(labelPairs), value);
+    }
+
+    private static Family family(String name, String help, String type) {
+        Family family = families.computeIfAbsent(name, k -> new Family(name, help, type));
+        if (!family.type.equals(type))
+            throw new IllegalArgumentException(name + " is already registered as a " + family.type);
+        return family;
+    }
+
+    private static String labels(String[] pairs) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i + 1 < pairs.length; i += 2) {
+            if (sb.length() > 0)
+                sb.append(',');
+            sb.append(pairs[i]).append("=\"")
+                    .append(pairs[i + 1].replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Every timer registered so far, in registration order.
+     */
+    public static synchronized List<Timer> getTimers() {
+        List<Timer> timers = new ArrayList<>();
+        for (Family family : families.values()) {
+            for (Object s : family.series.values()) {
+                if (s instanceof Timer)
+                    timers.add((Timer) s);
+            }
+        }
+        return timers;
+    }
+
+    // =====================================================
+    // RECORDING HELPERS
+    // =====================================================
+
+    /**
+     * Records a database error: counted by MySQL error code, and every
+     * timed call in progress on this thread is marked as failed.
+     */
+    public static void recordFailure(SQLException e) {
+        int code = TransactionRetry.errorCode(e);
+        Counter c = sqlErrors.get(code);
+        if (c == null) {
+            c = counter("classtrack_sql_errors_total", "Database errors by MySQL error code",
+                    "code", String.valueOf(code));
+            sqlErrors.put(code, c);
+        }
+        c.increment();
+        markFailed();
+    }
+
+    /**
+     * Marks every timed call in progress on this thread as failed.
+     */
+    public static void markFailed() {
+        Frame f = FRAMES.get();
+        for (int i = 0; i < Math.min(f.depth, Frame.MAX_DEPTH); i++)
+            f.failed[i] = true;
+    }
+
+    /**
+     * Stops the clock of the calls in progress on this thread, e.g.
+     * while a paged report waits for the user to press Enter.
+     */
+    public static void pause() {
+        FRAMES.get().pausedAt = System.nanoTime();
+    }
+
+    public static void resume() {
+        Frame f = FRAMES.get();
+        if (f.pausedAt == 0)
+            return;
+        long paused = System.nanoTime() - f.pausedAt;
+        f.pausedAt = 0;
+        for (int i = 0; i < Math.min(f.depth, Frame.MAX_DEPTH); i++)
+            f.excluded[i] += paused;
+    }
+
+    // =====================================================
+    // PROMETHEUS TEXT EXPORT
+    // =====================================================
+
+    /**
+     * Writes all metrics in the Prometheus text exposition format.
+     */
+    public static synchronized void writePrometheus(Writer out) throws IOException {
+        StringBuilder sb = new StringBuilder(8192);
+        for (Family family : families.values()) {
+            sb.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            sb.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, Object> e : family.series.entrySet()) {
+                String labels = e.getKey();
+                Object s = e.getValue();
+                if (s instanceof Timer)
+                    appendHistogram(sb, family.name, labels, ((Timer) s).histogram);
+                else if (s instanceof Counter)
+                    appendSample(sb, family.name, labels, null, ((Counter) s).get());
+                else
+                    appendSample(sb, family.name, labels, null, ((LongSupplier) s).getAsLong());
+            }
+            // Failed calls of each timer, as a separate counter family
+            if (family.type.equals("histogram")) {
+                String errorsName = family.name.replaceAll("_duration_seconds$", "") + "_errors_total";
+                sb.append("# HELP ").append(errorsName).append(" Failed calls counted by ").append(family.name)
+                        .append('\n');
+                sb.append("# TYPE ").append(errorsName).append(" counter\n");
+                for (Map.Entry<String, Object> e : family.series.entrySet())
+                    appendSample(sb, errorsName, e.getKey(), null, ((Timer) e.getValue()).getErrors());
+            }
+        }
+        out.write(sb.toString());
+    }
+
+    private static void appendHistogram(StringBuilder sb, String name, String labels, Histogram h) {
+        long[] snapshot = h.snapshot();
+        long total = 0;
+        int bucket = 0;
+        for (double le : EXPORT_BUCKETS) {
+            long limitMicros = Math.round(le * 1e6);
+            while (bucket < snapshot.length && Histogram.upperBound(bucket) <= limitMicros)
+                total += snapshot[bucket++];
+            appendSample(sb, name + "_bucket", labels,
+                    "le=\"" + java.math.BigDecimal.valueOf(le).stripTrailingZeros().toPlainString() + "\"", total);
+        }
+        while (bucket < snapshot.length)
+            total += snapshot[bucket++];
+        appendSample(sb, name + "_bucket", labels, "le=\"+Inf\"", total);
+        sb.append(name).append("_sum");
+        appendLabels(sb, labels, null);
+        sb.append(' ').append(h.sumNanos.sum() / 1e9).append('\n');
+        appendSample(sb, name + "_count", labels, null, total);
+    }
+
+    private static void appendSample(StringBuilder sb, String name, String labels, String extra, long value) {
+        sb.append(name);
+        appendLabels(sb, labels, extra);
+        sb.append(' ').append(value).append('\n');
+    }
+
+    private static void appendLabels(StringBuilder sb, String labels, String extra) {
+        if (labels.isEmpty() && extra == null)
+            return;
+        sb.append('{').append(labels);
+        if (extra != null)
+            sb.append(labels.isEmpty() ? "" : ",").append(extra);
+        sb.append('}');
+    }
+
+    // =====================================================
+    // PERIODIC DUMP
+    // =====================================================
+
+    /**
+     * Starts writing the metrics file every DUMP_INTERVAL_SEC seconds
+     * (0 disables it).
+     */
+    public static synchronized void startDump() {
+        if (dumper != null || DUMP_INTERVAL_SEC <= 0)
+            return;
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "classtrack-metrics");
+            t.setDaemon(true);
+            return t;
+        });
+        dumper.scheduleWithFixedDelay(Metrics::dump, DUMP_INTERVAL_SEC, DUMP_INTERVAL_SEC, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the periodic dump and writes the file one last time.
+     */
+    public static void shutdown() {
+        ScheduledExecutorService d;
+        synchronized (Metrics.class) {
+            d = dumper;
+            dumper = null;
+        }
+        if (d == null)
+            return;
+        d.shutdownNow();
+        dump();
+    }
+
+    /**
+     * Writes the metrics file now, replacing it atomically so a scraper
+     * never reads half a file.
+     */
+    public static void dump() {
+        Path file = Paths.get(DUMP_FILE);
+        Path tmp = Paths.get(DUMP_FILE + ".tmp");
+        try {
+            if (file.getParent() != null)
+                Files.createDirectories(file.getParent());
+            try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                writePrometheus(out);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            lastDumpAt = System.currentTimeMillis();
+        } catch (IOException e) {
+            UIHelper.printWarning("Could not write metrics file " + file + ": " + e.getMessage());
+        }
+    }
+
+    public static long getLastDumpAt() {
+        return lastDumpAt;
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * ============================================================
+ * ClassTrack – Student Attendance Management System
+ * File: OfflineSnapshot.java
+ * Purpose: Local copy of students, class rosters and attendance
+ *          totals, refreshed in the background every
+ *          classtrack.offline.snapshotMinutes, so roll call and the
+ *          main attendance reports still work while MySQL is
+ *          unreachable (offline mode).
+ *
+ * File format (journal folder, UTF-8, tab-separated):
+ *   # <taken-at epoch millis>
+ *   S <roll_no> <name> <class> <department> <total> <present>
+ *   J <roll_no> <subject> <total> <present>
+ * ============================================================
+ */
+
+package classtrack;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public final class OfflineSnapshot {
+
+    public static final String FILE_NAME = "snapshot.tsv";
+    public static final boolean ENABLED = !"false".equals(System.getProperty("classtrack.offline.snapshot"));
+    private static final long INTERVAL_MINUTES = Long.getLong("classtrack.offline.snapshotMinutes", 30);
+
+    /**
+     * One student as of the snapshot.
+     */
+    public static class Entry {
+        public final Student student;
+        public final int total;
+        public final int present;
+        public final Map<String, int[]> subjects = new TreeMap<>();
+
+        Entry(Student student, int total, int present) {
+            this.student = student;
+            this.total = total;
+            this.present = present;
+        }
+    }
+
+    // ----- Loaded snapshot (guarded by OfflineSnapshot.class) -----
+    private static Map<String, Entry> students;
+    private static Map<String, List<String>> rosters;
+    private static long takenAt;
+
+    private static ScheduledExecutorService refresher;
+
+    private OfflineSnapshot() {
+    }
+
+    // =====================================================
+    // BACKGROUND REFRESH
+    // =====================================================
+
+    /**
+     * Refreshes the snapshot off the startup path: first when the file
+     * on disk is older than the interval (at once if there is none),
+     * then every INTERVAL_MINUTES.
+     */
+    public static synchronized void start() {
+        if (!ENABLED || refresher != null || INTERVAL_MINUTES <= 0)
+            return;
+        long delayMs = 0;
+        Path file = Paths.get(MarkQueue.JOURNAL_DIR, FILE_NAME);
+        try {
+            if (Files.exists(file)) {
+                long age = System.currentTimeMillis() - Files.getLastModifiedTime(file).toMillis();
+                delayMs = Math.max(0, TimeUnit.MINUTES.toMillis(INTERVAL_MINUTES) - age);
+            }
+        } catch (IOException e) {
+        }
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "classtrack-offline-snapshot");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        refresher.scheduleWithFixedDelay(OfflineSnapshot::refresh, delayMs,
+                TimeUnit.MINUTES.toMillis(INTERVAL_MINUTES), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background refresh. A half-written temp file is simply
+     * replaced next time.
+     */
+    public static synchronized void shutdown() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+            refresher = null;
+        }
+    }
+
+    // =====================================================
+    // REFRESH (while online)
+    // =====================================================
+
+    /**
+     * Copies students and their totals from MySQL to the snapshot file.
+     * Does nothing when the database cannot be reached.
+     */
+    public static void refresh() {
+        if (!ENABLED)
+            return;
+        Connection conn = DBConnection.getConnectionQuietly();
+        if (conn == null)
+            return;
+
+        Path file = Paths.get(MarkQueue.JOURNAL_DIR, FILE_NAME);
+        Path tmp = Paths.get(MarkQueue.JOURNAL_DIR, FILE_NAME + ".tmp");
+        long now = System.currentTimeMillis();
+        Statement stmt = null;
+        try {
+            Files.createDirectories(file.getParent());
+            stmt = conn.createStatement();
+            try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                out.write("# " + now + "\n");
+                try (ResultSet rs = stmt.executeQuery("SELECT s.roll_no, s.name, s.class_name, s.department, "
+                        + "COALESCE(a.total_periods, 0), COALESCE(a.present_periods, 0) "
+                        + "FROM students s LEFT JOIN attendance a ON a.roll_no = s.roll_no")) {
+                    while (rs.next()) {
+                        out.write("S\t" + clean(rs.getString(1)) + "\t" + clean(rs.getString(2)) + "\t"
+                                + clean(rs.getString(3)) + "\t" + clean(rs.getString(4)) + "\t"
+                                + rs.getInt(5) + "\t" + rs.getInt(6) + "\n");
+                    }
+                }
+                try (ResultSet rs = stmt.executeQuery(
+                        "SELECT roll_no, subject, total_periods, present_periods FROM subject_attendance")) {
+                    while (rs.next()) {
+                        out.write("J\t" + clean(rs.getString(1)) + "\t" + clean(rs.getString(2)) + "\t"
+                                + rs.getInt(3) + "\t" + rs.getInt(4) + "\n");
+                    }
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            synchronized (OfflineSnapshot.class) {
+                students = null; // reloaded from the new file on first offline use
+            }
+        } catch (SQLException | IOException e) {
+            UIHelper.printWarning("Could not save offline snapshot: " + e.getMessage());
+        } finally {
+            try {
+                if (stmt != null)
+                    stmt.close();
+                conn.close();
+            } catch (SQLException e) {
+            }
+        }
+    }
+
+    // =====================================================
+    // READS (while offline)
+    // =====================================================
+
+    /**
+     * Roll numbers of a class, sorted, or an empty list if unknown.
+     */
+    public static List<String> getRoster(String className) {
+        return load() ? rosters.getOrDefault(className, Collections.emptyList()) : Collections.emptyList();
+    }
+
+    public static Entry getStudent(String rollNo) {
+        return load() ? students.get(rollNo) : null;
+    }
+
+    /**
+     * Students of a class in roll-number order.
+     */
+    public static List<Entry> getSection(String className) {
+        List<Entry> section = new ArrayList<>();
+        for (String rollNo : getRoster(className))
+            section.add(students.get(rollNo));
+        return section;
+    }
+
+    /**
+     * When the snapshot was taken (epoch millis), or 0 if there is none.
+     */
+    public static long getTakenAt() {
+        return load() ? takenAt : 0;
+    }
+
+    private static synchronized boolean load() {
+        if (students != null)
+            return true;
+        Path file = Paths.get(MarkQueue.JOURNAL_DIR, FILE_NAME);
+        if (!ENABLED || !Files.exists(file))
+            return false;
+
+        Map<String, Entry> loaded = new HashMap<>();
+        Map<String, List<String>> byClass = new HashMap<>();
+        long loadedAt = 0;
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] f = line.split("\t", -1);
+                if (f[0].startsWith("# ")) {
+                    loadedAt = Long.parseLong(f[0].substring(2).trim());
+                } else if (f[0].equals("S") && f.length == 7) {
+                    Student st = new Student(f[1], f[2], f[3], f[4]);
+                    loaded.put(f[1], new Entry(st, Integer.parseInt(f[5]), Integer.parseInt(f[6])));
+                    byClass.computeIfAbsent(f[3], k -> new ArrayList<>()).add(f[1]);
+                } else if (f[0].equals("J") && f.length == 5 && loaded.containsKey(f[1])) {
+                    loaded.get(f[1]).subjects.put(f[2],
+                            new int[] { Integer.parseInt(f[3]), Integer.parseInt(f[4]) });
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            UIHelper.printWarning("Could not read offline snapshot: " + e.getMessage());
+            return false;
+        }
+
+        for (List<String> roster : byClass.values())
+            Collections.sort(roster);
+        students = loaded;
+        rosters = byClass;
+        takenAt = loadedAt;
+        return true;
+    }
+
+    private static String clean(String s) {
+        return s == null ? "" : s.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+}
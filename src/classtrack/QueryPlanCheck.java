@@ -0,0 +1,98 @@
+/*
+ * ============================================================
+ * ClassTrack – Student Attendance Management System
+ * File: QueryPlanCheck.java
+ * Purpose: Self-check that EXPLAINs the hot DAO queries and warns
+ *          if any of them would scan a whole table. Runs after a
+ *          migration changed the schema, not on every start.
+ * ============================================================
+ */
+
+package classtrack;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class QueryPlanCheck {
+
+    // auto = after migrations were applied, true = every start, false = never
+    private static final String MODE = System.getProperty("classtrack.planCheck", "auto");
+
+    // Small tables are scanned on purpose by the optimizer; only warn above this
+    private static final long MIN_ROWS_TO_WARN = Long.getLong("classtrack.planCheck.minRows", 1000L);
+
+    /**
+     * Startup hook: runs the check when the schema was just migrated,
+     * or on every start with -Dclasstrack.planCheck=true.
+     */
+    public static void runAtStartup(boolean schemaChanged) {
+        if ("true".equals(MODE) || (schemaChanged && !"false".equals(MODE)))
+            run();
+    }
+
+    /**
+     * EXPLAINs each hot query with sample parameters. Prints a warning
+     * per full table scan and stays silent when every plan uses an index.
+     */
+    public static void run() {
+        Connection conn = null;
+        try {
+            conn = DBConnection.getConnection();
+            if (conn == null)
+                return;
+
+            Date today = new Date(System.currentTimeMillis());
+            int warnings = 0;
+            warnings += check(conn, "Section attendance by date", AttendanceDAO.SECTION_DAY_SQL, "CSE-1", today);
+            warnings += check(conn, "Section overall attendance", AttendanceDAO.SECTION_OVERALL_SQL, "CSE-1");
+            warnings += check(conn, "Student attendance by date", AttendanceDAO.STUDENT_DAY_SQL,
+                    "X", today, "X", today);
+            warnings += check(conn, "Attendance breakdown page", AttendanceDAO.BREAKDOWN_NEXT_PAGE_SQL,
+                    "X", today, today, 1, 50, "X", today, today, 1, 50, 50);
+            warnings += check(conn, "Defaulters list", AttendanceDAO.DEFAULTERS_FIRST_PAGE_SQL, 7500, 50);
+            warnings += check(conn, "Section subject-wise attendance", AttendanceDAO.SECTION_SUBJECT_SQL,
+                    "Maths", "CSE-1");
+            warnings += check(conn, "Students by class", StudentDAO.STUDENTS_BY_CLASS_SQL, "CSE-1");
+
+            if (warnings > 0)
+                UIHelper.printInfo("Reports may be slow. Check the indexes created by DatabaseMigration.");
+
+        } catch (SQLException e) {
+            UIHelper.printWarning("Query plan check skipped: " + e.getMessage());
+        } finally {
+            try {
+                if (conn != null)
+                    conn.close();
+            } catch (SQLException e) {
+            }
+        }
+    }
+
+    private static int check(Connection conn, String name, String sql, Object... params) throws SQLException {
+        int warnings = 0;
+        PreparedStatement pstmt = conn.prepareStatement("EXPLAIN " + sql);
+        try {
+            for (int i = 0; i < params.length; i++)
+                pstmt.setObject(i + 1, params[i]);
+
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                String table = rs.getString("table");
+                String type = rs.getString("type");
+                long rows = rs.getLong("rows");
+                if ("ALL".equals(type) && rows >= MIN_ROWS_TO_WARN) {
+                    UIHelper.printWarning("Query plan: \"" + name + "\" scans all of '" + table
+                            + "' (~" + rows + " rows).");
+                    warnings++;
+                }
+            }
+            rs.close();
+        } finally {
+            pstmt.close();
+        }
+        return warnings;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * ============================================================
+ * ClassTrack – Student Attendance Management System
+ * File: QueuedMark.java
+ * Purpose: One attendance mark waiting in the write-behind queue
+ *          (see MarkQueue), with its journal sequence number.
+ * ============================================================
+ */
+
+package classtrack;
+
+import java.sql.Date;
+
+public class QueuedMark {
+
+    private final long seq;
+    private final String rollNo;
+    private final Date date;
+    private final int period;
+    private final String subject;
+    private final String status;
+
+    public QueuedMark(long seq, String rollNo, Date date, int period, String subject, String status) {
+        this.seq = seq;
+        this.rollNo = rollNo;
+        this.date = date;
+        this.period = period;
+        this.subject = subject;
+        this.status = status;
+    }
+
+    /**
+     * Same mark with the sequence number the journal assigned to it.
+     */
+    QueuedMark withSeq(long seq) {
+        return new QueuedMark(seq, rollNo, date, period, subject, status);
+    }
+
+    // ----- Getters -----
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public String getRollNo() {
+        return rollNo;
+    }
+
+    public Date getDate() {
+        return date;
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * Identity of the log row this mark creates: one per student,
+     * date and period.
+     */
+    String getSlotKey() {
+        return rollNo + "|" + date + "|" + period;
+    }
+
+    @Override
+    public String toString() {
+        return rollNo + " " + date + " P" + period + " " + subject + " " + status;
+    }
+}
@@ -0,0 +1,525 @@
+/*
+ * ============================================================
+ * ClassTrack – Student Attendance Management System
+ * File: StatementProfiler.java
+ * Purpose: Statement-level profiling. Wraps each physical
+ *          connection so every Statement / PreparedStatement it
+ *          creates is timed: execution time, time spent fetching
+ *          rows, rows returned or changed and bind count, grouped
+ *          by SQL fingerprint (literals and IN/VALUES lists folded).
+ *          Statements slower than a threshold go to a rotating
+ *          slow-query log, optionally with their EXPLAIN plan.
+ *
+ * Slow-query log entry (close to MySQL's own slow log format):
+ *   # Time: 2025-09-01T10:15:02.114
+ *   # Statement: 3f9a01c2  Binds: 2  Batch: 0
+ *   # Query_time: 0.412003  Exec_time: 0.398112  Fetch_time: 0.013891  Rows: 61
+ *   SELECT ... ;
+ * Bind values are never written, only their count.
+ * ============================================================
+ */
+
+package classtrack;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+public final class StatementProfiler {
+
+    // ----- Configuration (system properties) -----
+    public static final boolean ENABLED = !"false".equals(System.getProperty("classtrack.profile.statements"));
+    public static final long SLOW_THRESHOLD_MS = Long.getLong("classtrack.slowQuery.thresholdMs", 200);
+    public static final String LOG_FILE = System.getProperty("classtrack.slowQuery.file", "logs/slow-queries.log");
+    private static final long LOG_MAX_BYTES = Long.getLong("classtrack.slowQuery.maxBytes", 5L * 1024 * 1024);
+    private static final int LOG_FILES = Integer.getInteger("classtrack.slowQuery.files", 5);
+    public static final boolean EXPLAIN = Boolean.getBoolean("classtrack.slowQuery.explain");
+
+    // Each fingerprint is EXPLAINed at most this often
+    private static final long EXPLAIN_INTERVAL_MS = 10 * 60 * 1000;
+
+    // Raw SQL strings remembered; dynamic IN lists make many variants
+    private static final int MAX_RAW_SQL = 2000;
+
+    private static final long SLOW_THRESHOLD_NANOS = SLOW_THRESHOLD_MS * 1_000_000L;
+    private static final DateTimeFormatter LOG_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
+
+    // fingerprint -> stats, and raw SQL -> the same stats (lookup shortcut)
+    private static final Map<String, Stats> byFingerprint = new ConcurrentHashMap<>();
+    private static final Map<String, Stats> bySql = new ConcurrentHashMap<>();
+
+    private static final LongAdder slowLogged = new LongAdder();
+
+    private StatementProfiler() {
+    }
+
+    // =====================================================
+    // PER-FINGERPRINT STATISTICS
+    // =====================================================
+
+    /**
+     * Totals for all statements sharing one fingerprint.
+     */
+    public static final class Stats {
+        private final String id;
+        private final String fingerprint;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder slow = new LongAdder();
+        private final LongAdder execNanos = new LongAdder();
+        private final LongAdder fetchNanos = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final Metrics.Histogram histogram;
+        private volatile int binds;
+        private volatile long lastExplainAt;
+
+        Stats(String id, String fingerprint) {
+            this.id = id;
+            this.fingerprint = fingerprint;
+            this.histogram = Metrics.timer("classtrack_sql_duration_seconds",
+                    "Execution plus fetch time of each SQL statement fingerprint", "statement", id).getHistogram();
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public long getSlow() {
+            return slow.sum();
+        }
+
+        public long getRows() {
+            return rows.sum();
+        }
+
+        public int getBinds() {
+            return binds;
+        }
+
+        public double getTotalMillis() {
+            return (execNanos.sum() + fetchNanos.sum()) / 1e6;
+        }
+
+        public double getAvgExecMillis() {
+            long n = calls.sum();
+            return n == 0 ? 0 : execNanos.sum() / 1e6 / n;
+        }
+
+        public double getAvgFetchMillis() {
+            long n = calls.sum();
+            return n == 0 ? 0 : fetchNanos.sum() / 1e6 / n;
+        }
+
+        public double getMaxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        public double getP99Millis() {
+            return histogram.getPercentileMillis(0.99);
+        }
+    }
+
+    /**
+     * All fingerprints seen since startup, slowest in total first.
+     */
+    public static List<Stats> getStats() {
+        List<Stats> list = new ArrayList<>(byFingerprint.values());
+        list.sort((a, b) -> Double.compare(b.getTotalMillis(), a.getTotalMillis()));
+        return list;
+    }
+
+    public static long getSlowLogged() {
+        return slowLogged.sum();
+    }
+
+    private static Stats statsFor(String sql) {
+        Stats stats = bySql.get(sql);
+        if (stats != null)
+            return stats;
+        String fp = fingerprint(sql);
+        stats = byFingerprint.computeIfAbsent(fp, k -> new Stats(shortId(k), k));
+        if (bySql.size() < MAX_RAW_SQL)
+            bySql.put(sql, stats);
+        return stats;
+    }
+
+    /**
+     * Normalises SQL so statements differing only in literals, spacing
+     * or the length of an IN (...) / multi-row VALUES list group
+     * together.
+     */
+    static String fingerprint(String sql) {
+        String fp = sql.replaceAll("'(?:[^'\\\\]|\\\\.|'')*'", "?")
+                .replaceAll("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])", "?")
+                .replaceAll("\\s+", " ")
+                .trim();
+        fp = fp.replaceAll("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)", "(?+)");
+        fp = fp.replaceAll("\\(\\?\\+\\)(?:\\s*,\\s*\\(\\?\\+\\))+", "(?+)+");
+        return fp;
+    }
+
+    private static String shortId(String fingerprint) {
+        CRC32 crc = new CRC32();
+        crc.update(fingerprint.getBytes(StandardCharsets.UTF_8));
+        return String.format("%08x", crc.getValue());
+    }
+
+    // =====================================================
+    // RECORDING
+    // =====================================================
+
+    /**
+     * One finished execution (including fetching its rows).
+     */
+    private static void record(Stats stats, String sql, long execNanos, long fetchNanos, long rows, int binds,
+            int batch, Object[] bindValues, Connection physical) {
+        long total = execNanos + fetchNanos;
+        stats.calls.increment();
+        stats.execNanos.add(execNanos);
+        stats.fetchNanos.add(fetchNanos);
+        stats.rows.add(Math.max(0, rows));
+        stats.maxNanos.accumulate(total);
+        stats.binds = binds;
+        stats.histogram.recordNanos(total);
+
+        if (SLOW_THRESHOLD_MS < 0 || total < SLOW_THRESHOLD_NANOS)
+            return;
+        stats.slow.increment();
+        slowLogged.increment();
+
+        StringBuilder entry = new StringBuilder(256 + sql.length());
+        entry.append("# Time: ").append(LocalDateTime.now().format(LOG_TIME)).append('\n');
+        entry.append("# Statement: ").append(stats.id).append("  Binds: ").append(binds)
+                .append("  Batch: ").append(batch).append('\n');
+        entry.append(String.format("# Query_time: %.6f  Exec_time: %.6f  Fetch_time: %.6f  Rows: %d%n",
+                total / 1e9, execNanos / 1e9, fetchNanos / 1e9, rows));
+        if (EXPLAIN && physical != null && bindValues != null)
+            appendExplain(entry, stats, sql, bindValues, physical);
+        entry.append(sql.replaceAll("\\s+", " ").trim()).append(";\n");
+        writeLog(entry.toString());
+    }
+
+    /**
+     * EXPLAINs a slow SELECT with the same bind values, on the physical
+     * connection so the EXPLAIN itself is not profiled.
+     */
+    private static void appendExplain(StringBuilder entry, Stats stats, String sql, Object[] bindValues,
+            Connection physical) {
+        long now = System.currentTimeMillis();
+        if (!sql.trim().regionMatches(true, 0, "SELECT", 0, 6) || now - stats.lastExplainAt < EXPLAIN_INTERVAL_MS)
+            return;
+        stats.lastExplainAt = now;
+        try (PreparedStatement pstmt = physical.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 0; i < bindValues.length; i++)
+                pstmt.setObject(i + 1, bindValues[i]);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    entry.append("# Explain: table=").append(rs.getString("table"))
+                            .append(" type=").append(rs.getString("type"))
+                            .append(" key=").append(rs.getString("key"))
+                            .append(" rows=").append(rs.getLong("rows"))
+                            .append(" filtered=").append(rs.getString("filtered"))
+                            .append(" extra=").append(rs.getString("Extra")).append('\n');
+                }
+            }
+        } catch (SQLException e) {
+            entry.append("# Explain failed: ").append(e.getMessage()).append('\n');
+        }
+    }
+
+    // =====================================================
+    // SLOW-QUERY LOG (rotating)
+    // =====================================================
+
+    private static synchronized void writeLog(String entry) {
+        Path file = Paths.get(LOG_FILE);
+        byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+        try {
+            if (file.getParent() != null)
+                Files.createDirectories(file.getParent());
+            if (Files.exists(file) && Files.size(file) + bytes.length > LOG_MAX_BYTES)
+                rotate(file);
+            Files.write(file, bytes, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            UIHelper.printWarning("Could not write slow-query log " + file + ": " + e.getMessage());
+        }
+    }
+
+    // slow-queries.log -> .1 -> .2 ... ; the oldest is deleted
+    private static void rotate(Path file) throws IOException {
+        Files.deleteIfExists(Paths.get(file + "." + LOG_FILES));
+        for (int i = LOG_FILES - 1; i >= 1; i--) {
+            Path from = Paths.get(file + "." + i);
+            if (Files.exists(from))
+                Files.move(from, Paths.get(file + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (LOG_FILES >= 1)
+            Files.move(file, Paths.get(file + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        else
+            Files.delete(file);
+    }
+
+    // =====================================================
+    // WRAPPERS
+    // =====================================================
+
+    /**
+     * Wraps a physical connection so its statements are profiled.
+     * Returns it unchanged when profiling is off.
+     */
+    static Connection wrap(Connection physical) {
+        if (!ENABLED)
+            return physical;
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, new ConnectionHandler(physical));
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Hands out profiled statements; everything else goes straight to
+     * the driver.
+     */
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection physical;
+
+        ConnectionHandler(Connection physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = invokeTarget(physical, method, args);
+            switch (method.getName()) {
+                case "prepareStatement":
+                    return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                            new Class<?>[] { PreparedStatement.class },
+                            new StatementHandler((Statement) result, (String) args[0], physical));
+                case "createStatement":
+                    return Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                            new Class<?>[] { Statement.class },
+                            new StatementHandler((Statement) result, null, physical));
+                default:
+                    return result;
+            }
+        }
+    }
+
+    /**
+     * Times executions of one statement. For a query the record is
+     * completed when its ResultSet is closed (or the statement is
+     * re-executed or closed), so fetch time and row count are included.
+     */
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final String preparedSql;
+        private final Stats preparedStats;
+        private final Connection physical;
+        private int binds;
+        private int batch;
+        private Object[] bindValues;
+        private ResultHandler open;
+
+        StatementHandler(Statement target, String preparedSql, Connection physical) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+            this.preparedStats = preparedSql == null ? null : statsFor(preparedSql);
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            // Bind parameters: setString(1, ...), setDate(2, ...), setNull(3, ...)
+            if (method.getDeclaringClass() == PreparedStatement.class && name.startsWith("set")
+                    && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                int index = (Integer) args[0];
+                binds = Math.max(binds, index);
+                if (EXPLAIN) {
+                    if (bindValues == null || bindValues.length < index)
+                        bindValues = Arrays.copyOf(bindValues == null ? new Object[0] : bindValues,
+                                Math.max(index, 8));
+                    bindValues[index - 1] = name.equals("setNull") ? null : args[1];
+                }
+                return invokeTarget(target, method, args);
+            }
+
+            switch (name) {
+                case "executeQuery":
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                case "execute":
+                case "executeBatch":
+                case "executeLargeBatch":
+                    return execute(method, args);
+                case "addBatch":
+                    batch++;
+                    return invokeTarget(target, method, args);
+                case "clearBatch":
+                    batch = 0;
+                    return invokeTarget(target, method, args);
+                case "clearParameters":
+                    binds = 0;
+                    return invokeTarget(target, method, args);
+                case "close":
+                    finishOpen();
+                    return invokeTarget(target, method, args);
+                default:
+                    return invokeTarget(target, method, args);
+            }
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            finishOpen();
+            String sql = preparedSql != null ? preparedSql
+                    : args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+            Stats stats = preparedSql != null ? preparedStats : sql != null ? statsFor(sql) : null;
+            int batchSize = batch;
+            batch = 0;
+
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = invokeTarget(target, method, args);
+            } catch (Throwable t) {
+                if (stats != null)
+                    stats.errors.increment();
+                throw t;
+            }
+            long execNanos = System.nanoTime() - start;
+            if (stats == null)
+                return result;
+
+            Object[] values = bindValues == null ? null : Arrays.copyOf(bindValues, binds);
+            if (result instanceof ResultSet) {
+                open = new ResultHandler((ResultSet) result, stats, sql, execNanos, binds, values, physical);
+                return Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+                        open);
+            }
+            record(stats, sql, execNanos, 0, affectedRows(result), binds, batchSize, values, physical);
+            return result;
+        }
+
+        private void finishOpen() {
+            if (open != null) {
+                open.finish();
+                open = null;
+            }
+        }
+
+        private static long affectedRows(Object result) {
+            if (result instanceof Integer)
+                return (Integer) result;
+            if (result instanceof Long)
+                return (Long) result;
+            long total = 0;
+            if (result instanceof int[]) {
+                for (int n : (int[]) result)
+                    total += Math.max(0, n);
+            } else if (result instanceof long[]) {
+                for (long n : (long[]) result)
+                    total += Math.max(0, n);
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Counts rows and the time spent in next() until the result set is
+     * closed.
+     */
+    private static final class ResultHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final Stats stats;
+        private final String sql;
+        private final long execNanos;
+        private final int binds;
+        private final Object[] bindValues;
+        private final Connection physical;
+        private long fetchNanos;
+        private long rows;
+        private boolean finished;
+
+        ResultHandler(ResultSet target, Stats stats, String sql, long execNanos, int binds, Object[] bindValues,
+                Connection physical) {
+            this.target = target;
+            this.stats = stats;
+            this.sql = sql;
+            this.execNanos = execNanos;
+            this.binds = binds;
+            this.bindValues = bindValues;
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next":
+                    long start = System.nanoTime();
+                    Object more = invokeTarget(target, method, args);
+                    fetchNanos += System.nanoTime() - start;
+                    if (Boolean.TRUE.equals(more))
+                        rows++;
+                    return more;
+                case "close":
+                    try {
+                        return invokeTarget(target, method, args);
+                    } finally {
+                        finish();
+                    }
+                default:
+                    return invokeTarget(target, method, args);
+            }
+        }
+
+        void finish() {
+            if (finished)
+                return;
+            finished = true;
+            record(stats, sql, execNanos, fetchNanos, rows, binds, 0, bindValues, physical);
+        }
+    }
+}
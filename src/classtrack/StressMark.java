@@ -0,0 +1,334 @@
+/*
+ * ============================================================
+ * ClassTrack – Student Attendance Management System
+ * File: StressMark.java
+ * Purpose: Multi-threaded marking stress run. Several threads mark
+ *          the same class and periods at once - batch marks, single
+ *          marks in shuffled order and HOD edits - then the log,
+ *          summaries and daily rollup are checked for lost or
+ *          doubled updates.
+ *
+ * Writes real attendance under the subject 'StressTest'; run it
+ * against a test database. The rows are removed afterwards unless
+ * --keep is given.
+ * ============================================================
+ */
+
+package classtrack;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class StressMark {
+
+    public static final String SUBJECT = "StressTest";
+
+    private final String className;
+    private final Date date;
+    private final int threads;
+    private final int periods;
+
+    public StressMark(String className, Date date, int threads, int periods) {
+        this.className = className;
+        this.date = date;
+        this.threads = Math.max(2, threads);
+        this.periods = Math.max(1, periods);
+    }
+
+    /**
+     * Runs the stress marking and prints the verification result.
+     *
+     * @param keep leave the marked rows in place instead of removing them
+     * @return true if every check passed
+     */
+    public boolean run(boolean keep) {
+        List<String> roster = new ArrayList<>(new StudentDAO().getStudentsByClass(className));
+        if (roster.isEmpty()) {
+            UIHelper.printError("No students in class " + className + ".");
+            return false;
+        }
+        Collections.sort(roster);
+
+        Map<String, int[]> before;
+        try {
+            if (countExisting() > 0) {
+                UIHelper.printError("Class " + className + " already has attendance on " + date
+                        + "; pick a date with none.");
+                return false;
+            }
+            before = loadTotals();
+        } catch (SQLException e) {
+            UIHelper.printError("ERROR while preparing stress run: " + e.getMessage());
+            return false;
+        }
+
+        UIHelper.printInfo("Marking " + roster.size() + " students x " + periods + " period(s) of " + className
+                + " on " + date + " from " + threads + " threads...");
+        long retriesBefore = TransactionRetry.getRetries();
+        long failuresBefore = TransactionRetry.getFailures();
+        long start = System.nanoTime();
+
+        // Per-mark console output from the DAOs is dropped while threads run
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int worker = t;
+                futures.add(pool.submit(() -> runWorker(worker, roster)));
+            }
+            for (Future<?> f : futures)
+                f.get();
+        } catch (Exception e) {
+            System.setOut(console);
+            UIHelper.printError("Stress worker failed: " + e);
+            return false;
+        } finally {
+            pool.shutdownNow();
+            System.setOut(console);
+        }
+
+        // In write-behind mode the marks are only queued so far
+        try {
+            if (MarkQueue.getPending() > 0 && !MarkQueue.awaitDrained(60000))
+                UIHelper.printWarning(MarkQueue.getPending() + " queued mark(s) still not applied.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        UIHelper.printInfo(String.format("Finished in %.2f s (%d mark(s) expected).", seconds,
+                (long) roster.size() * periods));
+        UIHelper.printInfo("Retries: " + (TransactionRetry.getRetries() - retriesBefore)
+                + " | Gave up: " + (TransactionRetry.getFailures() - failuresBefore));
+        System.out.println("  " + TransactionRetry.summary());
+
+        boolean ok;
+        try {
+            ok = verify(roster, before);
+        } catch (SQLException e) {
+            UIHelper.printError("ERROR while verifying: " + e.getMessage());
+            ok = false;
+        }
+
+        if (!keep)
+            cleanUp();
+        return ok;
+    }
+
+    // =====================================================
+    // WORKERS
+    // =====================================================
+
+    /**
+     * Every worker marks every period; only the first mark of each
+     * student/period may land. Workers alternate between batch marks,
+     * single marks in shuffled order, and (every fourth) re-saving the
+     * students unchanged the way an HOD edit does.
+     */
+    private void runWorker(int worker, List<String> roster) {
+        AttendanceDAO attendanceDAO = new AttendanceDAO();
+        StudentDAO studentDAO = new StudentDAO();
+
+        for (int period = 1; period <= periods; period++) {
+            List<String> order = new ArrayList<>(roster);
+            Collections.shuffle(order, ThreadLocalRandom.current());
+            List<String> absent = new ArrayList<>();
+            for (String rollNo : order) {
+                if (isAbsent(roster, rollNo, period))
+                    absent.add(rollNo);
+            }
+
+            if (worker % 4 == 3) {
+                for (String rollNo : order) {
+                    Student st = studentDAO.getStudent(rollNo);
+                    if (st != null)
+                        studentDAO.updateStudent(st);
+                }
+            } else if (worker % 2 == 0) {
+                attendanceDAO.markBatchAttendance(className, date, period, SUBJECT, order, absent);
+            } else {
+                for (String rollNo : order) {
+                    attendanceDAO.markAttendance(rollNo, date, period, SUBJECT,
+                            isAbsent(roster, rollNo, period) ? "A" : "P");
+                }
+            }
+        }
+    }
+
+    // Fixed pattern so every worker agrees on each student's status
+    private static boolean isAbsent(List<String> sortedRoster, String rollNo, int period) {
+        return (Collections.binarySearch(sortedRoster, rollNo) + period) % 5 == 0;
+    }
+
+    // =====================================================
+    // VERIFICATION
+    // =====================================================
+    private boolean verify(List<String> roster, Map<String, int[]> before) throws SQLException {
+        Map<String, int[]> after = loadTotals();
+        Map<String, int[]> logged = new HashMap<>();
+        Map<String, int[]> rolled = new HashMap<>();
+
+        Connection conn = DBConnection.getConnection();
+        if (conn == null)
+            return false;
+        try {
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT roll_no, COUNT(*), SUM(status = 'P') "
+                    + "FROM attendance_log WHERE class_name = ? AND date = ? AND subject = ? GROUP BY roll_no")) {
+                pstmt.setString(1, className);
+                pstmt.setDate(2, date);
+                pstmt.setString(3, SUBJECT);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next())
+                        logged.put(rs.getString(1), new int[] { rs.getInt(2), rs.getInt(3) });
+                }
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT roll_no, present + absent, present "
+                    + "FROM daily_attendance WHERE class_name = ? AND date = ?")) {
+                pstmt.setString(1, className);
+                pstmt.setDate(2, date);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next())
+                        rolled.put(rs.getString(1), new int[] { rs.getInt(2), rs.getInt(3) });
+                }
+            }
+        } finally {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+            }
+        }
+
+        int mismatches = 0;
+        for (String rollNo : roster) {
+            int present = 0;
+            for (int period = 1; period <= periods; period++) {
+                if (!isAbsent(roster, rollNo, period))
+                    present++;
+            }
+            int[] expected = { periods, present };
+
+            int[] b = before.getOrDefault(rollNo, new int[4]);
+            int[] a = after.getOrDefault(rollNo, new int[4]);
+            int[] summary = { a[0] - b[0], a[1] - b[1] };
+            int[] subject = { a[2] - b[2], a[3] - b[3] };
+
+            mismatches += check(rollNo, "attendance_log", logged.get(rollNo), expected);
+            mismatches += check(rollNo, "attendance", summary, expected);
+            mismatches += check(rollNo, "subject_attendance", subject, expected);
+            mismatches += check(rollNo, "daily_attendance", rolled.get(rollNo), expected);
+        }
+
+        if (mismatches == 0) {
+            UIHelper.printSuccess("No lost or doubled updates: log, summaries and daily rollup agree for "
+                    + roster.size() + " student(s).");
+            return true;
+        }
+        UIHelper.printError(mismatches + " mismatch(es) found.");
+        return false;
+    }
+
+    private int check(String rollNo, String table, int[] actual, int[] expected) {
+        int total = actual == null ? 0 : actual[0];
+        int present = actual == null ? 0 : actual[1];
+        if (total == expected[0] && present == expected[1])
+            return 0;
+        UIHelper.printWarning(rollNo + " in " + table + ": " + present + "/" + total
+                + " present, expected " + expected[1] + "/" + expected[0]);
+        return 1;
+    }
+
+    private int countExisting() throws SQLException {
+        Connection conn = DBConnection.getConnection();
+        if (conn == null)
+            throw new SQLException("No database connection");
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT COUNT(*) FROM daily_attendance WHERE class_name = ? AND date = ?")) {
+            pstmt.setString(1, className);
+            pstmt.setDate(2, date);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        } finally {
+            conn.close();
+        }
+    }
+
+    /**
+     * Per student of the class: overall total/present, then total/present
+     * for the stress subject.
+     */
+    private Map<String, int[]> loadTotals() throws SQLException {
+        Map<String, int[]> totals = new HashMap<>();
+        Connection conn = DBConnection.getConnection();
+        if (conn == null)
+            throw new SQLException("No database connection");
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT s.roll_no, "
+                + "COALESCE(a.total_periods, 0), COALESCE(a.present_periods, 0), "
+                + "COALESCE(sa.total_periods, 0), COALESCE(sa.present_periods, 0) "
+                + "FROM students s "
+                + "LEFT JOIN attendance a ON a.roll_no = s.roll_no "
+                + "LEFT JOIN subject_attendance sa ON sa.roll_no = s.roll_no AND sa.subject = ? "
+                + "WHERE s.class_name = ?")) {
+            pstmt.setString(1, SUBJECT);
+            pstmt.setString(2, className);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    totals.put(rs.getString(1), new int[] {
+                            rs.getInt(2), rs.getInt(3), rs.getInt(4), rs.getInt(5) });
+                }
+            }
+        } finally {
+            conn.close();
+        }
+        return totals;
+    }
+
+    // =====================================================
+    // CLEAN UP
+    // =====================================================
+
+    /**
+     * Deletes the stress rows, then rebuilds the class summaries and the
+     * day's rollup from what is left.
+     */
+    private void cleanUp() {
+        Connection conn = DBConnection.getConnection();
+        if (conn == null)
+            return;
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "DELETE FROM attendance_log WHERE class_name = ? AND date = ? AND subject = ?")) {
+            pstmt.setString(1, className);
+            pstmt.setDate(2, date);
+            pstmt.setString(3, SUBJECT);
+            UIHelper.printInfo("Removed " + pstmt.executeUpdate() + " stress row(s).");
+        } catch (SQLException e) {
+            UIHelper.printError("ERROR while removing stress rows: " + e.getMessage());
+            return;
+        } finally {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+            }
+        }
+
+        new SummaryReconciler().reconcile(SummaryReconciler.SCOPE_CLASS, className, false, true);
+        new DailyRollupBuilder().rebuild(date, date);
+    }
+}
@@ -14,57 +14,322 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class StudentDAO {
 
+    // Maximum rows returned by searchStudent(keyword)
+    public static final int SEARCH_LIMIT = Integer.getInteger("classtrack.search.limit", 50);
+
+    // Roll numbers of one class (also EXPLAINed by QueryPlanCheck after migrations)
+    static final String STUDENTS_BY_CLASS_SQL = "SELECT roll_no FROM students WHERE class_name = ?";
+
+    // ----- Enrollment -----
+    static final String INSERT_STUDENT_SQL = "INSERT INTO students (roll_no, name, class_name, department) VALUES (?, ?, ?, ?)";
+    static final String INSERT_LOGIN_SQL = "INSERT INTO users (username, password, role, roll_no) VALUES (?, 'student123', 'STUDENT', ?) "
+            + "ON DUPLICATE KEY UPDATE username = username";
+    static final String INSERT_SUMMARY_SQL = "INSERT INTO attendance (roll_no, total_periods, present_periods) VALUES (?, 0, 0) "
+            + "ON DUPLICATE KEY UPDATE roll_no = roll_no";
+
+    // Students per transaction in enrollStudents()
+    private static final int ENROLL_CHUNK = 1000;
+
+    // MySQL error code for a duplicate primary/unique key
+    private static final int ER_DUP_ENTRY = 1062;
+
+    // ----- Roster cache -----
+    // Rosters change a few times a semester but are read before every mark.
+    // Shared by all menus in this process; other terminals' edits become
+    // visible once entries expire (-Dclasstrack.cache.ttlSeconds).
+    private static final int CACHE_MAX_ENTRIES = Integer.getInteger("classtrack.cache.maxEntries", 500);
+    private static final long CACHE_TTL_MS = Long.getLong("classtrack.cache.ttlSeconds", 300L) * 1000;
+
+    // class_name -> roll numbers in that class
+    private static final LruCache<String, List<String>> CLASS_ROSTERS = new LruCache<>("Class rosters",
+            CACHE_MAX_ENTRIES, CACHE_TTL_MS);
+    // roll_no -> exists (only positive answers are cached)
+    private static final LruCache<String, Boolean> KNOWN_STUDENTS = new LruCache<>("Known students",
+            CACHE_MAX_ENTRIES * 100, CACHE_TTL_MS);
+
+    // ----- Metrics (HOD → Maintenance & Tools → Performance Metrics) -----
+    private static final Metrics.Timer ADD_STUDENT = Metrics.daoTimer("student", "addStudent");
+    private static final Metrics.Timer ENROLL_STUDENT = Metrics.daoTimer("student", "enrollStudent");
+    private static final Metrics.Timer ENROLL_STUDENTS = Metrics.daoTimer("student", "enrollStudents");
+    private static final Metrics.Timer UPDATE_STUDENT = Metrics.daoTimer("student", "updateStudent");
+    private static final Metrics.Timer DELETE_STUDENT = Metrics.daoTimer("student", "deleteStudent");
+    private static final Metrics.Timer SEARCH_STUDENT = Metrics.daoTimer("student", "searchStudent");
+    private static final Metrics.Timer GET_STUDENT = Metrics.daoTimer("student", "getStudent");
+    private static final Metrics.Timer STUDENT_EXISTS = Metrics.daoTimer("student", "studentExists");
+    private static final Metrics.Timer STUDENTS_BY_CLASS = Metrics.daoTimer("student", "getStudentsByClass");
+    private static final Metrics.Timer CREATE_LOGIN = Metrics.daoTimer("student", "createStudentLogin");
+
+    static {
+        for (LruCache<?, ?> cache : List.of(CLASS_ROSTERS, KNOWN_STUDENTS)) {
+            Metrics.counter("classtrack_cache_hits_total", "Roster cache lookups answered from memory",
+                    cache::getHits, "cache", cache.getName());
+            Metrics.counter("classtrack_cache_misses_total", "Roster cache lookups that went to the database",
+                    cache::getMisses, "cache", cache.getName());
+            Metrics.gauge("classtrack_cache_entries", "Entries held in the roster cache",
+                    cache::size, "cache", cache.getName());
+        }
+    }
+
     // =====================================================
     // 1. ADD STUDENT
     // =====================================================
     public void addStudent(Student student) {
-        Connection conn = null;
-        PreparedStatement checkStmt = null;
-        PreparedStatement insertStmt = null;
-        ResultSet rs = null;
-
+        long started = ADD_STUDENT.start();
         try {
-            conn = DBConnection.getConnection();
-            if (conn == null)
-                return;
-
-            // Check if roll number already exists
-            String checkSQL = "SELECT roll_no FROM students WHERE roll_no = ?";
-            checkStmt = conn.prepareStatement(checkSQL);
-            checkStmt.setString(1, student.getRollNo());
-            rs = checkStmt.executeQuery();
-
-            if (rs.next()) {
-                UIHelper.printError("ERROR: Roll No " + student.getRollNo() + " already exists!");
-                UIHelper.printInfo("Please use a different roll number.");
-                return;
+            Connection conn = null;
+            PreparedStatement insertStmt = null;
+
+            try {
+                conn = DBConnection.getConnection();
+                if (conn == null)
+                    return;
+
+                // Insert the new student; the primary key rejects duplicates
+                insertStmt = conn.prepareStatement(INSERT_STUDENT_SQL);
+                insertStmt.setString(1, student.getRollNo());
+                insertStmt.setString(2, student.getName());
+                insertStmt.setString(3, student.getClassName());
+                insertStmt.setString(4, student.getDepartment());
+
+                int rowsInserted = insertStmt.executeUpdate();
+
+                if (rowsInserted > 0) {
+                    CLASS_ROSTERS.invalidate(student.getClassName());
+                    UIHelper.printSuccess("Student added successfully!");
+                    System.out.println(UIHelper.CYAN + "  " + student + UIHelper.RESET);
+                }
+
+            } catch (SQLException e) {
+                if (isDuplicateKey(e)) {
+                    UIHelper.printError("ERROR: Roll No " + student.getRollNo() + " already exists!");
+                    UIHelper.printInfo("Please use a different roll number.");
+                } else {
+                    Metrics.recordFailure(e);
+                    UIHelper.printError("ERROR while adding student: " + e.getMessage());
+                }
+
+            } finally {
+                closeResources(conn, insertStmt, null);
             }
+        } finally {
+            ADD_STUDENT.stop(started);
+        }
+    }
+
+    // =====================================================
+    // 1a. ENROLL STUDENT (student + login + summary, one transaction)
+    // =====================================================
+    public boolean enrollStudent(Student student) {
+        long started = ENROLL_STUDENT.start();
+        try {
+            Connection conn = null;
+            PreparedStatement studentStmt = null;
+            PreparedStatement loginStmt = null;
+            PreparedStatement summaryStmt = null;
+
+            try {
+                conn = DBConnection.getConnection();
+                if (conn == null)
+                    return false;
+
+                conn.setAutoCommit(false);
 
-            // Insert the new student
-            String insertSQL = "INSERT INTO students (roll_no, name, class_name, department) VALUES (?, ?, ?, ?)";
-            insertStmt = conn.prepareStatement(insertSQL);
-            insertStmt.setString(1, student.getRollNo());
-            insertStmt.setString(2, student.getName());
-            insertStmt.setString(3, student.getClassName());
-            insertStmt.setString(4, student.getDepartment());
+                studentStmt = conn.prepareStatement(INSERT_STUDENT_SQL);
+                studentStmt.setString(1, student.getRollNo());
+                studentStmt.setString(2, student.getName());
+                studentStmt.setString(3, student.getClassName());
+                studentStmt.setString(4, student.getDepartment());
+                studentStmt.executeUpdate();
 
-            int rowsInserted = insertStmt.executeUpdate();
+                loginStmt = conn.prepareStatement(INSERT_LOGIN_SQL);
+                loginStmt.setString(1, student.getRollNo());
+                loginStmt.setString(2, student.getRollNo());
+                loginStmt.executeUpdate();
+
+                summaryStmt = conn.prepareStatement(INSERT_SUMMARY_SQL);
+                summaryStmt.setString(1, student.getRollNo());
+                summaryStmt.executeUpdate();
+
+                conn.commit();
+                CLASS_ROSTERS.invalidate(student.getClassName());
 
-            if (rowsInserted > 0) {
                 UIHelper.printSuccess("Student added successfully!");
                 System.out.println(UIHelper.CYAN + "  " + student + UIHelper.RESET);
+                UIHelper.printInfo("Student login created: Username = " + student.getRollNo()
+                        + " | Password = student123");
+                return true;
+
+            } catch (SQLException e) {
+                try {
+                    if (conn != null)
+                        conn.rollback();
+                } catch (SQLException ex) {
+                }
+                if (isDuplicateKey(e)) {
+                    UIHelper.printError("ERROR: Roll No " + student.getRollNo() + " already exists!");
+                    UIHelper.printInfo("Please use a different roll number.");
+                } else {
+                    Metrics.recordFailure(e);
+                    UIHelper.printError("ERROR while adding student: " + e.getMessage());
+                }
+                return false;
+
+            } finally {
+                try {
+                    if (conn != null)
+                        conn.setAutoCommit(true);
+                } catch (SQLException ex) {
+                }
+                closeResources(conn, studentStmt, null);
+                closeStatement(loginStmt);
+                closeStatement(summaryStmt);
+            }
+        } finally {
+            ENROLL_STUDENT.stop(started);
+        }
+    }
+
+    // =====================================================
+    // 1b. ENROLL BATCH (e.g. an incoming intake)
+    // =====================================================
+
+    /**
+     * Enrolls many students in one pass. Each chunk of ENROLL_CHUNK
+     * students is one transaction: one lookup for roll numbers that
+     * already exist (reported and skipped), then one multi-row INSERT
+     * each for students, logins and summary rows.
+     *
+     * @return number of students enrolled
+     */
+    public int enrollStudents(List<Student> students) {
+        long started = ENROLL_STUDENTS.start();
+        try {
+            Connection conn = null;
+            int enrolled = 0;
+            List<String> skipped = new ArrayList<>();
+
+            try {
+                conn = DBConnection.getConnection();
+                if (conn == null)
+                    return 0;
+
+                for (int start = 0; start < students.size(); start += ENROLL_CHUNK) {
+                    List<Student> chunk = students.subList(start, Math.min(students.size(), start + ENROLL_CHUNK));
+                    enrolled += enrollChunk(conn, chunk, skipped);
+                }
+
+            } catch (SQLException e) {
+                Metrics.recordFailure(e);
+                UIHelper.printError("ERROR while enrolling students: " + e.getMessage());
+
+            } finally {
+                closeResources(conn, null, null);
+            }
+
+            if (!skipped.isEmpty()) {
+                UIHelper.printWarning("Skipped " + skipped.size() + " roll number(s) that already exist: "
+                        + String.join(", ", skipped));
+            }
+            UIHelper.printSuccess("Enrolled " + enrolled + " student(s).");
+            return enrolled;
+        } finally {
+            ENROLL_STUDENTS.stop(started);
+        }
+    }
+
+    private int enrollChunk(Connection conn, List<Student> chunk, List<String> skipped) throws SQLException {
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn.setAutoCommit(false);
+
+            // Existing roll numbers in this chunk (one round trip)
+            pstmt = conn.prepareStatement("SELECT roll_no FROM students WHERE roll_no IN ("
+                    + repeat("?", chunk.size()) + ")");
+            for (int i = 0; i < chunk.size(); i++)
+                pstmt.setString(i + 1, chunk.get(i).getRollNo());
+            rs = pstmt.executeQuery();
+            Set<String> existing = new HashSet<>();
+            while (rs.next())
+                existing.add(rs.getString("roll_no"));
+            rs.close();
+            rs = null;
+            pstmt.close();
+
+            // Also drops repeats of the same roll number within the chunk
+            List<Student> fresh = new ArrayList<>();
+            Set<String> seen = new HashSet<>();
+            for (Student st : chunk) {
+                if (existing.contains(st.getRollNo()) || !seen.add(st.getRollNo()))
+                    skipped.add(st.getRollNo());
+                else
+                    fresh.add(st);
+            }
+
+            if (!fresh.isEmpty()) {
+                pstmt = conn.prepareStatement("INSERT INTO students (roll_no, name, class_name, department) VALUES "
+                        + repeat("(?, ?, ?, ?)", fresh.size()));
+                int idx = 1;
+                for (Student st : fresh) {
+                    pstmt.setString(idx++, st.getRollNo());
+                    pstmt.setString(idx++, st.getName());
+                    pstmt.setString(idx++, st.getClassName());
+                    pstmt.setString(idx++, st.getDepartment());
+                }
+                pstmt.executeUpdate();
+                pstmt.close();
+
+                pstmt = conn.prepareStatement("INSERT INTO users (username, password, role, roll_no) VALUES "
+                        + repeat("(?, 'student123', 'STUDENT', ?)", fresh.size())
+                        + " ON DUPLICATE KEY UPDATE username = username");
+                idx = 1;
+                for (Student st : fresh) {
+                    pstmt.setString(idx++, st.getRollNo());
+                    pstmt.setString(idx++, st.getRollNo());
+                }
+                pstmt.executeUpdate();
+                pstmt.close();
+
+                pstmt = conn.prepareStatement("INSERT INTO attendance (roll_no, total_periods, present_periods) VALUES "
+                        + repeat("(?, 0, 0)", fresh.size())
+                        + " ON DUPLICATE KEY UPDATE roll_no = roll_no");
+                idx = 1;
+                for (Student st : fresh)
+                    pstmt.setString(idx++, st.getRollNo());
+                pstmt.executeUpdate();
             }
 
+            conn.commit();
+            for (Student st : fresh)
+                CLASS_ROSTERS.invalidate(st.getClassName());
+            return fresh.size();
+
         } catch (SQLException e) {
-            UIHelper.printError("ERROR while adding student: " + e.getMessage());
+            try {
+                conn.rollback();
+            } catch (SQLException ex) {
+            }
+            throw e;
 
         } finally {
-            closeResources(conn, checkStmt, rs);
-            closeStatement(insertStmt);
+            try {
+                conn.setAutoCommit(true);
+            } catch (SQLException ex) {
+            }
+            try {
+                if (rs != null)
+                    rs.close();
+            } catch (SQLException e) {
+            }
+            closeStatement(pstmt);
         }
     }
 
@@ -72,68 +337,136 @@ public class StudentDAO {
     // 2. UPDATE STUDENT
     // =====================================================
     public void updateStudent(Student student) {
-        Connection conn = null;
-        PreparedStatement pstmt = null;
-
+        long started = UPDATE_STUDENT.start();
         try {
-            conn = DBConnection.getConnection();
-            if (conn == null)
-                return;
+            Connection conn = null;
+
+            try {
+                conn = DBConnection.getConnection();
+                if (conn == null)
+                    return;
+
+                // Retried if it deadlocks with a terminal marking this student
+                boolean updated = TransactionRetry.run(conn, c -> updateStudentRows(c, student));
+
+                if (updated) {
+                    invalidateRosters(student.getRollNo());
+                    CLASS_ROSTERS.invalidate(student.getClassName());
+                    UIHelper.printSuccess("Student updated successfully!");
+                    System.out.println(UIHelper.CYAN + "  " + student + UIHelper.RESET);
+                } else {
+                    UIHelper.printError("No student found with Roll No: " + student.getRollNo());
+                }
+
+            } catch (SQLException e) {
+                Metrics.recordFailure(e);
+                UIHelper.printError("ERROR while updating student: " + e.getMessage());
+            } finally {
+                closeResources(conn, null, null);
+            }
+        } finally {
+            UPDATE_STUDENT.stop(started);
+        }
+    }
 
-            String sql = "UPDATE students SET name = ?, class_name = ?, department = ? WHERE roll_no = ?";
-            pstmt = conn.prepareStatement(sql);
+    private boolean updateStudentRows(Connection conn, Student student) throws SQLException {
+        String sql = "UPDATE students SET name = ?, class_name = ?, department = ? WHERE roll_no = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, student.getName());
             pstmt.setString(2, student.getClassName());
             pstmt.setString(3, student.getDepartment());
             pstmt.setString(4, student.getRollNo());
+            if (pstmt.executeUpdate() == 0)
+                return false;
+        }
 
-            int rowsUpdated = pstmt.executeUpdate();
-
-            if (rowsUpdated > 0) {
-                UIHelper.printSuccess("Student updated successfully!");
-                System.out.println(UIHelper.CYAN + "  " + student + UIHelper.RESET);
-            } else {
-                UIHelper.printError("No student found with Roll No: " + student.getRollNo());
-            }
-
-        } catch (SQLException e) {
-            UIHelper.printError("ERROR while updating student: " + e.getMessage());
+        // Keep the class/department copied onto attendance_log in step,
+        // so section reports follow the student to the new class
+        String logSQL = "UPDATE attendance_log SET class_name = ?, department = ? "
+                + "WHERE roll_no = ? AND NOT (class_name <=> ? AND department <=> ?)";
+        try (PreparedStatement logStmt = conn.prepareStatement(logSQL)) {
+            logStmt.setString(1, student.getClassName());
+            logStmt.setString(2, student.getDepartment());
+            logStmt.setString(3, student.getRollNo());
+            logStmt.setString(4, student.getClassName());
+            logStmt.setString(5, student.getDepartment());
+            logStmt.executeUpdate();
+        }
 
-        } finally {
-            closeResources(conn, pstmt, null);
+        // ...and the daily rollup, which is keyed by class
+        try (PreparedStatement logStmt = conn.prepareStatement("UPDATE daily_attendance SET class_name = ? "
+                + "WHERE roll_no = ? AND class_name <> ?")) {
+            logStmt.setString(1, student.getClassName());
+            logStmt.setString(2, student.getRollNo());
+            logStmt.setString(3, student.getClassName());
+            logStmt.executeUpdate();
         }
+        return true;
     }
 
     // =====================================================
     // 3. DELETE STUDENT
     // =====================================================
     public void deleteStudent(String rollNo) {
-        Connection conn = null;
-        PreparedStatement pstmt = null;
-
+        long started = DELETE_STUDENT.start();
         try {
-            conn = DBConnection.getConnection();
-            if (conn == null)
-                return;
+            Connection conn = null;
+            PreparedStatement pstmt = null;
 
-            String sql = "DELETE FROM students WHERE roll_no = ?";
-            pstmt = conn.prepareStatement(sql);
-            pstmt.setString(1, rollNo);
+            try {
+                conn = DBConnection.getConnection();
+                if (conn == null)
+                    return;
 
-            int rowsDeleted = pstmt.executeUpdate();
+                conn.setAutoCommit(false);
 
-            if (rowsDeleted > 0) {
-                UIHelper.printSuccess("Student with Roll No " + rollNo + " deleted successfully!");
-                UIHelper.printInfo("(Attendance records also removed automatically)");
-            } else {
-                UIHelper.printError("No student found with Roll No: " + rollNo);
-            }
+                // attendance_log may be partitioned, which rules out its foreign
+                // key, so log and archive rows are removed explicitly
+                pstmt = conn.prepareStatement("DELETE FROM attendance_log WHERE roll_no = ?");
+                pstmt.setString(1, rollNo);
+                pstmt.executeUpdate();
+                pstmt.close();
 
-        } catch (SQLException e) {
-            UIHelper.printError("ERROR while deleting student: " + e.getMessage());
+                pstmt = conn.prepareStatement("DELETE FROM attendance_log_archive WHERE roll_no = ?");
+                pstmt.setString(1, rollNo);
+                pstmt.executeUpdate();
+                pstmt.close();
 
+                String sql = "DELETE FROM students WHERE roll_no = ?";
+                pstmt = conn.prepareStatement(sql);
+                pstmt.setString(1, rollNo);
+
+                int rowsDeleted = pstmt.executeUpdate();
+                conn.commit();
+
+                if (rowsDeleted > 0) {
+                    KNOWN_STUDENTS.invalidate(rollNo);
+                    invalidateRosters(rollNo);
+                    UIHelper.printSuccess("Student with Roll No " + rollNo + " deleted successfully!");
+                    UIHelper.printInfo("(Attendance records also removed automatically)");
+                } else {
+                    UIHelper.printError("No student found with Roll No: " + rollNo);
+                }
+
+            } catch (SQLException e) {
+                try {
+                    if (conn != null)
+                        conn.rollback();
+                } catch (SQLException ex) {
+                }
+                Metrics.recordFailure(e);
+                UIHelper.printError("ERROR while deleting student: " + e.getMessage());
+
+            } finally {
+                try {
+                    if (conn != null)
+                        conn.setAutoCommit(true);
+                } catch (SQLException ex) {
+                }
+                closeResources(conn, pstmt, null);
+            }
         } finally {
-            closeResources(conn, pstmt, null);
+            DELETE_STUDENT.stop(started);
         }
     }
 
@@ -141,69 +474,158 @@ public class StudentDAO {
     // 4. SEARCH STUDENT
     // =====================================================
     public List<Student> searchStudent(String keyword) {
-        List<Student> results = new ArrayList<>();
-        Connection conn = null;
-        PreparedStatement pstmt = null;
-        ResultSet rs = null;
+        return searchStudent(keyword, SEARCH_LIMIT);
+    }
+
+    /**
+     * Ranked search, best matches first:
+     * 1. exact roll number (primary key lookup)
+     * 2. roll number prefix (primary key range)
+     * 3. name prefix (idx_students_name range)
+     * 4. any word of the name (FULLTEXT ft_students_name, by relevance)
+     * Every branch is index-driven and capped at the limit.
+     */
+    public List<Student> searchStudent(String keyword, int limit) {
+        long started = SEARCH_STUDENT.start();
+        try {
+            List<Student> results = new ArrayList<>();
+            Connection conn = null;
+            PreparedStatement pstmt = null;
+            ResultSet rs = null;
+
+            try {
+                conn = DBConnection.getConnection();
+                if (conn == null)
+                    return results;
+
+                String prefix = escapeLike(keyword) + "%";
+                String fullText = toFullTextQuery(keyword);
+
+                String sql = "(SELECT roll_no, name, class_name, department, 0 AS match_rank, 0 AS score "
+                        + "FROM students WHERE roll_no = ?) "
+                        + "UNION ALL "
+                        + "(SELECT roll_no, name, class_name, department, 1, 0 "
+                        + "FROM students WHERE roll_no LIKE ? ORDER BY roll_no LIMIT ?) "
+                        + "UNION ALL "
+                        + "(SELECT roll_no, name, class_name, department, 2, 0 "
+                        + "FROM students WHERE name LIKE ? ORDER BY name LIMIT ?) ";
+                if (fullText != null) {
+                    sql += "UNION ALL "
+                            + "(SELECT roll_no, name, class_name, department, 3, "
+                            + "MATCH(name) AGAINST (? IN BOOLEAN MODE) AS score "
+                            + "FROM students WHERE MATCH(name) AGAINST (? IN BOOLEAN MODE) "
+                            + "ORDER BY score DESC LIMIT ?) ";
+                }
+                sql += "ORDER BY match_rank ASC, score DESC, roll_no ASC";
+
+                pstmt = conn.prepareStatement(sql);
+                pstmt.setString(1, keyword);
+                pstmt.setString(2, prefix);
+                pstmt.setInt(3, limit);
+                pstmt.setString(4, prefix);
+                pstmt.setInt(5, limit);
+                if (fullText != null) {
+                    pstmt.setString(6, fullText);
+                    pstmt.setString(7, fullText);
+                    pstmt.setInt(8, limit);
+                }
+
+                rs = pstmt.executeQuery();
+
+                // A student can match several branches; keep the best-ranked hit
+                Set<String> seen = new HashSet<>();
+                while (rs.next() && results.size() < limit) {
+                    if (seen.add(rs.getString("roll_no")))
+                        results.add(mapStudent(rs));
+                }
+
+            } catch (SQLException e) {
+                Metrics.recordFailure(e);
+                UIHelper.printError("ERROR while searching: " + e.getMessage());
+
+            } finally {
+                closeResources(conn, pstmt, rs);
+            }
+
+            return results;
+        } finally {
+            SEARCH_STUDENT.stop(started);
+        }
+    }
 
+    // =====================================================
+    // 4a. GET STUDENT BY ROLL NO (exact, primary key)
+    // =====================================================
+    public Student getStudent(String rollNo) {
+        long started = GET_STUDENT.start();
         try {
-            conn = DBConnection.getConnection();
-            if (conn == null)
-                return results;
+            Connection conn = null;
+            PreparedStatement pstmt = null;
+            ResultSet rs = null;
 
-            // Search by roll number (exact or partial) or name (partial LIKE match)
-            String sql = "SELECT * FROM students WHERE roll_no LIKE ? OR name LIKE ?";
-            pstmt = conn.prepareStatement(sql);
-            pstmt.setString(1, "%" + keyword + "%");
-            pstmt.setString(2, "%" + keyword + "%");
+            try {
+                conn = DBConnection.getConnection();
+                if (conn == null)
+                    return null;
 
-            rs = pstmt.executeQuery();
+                String sql = "SELECT roll_no, name, class_name, department FROM students WHERE roll_no = ?";
+                pstmt = conn.prepareStatement(sql);
+                pstmt.setString(1, rollNo);
+                rs = pstmt.executeQuery();
 
-            while (rs.next()) {
-                Student student = new Student();
-                student.setRollNo(rs.getString("roll_no"));
-                student.setName(rs.getString("name"));
-                student.setClassName(rs.getString("class_name"));
-                student.setDepartment(rs.getString("department"));
-                results.add(student);
-            }
+                return rs.next() ? mapStudent(rs) : null;
 
-        } catch (SQLException e) {
-            UIHelper.printError("ERROR while searching: " + e.getMessage());
+            } catch (SQLException e) {
+                Metrics.recordFailure(e);
+                UIHelper.printError("ERROR while fetching student: " + e.getMessage());
+                return null;
 
+            } finally {
+                closeResources(conn, pstmt, rs);
+            }
         } finally {
-            closeResources(conn, pstmt, rs);
+            GET_STUDENT.stop(started);
         }
-
-        return results;
     }
 
     // =====================================================
     // 5. CHECK IF STUDENT EXISTS
     // =====================================================
     public boolean studentExists(String rollNo) {
-        Connection conn = null;
-        PreparedStatement pstmt = null;
-        ResultSet rs = null;
-
+        long started = STUDENT_EXISTS.start();
         try {
-            conn = DBConnection.getConnection();
-            if (conn == null)
+            if (KNOWN_STUDENTS.get(rollNo) != null)
+                return true;
+
+            Connection conn = null;
+            PreparedStatement pstmt = null;
+            ResultSet rs = null;
+
+            try {
+                conn = DBConnection.getConnection();
+                if (conn == null)
+                    return DBConnection.isUnreachable() && OfflineSnapshot.getStudent(rollNo) != null;
+
+                String sql = "SELECT roll_no FROM students WHERE roll_no = ?";
+                pstmt = conn.prepareStatement(sql);
+                pstmt.setString(1, rollNo);
+                rs = pstmt.executeQuery();
+
+                boolean exists = rs.next();
+                if (exists)
+                    KNOWN_STUDENTS.put(rollNo, Boolean.TRUE);
+                return exists;
+
+            } catch (SQLException e) {
+                Metrics.recordFailure(e);
+                UIHelper.printError("ERROR: " + e.getMessage());
                 return false;
 
-            String sql = "SELECT roll_no FROM students WHERE roll_no = ?";
-            pstmt = conn.prepareStatement(sql);
-            pstmt.setString(1, rollNo);
-            rs = pstmt.executeQuery();
-
-            return rs.next();
-
-        } catch (SQLException e) {
-            UIHelper.printError("ERROR: " + e.getMessage());
-            return false;
-
+            } finally {
+                closeResources(conn, pstmt, rs);
+            }
         } finally {
-            closeResources(conn, pstmt, rs);
+            STUDENT_EXISTS.stop(started);
         }
     }
 
@@ -211,62 +633,167 @@ public class StudentDAO {
     // 6. GET STUDENTS BY CLASS (For Batch Attendance)
     // =====================================================
     public List<String> getStudentsByClass(String className) {
-        List<String> rollNumbers = new ArrayList<>();
-        Connection conn = null;
-        PreparedStatement pstmt = null;
-        ResultSet rs = null;
-
+        long started = STUDENTS_BY_CLASS.start();
         try {
-            conn = DBConnection.getConnection();
-            if (conn == null)
-                return rollNumbers;
-
-            String sql = "SELECT roll_no FROM students WHERE class_name = ?";
-            pstmt = conn.prepareStatement(sql);
-            pstmt.setString(1, className);
-            rs = pstmt.executeQuery();
-
-            while (rs.next()) {
-                rollNumbers.add(rs.getString("roll_no"));
+            List<String> cached = CLASS_ROSTERS.get(className);
+            if (cached != null)
+                return new ArrayList<>(cached);
+
+            List<String> rollNumbers = new ArrayList<>();
+            Connection conn = null;
+            PreparedStatement pstmt = null;
+            ResultSet rs = null;
+
+            try {
+                conn = DBConnection.getConnection();
+                if (conn == null) {
+                    if (!DBConnection.isUnreachable())
+                        return rollNumbers;
+                    // Offline: roll call still works from the local snapshot
+                    rollNumbers.addAll(OfflineSnapshot.getRoster(className));
+                    if (!rollNumbers.isEmpty())
+                        UIHelper.printWarning("Database unreachable - using the offline roster of " + className + ".");
+                    return rollNumbers;
+                }
+
+                pstmt = conn.prepareStatement(STUDENTS_BY_CLASS_SQL);
+                pstmt.setString(1, className);
+                rs = pstmt.executeQuery();
+
+                while (rs.next()) {
+                    rollNumbers.add(rs.getString("roll_no"));
+                }
+
+                if (!rollNumbers.isEmpty()) {
+                    CLASS_ROSTERS.put(className, Collections.unmodifiableList(new ArrayList<>(rollNumbers)));
+                    for (String rollNo : rollNumbers)
+                        KNOWN_STUDENTS.put(rollNo, Boolean.TRUE);
+                }
+
+            } catch (SQLException e) {
+                Metrics.recordFailure(e);
+                UIHelper.printError("ERROR while fetching class students: " + e.getMessage());
+
+            } finally {
+                closeResources(conn, pstmt, rs);
             }
 
-        } catch (SQLException e) {
-            UIHelper.printError("ERROR while fetching class students: " + e.getMessage());
-
+            return rollNumbers;
         } finally {
-            closeResources(conn, pstmt, rs);
+            STUDENTS_BY_CLASS.stop(started);
         }
-
-        return rollNumbers;
     }
 
     // =====================================================
     // 7. CREATE STUDENT LOGIN ACCOUNT
     // =====================================================
     public void createStudentLogin(String rollNo) {
-        Connection conn = null;
-        PreparedStatement pstmt = null;
-
+        long started = CREATE_LOGIN.start();
         try {
-            conn = DBConnection.getConnection();
-            if (conn == null)
-                return;
+            Connection conn = null;
+            PreparedStatement pstmt = null;
 
-            String sql = "INSERT INTO users (username, password, role, roll_no) VALUES (?, 'student123', 'STUDENT', ?) "
-                    + "ON DUPLICATE KEY UPDATE username = username";
-            pstmt = conn.prepareStatement(sql);
-            pstmt.setString(1, rollNo);
-            pstmt.setString(2, rollNo);
-            pstmt.executeUpdate();
+            try {
+                conn = DBConnection.getConnection();
+                if (conn == null)
+                    return;
 
-            UIHelper.printInfo("Student login created: Username = " + rollNo + " | Password = student123");
+                pstmt = conn.prepareStatement(INSERT_LOGIN_SQL);
+                pstmt.setString(1, rollNo);
+                pstmt.setString(2, rollNo);
+                pstmt.executeUpdate();
 
-        } catch (SQLException e) {
-            UIHelper.printWarning("Could not create student login: " + e.getMessage());
+                UIHelper.printInfo("Student login created: Username = " + rollNo + " | Password = student123");
 
+            } catch (SQLException e) {
+                Metrics.recordFailure(e);
+                UIHelper.printWarning("Could not create student login: " + e.getMessage());
+
+            } finally {
+                closeResources(conn, pstmt, null);
+            }
         } finally {
-            closeResources(conn, pstmt, null);
+            CREATE_LOGIN.stop(started);
+        }
+    }
+
+    // =====================================================
+    // 8. ROSTER CACHE
+    // =====================================================
+
+    /**
+     * Drops every cached class roster that lists this roll number.
+     */
+    private static void invalidateRosters(String rollNo) {
+        CLASS_ROSTERS.invalidateIf((className, rolls) -> rolls.contains(rollNo));
+    }
+
+    /**
+     * Empties the roster cache, e.g. after a bulk change to students.
+     */
+    public static void invalidateRosterCache() {
+        CLASS_ROSTERS.invalidateAll();
+        KNOWN_STUDENTS.invalidateAll();
+    }
+
+    public static LruCache<String, List<String>> getClassRosterCache() {
+        return CLASS_ROSTERS;
+    }
+
+    public static LruCache<String, Boolean> getKnownStudentCache() {
+        return KNOWN_STUDENTS;
+    }
+
+    // =====================================================
+    // HELPER METHODS – Enrollment
+    // =====================================================
+    private static boolean isDuplicateKey(SQLException e) {
+        return e.getErrorCode() == ER_DUP_ENTRY;
+    }
+
+    /** "(?, ?)" repeated n times, comma separated. */
+    private static String repeat(String group, int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            if (i > 0)
+                sb.append(", ");
+            sb.append(group);
+        }
+        return sb.toString();
+    }
+
+    // =====================================================
+    // HELPER METHODS – Search
+    // =====================================================
+    private Student mapStudent(ResultSet rs) throws SQLException {
+        Student student = new Student();
+        student.setRollNo(rs.getString("roll_no"));
+        student.setName(rs.getString("name"));
+        student.setClassName(rs.getString("class_name"));
+        student.setDepartment(rs.getString("department"));
+        return student;
+    }
+
+    /** Escapes LIKE wildcards so user input is matched literally. */
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * Turns "ravi kum" into "+ravi* +kum*" for a boolean-mode FULLTEXT match.
+     * Words shorter than InnoDB's minimum token size (3) are left to the
+     * prefix branch. Returns null if no word is long enough.
+     */
+    private static String toFullTextQuery(String keyword) {
+        StringBuilder sb = new StringBuilder();
+        for (String word : keyword.split("[^\\p{L}\\p{N}]+")) {
+            if (word.length() < 3)
+                continue;
+            if (sb.length() > 0)
+                sb.append(' ');
+            sb.append('+').append(word).append('*');
         }
+        return sb.length() == 0 ? null : sb.toString();
     }
 
     // =====================================================
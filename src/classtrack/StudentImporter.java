@@ -0,0 +1,321 @@
+/*
+ * ============================================================
+ * ClassTrack – Student Attendance Management System
+ * File: StudentImporter.java
+ * Purpose: Streaming bulk enrollment of students from CSV (e.g. an
+ *          admissions spreadsheet). Creates or updates students,
+ *          their logins and summary rows in chunked transactions.
+ *
+ * CSV format (header row optional):
+ *   roll_no,name,class_name,department
+ *   24B11CS165,Ravi Kumar,CSE-1,Computer Science
+ * ============================================================
+ */
+
+package classtrack;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+public class StudentImporter {
+
+    public static final int DEFAULT_CHUNK_SIZE = Integer.getInteger("classtrack.enroll.chunkSize", 1000);
+
+    // 4 placeholders per student; keeps each statement well under
+    // MySQL's 65,535 prepared-statement parameter limit
+    private static final int MAX_CHUNK_SIZE = 10000;
+
+    private final int chunkSize;
+
+    // Outcome counters shown after the summary box
+    private long inserted;
+    private long updated;
+    private long unchanged;
+
+    public StudentImporter(int chunkSize) {
+        this.chunkSize = chunkSize > 0 ? Math.min(chunkSize, MAX_CHUNK_SIZE) : DEFAULT_CHUNK_SIZE;
+    }
+
+    /**
+     * One validated CSV row.
+     */
+    private static class Row {
+        final int lineNo;
+        final String[] fields;
+        final Student student;
+
+        Row(int lineNo, String[] fields, Student student) {
+            this.lineNo = lineNo;
+            this.fields = fields;
+            this.student = student;
+        }
+    }
+
+    // =====================================================
+    // IMPORT FILE
+    // =====================================================
+
+    /**
+     * Imports the given CSV file. Each chunk is committed on its own,
+     * so a failure part-way keeps the chunks already loaded.
+     *
+     * @return the progress report (also printed to the console)
+     */
+    public ImportReport importFile(String path) {
+        ImportReport report = new ImportReport(path);
+        Connection conn = null;
+
+        try (CsvReader csv = new CsvReader(path)) {
+            conn = DBConnection.getConnection();
+            if (conn == null)
+                return report;
+
+            UIHelper.printInfo("Enrolling from " + path + " in chunks of " + chunkSize + " students...");
+
+            // Keyed by roll number so a repeated row within a chunk is rejected
+            Map<String, Row> chunk = new LinkedHashMap<>();
+            boolean firstRecord = true;
+            String[] fields;
+            while ((fields = csv.readRecord()) != null) {
+                int lineNo = csv.getLineNumber();
+                if (firstRecord) {
+                    firstRecord = false;
+                    if (fields[0].equalsIgnoreCase("roll_no"))
+                        continue; // header
+                }
+
+                report.rowRead();
+                Row row = parse(lineNo, fields, report);
+                if (row == null)
+                    continue;
+
+                Row previous = chunk.get(row.student.getRollNo());
+                if (previous != null) {
+                    report.reject(lineNo, "duplicate of line " + previous.lineNo, fields);
+                    continue;
+                }
+                chunk.put(row.student.getRollNo(), row);
+
+                if (chunk.size() >= chunkSize) {
+                    loadChunk(conn, chunk, report);
+                    chunk.clear();
+                    report.printProgress();
+                }
+            }
+            if (!chunk.isEmpty())
+                loadChunk(conn, chunk, report);
+
+        } catch (IOException e) {
+            UIHelper.printError("Could not read file: " + e.getMessage());
+        } catch (SQLException e) {
+            UIHelper.printError("Enrollment stopped: " + e.getMessage());
+        } finally {
+            try {
+                if (conn != null)
+                    conn.close();
+            } catch (SQLException e) {
+            }
+        }
+
+        report.finish("STUDENT ENROLLMENT - " + path);
+        UIHelper.printInfo("New: " + inserted + " | Updated: " + updated + " | Unchanged: " + unchanged);
+        return report;
+    }
+
+    // =====================================================
+    // VALIDATION
+    // =====================================================
+    private Row parse(int lineNo, String[] f, ImportReport report) {
+        if (f.length < 4) {
+            report.reject(lineNo, "expected 4 columns: roll_no,name,class_name,department", f);
+            return null;
+        }
+
+        String rollNo = f[0];
+        if (rollNo.isEmpty() || rollNo.length() > 20) {
+            report.reject(lineNo, "invalid roll number", f);
+            return null;
+        }
+        if (f[1].isEmpty() || f[1].length() > 100) {
+            report.reject(lineNo, "name must be 1-100 characters", f);
+            return null;
+        }
+        if (f[2].isEmpty() || f[2].length() > 50) {
+            report.reject(lineNo, "class name must be 1-50 characters", f);
+            return null;
+        }
+        if (f[3].isEmpty() || f[3].length() > 100) {
+            report.reject(lineNo, "department must be 1-100 characters", f);
+            return null;
+        }
+
+        return new Row(lineNo, f, new Student(rollNo, f[1], f[2], f[3]));
+    }
+
+    // =====================================================
+    // CHUNK LOAD (one transaction)
+    // =====================================================
+    private void loadChunk(Connection conn, Map<String, Row> chunk, ImportReport report) throws SQLException {
+        List<Student> students = new ArrayList<>(chunk.size());
+        for (Row row : chunk.values())
+            students.add(row.student);
+
+        try {
+            conn.setAutoCommit(false);
+
+            // 1. Current class/department of the roll numbers that already exist
+            Map<String, String[]> existing = loadExisting(conn, students);
+
+            List<Student> changed = new ArrayList<>();
+            List<Student> moved = new ArrayList<>();
+            int newCount = 0;
+            for (Student st : students) {
+                String[] current = existing.get(st.getRollNo());
+                if (current == null) {
+                    changed.add(st);
+                    newCount++;
+                } else if (!Objects.equals(current[0], st.getName())
+                        || !Objects.equals(current[1], st.getClassName())
+                        || !Objects.equals(current[2], st.getDepartment())) {
+                    changed.add(st);
+                    if (!Objects.equals(current[1], st.getClassName())
+                            || !Objects.equals(current[2], st.getDepartment()))
+                        moved.add(st);
+                }
+            }
+
+            // 2. Multi-row upserts: students, then logins and summary rows
+            if (!changed.isEmpty())
+                upsertStudents(conn, changed);
+            insertLogins(conn, students);
+            insertSummaries(conn, students);
+
+            // 3. Keep the class/department copied onto attendance_log and the
+            // daily rollup in step
+            if (!moved.isEmpty())
+                syncLogClass(conn, moved);
+
+            conn.commit();
+            report.chunkCommitted(students.size());
+            inserted += newCount;
+            updated += changed.size() - newCount;
+            unchanged += students.size() - changed.size();
+
+        } catch (SQLException e) {
+            try {
+                conn.rollback();
+            } catch (SQLException ex) {
+            }
+            throw e;
+        } finally {
+            try {
+                conn.setAutoCommit(true);
+            } catch (SQLException ex) {
+            }
+            // New or moved students change class rosters
+            StudentDAO.invalidateRosterCache();
+        }
+    }
+
+    private Map<String, String[]> loadExisting(Connection conn, List<Student> students) throws SQLException {
+        Map<String, String[]> existing = new HashMap<>();
+        String sql = "SELECT roll_no, name, class_name, department FROM students WHERE roll_no IN ("
+                + placeholders(students.size(), "?") + ")";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int idx = 1;
+            for (Student st : students)
+                pstmt.setString(idx++, st.getRollNo());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    existing.put(rs.getString("roll_no"), new String[] {
+                            rs.getString("name"), rs.getString("class_name"), rs.getString("department") });
+                }
+            }
+        }
+        return existing;
+    }
+
+    private void upsertStudents(Connection conn, List<Student> students) throws SQLException {
+        String sql = "INSERT INTO students (roll_no, name, class_name, department) VALUES "
+                + placeholders(students.size(), "(?, ?, ?, ?)")
+                + " AS new ON DUPLICATE KEY UPDATE name = new.name, class_name = new.class_name, "
+                + "department = new.department";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int idx = 1;
+            for (Student st : students) {
+                pstmt.setString(idx++, st.getRollNo());
+                pstmt.setString(idx++, st.getName());
+                pstmt.setString(idx++, st.getClassName());
+                pstmt.setString(idx++, st.getDepartment());
+            }
+            pstmt.executeUpdate();
+        }
+    }
+
+    private void insertLogins(Connection conn, List<Student> students) throws SQLException {
+        String sql = "INSERT INTO users (username, password, role, roll_no) VALUES "
+                + placeholders(students.size(), "(?, 'student123', 'STUDENT', ?)")
+                + " ON DUPLICATE KEY UPDATE username = username";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int idx = 1;
+            for (Student st : students) {
+                pstmt.setString(idx++, st.getRollNo());
+                pstmt.setString(idx++, st.getRollNo());
+            }
+            pstmt.executeUpdate();
+        }
+    }
+
+    private void insertSummaries(Connection conn, List<Student> students) throws SQLException {
+        String sql = "INSERT INTO attendance (roll_no, total_periods, present_periods) VALUES "
+                + placeholders(students.size(), "(?, 0, 0)")
+                + " ON DUPLICATE KEY UPDATE roll_no = roll_no";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int idx = 1;
+            for (Student st : students)
+                pstmt.setString(idx++, st.getRollNo());
+            pstmt.executeUpdate();
+        }
+    }
+
+    private void syncLogClass(Connection conn, List<Student> moved) throws SQLException {
+        String sql = "UPDATE attendance_log al JOIN students s ON s.roll_no = al.roll_no "
+                + "SET al.class_name = s.class_name, al.department = s.department "
+                + "WHERE al.roll_no IN (" + placeholders(moved.size(), "?") + ")";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int idx = 1;
+            for (Student st : moved)
+                pstmt.setString(idx++, st.getRollNo());
+            pstmt.executeUpdate();
+        }
+
+        sql = "UPDATE daily_attendance d JOIN students s ON s.roll_no = d.roll_no "
+                + "SET d.class_name = s.class_name "
+                + "WHERE d.roll_no IN (" + placeholders(moved.size(), "?") + ") AND d.class_name <> s.class_name";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int idx = 1;
+            for (Student st : moved)
+                pstmt.setString(idx++, st.getRollNo());
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static String placeholders(int n, String group) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            if (i > 0)
+                sb.append(", ");
+            sb.append(group);
+        }
+        return sb.toString();
+    }
+}
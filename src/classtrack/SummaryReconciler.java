@@ -0,0 +1,351 @@
+/*
+ * ============================================================
+ * ClassTrack – Student Attendance Management System
+ * File: SummaryReconciler.java
+ * Purpose: Rebuilds the 'attendance' and 'subject_attendance'
+ *          summary tables from attendance_log for a class, a
+ *          department or everyone, and reports any rows that had
+ *          drifted.
+ * ============================================================
+ */
+
+package classtrack;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SummaryReconciler {
+
+    // Which students a run covers
+    public static final String SCOPE_ALL = "all";
+    public static final String SCOPE_CLASS = "class";
+    public static final String SCOPE_DEPARTMENT = "department";
+
+    // Rows per multi-row upsert when writing corrected totals
+    private static final int WRITE_CHUNK = 1000;
+
+    // Discrepancies listed on screen; the rest are only counted
+    private static final int MAX_SHOWN = 25;
+
+    /**
+     * One summary row whose stored totals disagree with attendance_log.
+     */
+    private static class Discrepancy {
+        final String rollNo;
+        final int storedTotal;
+        final int storedPresent;
+        final int actualTotal;
+        final int actualPresent;
+
+        Discrepancy(String rollNo, int storedTotal, int storedPresent, int actualTotal, int actualPresent) {
+            this.rollNo = rollNo;
+            this.storedTotal = storedTotal;
+            this.storedPresent = storedPresent;
+            this.actualTotal = actualTotal;
+            this.actualPresent = actualPresent;
+        }
+    }
+
+    // =====================================================
+    // RECONCILE
+    // =====================================================
+
+    /**
+     * Recomputes totals for the scope and rewrites the rows that differ.
+     *
+     * @param scope       SCOPE_ALL, SCOPE_CLASS or SCOPE_DEPARTMENT
+     * @param value       class or department name (ignored for SCOPE_ALL)
+     * @param incremental only look at students whose log rows changed since
+     *                    the last run for this scope (deleted log rows are
+     *                    not seen this way; use a full run after deletes)
+     * @param apply       false = report discrepancies without fixing them
+     * @return number of discrepancies found, or -1 on error
+     */
+    public int reconcile(String scope, String value, boolean incremental, boolean apply) {
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        String watermarkKey = "summary:" + scope + (SCOPE_ALL.equals(scope) ? "" : ":" + value);
+
+        try {
+            conn = DBConnection.getConnection();
+            if (conn == null)
+                return -1;
+
+            Timestamp since = incremental ? readWatermark(conn, watermarkKey) : null;
+            if (incremental && since == null)
+                UIHelper.printInfo("No previous run for this scope - checking all students.");
+
+            Timestamp runStartedAt = currentDbTime(conn);
+            conn.setAutoCommit(false);
+
+            // 1. Lock the summary rows in scope so concurrent marks queue
+            // behind the rebuild instead of being overwritten by it
+            String where = buildScopeFilter(scope, since);
+            if (apply) {
+                pstmt = conn.prepareStatement("SELECT a.roll_no FROM attendance a "
+                        + "JOIN students s ON s.roll_no = a.roll_no WHERE " + where + " FOR UPDATE");
+                bindScope(pstmt, scope, value, since);
+                pstmt.executeQuery().close();
+                pstmt.close();
+            }
+
+            // 2. Recompute every student in scope with one statement. Archived
+            // semesters still count towards the totals, so each student's
+            // live, archived and cold-storage rows are counted by index
+            // range on roll_no.
+            String sql = "SELECT * FROM (SELECT s.roll_no, "
+                    + "COALESCE(a.total_periods, 0) AS stored_total, "
+                    + "COALESCE(a.present_periods, 0) AS stored_present, "
+                    + "(SELECT COUNT(*) FROM attendance_log al WHERE al.roll_no = s.roll_no) "
+                    + "+ (SELECT COUNT(*) FROM attendance_log_archive ar WHERE ar.roll_no = s.roll_no) "
+                    + "+ (SELECT COALESCE(SUM(c.total_periods), 0) FROM attendance_cold_totals c "
+                    + "WHERE c.roll_no = s.roll_no) AS actual_total, "
+                    + "(SELECT COUNT(*) FROM attendance_log al WHERE al.roll_no = s.roll_no AND al.status = 'P') "
+                    + "+ (SELECT COUNT(*) FROM attendance_log_archive ar WHERE ar.roll_no = s.roll_no AND ar.status = 'P') "
+                    + "+ (SELECT COALESCE(SUM(c.present_periods), 0) FROM attendance_cold_totals c "
+                    + "WHERE c.roll_no = s.roll_no) AS actual_present "
+                    + "FROM students s "
+                    + "LEFT JOIN attendance a ON a.roll_no = s.roll_no "
+                    + "WHERE " + where + ") t "
+                    + "WHERE stored_total <> actual_total OR stored_present <> actual_present "
+                    + "ORDER BY roll_no";
+            pstmt = conn.prepareStatement(sql);
+            bindScope(pstmt, scope, value, since);
+            rs = pstmt.executeQuery();
+
+            List<Discrepancy> found = new ArrayList<>();
+            while (rs.next()) {
+                found.add(new Discrepancy(rs.getString("roll_no"),
+                        rs.getInt("stored_total"), rs.getInt("stored_present"),
+                        rs.getInt("actual_total"), rs.getInt("actual_present")));
+            }
+
+            // 3. Write corrected totals back in multi-row upserts
+            if (apply) {
+                writeCorrections(conn, found);
+                rebuildSubjectSummary(conn, scope, value, since);
+                writeWatermark(conn, watermarkKey, runStartedAt);
+            }
+            conn.commit();
+
+            printReport(scope, value, found, apply);
+            return found.size();
+
+        } catch (SQLException e) {
+            UIHelper.printError("ERROR while rebuilding summary: " + e.getMessage());
+            try {
+                if (conn != null)
+                    conn.rollback();
+            } catch (SQLException ex) {
+            }
+            return -1;
+        } finally {
+            try {
+                if (rs != null)
+                    rs.close();
+            } catch (SQLException e) {
+            }
+            try {
+                if (pstmt != null)
+                    pstmt.close();
+            } catch (SQLException e) {
+            }
+            try {
+                if (conn != null) {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                }
+            } catch (SQLException e) {
+            }
+        }
+    }
+
+    private void writeCorrections(Connection conn, List<Discrepancy> rows) throws SQLException {
+        for (int start = 0; start < rows.size(); start += WRITE_CHUNK) {
+            List<Discrepancy> chunk = rows.subList(start, Math.min(rows.size(), start + WRITE_CHUNK));
+
+            StringBuilder sql = new StringBuilder(
+                    "INSERT INTO attendance (roll_no, total_periods, present_periods) VALUES ");
+            for (int i = 0; i < chunk.size(); i++)
+                sql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+            sql.append(" AS new ON DUPLICATE KEY UPDATE total_periods = new.total_periods, "
+                    + "present_periods = new.present_periods");
+
+            PreparedStatement pstmt = conn.prepareStatement(sql.toString());
+            try {
+                int idx = 1;
+                for (Discrepancy d : chunk) {
+                    pstmt.setString(idx++, d.rollNo);
+                    pstmt.setInt(idx++, d.actualTotal);
+                    pstmt.setInt(idx++, d.actualPresent);
+                }
+                pstmt.executeUpdate();
+            } finally {
+                pstmt.close();
+            }
+        }
+    }
+
+    /**
+     * Recomputes subject_attendance for the scope in place: one grouped
+     * upsert from the log, its archive and the cold-storage totals, then
+     * removal of subjects with nothing left in any of them. The scope is
+     * applied inside each UNION branch, so a class, department or
+     * incremental rebuild reads only its students' rows by roll_no.
+     */
+    private void rebuildSubjectSummary(Connection conn, String scope, String value, Timestamp since)
+            throws SQLException {
+        String where = buildScopeFilter(scope, since);
+        String inScope = " WHERE roll_no IN (SELECT s.roll_no FROM students s WHERE " + where + ")";
+
+        PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO subject_attendance (roll_no, subject, total_periods, present_periods) "
+                        + "SELECT * FROM (SELECT al.roll_no, COALESCE(al.subject, 'General') AS subject, "
+                        + "SUM(al.total) AS total_periods, SUM(al.present) AS present_periods "
+                        + "FROM (SELECT roll_no, subject, 1 AS total, status = 'P' AS present FROM attendance_log"
+                        + inScope
+                        + " UNION ALL SELECT roll_no, subject, 1, status = 'P' FROM attendance_log_archive"
+                        + inScope
+                        + " UNION ALL SELECT roll_no, subject, total_periods, present_periods "
+                        + "FROM attendance_cold_totals" + inScope + ") al "
+                        + "GROUP BY al.roll_no, COALESCE(al.subject, 'General')) AS new "
+                        + "ON DUPLICATE KEY UPDATE total_periods = new.total_periods, "
+                        + "present_periods = new.present_periods");
+        try {
+            int idx = 1;
+            for (int branch = 0; branch < 3; branch++)
+                idx = bindScope(pstmt, idx, scope, value, since);
+            pstmt.executeUpdate();
+        } finally {
+            pstmt.close();
+        }
+
+        pstmt = conn.prepareStatement(
+                "DELETE sa FROM subject_attendance sa JOIN students s ON s.roll_no = sa.roll_no "
+                        + "WHERE " + where + " AND NOT EXISTS (SELECT 1 FROM attendance_log al "
+                        + "WHERE al.roll_no = sa.roll_no AND COALESCE(al.subject, 'General') = sa.subject) "
+                        + "AND NOT EXISTS (SELECT 1 FROM attendance_log_archive ar "
+                        + "WHERE ar.roll_no = sa.roll_no AND COALESCE(ar.subject, 'General') = sa.subject) "
+                        + "AND NOT EXISTS (SELECT 1 FROM attendance_cold_totals c "
+                        + "WHERE c.roll_no = sa.roll_no AND c.subject = sa.subject)");
+        try {
+            bindScope(pstmt, scope, value, since);
+            pstmt.executeUpdate();
+        } finally {
+            pstmt.close();
+        }
+    }
+
+    // =====================================================
+    // SCOPE FILTER
+    // =====================================================
+    private String buildScopeFilter(String scope, Timestamp since) {
+        String where;
+        if (SCOPE_CLASS.equals(scope))
+            where = "s.class_name = ?";
+        else if (SCOPE_DEPARTMENT.equals(scope))
+            where = "s.department = ?";
+        else
+            where = "1 = 1";
+
+        if (since != null)
+            where += " AND s.roll_no IN (SELECT roll_no FROM attendance_log WHERE updated_at >= ?)";
+        return where;
+    }
+
+    private void bindScope(PreparedStatement pstmt, String scope, String value, Timestamp since)
+            throws SQLException {
+        bindScope(pstmt, 1, scope, value, since);
+    }
+
+    // Binds from idx on; returns the next free index
+    private int bindScope(PreparedStatement pstmt, int idx, String scope, String value, Timestamp since)
+            throws SQLException {
+        if (!SCOPE_ALL.equals(scope))
+            pstmt.setString(idx++, value);
+        if (since != null)
+            pstmt.setTimestamp(idx++, since);
+        return idx;
+    }
+
+    // =====================================================
+    // WATERMARKS (last successful run per scope)
+    // =====================================================
+    private Timestamp readWatermark(Connection conn, String key) throws SQLException {
+        PreparedStatement pstmt = conn.prepareStatement("SELECT last_run FROM maintenance_watermark WHERE name = ?");
+        try {
+            pstmt.setString(1, key);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? rs.getTimestamp(1) : null;
+        } finally {
+            pstmt.close();
+        }
+    }
+
+    private void writeWatermark(Connection conn, String key, Timestamp value) throws SQLException {
+        PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO maintenance_watermark (name, last_run) VALUES (?, ?) "
+                        + "AS new ON DUPLICATE KEY UPDATE last_run = new.last_run");
+        try {
+            pstmt.setString(1, key);
+            pstmt.setTimestamp(2, value);
+            pstmt.executeUpdate();
+        } finally {
+            pstmt.close();
+        }
+    }
+
+    private Timestamp currentDbTime(Connection conn) throws SQLException {
+        PreparedStatement pstmt = conn.prepareStatement("SELECT NOW()");
+        try {
+            ResultSet rs = pstmt.executeQuery();
+            rs.next();
+            return rs.getTimestamp(1);
+        } finally {
+            pstmt.close();
+        }
+    }
+
+    // =====================================================
+    // REPORT
+    // =====================================================
+    private void printReport(String scope, String value, List<Discrepancy> found, boolean applied) {
+        int w = 84;
+        String border = "═".repeat(w);
+        String title = "SUMMARY RECONCILIATION - " + (SCOPE_ALL.equals(scope) ? "ALL STUDENTS" : value);
+
+        System.out.println("\n╔" + border + "╗");
+        int leftPad = Math.max(0, (w - title.length()) / 2);
+        System.out.printf("║%-" + w + "s║%n", " ".repeat(leftPad) + title);
+        System.out.println("╠" + border + "╣");
+        System.out.printf("║%-" + w + "s║%n", String.format("  %-16s %-16s %-18s %-18s",
+                "Roll No", "Stored Total", "Stored Present", "Actual (Tot/Pres)"));
+        System.out.println("╠" + border + "╣");
+
+        for (int i = 0; i < found.size() && i < MAX_SHOWN; i++) {
+            Discrepancy d = found.get(i);
+            System.out.printf("║%-" + w + "s║%n", String.format("  %-16s %-16d %-18d %d / %d",
+                    d.rollNo, d.storedTotal, d.storedPresent, d.actualTotal, d.actualPresent));
+        }
+        if (found.size() > MAX_SHOWN) {
+            System.out.printf("║%-" + w + "s║%n", "  ... and " + (found.size() - MAX_SHOWN) + " more");
+        }
+        if (found.isEmpty()) {
+            System.out.printf("║%-" + w + "s║%n", "  No discrepancies - summary matches attendance_log.");
+        }
+        System.out.println("╚" + border + "╝");
+
+        if (!found.isEmpty()) {
+            if (applied)
+                UIHelper.printSuccess("Corrected " + found.size() + " summary row(s).");
+            else
+                UIHelper.printWarning(found.size() + " summary row(s) differ. Run again with fixes enabled to correct them.");
+        }
+    }
+}
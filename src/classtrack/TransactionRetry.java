@@ -0,0 +1,201 @@
+/*
+ * ============================================================
+ * ClassTrack – Student Attendance Management System
+ * File: TransactionRetry.java
+ * Purpose: Runs a unit of work as one transaction and re-runs it
+ *          when InnoDB aborts it for a deadlock or lock-wait
+ *          timeout, with capped exponential backoff. Keeps
+ *          counters for the System Status screen.
+ * ============================================================
+ */
+
+package classtrack;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class TransactionRetry {
+
+    // ----- MySQL error codes -----
+    static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+    static final int ER_LOCK_DEADLOCK = 1213;
+    static final int ER_DUP_ENTRY = 1062;
+
+    // ----- Configuration (system properties) -----
+    public static final int MAX_RETRIES = Integer.getInteger("classtrack.tx.maxRetries", 4);
+    private static final long BASE_BACKOFF_MS = Long.getLong("classtrack.tx.backoffMs", 20);
+    private static final long MAX_BACKOFF_MS = 1000;
+
+    // ----- Counters (all terminals in this JVM) -----
+    private static final AtomicLong transactions = new AtomicLong();
+    private static final AtomicLong retries = new AtomicLong();
+    private static final AtomicLong deadlocks = new AtomicLong();
+    private static final AtomicLong lockTimeouts = new AtomicLong();
+    private static final AtomicLong conflicts = new AtomicLong();
+    private static final AtomicLong failures = new AtomicLong();
+
+    static {
+        Metrics.counter("classtrack_tx_total", "Marking and edit transactions started", transactions::get);
+        Metrics.counter("classtrack_tx_retries_total", "Transactions re-run after a lock error", retries::get);
+        Metrics.counter("classtrack_tx_lock_errors_total", "Lock errors that aborted a transaction", deadlocks::get,
+                "error", "deadlock");
+        Metrics.counter("classtrack_tx_lock_errors_total", "Lock errors that aborted a transaction",
+                lockTimeouts::get, "error", "lock_wait_timeout");
+        Metrics.counter("classtrack_tx_lock_errors_total", "Lock errors that aborted a transaction",
+                conflicts::get, "error", "duplicate_key");
+        Metrics.counter("classtrack_tx_failures_total", "Transactions that gave up after all retries",
+                failures::get);
+    }
+
+    private TransactionRetry() {
+    }
+
+    /**
+     * One transaction's statements. May run more than once, so it must
+     * not keep state between attempts or print before it succeeds.
+     */
+    @FunctionalInterface
+    public interface Work<T> {
+        T run(Connection conn) throws SQLException;
+    }
+
+    /**
+     * Runs the work in a READ COMMITTED transaction on the given
+     * connection and commits it, retrying deadlocks and lock-wait
+     * timeouts. The connection's auto-commit and isolation level are
+     * restored afterwards.
+     *
+     * @throws SQLException the last error once retries are used up, or
+     *                      any error that is not worth retrying
+     */
+    public static <T> T run(Connection conn, Work<T> work) throws SQLException {
+        return run(conn, false, work);
+    }
+
+    /**
+     * As {@link #run(Connection, Work)}, but a duplicate-key error is
+     * also retried: the work re-reads what a concurrent transaction
+     * committed and skips it. Used by batch marking, which checks for
+     * existing rows before inserting.
+     */
+    public static <T> T runRetryingConflicts(Connection conn, Work<T> work) throws SQLException {
+        return run(conn, true, work);
+    }
+
+    private static <T> T run(Connection conn, boolean retryConflicts, Work<T> work) throws SQLException {
+        transactions.incrementAndGet();
+        int previousIsolation = conn.getTransactionIsolation();
+
+        try {
+            // No gap locks on the unique-key checks done by the upserts, so
+            // concurrent marks of neighbouring roll numbers don't block
+            conn.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            conn.setAutoCommit(false);
+
+            for (int attempt = 0;; attempt++) {
+                try {
+                    T result = work.run(conn);
+                    conn.commit();
+                    return result;
+                } catch (SQLException e) {
+                    rollbackQuietly(conn);
+
+                    int code = errorCode(e);
+                    boolean retryable = code == ER_LOCK_DEADLOCK || code == ER_LOCK_WAIT_TIMEOUT
+                            || (retryConflicts && code == ER_DUP_ENTRY);
+                    if (!retryable || attempt >= MAX_RETRIES) {
+                        if (retryable)
+                            failures.incrementAndGet();
+                        throw e;
+                    }
+
+                    if (code == ER_LOCK_DEADLOCK)
+                        deadlocks.incrementAndGet();
+                    else if (code == ER_LOCK_WAIT_TIMEOUT)
+                        lockTimeouts.incrementAndGet();
+                    else
+                        conflicts.incrementAndGet();
+                    retries.incrementAndGet();
+                    backoff(attempt);
+                }
+            }
+        } finally {
+            try {
+                conn.setAutoCommit(true);
+                conn.setTransactionIsolation(previousIsolation);
+            } catch (SQLException ex) {
+            }
+        }
+    }
+
+    /**
+     * MySQL error code of the exception or, for batch failures, of the
+     * first chained or wrapped cause that has one.
+     */
+    static int errorCode(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException) {
+                SQLException sqlEx = (SQLException) t;
+                if (sqlEx.getErrorCode() != 0)
+                    return sqlEx.getErrorCode();
+                SQLException next = sqlEx.getNextException();
+                if (next != null && next.getErrorCode() != 0)
+                    return next.getErrorCode();
+            }
+        }
+        return 0;
+    }
+
+    private static void backoff(int attempt) throws SQLException {
+        // Full jitter so terminals that collided don't collide again
+        long cap = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(attempt, 16));
+        long sleep = ThreadLocalRandom.current().nextLong(cap / 2, cap + 1);
+        try {
+            Thread.sleep(sleep);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting to retry transaction", e);
+        }
+    }
+
+    private static void rollbackQuietly(Connection conn) {
+        try {
+            conn.rollback();
+        } catch (SQLException ex) {
+        }
+    }
+
+    // ----- Statistics -----
+
+    public static long getTransactions() {
+        return transactions.get();
+    }
+
+    public static long getRetries() {
+        return retries.get();
+    }
+
+    public static long getDeadlocks() {
+        return deadlocks.get();
+    }
+
+    public static long getLockTimeouts() {
+        return lockTimeouts.get();
+    }
+
+    public static long getConflicts() {
+        return conflicts.get();
+    }
+
+    public static long getFailures() {
+        return failures.get();
+    }
+
+    public static String summary() {
+        return "| Transactions: " + transactions.get() + " | Retries: " + retries.get()
+                + " (deadlocks " + deadlocks.get() + ", lock timeouts " + lockTimeouts.get()
+                + ", conflicts " + conflicts.get() + ") | Gave up: " + failures.get() + " |";
+    }
+}
@@ -50,7 +50,7 @@ public class FacultyMenu {
                     attendanceDAO.viewAllAttendance(scanner);
                     break;
                 case 7:
-                    attendanceDAO.showDefaulters();
+                    attendanceDAO.showDefaulters(scanner);
                     break;
                 case 8:
                     System.out.println("\n  Logging out of Faculty portal...");
@@ -113,11 +113,9 @@ public class FacultyMenu {
             return;
         }
 
+        // Creates the student, their login and an empty attendance summary together
         Student student = new Student(rollNo, name, className, department);
-        studentDAO.addStudent(student);
-
-        // Auto-create student login account
-        studentDAO.createStudentLogin(rollNo);
+        studentDAO.enrollStudent(student);
     }
 
     // =====================================================
@@ -140,6 +138,9 @@ public class FacultyMenu {
             for (Student s : results) {
                 System.out.println("  " + s);
             }
+            if (results.size() >= StudentDAO.SEARCH_LIMIT) {
+                UIHelper.printInfo("Showing the best " + StudentDAO.SEARCH_LIMIT + " matches. Type more to narrow it down.");
+            }
         }
     }
 
@@ -239,7 +240,7 @@ public class FacultyMenu {
         UIHelper.printSectionHeader("View Attendance", UIHelper.BRIGHT_YELLOW);
         System.out.print("  Enter Roll No: ");
         String rollNo = scanner.nextLine().trim();
-        attendanceDAO.viewAttendance(rollNo);
+        attendanceDAO.viewAttendance(rollNo, scanner);
     }
 
     // =====================================================
@@ -55,14 +55,17 @@ public class HODMenu {
                     attendanceDAO.viewAllAttendance(scanner);
                     break;
                 case 9:
-                    attendanceDAO.showDefaulters();
+                    attendanceDAO.showDefaulters(scanner);
                     break;
                 case 10:
+                    toolsMenu();
+                    break;
+                case 11:
                     System.out.println("\n  Logging out of HOD portal...");
                     running = false;
                     break;
                 default:
-                    UIHelper.printError("Invalid choice! Please enter 1-10.");
+                    UIHelper.printError("Invalid choice! Please enter 1-11.");
             }
         }
     }
@@ -87,7 +90,8 @@ public class HODMenu {
         printItem(w, "7.  View Attendance (Single)", UIHelper.YELLOW);
         printItem(w, "8.  View Attendance Summary (All)", UIHelper.CYAN);
         printItem(w, "9.  Show Defaulters (Below 75%)", UIHelper.RED);
-        printItem(w, "10. Logout", UIHelper.MAGENTA);
+        printItem(w, "10. Maintenance & Tools", UIHelper.BLUE);
+        printItem(w, "11. Logout", UIHelper.MAGENTA);
         System.out.println(UIHelper.BRIGHT_CYAN + "\u255a" + border + "\u255d" + UIHelper.RESET);
     }
 
@@ -120,11 +124,9 @@ public class HODMenu {
             return;
         }
 
+        // Creates the student, their login and an empty attendance summary together
         Student student = new Student(rollNo, name, className, department);
-        studentDAO.addStudent(student);
-
-        // Auto-create student login account
-        studentDAO.createStudentLogin(rollNo);
+        studentDAO.enrollStudent(student);
     }
 
     private void updateStudent() {
@@ -182,6 +184,9 @@ public class HODMenu {
             for (Student s : results) {
                 System.out.println("  " + s);
             }
+            if (results.size() >= StudentDAO.SEARCH_LIMIT) {
+                UIHelper.printInfo("Showing the best " + StudentDAO.SEARCH_LIMIT + " matches. Type more to narrow it down.");
+            }
         }
     }
 
@@ -281,7 +286,396 @@ public class HODMenu {
         UIHelper.printSectionHeader("View Attendance", UIHelper.BRIGHT_YELLOW);
         System.out.print("  Enter Roll No: ");
         String rollNo = scanner.nextLine().trim();
-        attendanceDAO.viewAttendance(rollNo);
+        attendanceDAO.viewAttendance(rollNo, scanner);
+    }
+
+    // =====================================================
+    // MAINTENANCE & TOOLS – Sub-menu
+    // =====================================================
+    private void toolsMenu() {
+        int w = 50;
+        String border = "\u2550".repeat(w);
+        System.out.println("\n" + UIHelper.BRIGHT_CYAN + "\u2554" + border + "\u2557" + UIHelper.RESET);
+        System.out.printf(UIHelper.BRIGHT_CYAN + "\u2551" + UIHelper.BRIGHT_YELLOW
+                + "%-" + w + "s" + UIHelper.BRIGHT_CYAN + "\u2551%n",
+                "         MAINTENANCE & TOOLS");
+        System.out.println(UIHelper.BRIGHT_CYAN + "\u2560" + border + "\u2563" + UIHelper.RESET);
+        printItem(w, "1. System Status", UIHelper.CYAN);
+        printItem(w, "2. Import Attendance from CSV", UIHelper.GREEN);
+        printItem(w, "3. Rebuild Attendance Summary", UIHelper.YELLOW);
+        printItem(w, "4. Enroll Students from CSV", UIHelper.GREEN);
+        printItem(w, "5. Rebuild Daily Section Rollup", UIHelper.YELLOW);
+        printItem(w, "6. Partition Attendance Log by Month", UIHelper.CYAN);
+        printItem(w, "7. Archive Closed Semesters", UIHelper.MAGENTA);
+        printItem(w, "8. Export Semester to Cold Storage", UIHelper.BLUE);
+        printItem(w, "9. Pending Marks (Write-behind Queue)", UIHelper.CYAN);
+        printItem(w, "10. Performance Metrics", UIHelper.YELLOW);
+        printItem(w, "11. Statement Profile (Slow Queries)", UIHelper.MAGENTA);
+        System.out.println(UIHelper.BRIGHT_CYAN + "\u255a" + border + "\u255d" + UIHelper.RESET);
+
+        System.out.print("  Enter your choice: ");
+        String input = scanner.nextLine().trim();
+
+        switch (input) {
+            case "1":
+                showSystemStatus();
+                break;
+            case "2":
+                importAttendance();
+                break;
+            case "3":
+                rebuildSummary();
+                break;
+            case "4":
+                importStudents();
+                break;
+            case "5":
+                rebuildDailyRollup();
+                break;
+            case "6":
+                partitionLog();
+                break;
+            case "7":
+                archiveLog();
+                break;
+            case "8":
+                exportColdArchive();
+                break;
+            case "9":
+                showMarkQueueStatus();
+                break;
+            case "10":
+                showMetrics();
+                break;
+            case "11":
+                showStatementProfile();
+                break;
+            default:
+                UIHelper.printError("Invalid choice.");
+        }
+    }
+
+    private void importAttendance() {
+        UIHelper.printSectionHeader("Import Attendance (CSV)", UIHelper.BRIGHT_GREEN);
+        System.out.println("  Format: roll_no,date,period,subject,status");
+        System.out.print("  Enter CSV file path: ");
+        String path = scanner.nextLine().trim();
+        if (path.isEmpty()) {
+            UIHelper.printError("File path cannot be empty!");
+            return;
+        }
+
+        System.out.print("  Rows per transaction (Enter for " + AttendanceImporter.DEFAULT_CHUNK_SIZE + "): ");
+        String chunkStr = scanner.nextLine().trim();
+        int chunkSize = AttendanceImporter.DEFAULT_CHUNK_SIZE;
+        if (!chunkStr.isEmpty()) {
+            try {
+                chunkSize = Integer.parseInt(chunkStr);
+            } catch (NumberFormatException e) {
+                UIHelper.printError("Invalid number!");
+                return;
+            }
+        }
+
+        new AttendanceImporter(chunkSize).importFile(path);
+    }
+
+    private void importStudents() {
+        UIHelper.printSectionHeader("Enroll Students (CSV)", UIHelper.BRIGHT_GREEN);
+        System.out.println("  Format: roll_no,name,class_name,department");
+        System.out.println("  Existing roll numbers are updated; new ones get a login (password student123).");
+        System.out.print("  Enter CSV file path: ");
+        String path = scanner.nextLine().trim();
+        if (path.isEmpty()) {
+            UIHelper.printError("File path cannot be empty!");
+            return;
+        }
+
+        System.out.print("  Students per transaction (Enter for " + StudentImporter.DEFAULT_CHUNK_SIZE + "): ");
+        String chunkStr = scanner.nextLine().trim();
+        int chunkSize = StudentImporter.DEFAULT_CHUNK_SIZE;
+        if (!chunkStr.isEmpty()) {
+            try {
+                chunkSize = Integer.parseInt(chunkStr);
+            } catch (NumberFormatException e) {
+                UIHelper.printError("Invalid number!");
+                return;
+            }
+        }
+
+        new StudentImporter(chunkSize).importFile(path);
+    }
+
+    private void rebuildSummary() {
+        UIHelper.printSectionHeader("Rebuild Attendance Summary", UIHelper.BRIGHT_YELLOW);
+        System.out.print("  Scope - 1. All  2. Class  3. Department: ");
+        String choice = scanner.nextLine().trim();
+
+        String scope;
+        String value = null;
+        switch (choice) {
+            case "1":
+                scope = SummaryReconciler.SCOPE_ALL;
+                break;
+            case "2":
+                scope = SummaryReconciler.SCOPE_CLASS;
+                System.out.print("  Enter Class Name (e.g., CSE-1): ");
+                value = scanner.nextLine().trim();
+                break;
+            case "3":
+                scope = SummaryReconciler.SCOPE_DEPARTMENT;
+                System.out.print("  Enter Department: ");
+                value = scanner.nextLine().trim();
+                break;
+            default:
+                UIHelper.printError("Invalid choice.");
+                return;
+        }
+        if (value != null && value.isEmpty()) {
+            UIHelper.printError("Name cannot be empty!");
+            return;
+        }
+
+        System.out.print("  Only students changed since last run? (yes/no): ");
+        boolean incremental = isYes(scanner.nextLine());
+        System.out.print("  Fix discrepancies now? (no = report only) (yes/no): ");
+        boolean apply = isYes(scanner.nextLine());
+
+        new SummaryReconciler().reconcile(scope, value, incremental, apply);
+    }
+
+    private void rebuildDailyRollup() {
+        UIHelper.printSectionHeader("Rebuild Daily Section Rollup", UIHelper.BRIGHT_YELLOW);
+        try {
+            System.out.print("  From date (YYYY-MM-DD, Enter = first logged date): ");
+            String fromStr = scanner.nextLine().trim();
+            System.out.print("  To date   (YYYY-MM-DD, Enter = last logged date): ");
+            String toStr = scanner.nextLine().trim();
+            java.sql.Date from = fromStr.isEmpty() ? null : java.sql.Date.valueOf(fromStr);
+            java.sql.Date to = toStr.isEmpty() ? null : java.sql.Date.valueOf(toStr);
+            new DailyRollupBuilder().rebuild(from, to);
+        } catch (IllegalArgumentException e) {
+            UIHelper.printError("Invalid date format! Use YYYY-MM-DD.");
+        }
+    }
+
+    private void partitionLog() {
+        UIHelper.printSectionHeader("Partition Attendance Log", UIHelper.BRIGHT_CYAN);
+        UIHelper.printWarning("This rebuilds attendance_log once and can take a while on large tables.");
+        System.out.print("  Continue? (yes/no): ");
+        if (!isYes(scanner.nextLine())) {
+            UIHelper.printInfo("Cancelled.");
+            return;
+        }
+        new LogPartitionManager().partitionLog();
+    }
+
+    private void archiveLog() {
+        UIHelper.printSectionHeader("Archive Closed Semesters", UIHelper.BRIGHT_MAGENTA);
+        System.out.println("  Rows dated before the cutoff move to the compressed archive table.");
+        System.out.println("  Reports and summaries still include them.");
+        System.out.print("  Archive everything before (YYYY-MM-DD, 1st of a month): ");
+        String dateStr = scanner.nextLine().trim();
+        try {
+            java.sql.Date cutoff = java.sql.Date.valueOf(dateStr);
+            System.out.print("  Archive attendance before " + cutoff + "? (yes/no): ");
+            if (isYes(scanner.nextLine()))
+                new LogPartitionManager().archiveBefore(cutoff);
+            else
+                UIHelper.printInfo("Cancelled.");
+        } catch (IllegalArgumentException e) {
+            UIHelper.printError("Invalid date format! Use YYYY-MM-DD.");
+        }
+    }
+
+    private void exportColdArchive() {
+        UIHelper.printSectionHeader("Export Semester to Cold Storage", UIHelper.BRIGHT_BLUE);
+        System.out.println("  Rows in the range are written to a compressed file under '"
+                + ColdArchive.ARCHIVE_DIR + "' and removed from the database.");
+        System.out.println("  Student reports still show them.");
+        try {
+            System.out.print("  From date (YYYY-MM-DD): ");
+            java.sql.Date from = java.sql.Date.valueOf(scanner.nextLine().trim());
+            System.out.print("  To date   (YYYY-MM-DD): ");
+            java.sql.Date to = java.sql.Date.valueOf(scanner.nextLine().trim());
+            System.out.print("  Export and remove attendance from " + from + " to " + to + "? (yes/no): ");
+            if (isYes(scanner.nextLine()))
+                new ColdArchive().export(from, to);
+            else
+                UIHelper.printInfo("Cancelled.");
+        } catch (IllegalArgumentException e) {
+            UIHelper.printError("Invalid date format! Use YYYY-MM-DD.");
+        }
+    }
+
+    private boolean isYes(String input) {
+        String s = input.trim().toLowerCase();
+        return s.equals("yes") || s.equals("y");
+    }
+
+    private void showSystemStatus() {
+        ConnectionPool.Stats pool = DBConnection.getPoolStats();
+
+        int w = 50;
+        String border = "\u2550".repeat(w);
+        System.out.println("\n" + UIHelper.BRIGHT_CYAN + "\u2554" + border + "\u2557");
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "              SYSTEM STATUS");
+        System.out.println("\u2560" + border + "\u2563");
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "  Connection Pool");
+        System.out.printf("\u2551%-" + w + "s\u2551%n",
+                "    Open        : " + pool.getTotal() + " / " + pool.getMaxSize());
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "    Active      : " + pool.getActive());
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "    Idle        : " + pool.getIdle());
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "    Waiters     : " + pool.getWaiters());
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "    Borrows     : " + pool.getBorrowCount()
+                + " (" + pool.getTimeoutCount() + " timed out)");
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "    Avg Wait    : "
+                + String.format("%.3f ms (max %.3f ms)", pool.getAverageBorrowMillis(), pool.getMaxBorrowMillis()));
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "    Opened/Closed: " + pool.getCreatedCount()
+                + " / " + pool.getClosedCount());
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "  Statement Cache");
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "    Open        : " + pool.getStatementsCached());
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "    Hits/Misses : " + pool.getStatementHits() + " / "
+                + pool.getStatementMisses() + String.format(" (%.1f%% hit)", pool.getStatementHitRate()));
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "    Evictions   : " + pool.getStatementEvictions());
+        System.out.println("\u2560" + border + "\u2563");
+        printCacheStatus(w, StudentDAO.getClassRosterCache());
+        printCacheStatus(w, StudentDAO.getKnownStudentCache());
+        System.out.println("\u2560" + border + "\u2563");
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "  Write Transactions");
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "    Run         : " + TransactionRetry.getTransactions());
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "    Retried     : " + TransactionRetry.getRetries()
+                + " (gave up " + TransactionRetry.getFailures() + ")");
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "    Deadlocks   : " + TransactionRetry.getDeadlocks());
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "    Lock Waits  : " + TransactionRetry.getLockTimeouts()
+                + " timed out");
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "    Conflicts   : " + TransactionRetry.getConflicts());
+        System.out.println("\u255a" + border + "\u255d" + UIHelper.RESET);
+    }
+
+    private void showMarkQueueStatus() {
+        int w = 50;
+        String border = "\u2550".repeat(w);
+        System.out.println("\n" + UIHelper.BRIGHT_CYAN + "\u2554" + border + "\u2557");
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "           WRITE-BEHIND MARK QUEUE");
+        System.out.println("\u2560" + border + "\u2563");
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "    Mode        : "
+                + (MarkQueue.isActive() ? "asynchronous" : "synchronous"));
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "    Pending     : " + MarkQueue.getPending()
+                + " / " + MarkQueue.getCapacity());
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "    Queued      : " + MarkQueue.getSubmitted()
+                + " (+" + MarkQueue.getReplayed() + " replayed)");
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "    Applied     : " + MarkQueue.getApplied()
+                + " in " + MarkQueue.getFlushes() + " batch(es)");
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "    Skipped     : " + MarkQueue.getDuplicates()
+                + " already marked, " + MarkQueue.getRejected() + " rejected");
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "    Offline     : " + MarkQueue.getOfflineMarks()
+                + " mark(s) taken while disconnected");
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "    Queue Full  : " + MarkQueue.getBackpressureWaits()
+                + " wait(s)");
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "    Fsync       : " + MarkQueue.FSYNC_POLICY);
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "    Journal     : "
+                + String.format("%,d bytes", MarkQueue.getJournalBytes()));
+        long lastFlush = MarkQueue.getLastFlushAt();
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "    Last Flush  : " + (lastFlush == 0 ? "-"
+                : (System.currentTimeMillis() - lastFlush) / 1000 + " s ago"));
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "    Failures    : " + MarkQueue.getFlushFailures());
+        System.out.println("\u255a" + border + "\u255d" + UIHelper.RESET);
+
+        System.out.println("  Journal file: " + MarkQueue.getJournalPath());
+        String error = MarkQueue.getLastError();
+        if (error != null)
+            UIHelper.printWarning("Last write error: " + error);
+        List<String> problems = MarkQueue.getRecentProblems();
+        if (!problems.isEmpty()) {
+            System.out.println("  Recently skipped marks:");
+            for (String p : problems)
+                System.out.println("    - " + p);
+        }
+    }
+
+    /**
+     * Latency and failures of every timed operation used since startup.
+     */
+    private void showMetrics() {
+        int w = 96;
+        String border = "\u2550".repeat(w);
+        System.out.println("\n" + UIHelper.BRIGHT_CYAN + "\u2554" + border + "\u2557");
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "                                PERFORMANCE METRICS");
+        System.out.println("\u2560" + border + "\u2563");
+        System.out.printf("\u2551%-" + w + "s\u2551%n", String.format("  %-40s %7s %6s %9s %9s %9s %9s",
+                "Operation", "Calls", "Errors", "Mean ms", "p50 ms", "p99 ms", "Max ms"));
+        System.out.println("\u2560" + border + "\u2563");
+
+        int shown = 0;
+        for (Metrics.Timer t : Metrics.getTimers()) {
+            Metrics.Histogram h = t.getHistogram();
+            if (h.getCount() == 0)
+                continue;
+            String name = t.getDisplayName();
+            if (name.length() > 40)
+                name = name.substring(0, 39) + "~";
+            String row = String.format("  %-40s %7d %6d %9.2f %9.2f %9.2f %9.2f", name, h.getCount(), t.getErrors(),
+                    h.getMeanMillis(), h.getPercentileMillis(0.50), h.getPercentileMillis(0.99), h.getMaxMillis());
+            System.out.printf("\u2551" + (t.getErrors() > 0 ? UIHelper.RED : UIHelper.RESET) + "%-" + w + "s"
+                    + UIHelper.BRIGHT_CYAN + "\u2551%n", row);
+            shown++;
+        }
+        if (shown == 0)
+            System.out.printf("\u2551%-" + w + "s\u2551%n", "  Nothing timed yet.");
+        System.out.println("\u255a" + border + "\u255d" + UIHelper.RESET);
+
+        System.out.println("  Times exclude waiting for input on paged reports; p50/p99 are accurate to about 3%.");
+        if (Metrics.DUMP_INTERVAL_SEC > 0) {
+            long last = Metrics.getLastDumpAt();
+            System.out.println("  Metrics file: " + Metrics.DUMP_FILE + " (every " + Metrics.DUMP_INTERVAL_SEC
+                    + " s, last written " + (last == 0 ? "-" : (System.currentTimeMillis() - last) / 1000 + " s ago")
+                    + ")");
+        }
+    }
+
+    private void showStatementProfile() {
+        if (!StatementProfiler.ENABLED) {
+            UIHelper.printInfo("Statement profiling is off (-Dclasstrack.profile.statements=false).");
+            return;
+        }
+        int w = 104;
+        String border = "\u2550".repeat(w);
+        System.out.println("\n" + UIHelper.BRIGHT_CYAN + "\u2554" + border + "\u2557");
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "                                  STATEMENT PROFILE (TOP 15)");
+        System.out.println("\u2560" + border + "\u2563");
+        System.out.printf("\u2551%-" + w + "s\u2551%n", String.format("  %-8s %8s %6s %6s %10s %9s %9s %9s %9s %9s",
+                "Id", "Calls", "Errors", "Slow", "Total ms", "Exec ms", "Fetch ms", "p99 ms", "Max ms", "Rows/call"));
+        System.out.println("\u2560" + border + "\u2563");
+
+        List<StatementProfiler.Stats> stats = StatementProfiler.getStats();
+        for (StatementProfiler.Stats s : stats.subList(0, Math.min(15, stats.size()))) {
+            String row = String.format("  %-8s %8d %6d %6d %10.1f %9.2f %9.2f %9.2f %9.2f %9.1f", s.getId(),
+                    s.getCalls(), s.getErrors(), s.getSlow(), s.getTotalMillis(), s.getAvgExecMillis(),
+                    s.getAvgFetchMillis(), s.getP99Millis(), s.getMaxMillis(),
+                    s.getRows() / (double) Math.max(1, s.getCalls()));
+            System.out.printf("\u2551" + (s.getSlow() > 0 ? UIHelper.YELLOW : UIHelper.RESET) + "%-" + w + "s"
+                    + UIHelper.BRIGHT_CYAN + "\u2551%n", row);
+            String sql = s.getFingerprint();
+            if (sql.length() > w - 12)
+                sql = sql.substring(0, w - 15) + "...";
+            System.out.printf("\u2551%-" + w + "s\u2551%n", "            " + sql);
+        }
+        if (stats.isEmpty())
+            System.out.printf("\u2551%-" + w + "s\u2551%n", "  No statements executed yet.");
+        System.out.println("\u255a" + border + "\u255d" + UIHelper.RESET);
+
+        System.out.println("  Ms columns are per call except Total. Slow = over " + StatementProfiler.SLOW_THRESHOLD_MS
+                + " ms; " + StatementProfiler.getSlowLogged() + " logged to " + StatementProfiler.LOG_FILE
+                + (StatementProfiler.EXPLAIN ? " (with EXPLAIN)." : "."));
+    }
+
+    private void printCacheStatus(int w, LruCache<?, ?> cache) {
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "  Cache: " + cache.getName());
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "    Entries     : " + cache.size());
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "    Hits/Misses : " + cache.getHits() + " / "
+                + cache.getMisses() + String.format(" (%.1f%% hit)", cache.getHitRate()));
+        System.out.printf("\u2551%-" + w + "s\u2551%n", "    Evictions   : " + cache.getEvictions());
     }
 
     // =====================================================
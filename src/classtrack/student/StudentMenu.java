@@ -9,7 +9,6 @@
 package classtrack.student;
 
 import classtrack.*;
-import java.util.List;
 import java.util.Scanner;
 
 public class StudentMenu {
@@ -73,13 +72,12 @@ public class StudentMenu {
     // VIEW MY PROFILE
     // =====================================================
     private void viewMyProfile() {
-        List<Student> results = studentDAO.searchStudent(rollNo);
-        if (results.isEmpty()) {
+        Student s = studentDAO.getStudent(rollNo);
+        if (s == null) {
             UIHelper.printError("Profile not found for Roll No: " + rollNo);
             return;
         }
 
-        Student s = results.get(0);
         int w = 50;
         String border = "\u2550".repeat(w);
         System.out.println("\n" + UIHelper.BRIGHT_CYAN + "\u2554" + border + "\u2557");
@@ -122,7 +120,7 @@ public class StudentMenu {
                 attendanceDAO.viewStudentTodayAttendance(rollNo);
                 break;
             case "2":
-                attendanceDAO.viewAttendance(rollNo);
+                attendanceDAO.viewAttendance(rollNo, scanner);
                 break;
             case "3":
                 System.out.print("  Enter Date (YYYY-MM-DD): ");